@@ -1,15 +1,21 @@
 from __future__ import annotations
 
 import json
+import logging
 from pathlib import Path
 from threading import RLock
 
+from app.core.config import RagConfig
 from app.models.schemas import StorageSnapshot
+from app.storage.segment import SegmentReader, segment_path, write_segment
+
+logger = logging.getLogger(__name__)
 
 
 class JsonRepository:
-    def __init__(self, file_path: Path) -> None:
+    def __init__(self, file_path: Path, vector_dim: int = RagConfig.vector_dim) -> None:
         self.file_path = file_path
+        self.vector_dim = vector_dim
         self._lock = RLock()
         self.file_path.parent.mkdir(parents=True, exist_ok=True)
 
@@ -26,4 +32,30 @@ class JsonRepository:
                 snapshot.model_dump_json(indent=2),
                 encoding="utf-8",
             )
+            # 索引段写失败不影响 JSON：header 中的 JSON 戳对不上，读取方自动回退到 JSON。
+            try:
+                write_segment(snapshot, self.file_path, self.vector_dim)
+            except OSError as exc:
+                logger.warning("segment_write_failed path=%s error=%s", segment_path(self.file_path), exc)
+
+
+class SegmentRepository(JsonRepository):
+    """只读路径（查询/状态）使用：索引段与 JSON 一致时从索引段读取，否则回退到 JSON。
+
+    索引段中的 dense_vector 为 float32，读出的快照不应再写回，写入仍走 JsonRepository.load 的结果。
+    """
 
+    def load(self) -> StorageSnapshot:
+        with self._lock:
+            seg_file = segment_path(self.file_path)
+            if seg_file.exists():
+                try:
+                    with SegmentReader(seg_file) as reader:
+                        if reader.matches(self.file_path):
+                            return reader.to_snapshot()
+                except (OSError, ValueError) as exc:
+                    logger.warning("segment_load_failed path=%s error=%s", seg_file, exc)
+            return super().load()
+
+    def save(self, snapshot: StorageSnapshot) -> None:
+        raise RuntimeError("SegmentRepository is read-only; use JsonRepository to write")
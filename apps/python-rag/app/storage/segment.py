@@ -0,0 +1,327 @@
+from __future__ import annotations
+
+"""PageIndexRAG 二进制索引段（page_index_store.seg）。
+
+JSON 快照里每个 chunk 的 dense_vector / sparse_terms 都是数字文本，读取一次要重新解析全部数字。
+索引段把同一份快照写成定长表 + 连续数组，读取方可以直接内存映射：
+
+    header (64 B)
+      magic "PIDXSEG1" | version u32 | vector_dim u32
+      doc_count u32 | page_count u32 | chunk_count u32 | term_count u32 | posting_count u32 | reserved u32
+      source_mtime_ns i64 | source_size i64        # 写入时 JSON 文件的修改时间与大小
+      updated_at: string ref
+    section table: 8 x (offset u64, length u64)
+      STRINGS         UTF-8 字符串池，string ref = (offset u32, length u32)，length=0xFFFFFFFF 表示 null
+      DOCS            doc_count   x 16 B: doc_id ref | document_json ref
+      PAGES           page_count  x 48 B: page_id ref | doc_id ref | page_no i32 | page_text ref
+                                         | page_summary ref | keywords_json ref | pad u32
+      CHUNKS          chunk_count x 56 B: chunk_id ref | page_id ref | doc_id ref | chunk_text ref
+                                         | page_no i32 | chunk_no i32 | offset_start i32 | offset_end i32
+                                         | token_count i32 | flags u32 (bit0: dense_vector 维度等于 vector_dim)
+      VECTORS         chunk_count x vector_dim x f32，维度不符的向量整行为 0
+      TERMS           term_count  x 16 B: term ref | first_posting u32 | posting_count u32
+      POSTING_CHUNKS  posting_count x u32：chunk 序号，同一词项内按 chunk 顺序
+      POSTING_TF      posting_count x f64：该 chunk 的 sparse_terms 权重
+
+所有整数与浮点均为小端序，每个 section 起点按 8 字节对齐。
+词项按在 chunk 中首次出现的顺序编号；Java 侧 PageIndexSegment 按同一布局读取。
+
+JSON 仍是写入格式与唯一数据源：索引段由 JsonRepository.save 随 JSON 一起生成，
+header 中记录的 JSON (mtime, size) 与当前文件不一致时视为过期，读取方回退到 JSON。
+dense_vector 以 float32 存放，精度低于 JSON，所以只用于读取路径，不能读出后再写回 JSON。
+"""
+
+import json
+import mmap
+import os
+import struct
+import sys
+from array import array
+from pathlib import Path
+
+from app.models.schemas import StorageSnapshot, StoredChunk, StoredDocument, StoredPage
+
+MAGIC = b"PIDXSEG1"
+VERSION = 1
+HEADER_SIZE = 64
+SECTION_COUNT = 8
+DATA_OFFSET = HEADER_SIZE + SECTION_COUNT * 16
+NULL_LENGTH = 0xFFFFFFFF
+
+(
+    SECTION_STRINGS,
+    SECTION_DOCS,
+    SECTION_PAGES,
+    SECTION_CHUNKS,
+    SECTION_VECTORS,
+    SECTION_TERMS,
+    SECTION_POSTING_CHUNKS,
+    SECTION_POSTING_TF,
+) = range(SECTION_COUNT)
+
+_HEADER = struct.Struct("<8sIIIIIIIIqqII")
+_SECTION = struct.Struct("<QQ")
+_DOC = struct.Struct("<IIII")
+_PAGE = struct.Struct("<IIIIiIIIIIII")
+_CHUNK = struct.Struct("<IIIIIIIIiiiiiI")
+_TERM = struct.Struct("<IIII")
+
+FLAG_DENSE_VALID = 1
+
+
+def segment_path(data_file: Path) -> Path:
+    """JSON 快照对应的索引段路径：同目录同名，扩展名为 .seg。"""
+    return data_file.with_suffix(".seg")
+
+
+def file_stamp(path: Path) -> tuple[int, int] | None:
+    try:
+        stat = path.stat()
+    except FileNotFoundError:
+        return None
+    return stat.st_mtime_ns, stat.st_size
+
+
+class _StringPool:
+    def __init__(self) -> None:
+        self._refs: dict[str, tuple[int, int]] = {}
+        self._buf = bytearray()
+
+    def ref(self, value: str | None) -> tuple[int, int]:
+        if value is None:
+            return 0, NULL_LENGTH
+        found = self._refs.get(value)
+        if found is None:
+            data = value.encode("utf-8")
+            found = (len(self._buf), len(data))
+            self._buf += data
+            self._refs[value] = found
+        return found
+
+    def to_bytes(self) -> bytes:
+        return bytes(self._buf)
+
+
+def _f32_row(vector: list[float]) -> bytes:
+    row = array("f", vector)
+    if sys.byteorder != "little":
+        row.byteswap()
+    return row.tobytes()
+
+
+def encode_segment(snapshot: StorageSnapshot, dim: int, source_stamp: tuple[int, int] | None) -> bytes:
+    """把快照编码为索引段字节。"""
+    strings = _StringPool()
+
+    docs = bytearray()
+    for doc_id, doc in snapshot.documents.items():
+        docs += _DOC.pack(*strings.ref(doc_id), *strings.ref(json.dumps(doc.model_dump(), ensure_ascii=False)))
+
+    pages = bytearray()
+    for page in snapshot.pages.values():
+        pages += _PAGE.pack(
+            *strings.ref(page.page_id),
+            *strings.ref(page.doc_id),
+            page.page_no,
+            *strings.ref(page.page_text),
+            *strings.ref(page.page_summary),
+            *strings.ref(json.dumps(page.keywords, ensure_ascii=False)),
+            0,
+        )
+
+    chunks = bytearray()
+    vectors = bytearray()
+    zero_row = bytes(4 * dim)
+    term_postings: dict[str, tuple[list[int], list[float]]] = {}
+    for chunk_no, chunk in enumerate(snapshot.chunks.values()):
+        valid = len(chunk.dense_vector) == dim
+        chunks += _CHUNK.pack(
+            *strings.ref(chunk.chunk_id),
+            *strings.ref(chunk.page_id),
+            *strings.ref(chunk.doc_id),
+            *strings.ref(chunk.chunk_text),
+            chunk.page_no,
+            chunk.chunk_no,
+            chunk.offset_start,
+            chunk.offset_end,
+            chunk.token_count,
+            FLAG_DENSE_VALID if valid else 0,
+        )
+        vectors += _f32_row(chunk.dense_vector) if valid else zero_row
+        for term, tf in chunk.sparse_terms.items():
+            entry = term_postings.get(term)
+            if entry is None:
+                entry = ([], [])
+                term_postings[term] = entry
+            entry[0].append(chunk_no)
+            entry[1].append(tf)
+
+    terms = bytearray()
+    posting_chunks = array("I")
+    posting_tf = array("d")
+    for term, (chunk_list, tf_list) in term_postings.items():
+        terms += _TERM.pack(*strings.ref(term), len(posting_chunks), len(chunk_list))
+        posting_chunks.extend(chunk_list)
+        posting_tf.extend(tf_list)
+    if sys.byteorder != "little":
+        posting_chunks.byteswap()
+        posting_tf.byteswap()
+
+    updated_at = strings.ref(snapshot.updated_at)
+    sections = [
+        strings.to_bytes(),
+        bytes(docs),
+        bytes(pages),
+        bytes(chunks),
+        bytes(vectors),
+        bytes(terms),
+        posting_chunks.tobytes(),
+        posting_tf.tobytes(),
+    ]
+
+    mtime_ns, size = source_stamp if source_stamp else (-1, -1)
+    table = bytearray()
+    body = bytearray()
+    offset = DATA_OFFSET
+    for data in sections:
+        table += _SECTION.pack(offset, len(data))
+        padding = -len(data) % 8
+        body += data + bytes(padding)
+        offset += len(data) + padding
+
+    header = _HEADER.pack(
+        MAGIC,
+        VERSION,
+        dim,
+        len(snapshot.documents),
+        len(snapshot.pages),
+        len(snapshot.chunks),
+        len(term_postings),
+        len(posting_chunks),
+        0,
+        mtime_ns,
+        size,
+        *updated_at,
+    )
+    return header + bytes(table) + bytes(body)
+
+
+def write_segment(snapshot: StorageSnapshot, data_file: Path, dim: int) -> Path:
+    """为已写入的 JSON 快照生成索引段：先写临时文件再原子替换，读取方不会看到半个文件。"""
+    target = segment_path(data_file)
+    payload = encode_segment(snapshot, dim, file_stamp(data_file))
+    tmp = target.with_name(target.name + ".tmp")
+    tmp.write_bytes(payload)
+    os.replace(tmp, target)
+    return target
+
+
+class SegmentReader:
+    """内存映射方式读取索引段。"""
+
+    def __init__(self, path: Path) -> None:
+        self.path = path
+        with path.open("rb") as fh:
+            self._mm = mmap.mmap(fh.fileno(), 0, access=mmap.ACCESS_READ)
+        header = _HEADER.unpack_from(self._mm, 0)
+        if header[0] != MAGIC:
+            raise ValueError(f"not a page index segment: {path}")
+        if header[1] != VERSION:
+            raise ValueError(f"unsupported page index segment version {header[1]}: {path}")
+        (
+            _,
+            _,
+            self.vector_dim,
+            self.doc_count,
+            self.page_count,
+            self.chunk_count,
+            self.term_count,
+            self.posting_count,
+            _,
+            mtime_ns,
+            size,
+            updated_off,
+            updated_len,
+        ) = header
+        self.source_stamp = (mtime_ns, size)
+        self._sections = [_SECTION.unpack_from(self._mm, HEADER_SIZE + i * 16) for i in range(SECTION_COUNT)]
+        self._strings_offset = self._sections[SECTION_STRINGS][0]
+        self.updated_at = self._string(updated_off, updated_len)
+
+    def close(self) -> None:
+        self._mm.close()
+
+    def __enter__(self) -> "SegmentReader":
+        return self
+
+    def __exit__(self, *exc: object) -> None:
+        self.close()
+
+    def matches(self, data_file: Path) -> bool:
+        """索引段是否由当前 JSON 文件生成。"""
+        return self.source_stamp == file_stamp(data_file)
+
+    def _string(self, offset: int, length: int) -> str | None:
+        if length == NULL_LENGTH:
+            return None
+        start = self._strings_offset + offset
+        return self._mm[start : start + length].decode("utf-8")
+
+    def _record(self, section: int, layout: struct.Struct, index: int) -> tuple:
+        return layout.unpack_from(self._mm, self._sections[section][0] + index * layout.size)
+
+    def _array(self, section: int, typecode: str) -> array:
+        offset, length = self._sections[section]
+        values = array(typecode)
+        values.frombytes(self._mm[offset : offset + length])
+        if sys.byteorder != "little":
+            values.byteswap()
+        return values
+
+    def to_snapshot(self) -> StorageSnapshot:
+        """还原为 StorageSnapshot（dense_vector 为 float32 精度）。"""
+        snapshot = StorageSnapshot(updated_at=self.updated_at)
+        for i in range(self.doc_count):
+            r = self._record(SECTION_DOCS, _DOC, i)
+            snapshot.documents[self._string(r[0], r[1])] = StoredDocument(**json.loads(self._string(r[2], r[3])))
+        for i in range(self.page_count):
+            r = self._record(SECTION_PAGES, _PAGE, i)
+            page = StoredPage(
+                page_id=self._string(r[0], r[1]),
+                doc_id=self._string(r[2], r[3]),
+                page_no=r[4],
+                page_text=self._string(r[5], r[6]),
+                page_summary=self._string(r[7], r[8]),
+                keywords=json.loads(self._string(r[9], r[10])),
+            )
+            snapshot.pages[page.page_id] = page
+
+        sparse: list[dict[str, float]] = [{} for _ in range(self.chunk_count)]
+        posting_chunks = self._array(SECTION_POSTING_CHUNKS, "I")
+        posting_tf = self._array(SECTION_POSTING_TF, "d")
+        for i in range(self.term_count):
+            r = self._record(SECTION_TERMS, _TERM, i)
+            term = self._string(r[0], r[1])
+            for p in range(r[2], r[2] + r[3]):
+                sparse[posting_chunks[p]][term] = posting_tf[p]
+
+        vectors = self._array(SECTION_VECTORS, "f")
+        dim = self.vector_dim
+        for i in range(self.chunk_count):
+            r = self._record(SECTION_CHUNKS, _CHUNK, i)
+            dense = vectors[i * dim : (i + 1) * dim].tolist() if r[13] & FLAG_DENSE_VALID else []
+            chunk = StoredChunk(
+                chunk_id=self._string(r[0], r[1]),
+                page_id=self._string(r[2], r[3]),
+                doc_id=self._string(r[4], r[5]),
+                chunk_text=self._string(r[6], r[7]),
+                page_no=r[8],
+                chunk_no=r[9],
+                offset_start=r[10],
+                offset_end=r[11],
+                token_count=r[12],
+                dense_vector=dense,
+                sparse_terms=sparse[i],
+            )
+            snapshot.chunks[chunk.chunk_id] = chunk
+        return snapshot
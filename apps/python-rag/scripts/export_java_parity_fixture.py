@@ -0,0 +1,179 @@
+#!/usr/bin/env python3
+from __future__ import annotations
+
+"""导出 Java 查询引擎的对齐测试数据。
+
+用固定语料走一遍真实的 ingest，再用一组固定问题调用 query，输出：
+- page_index_store.json：入库后的存储快照（紧凑 JSON）
+- page_index_store.seg：同一快照的二进制索引段
+- expected_queries.json：[{"request": {...}, "response": {...}}]
+
+Java 侧 PageIndexParityTest 读取这两个文件，逐条比对进程内引擎与 Python 的查询结果。
+RRF 同分时 Python 的先后顺序随哈希种子变化，导出时用多个 PYTHONHASHSEED 各跑一遍，
+只保留结果在所有种子下都一致的问题。
+
+用法：
+    python scripts/export_java_parity_fixture.py \
+        --out-dir ../../src/test/resources/page-index-parity
+"""
+
+import argparse
+import json
+import os
+import subprocess
+import sys
+import tempfile
+from pathlib import Path
+
+APP_ROOT = Path(__file__).resolve().parents[1]
+if str(APP_ROOT) not in sys.path:
+    sys.path.insert(0, str(APP_ROOT))
+
+from app.core.config import RagConfig  # noqa: E402
+from app.core.reranker import LexicalReranker  # noqa: E402
+from app.models.schemas import IngestRequest, QueryRequest, StorageSnapshot  # noqa: E402
+from app.services.page_index_rag_service import PageIndexRagService  # noqa: E402
+from app.storage.repository import JsonRepository  # noqa: E402
+from app.storage.segment import write_segment  # noqa: E402
+
+SEEDS = ["0", "1", "2", "3", "42", "1234"]
+
+_LONG_PAGE = " ".join(
+    f"第{i}段 膳食纤维 促进 肠道 蠕动 whole grain oats barley fiber intake section{i}" for i in range(40)
+)
+
+CORPUS: list[dict] = [
+    {
+        "doc_id": "nutrition-basics",
+        "doc_name": "营养基础",
+        "pages": [
+            "蛋白质 是 构成 人体 组织 的 重要 成分，成年人 每日 蛋白质 摄入 建议 每公斤 体重 0.8 克。",
+            "碳水化合物 提供 能量，全谷物 比 精制 谷物 含有 更多 膳食纤维 与 B族维生素。",
+            "脂肪 分为 饱和 脂肪 与 不饱和 脂肪，橄榄油 和 坚果 富含 单不饱和 脂肪酸。",
+            "维生素 C 存在 于 柑橘 猕猴桃 与 青椒 中，有助于 铁 的 吸收。",
+            "钙 与 维生素 D 共同 维持 骨骼 健康，牛奶 豆腐 是 常见 的 钙 来源。",
+        ],
+    },
+    {
+        "doc_id": "fruit-guide",
+        "doc_name": "水果指南",
+        "pages": [
+            "香蕉 富含 钾，potassium helps regulate blood pressure and muscle function.",
+            "苹果 含有 果胶 pectin，属于 可溶性 膳食纤维。",
+            "蓝莓 blueberry 含有 花青素 anthocyanin，具有 抗氧化 作用。",
+            "榴莲 热量 较高，糖尿病 患者 应 控制 摄入 份量。",
+        ],
+    },
+    {
+        "doc_id": "sports-nutrition",
+        "doc_name": "Sports Nutrition Handbook",
+        "pages": [
+            "Endurance athletes need carbohydrate loading before marathon races to maximize glycogen stores.",
+            "Post workout protein intake of 20 to 40 grams supports muscle protein synthesis and recovery.",
+            "Hydration: drink water and electrolytes; sodium loss in sweat varies between athletes.",
+            "Creatine monohydrate supplementation improves high intensity sprint performance.",
+            "Caffeine at 3 mg per kg body weight can improve endurance performance.",
+            "Iron deficiency is common in female endurance athletes and reduces oxygen transport.",
+        ],
+    },
+    {
+        "doc_id": "fiber-report",
+        "doc_name": "膳食纤维报告",
+        "pages": [
+            "膳食纤维 分为 可溶性 与 不可溶性 两类。",
+            _LONG_PAGE,
+            "建议 每日 膳食纤维 摄入 25 到 30 克，来源 包括 燕麦 豆类 蔬菜。",
+        ],
+    },
+    {
+        "doc_id": "kitchen-safety",
+        "doc_name": "厨房安全",
+        "pages": [
+            "生熟 分开 存放，避免 交叉 污染；冰箱 冷藏 温度 保持 在 4 度 以下。",
+            "hyperflux_omega reactor calibration manual for the kitchen sous vide device.",
+            "剩菜 应 在 两 小时 内 冷藏，再次 加热 时 中心 温度 达到 75 度。",
+        ],
+    },
+]
+
+QUERIES: list[dict] = [
+    {"query": "钾 在 哪一页", "top_k": 3, "with_debug": True},
+    {"query": "每日蛋白质摄入多少克", "top_k": 5, "with_debug": True},
+    {"query": "hyperflux_omega", "top_k": 2, "with_debug": True},
+    {"query": "protein intake after workout", "top_k": 4, "with_debug": True},
+    {"query": "膳食纤维 燕麦", "top_k": 6, "with_debug": True},
+    {"query": "whole grain fiber section12", "top_k": 3, "with_debug": True},
+    {"query": "维生素C 铁 吸收", "top_k": 8, "with_debug": False},
+    {"query": "marathon glycogen carbohydrate", "top_k": 10, "with_debug": True},
+    {"query": "糖尿病 水果", "top_k": 4, "with_debug": True},
+    {"query": "冰箱 冷藏 温度", "top_k": 3, "with_debug": True},
+    {"query": "iron deficiency athletes", "top_k": 5, "with_debug": True},
+    {"query": "抗氧化 蓝莓 anthocyanin", "top_k": 2, "with_debug": True},
+    {"query": "完全不相关的问题 quantum chromodynamics", "top_k": 3, "with_debug": True},
+]
+
+
+def _build_store(data_file: Path) -> None:
+    repo = JsonRepository(data_file)
+    service = PageIndexRagService(repo, RagConfig())
+    for doc in CORPUS:
+        service.ingest(IngestRequest(doc_id=doc["doc_id"], doc_name=doc["doc_name"], pages=doc["pages"]))
+
+
+def _run_queries(data_file: Path) -> list[dict]:
+    cfg = RagConfig()
+    service = PageIndexRagService(JsonRepository(data_file), cfg, reranker=LexicalReranker(cfg), generator=None)
+    results = []
+    for request in QUERIES:
+        response = service.query(QueryRequest(**request))
+        results.append({"request": request, "response": json.loads(response.model_dump_json())})
+    return results
+
+
+def main() -> int:
+    parser = argparse.ArgumentParser(description="Export PageIndexRAG parity fixture for the Java query engine")
+    parser.add_argument("--out-dir", help="output directory")
+    parser.add_argument("--query-only", help="internal: run queries against this store and print json")
+    args = parser.parse_args()
+
+    if args.query_only:
+        print(json.dumps(_run_queries(Path(args.query_only)), ensure_ascii=False))
+        return 0
+    if not args.out_dir:
+        parser.error("--out-dir is required")
+
+    out_dir = Path(args.out_dir).resolve()
+    out_dir.mkdir(parents=True, exist_ok=True)
+    with tempfile.TemporaryDirectory() as tmp:
+        data_file = Path(tmp) / "page_index_store.json"
+        _build_store(data_file)
+
+        runs = []
+        for seed in SEEDS:
+            env = dict(os.environ, PYTHONHASHSEED=seed)
+            output = subprocess.run(
+                [sys.executable, __file__, "--query-only", str(data_file)],
+                env=env, check=True, capture_output=True, text=True,
+            ).stdout
+            runs.append(json.loads(output))
+
+        stable = []
+        for i, expected in enumerate(runs[0]):
+            if all(run[i] == expected for run in runs[1:]):
+                stable.append(expected)
+            else:
+                print(f"skip tie-sensitive query: {expected['request']['query']}", file=sys.stderr)
+
+        snapshot = json.loads(data_file.read_text(encoding="utf-8"))
+    store_file = out_dir / "page_index_store.json"
+    store_file.write_text(json.dumps(snapshot, ensure_ascii=False, separators=(",", ":")), encoding="utf-8")
+    write_segment(StorageSnapshot.model_validate(snapshot), store_file, RagConfig().vector_dim)
+    (out_dir / "expected_queries.json").write_text(
+        json.dumps(stable, ensure_ascii=False, indent=2) + "\n", encoding="utf-8"
+    )
+    print(f"exported {len(stable)}/{len(QUERIES)} queries to {out_dir}", file=sys.stderr)
+    return 0
+
+
+if __name__ == "__main__":
+    raise SystemExit(main())
@@ -0,0 +1,68 @@
+#!/usr/bin/env python3
+from __future__ import annotations
+
+"""把已有的 page_index_store.json 转换为二进制索引段（page_index_store.seg）。
+
+入库后 JsonRepository.save 会自动生成索引段；本脚本用于升级前已存在的数据文件，
+或 Java 侧删除文档改写 JSON 后手动重建。
+
+用法：
+    python scripts/page_index_build_segment.py [--data-file data/page_index_store.json]
+
+输出（stdout）：{"status":"SUCCESS","segment_file":"...","docs":2,"pages":44,"chunks":74,"bytes":...}
+"""
+
+import argparse
+import json
+import os
+import sys
+from pathlib import Path
+
+
+def _bootstrap_import_path() -> None:
+    app_root = Path(__file__).resolve().parents[1]
+    if str(app_root) not in sys.path:
+        sys.path.insert(0, str(app_root))
+
+
+_bootstrap_import_path()
+
+from app.core.config import RagConfig  # noqa: E402
+from app.storage.repository import JsonRepository  # noqa: E402
+from app.storage.segment import write_segment  # noqa: E402
+
+
+def _default_data_file() -> Path:
+    base = Path(os.getenv("PAGE_INDEX_RAG_DATA_DIR", "data"))
+    return base / "page_index_store.json"
+
+
+def main() -> int:
+    parser = argparse.ArgumentParser(description="Convert page_index_store.json to a binary index segment")
+    parser.add_argument("--data-file", help="JSON 快照路径，默认 $PAGE_INDEX_RAG_DATA_DIR/page_index_store.json")
+    args = parser.parse_args()
+
+    try:
+        data_file = Path(args.data_file).expanduser().resolve() if args.data_file else _default_data_file()
+        if not data_file.exists():
+            raise FileNotFoundError(f"data file not found: {data_file}")
+        snapshot = JsonRepository(data_file).load()
+        segment_file = write_segment(snapshot, data_file, RagConfig().vector_dim)
+        result = {
+            "status": "SUCCESS",
+            "segment_file": str(segment_file),
+            "docs": len(snapshot.documents),
+            "pages": len(snapshot.pages),
+            "chunks": len(snapshot.chunks),
+            "bytes": segment_file.stat().st_size,
+        }
+        print(json.dumps(result, ensure_ascii=False))
+        return 0
+    except Exception as exc:  # pragma: no cover - integration path
+        error = {"status": "FAILED", "code": "PYTHON_SCRIPT_BUILD_SEGMENT_FAILED", "error": str(exc)}
+        print(json.dumps(error, ensure_ascii=False))
+        return 1
+
+
+if __name__ == "__main__":
+    raise SystemExit(main())
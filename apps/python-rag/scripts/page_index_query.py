@@ -60,7 +60,7 @@ from app.core.config import RagConfig  # noqa: E402
 from app.core.reranker import build_reranker  # noqa: E402
 from app.models.schemas import QueryRequest  # noqa: E402
 from app.services.page_index_rag_service import PageIndexRagService  # noqa: E402
-from app.storage.repository import JsonRepository  # noqa: E402
+from app.storage.repository import SegmentRepository  # noqa: E402
 
 
 def _default_data_file() -> Path:
@@ -131,7 +131,8 @@ def _build_service(data_file: Path) -> PageIndexRagService:
     rag_cfg = RagConfig()
 
     # 用本地 JSON 文件做存储仓库（不依赖外部向量数据库）。
-    repo = JsonRepository(data_file)
+    # 同目录下有与 JSON 一致的 .seg 索引段时直接内存映射读取，省去解析数字文本。
+    repo = SegmentRepository(data_file)
 
     # 构建重排器：会根据环境选择可用实现（例如 lexical 或降级策略）。
     reranker = build_reranker(rag_cfg)
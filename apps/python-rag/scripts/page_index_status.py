@@ -20,7 +20,7 @@ _bootstrap_import_path()
 from app.core.config import RagConfig  # noqa: E402
 from app.core.reranker import build_reranker  # noqa: E402
 from app.services.page_index_rag_service import PageIndexRagService  # noqa: E402
-from app.storage.repository import JsonRepository  # noqa: E402
+from app.storage.repository import SegmentRepository  # noqa: E402
 
 
 def _default_data_file() -> Path:
@@ -40,7 +40,7 @@ def _read_payload_from_stdin() -> dict[str, Any]:
 
 def _build_service(data_file: Path) -> PageIndexRagService:
     rag_cfg = RagConfig()
-    repo = JsonRepository(data_file)
+    repo = SegmentRepository(data_file)
     reranker = build_reranker(rag_cfg)
     return PageIndexRagService(repo, rag_cfg, reranker=reranker, generator=None)
 
@@ -0,0 +1,219 @@
+#!/usr/bin/env python3
+from __future__ import annotations
+
+"""PageIndexRAG 常驻 worker（给 Java 进程池调用）。
+
+与 page_index_query.py 等单次脚本的区别：
+- 单次脚本每次调用都要启动解释器、导入模块、重新读取 page_index_store.json；
+- worker 启动一次后循环处理请求，按数据文件缓存服务实例与快照，文件未变化时不重复加载。
+
+协议：换行分隔的 JSON（NDJSON），每行一个对象。
+- 启动完成后先输出一行：{"event": "ready", "pid": 123}
+- 请求（stdin）：{"id": "1", "op": "query|status|ingest|ingest_file|ping", "payload": {...}}
+- 响应（stdout）：{"id": "1", "ok": true, "result": {...}}
+  失败时 ok=false，result 与单次脚本的错误 JSON 一致：
+  {"status":"FAILED","code":"PYTHON_SCRIPT_QUERY_FAILED","error":"..."}
+
+stdout 只用于协议输出；处理请求期间 print 等输出被重定向到 stderr，避免打乱协议。
+stdin 关闭（EOF）时 worker 正常退出。
+"""
+
+import base64
+import json
+import os
+import sys
+from pathlib import Path
+from typing import Any, Callable
+
+# 与单次脚本位于同一目录，直接复用它们的参数解析与元数据处理函数。
+import page_index_ingest as ingest_script  # noqa: E402
+import page_index_ingest_file as ingest_file_script  # noqa: E402
+import page_index_query as query_script  # noqa: E402
+
+from app.core.config import RagConfig  # noqa: E402
+from app.core.reranker import build_reranker  # noqa: E402
+from app.indexing.file_parser import parse_uploaded_document  # noqa: E402
+from app.models.schemas import IngestRequest, QueryRequest, StorageSnapshot  # noqa: E402
+from app.services.page_index_rag_service import PageIndexRagService  # noqa: E402
+from app.storage.repository import JsonRepository  # noqa: E402
+
+
+class CachedJsonRepository(JsonRepository):
+    """按 (mtime, size) 缓存快照的仓库：其他 worker 或单次脚本写入后自动重新加载。"""
+
+    def __init__(self, file_path: Path) -> None:
+        super().__init__(file_path)
+        self._snapshot: StorageSnapshot | None = None
+        self._stamp: tuple[int, int] | None = None
+
+    def _file_stamp(self) -> tuple[int, int] | None:
+        try:
+            stat = self.file_path.stat()
+        except FileNotFoundError:
+            return None
+        return stat.st_mtime_ns, stat.st_size
+
+    def load(self) -> StorageSnapshot:
+        with self._lock:
+            stamp = self._file_stamp()
+            if self._snapshot is None or stamp != self._stamp:
+                self._snapshot = super().load()
+                self._stamp = stamp
+            return self._snapshot
+
+    def save(self, snapshot: StorageSnapshot) -> None:
+        with self._lock:
+            super().save(snapshot)
+            self._snapshot = snapshot
+            self._stamp = self._file_stamp()
+
+    def invalidate(self) -> None:
+        with self._lock:
+            self._snapshot = None
+            self._stamp = None
+
+
+_services: dict[Path, tuple[PageIndexRagService, CachedJsonRepository]] = {}
+
+
+def _resolve_data_file(payload: dict[str, Any]) -> Path:
+    data_file_raw = payload.get("data_file")
+    if data_file_raw:
+        return Path(str(data_file_raw)).expanduser().resolve()
+    return query_script._default_data_file().resolve()
+
+
+def _service_for(payload: dict[str, Any]) -> tuple[PageIndexRagService, CachedJsonRepository]:
+    data_file = _resolve_data_file(payload)
+    cached = _services.get(data_file)
+    if cached is None:
+        rag_cfg = RagConfig()
+        repo = CachedJsonRepository(data_file)
+        service = PageIndexRagService(repo, rag_cfg, reranker=build_reranker(rag_cfg), generator=None)
+        cached = (service, repo)
+        _services[data_file] = cached
+    return cached
+
+
+def _query(payload: dict[str, Any]) -> dict[str, Any]:
+    query = str(payload.get("query", "")).strip()
+    if not query:
+        raise ValueError("query is required")
+    service, _ = _service_for(payload)
+    response = service.query(QueryRequest(
+        query=query,
+        top_k=query_script._to_int(payload.get("top_k"), default=8),
+        with_debug=query_script._to_bool(payload.get("with_debug"), default=True),
+    ))
+    return json.loads(response.model_dump_json())
+
+
+def _status(payload: dict[str, Any]) -> dict[str, Any]:
+    service, _ = _service_for(payload)
+    return json.loads(service.status().model_dump_json())
+
+
+def _ingest(payload: dict[str, Any]) -> dict[str, Any]:
+    doc_name = str(payload.get("doc_name", "")).strip()
+    if not doc_name:
+        raise ValueError("doc_name is required")
+    service, _ = _service_for(payload)
+    req = IngestRequest(
+        doc_id=str(payload.get("doc_id", "")).strip() or None,
+        doc_name=doc_name,
+        content=(str(payload.get("content", "")).strip() or None),
+        pages=ingest_script._to_pages(payload.get("pages")),
+        metadata=ingest_script._to_metadata(payload.get("metadata")),
+        version=str(payload.get("version", "v1")).strip() or "v1",
+    )
+    return json.loads(service.ingest(req).model_dump_json())
+
+
+def _ingest_file(payload: dict[str, Any]) -> dict[str, Any]:
+    file_name = str(payload.get("file_name", "")).strip()
+    file_base64 = str(payload.get("file_base64", "")).strip()
+    if not file_name:
+        raise ValueError("file_name is required")
+    if not file_base64:
+        raise ValueError("file_base64 is required")
+    parsed = parse_uploaded_document(file_name, base64.b64decode(file_base64))
+    merged_meta = ingest_file_script._merge_metadata(
+        user_meta=ingest_file_script._parse_user_metadata(payload.get("metadata")),
+        parser_meta=parsed.metadata,
+        source_type=parsed.source_type,
+        filename=file_name,
+    )
+    service, _ = _service_for(payload)
+    req = IngestRequest(
+        doc_id=str(payload.get("doc_id", "")).strip() or None,
+        doc_name=str(payload.get("doc_name", "")).strip() or file_name,
+        pages=parsed.pages,
+        metadata=merged_meta,
+        version=str(payload.get("version", "v1")).strip() or "v1",
+    )
+    return json.loads(service.ingest(req).model_dump_json())
+
+
+def _ping(payload: dict[str, Any]) -> dict[str, Any]:
+    return {"status": "UP", "pid": os.getpid(), "cached_data_files": [str(p) for p in _services]}
+
+
+# op -> (处理函数, 失败时的错误码)，错误码与单次脚本保持一致
+_OPS: dict[str, tuple[Callable[[dict[str, Any]], dict[str, Any]], str]] = {
+    "query": (_query, "PYTHON_SCRIPT_QUERY_FAILED"),
+    "status": (_status, "PYTHON_SCRIPT_STATUS_FAILED"),
+    "ingest": (_ingest, "PYTHON_SCRIPT_INGEST_FAILED"),
+    "ingest_file": (_ingest_file, "PYTHON_SCRIPT_INGEST_FILE_FAILED"),
+    "ping": (_ping, "PYTHON_WORKER_PING_FAILED"),
+}
+
+
+def _handle(request: dict[str, Any]) -> dict[str, Any]:
+    op = str(request.get("op", ""))
+    payload = request.get("payload") or {}
+    if op not in _OPS:
+        return {"ok": False, "result": {"status": "FAILED", "code": "PYTHON_WORKER_UNKNOWN_OP", "error": f"unknown op: {op}"}}
+    handler, error_code = _OPS[op]
+    try:
+        if not isinstance(payload, dict):
+            raise ValueError("payload must be a json object")
+        return {"ok": True, "result": handler(payload)}
+    except Exception as exc:  # pragma: no cover - integration path
+        if op in ("ingest", "ingest_file"):
+            # 入库失败时快照可能已被部分修改，丢弃缓存，下次从文件重新加载
+            try:
+                _service_for(payload)[1].invalidate()
+            except Exception:
+                pass
+        return {"ok": False, "result": {"status": "FAILED", "code": error_code, "error": str(exc)}}
+
+
+def main() -> int:
+    protocol_out = sys.stdout
+    # 业务代码中的 print 一律写到 stderr
+    sys.stdout = sys.stderr
+
+    def emit(message: dict[str, Any]) -> None:
+        protocol_out.write(json.dumps(message, ensure_ascii=False) + "\n")
+        protocol_out.flush()
+
+    emit({"event": "ready", "pid": os.getpid()})
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        try:
+            request = json.loads(line)
+            if not isinstance(request, dict):
+                raise ValueError("request must be a json object")
+        except Exception as exc:
+            emit({"id": None, "ok": False, "result": {"status": "FAILED", "code": "PYTHON_WORKER_BAD_REQUEST", "error": str(exc)}})
+            continue
+        response = _handle(request)
+        response["id"] = request.get("id")
+        emit(response)
+    return 0
+
+
+if __name__ == "__main__":
+    raise SystemExit(main())
@@ -0,0 +1,58 @@
+import os
+from pathlib import Path
+
+from app.core.config import RagConfig
+from app.core.reranker import LexicalReranker
+from app.models.schemas import IngestRequest, QueryRequest
+from app.services.page_index_rag_service import PageIndexRagService
+from app.storage.repository import JsonRepository, SegmentRepository
+from app.storage.segment import SegmentReader, segment_path
+
+
+def _ingest(data_file: Path) -> JsonRepository:
+    repo = JsonRepository(data_file)
+    service = PageIndexRagService(repo, RagConfig())
+    service.ingest(IngestRequest(doc_id="d1", doc_name="水果", pages=["苹果 富含 维生素 C", "香蕉 富含 钾"]))
+    service.ingest(IngestRequest(doc_id="d2", doc_name="运动", pages=["protein intake after workout", "钾 与 钠"]))
+    return repo
+
+
+def test_save_writes_matching_segment(tmp_path: Path) -> None:
+    data_file = tmp_path / "store.json"
+    repo = _ingest(data_file)
+
+    with SegmentReader(segment_path(data_file)) as reader:
+        assert reader.matches(data_file)
+        assert reader.chunk_count == len(repo.load().chunks)
+        restored = reader.to_snapshot()
+
+    original = repo.load()
+    assert list(restored.chunks) == list(original.chunks)
+    assert restored.model_dump()["documents"] == original.model_dump()["documents"]
+    for chunk_id, chunk in original.chunks.items():
+        assert restored.chunks[chunk_id].sparse_terms == chunk.sparse_terms
+        assert all(abs(a - b) < 1e-6 for a, b in zip(restored.chunks[chunk_id].dense_vector, chunk.dense_vector))
+
+
+def test_segment_query_matches_json(tmp_path: Path) -> None:
+    data_file = tmp_path / "store.json"
+    _ingest(data_file)
+    cfg = RagConfig()
+
+    def run(repo: JsonRepository) -> list:
+        service = PageIndexRagService(repo, cfg, reranker=LexicalReranker(cfg), generator=None)
+        return [service.query(QueryRequest(query=q, top_k=3)).model_dump() for q in ["钾", "protein", "维生素 C"]]
+
+    assert run(SegmentRepository(data_file)) == run(JsonRepository(data_file))
+
+
+def test_stale_segment_falls_back_to_json(tmp_path: Path) -> None:
+    data_file = tmp_path / "store.json"
+    repo = _ingest(data_file)
+
+    snapshot = repo.load()
+    snapshot.documents.pop("d2")
+    data_file.write_text(snapshot.model_dump_json(indent=2), encoding="utf-8")
+    os.utime(data_file, ns=(1, 1))
+
+    assert list(SegmentRepository(data_file).load().documents) == ["d1"]
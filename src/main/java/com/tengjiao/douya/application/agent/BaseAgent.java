@@ -53,7 +53,9 @@ public abstract class BaseAgent {
             .name(skillName)
             .hooks(List.of(agentHook))
             .model(model)
-            .outputKey(skillName);
+            .outputKey(skillName)
+            // 智能体在启动期构建后被所有请求共享，每次调用使用独立 threadId，结束即释放 checkpoint
+            .releaseThread(true);
 
         Class<?> outputType = getOutputType();
         if (outputType != null) {
@@ -3,10 +3,12 @@ package com.tengjiao.douya.application.graph;
 
 
 import com.alibaba.cloud.ai.graph.*;
-import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.alibaba.cloud.ai.graph.action.NodeActionWithConfig;
 import com.alibaba.cloud.ai.graph.agent.ReactAgent;
 import com.alibaba.cloud.ai.graph.state.strategy.AppendStrategy;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
+import com.alibaba.cloud.ai.graph.streaming.OutputType;
+import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
@@ -20,6 +22,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,11 +30,25 @@ import static com.alibaba.cloud.ai.graph.StateGraph.END;
 import static com.alibaba.cloud.ai.graph.StateGraph.START;
 import static com.alibaba.cloud.ai.graph.action.AsyncEdgeAction.edge_async;
 import static com.alibaba.cloud.ai.graph.action.AsyncNodeAction.node_async;
-
+import static com.alibaba.cloud.ai.graph.action.AsyncNodeActionWithConfig.node_async;
+
+/**
+ * 吃饭大师多智能体图
+ * <p>
+ * 图与子 Agent 均为无状态结构，可在启动时编译一次后被所有请求复用；
+ * 每次请求的用户信息通过 {@link RunnableConfig} 的 metadata（user_id）传入，
+ * Worker 节点使用当次运行的 config 调用子 Agent。
+ * 若 config 中携带 {@link GraphStreamListener}，则推送路由决策、工具调用，
+ * 并以流式方式运行最终作答的 Agent，逐 token 回调。
+ */
 @Slf4j
 public class EatingMasterGraph {
     private static final Pattern OSS_URL_PATTERN =
             Pattern.compile("(?i)ossUrl\\s*=\\s*(https?://[^\\s\"'\\\\)\\]]+)");
+    /**
+     * 直接产出最终答案的 Agent，流式模式下逐 token 推送；PromptRewriter / VisionUnderstand 为中间产物
+     */
+    private static final Set<String> STREAMING_AGENTS = Set.of("EatingMaster", "DailyAssistant");
 
     private final ChatModel summaryChatModel;
     private final ReactAgent eatingMasterAgent;
@@ -40,7 +57,18 @@ public class EatingMasterGraph {
     private final ReactAgent promptRewriterAgent;
     private final String supervisorSystemPrompt;
     private final String supervisorInstruction;
-    private final RunnableConfig config;
+    private final SupervisorFastRouter supervisorFastRouter;
+
+    public EatingMasterGraph(ChatModel summaryChatModel,
+                             ReactAgent eatingMasterAgent,
+                             ReactAgent visionAgent,
+                             ReactAgent dailyAgent,
+                             ReactAgent promptRewriterAgent,
+                             String supervisorSystemPrompt,
+                             String supervisorInstruction) {
+        this(summaryChatModel, eatingMasterAgent, visionAgent, dailyAgent, promptRewriterAgent,
+                supervisorSystemPrompt, supervisorInstruction, new SupervisorFastRouter());
+    }
 
     public EatingMasterGraph(ChatModel summaryChatModel,
                              ReactAgent eatingMasterAgent,
@@ -49,7 +77,7 @@ public class EatingMasterGraph {
                              ReactAgent promptRewriterAgent,
                              String supervisorSystemPrompt,
                              String supervisorInstruction,
-                             RunnableConfig config) {
+                             SupervisorFastRouter supervisorFastRouter) {
         this.summaryChatModel = summaryChatModel;
         this.eatingMasterAgent = eatingMasterAgent;
         this.visionAgent = visionAgent;
@@ -57,7 +85,21 @@ public class EatingMasterGraph {
         this.promptRewriterAgent = promptRewriterAgent;
         this.supervisorSystemPrompt = supervisorSystemPrompt;
         this.supervisorInstruction = supervisorInstruction;
-        this.config = config;
+        this.supervisorFastRouter = supervisorFastRouter;
+    }
+
+    /**
+     * 单次运行的配置：threadId 每次唯一。
+     * <p>
+     * 图与子 Agent 跨请求共享，若同一用户复用固定 threadId，上一轮的 checkpoint（messages、各 Agent 输出、next）
+     * 会并入下一轮状态；历史对话由调用方从数据库装入 initialState，不依赖 checkpoint。
+     *
+     * @param threadPrefix threadId 前缀，区分调用场景
+     */
+    public static RunnableConfig.Builder runConfig(String threadPrefix, String userId) {
+        return RunnableConfig.builder()
+                .threadId(threadPrefix + "_" + userId + "_" + UUID.randomUUID())
+                .addMetadata("user_id", userId);
     }
 
     public CompiledGraph createGraph() throws Exception {
@@ -72,6 +114,7 @@ public class EatingMasterGraph {
             strategies.put("PromptRewriter", new ReplaceStrategy());
             strategies.put("routing_count", new ReplaceStrategy()); // 路由次数计数
             strategies.put("routing_history", new AppendStrategy()); // 路由历史追踪
+            strategies.put("last_speaker", new ReplaceStrategy()); // 最近一次写入消息的节点，供规则路由判断
             return strategies;
         };
 
@@ -81,18 +124,25 @@ public class EatingMasterGraph {
                 summaryChatModel,
                 List.of("EatingMaster", "VisionUnderstand", "DailyAssistant"),
                 supervisorSystemPrompt,
-                supervisorInstruction
+                supervisorInstruction,
+                supervisorFastRouter
         );
 
-        // 2.2 Worker Nodes (Wrapped)
-        NodeAction eatingMasterNode = state -> runAgent(eatingMasterAgent, state, "EatingMaster");
-        NodeAction visionNode = state -> runAgent(visionAgent, state, "VisionUnderstand");
-        NodeAction dailyNode = state -> runAgent(dailyAgent, state, "DailyAssistant");
-        NodeAction promptRewriterNode = state -> runAgent(promptRewriterAgent, state, "PromptRewriter");
+        NodeActionWithConfig supervisorWithListener = (state, config) -> {
+            Map<String, Object> output = supervisorNode.apply(state);
+            GraphStreamListener.from(config).ifPresent(listener -> notifyRoute(listener, output));
+            return output;
+        };
+
+        // 2.2 Worker Nodes (Wrapped)，使用当次运行的 config，保证编译后的图可跨用户复用
+        NodeActionWithConfig eatingMasterNode = (state, config) -> runAgent(eatingMasterAgent, state, config, "EatingMaster");
+        NodeActionWithConfig visionNode = (state, config) -> runAgent(visionAgent, state, config, "VisionUnderstand");
+        NodeActionWithConfig dailyNode = (state, config) -> runAgent(dailyAgent, state, config, "DailyAssistant");
+        NodeActionWithConfig promptRewriterNode = (state, config) -> runAgent(promptRewriterAgent, state, config, "PromptRewriter");
 
         // 3. 构建 StateGraph
         StateGraph graph = new StateGraph(keyStrategyFactory)
-                .addNode("supervisor", node_async(supervisorNode))
+                .addNode("supervisor", node_async(supervisorWithListener))
                 .addNode("EatingMaster", node_async(eatingMasterNode))
                 .addNode("VisionUnderstand", node_async(visionNode))
                 .addNode("DailyAssistant", node_async(dailyNode))
@@ -137,13 +187,14 @@ public class EatingMasterGraph {
                         Map.of(END, END, "supervisor", "supervisor")
                 );
 
-        return graph.compile();
+        // 每次运行的 threadId 都不同，结束后释放其 checkpoint，避免常驻的编译图无限累积
+        return graph.compile(CompileConfig.builder().releaseThread(true).build());
     }
 
     /**
      * 运行子 Agent 的适配器逻辑
      */
-    private Map<String, Object> runAgent(ReactAgent agent, OverAllState state, String agentName) {
+    private Map<String, Object> runAgent(ReactAgent agent, OverAllState state, RunnableConfig config, String agentName) {
         try {
             // 获取最后一条消息作为输入
             List<Object> messages = (List<Object>) state.value("messages").orElse(List.of());
@@ -159,8 +210,15 @@ public class EatingMasterGraph {
 
             log.info("Invoking Agent [{}] with input: {}", agentName, lastText);
 
-            // 使用传入的 config 调用 agent
-            Object result = agent.invoke(new UserMessage(lastText), this.config).orElse(null);
+            // 使用当次运行的 config 调用 agent（携带 user_id 等请求级 metadata）
+            GraphStreamListener listener = GraphStreamListener.from(config).orElse(null);
+            Object result;
+            if (listener != null) {
+                listener.onAgentStart(agentName);
+                result = streamAgent(agent, new UserMessage(lastText), config, agentName, listener);
+            } else {
+                result = agent.invoke(new UserMessage(lastText), config).orElse(null);
+            }
 
             String responseText = "Agent failed to respond.";
             List<String> toolImageUrls = List.of();
@@ -199,12 +257,61 @@ public class EatingMasterGraph {
             Map<String, Object> output = new HashMap<>();
             output.put("messages", List.of(assistantMessage)); // 追加到历史
             output.put(agentName, assistantMessage); // 更新特定 Key
+            output.put("last_speaker", agentName);
 
             return output;
 
         } catch (Exception e) {
             log.error("Agent execution failed", e);
-            return Map.of("messages", List.of(new AssistantMessage("Agent Error: " + e.getMessage())));
+            return Map.of("messages", List.of(new AssistantMessage("Agent Error: " + e.getMessage())),
+                    "last_speaker", agentName);
+        }
+    }
+
+    /**
+     * 流式运行子 Agent：转发工具调用与（最终作答 Agent 的）模型 token，返回最后一个节点输出的状态
+     */
+    private Object streamAgent(ReactAgent agent, UserMessage input, RunnableConfig config,
+                               String agentName, GraphStreamListener listener) throws Exception {
+        boolean forwardTokens = STREAMING_AGENTS.contains(agentName);
+        NodeOutput last = agent.stream(input, config)
+                .doOnNext(output -> forwardStreamingOutput(output, agentName, forwardTokens, listener))
+                .blockLast();
+        return last == null ? null : last.state();
+    }
+
+    private void forwardStreamingOutput(NodeOutput output, String agentName, boolean forwardTokens,
+                                        GraphStreamListener listener) {
+        if (!(output instanceof StreamingOutput streamingOutput)) {
+            return;
+        }
+        Message message = streamingOutput.message();
+        OutputType type = streamingOutput.getOutputType();
+        try {
+            if (type == OutputType.AGENT_MODEL_STREAMING && forwardTokens && message != null) {
+                String token = message.getText();
+                if (token != null && !token.isEmpty()) {
+                    listener.onToken(agentName, token);
+                }
+            } else if (type == OutputType.AGENT_MODEL_FINISHED
+                    && message instanceof AssistantMessage am && am.hasToolCalls()) {
+                am.getToolCalls().forEach(toolCall -> listener.onToolCall(agentName, toolCall.name()));
+            }
+        } catch (Exception e) {
+            log.warn("GraphStreamListener 回调失败, agent={}, type={}", agentName, type, e);
+        }
+    }
+
+    private void notifyRoute(GraphStreamListener listener, Map<String, Object> supervisorOutput) {
+        try {
+            Object history = supervisorOutput.get("routing_history");
+            if (history instanceof List<?> entries && !entries.isEmpty() && entries.get(0) instanceof Map<?, ?> entry) {
+                listener.onRoute((Map<String, Object>) entry);
+            } else {
+                listener.onRoute(Map.of("decision", supervisorOutput.getOrDefault("next", "FINISH"), "source", "guard"));
+            }
+        } catch (Exception e) {
+            log.warn("GraphStreamListener 路由回调失败", e);
         }
     }
 
@@ -0,0 +1,50 @@
+package com.tengjiao.douya.application.graph;
+
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 多智能体图运行进度监听器
+ * <p>
+ * 通过 {@link RunnableConfig} metadata（key = {@link #METADATA_KEY}）随单次请求传入，
+ * 编译好的图本身保持无状态。回调在图执行线程上同步触发，实现方应自行处理下游写出失败，不要向外抛异常。
+ */
+public interface GraphStreamListener {
+
+    String METADATA_KEY = "graph_stream_listener";
+
+    /**
+     * Supervisor 产出一次路由决策，entry 与 routing_history 中的记录一致（step / decision / source ...）
+     */
+    default void onRoute(Map<String, Object> entry) {
+    }
+
+    /**
+     * 子 Agent 开始执行
+     */
+    default void onAgentStart(String agentName) {
+    }
+
+    /**
+     * 子 Agent 发起工具调用
+     */
+    default void onToolCall(String agentName, String toolName) {
+    }
+
+    /**
+     * 最终作答 Agent 的增量 token
+     */
+    default void onToken(String agentName, String token) {
+    }
+
+    static Optional<GraphStreamListener> from(RunnableConfig config) {
+        if (config == null) {
+            return Optional.empty();
+        }
+        return config.metadata(METADATA_KEY)
+                .filter(GraphStreamListener.class::isInstance)
+                .map(GraphStreamListener.class::cast);
+    }
+}
@@ -0,0 +1,173 @@
+package com.tengjiao.douya.application.graph;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Supervisor 规则快速路由
+ * <p>
+ * 在调用 LLM 之前处理确定性场景：
+ * <ul>
+ *     <li>上一位发言者是 EatingMaster / DailyAssistant -> FINISH</li>
+ *     <li>上一位发言者是 VisionUnderstand -> EatingMaster 总结</li>
+ *     <li>最新用户消息携带图片/视频且尚未解析 -> VisionUnderstand</li>
+ *     <li>命中检索类关键词（与 supervisorInstruction 中的触发词一致） -> EatingMaster</li>
+ * </ul>
+ * 其余情况返回低置信度结果，由 {@link SupervisorNode} 回退到 LLM 决策。
+ * 命中/未命中计数用于观察规则路由节省了多少次 LLM 调用。
+ */
+public class SupervisorFastRouter {
+
+    public static final String FINISH = "FINISH";
+    public static final String EATING_MASTER = "EatingMaster";
+    public static final String VISION_UNDERSTAND = "VisionUnderstand";
+    public static final String DAILY_ASSISTANT = "DailyAssistant";
+
+    /**
+     * 与 supervisorInstruction 「工具指令路由」保持一致的触发词
+     */
+    public static final List<String> DEFAULT_EATING_MASTER_KEYWORDS = List.of(
+            "public_search", "memory_search", "搜索食谱", "查找教程", "食材清单", "火候说明"
+    );
+
+    private final List<String> eatingMasterKeywords;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SupervisorFastRouter() {
+        this(DEFAULT_EATING_MASTER_KEYWORDS);
+    }
+
+    public SupervisorFastRouter(List<String> eatingMasterKeywords) {
+        this.eatingMasterKeywords = eatingMasterKeywords.stream()
+                .map(keyword -> keyword.toLowerCase(Locale.ROOT))
+                .toList();
+    }
+
+    /**
+     * 规则路由结果
+     *
+     * @param next      目标节点名称或 FINISH，低置信度时为 null
+     * @param confident 是否可直接采用，无需 LLM
+     * @param reason    命中的规则说明，便于日志与路由历史追踪
+     */
+    public record Decision(String next, boolean confident, String reason) {
+
+        static Decision of(String next, String reason) {
+            return new Decision(next, true, reason);
+        }
+
+        static Decision uncertain() {
+            return new Decision(null, false, "no_rule_matched");
+        }
+    }
+
+    /**
+     * 根据消息历史与上一位发言者做规则决策，并记录命中/未命中
+     *
+     * @param messages      当前图状态中的消息列表
+     * @param lastSpeaker   上一个写入消息的节点名称（可能为 null，表示用户）
+     * @param visionHandled 本轮是否已经执行过 VisionUnderstand
+     */
+    public Decision route(List<Object> messages, String lastSpeaker, boolean visionHandled) {
+        Decision decision = decide(messages, lastSpeaker, visionHandled);
+        if (decision.confident()) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return decision;
+    }
+
+    private Decision decide(List<Object> messages, String lastSpeaker, boolean visionHandled) {
+        // 1. 防死循环：专家已产出答案或视觉解析完毕
+        if (EATING_MASTER.equals(lastSpeaker) || DAILY_ASSISTANT.equals(lastSpeaker)) {
+            return Decision.of(FINISH, "last_speaker_" + lastSpeaker);
+        }
+        if (VISION_UNDERSTAND.equals(lastSpeaker)) {
+            return Decision.of(EATING_MASTER, "vision_summary");
+        }
+
+        // 2. 最新用户消息携带媒体素材 -> 视觉解析
+        UserMessage lastUserMessage = findLastUserMessage(messages);
+        if (!visionHandled && lastUserMessage != null
+                && lastUserMessage.getMedia() != null && !lastUserMessage.getMedia().isEmpty()) {
+            return Decision.of(VISION_UNDERSTAND, "media_present");
+        }
+
+        // 3. 检索类关键词：同时检查用户原话与 PromptRewriter 改写后的指令
+        String lastText = messages.isEmpty() ? "" : extractText(messages.get(messages.size() - 1));
+        String userText = lastUserMessage == null ? "" : lastUserMessage.getText();
+        String keyword = matchKeyword(lastText, userText);
+        if (keyword != null) {
+            return Decision.of(EATING_MASTER, "keyword_" + keyword);
+        }
+
+        return Decision.uncertain();
+    }
+
+    private String matchKeyword(String... texts) {
+        for (String text : texts) {
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            String lower = text.toLowerCase(Locale.ROOT);
+            for (String keyword : eatingMasterKeywords) {
+                if (lower.contains(keyword)) {
+                    return keyword;
+                }
+            }
+        }
+        return null;
+    }
+
+    private UserMessage findLastUserMessage(List<Object> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage userMessage) {
+                return userMessage;
+            }
+        }
+        return null;
+    }
+
+    private String extractText(Object msgObj) {
+        if (msgObj instanceof Message msg) {
+            return msg.getText();
+        }
+        if (msgObj instanceof Map<?, ?> map) {
+            Object content = map.get("content");
+            return content != null ? content.toString() : "";
+        }
+        return msgObj == null ? "" : msgObj.toString();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 命中统计快照：hits 即节省的 LLM 路由调用次数
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        Map<String, Object> result = new HashMap<>();
+        result.put("hits", hitCount);
+        result.put("misses", missCount);
+        result.put("total", total);
+        result.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        result.put("llmCallsSaved", hitCount);
+        return result;
+    }
+}
@@ -23,12 +23,19 @@ public class SupervisorNode implements NodeAction {
     private final List<String> members;
     private final String systemPrompt;
     private final String instruction;
+    private final SupervisorFastRouter fastRouter;
 
     public SupervisorNode(ChatModel chatModel, List<String> members, String systemPrompt, String instruction) {
+        this(chatModel, members, systemPrompt, instruction, new SupervisorFastRouter());
+    }
+
+    public SupervisorNode(ChatModel chatModel, List<String> members, String systemPrompt, String instruction,
+                          SupervisorFastRouter fastRouter) {
         this.chatClient = ChatClient.builder(chatModel).build();
         this.members = members;
         this.systemPrompt = systemPrompt;
         this.instruction = instruction;
+        this.fastRouter = fastRouter;
     }
 
     @Override
@@ -57,6 +64,17 @@ public class SupervisorNode implements NodeAction {
         // 3. 提取最后一条消息内容作为 Input
         Object lastMsgObj = messages.get(messages.size() - 1);
         String lastMessageText = extractText(lastMsgObj);
+        String lastAgent = (String) state.value("last_speaker").orElse(null);
+
+        // 4. 规则快速路由：确定性场景直接决策，不调用 LLM
+        SupervisorFastRouter.Decision fastDecision = fastRouter.route(
+            messages, lastAgent, state.value("VisionUnderstand").isPresent());
+        if (fastDecision.confident()) {
+            log.info("Supervisor 规则路由 [第{}/{}次]: {} -> {} (rule={}, hits={}, misses={})",
+                currentCount + 1, MAX_ROUTING_COUNT, lastMessageText, fastDecision.next(),
+                fastDecision.reason(), fastRouter.getHits(), fastRouter.getMisses());
+            return buildOutput(fastDecision.next(), currentCount, lastMessageText, "rule");
+        }
 
         // 简单的上下文拼接，用于辅助 LLM 判断 (实际生产中可能需要更复杂的 History 序列化)
         // 这里主要为了防止死循环，我们需要知道上一条是谁说的
@@ -67,30 +85,36 @@ public class SupervisorNode implements NodeAction {
                  // 在本架构中，Agent 的输出会被 append 到 messages。
                  // 我们可以简单的认为：如果是 AssistantMessage，那可能是之前的 Agent 输出的。
                  // 但为了严谨，我们主要依靠 content 和 context。
-                 lastSpeaker = "Assistant";
+                 lastSpeaker = lastAgent != null ? lastAgent : "Assistant";
              }
         }
 
-        // 4. 构建 Prompt
+        // 5. 构建 Prompt
         // 将 members 替换进 systemPrompt (如果需要)
         // 这里的 systemPrompt 和 instruction 是从 EatingMasterApp 传过来的，已经包含了必要的逻辑
 
         String inputContext = String.format("Current Request: %s\nLast Speaker detected: %s", lastMessageText, lastSpeaker);
         String finalInstruction = instruction.replace("{input}", inputContext);
 
-        // 5. 调用 LLM
+        // 6. 调用 LLM
         String result = chatClient.prompt()
             .system(systemPrompt)
             .user(finalInstruction)
             .call()
             .content();
 
-        // 6. 解析并规范化结果
+        // 7. 解析并规范化结果
         String next = normalizeRoute(result);
         log.info("Supervisor 路由决策 [第{}/{}次]: {} -> {}",
             currentCount + 1, MAX_ROUTING_COUNT, lastMessageText, next);
 
-        // 7. 更新状态：路由次数和历史
+        return buildOutput(next, currentCount, lastMessageText, "llm");
+    }
+
+    /**
+     * 更新状态：路由次数和历史，source 标记决策来源（rule / llm）
+     */
+    private Map<String, Object> buildOutput(String next, int currentCount, String lastMessageText, String source) {
         Map<String, Object> output = new HashMap<>();
         output.put("next", next);
         output.put("routing_count", currentCount + 1);
@@ -98,12 +122,16 @@ public class SupervisorNode implements NodeAction {
             "step", currentCount + 1,
             "decision", next,
             "input", lastMessageText,
+            "source", source,
             "timestamp", System.currentTimeMillis()
         )));
-
         return output;
     }
 
+    public SupervisorFastRouter getFastRouter() {
+        return fastRouter;
+    }
+
     private String normalizeRoute(String result) {
         if (result == null || result.trim().isEmpty()) {
             return "FINISH";
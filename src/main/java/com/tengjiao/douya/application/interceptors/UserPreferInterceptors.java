@@ -17,6 +17,8 @@ import java.util.stream.Collectors;
 /**
  * 用户偏好注入拦截器
  * 在请求大模型之前，自动加载用户长期偏好并追加到系统提示词中
+ * <p>
+ * 拦截器随智能体在启动期构建一次，用户 ID 从当次请求的上下文（RunnableConfig metadata 中的 user_id）读取。
  *
  * @author tengjiao
  * @since 2025-12-22
@@ -24,16 +26,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserPreferInterceptors extends ModelInterceptor {
 
+    private static final String USER_ID_KEY = "user_id";
+
     private final Store douyaDatabaseStore;
-    private final String userId;
 
-    public UserPreferInterceptors(Store douyaDatabaseStore, String userId) {
+    public UserPreferInterceptors(Store douyaDatabaseStore) {
         this.douyaDatabaseStore = douyaDatabaseStore;
-        this.userId = userId;
     }
 
     @Override
     public ModelResponse interceptModel(ModelRequest request, ModelCallHandler next) {
+        String userId = resolveUserId(request);
         if (userId == null) {
             return next.call(request);
         }
@@ -68,6 +71,18 @@ public class UserPreferInterceptors extends ModelInterceptor {
         return next.call(updatedRequest);
     }
 
+    /**
+     * 从请求上下文中解析用户 ID（由 RunnableConfig metadata 透传）
+     */
+    private String resolveUserId(ModelRequest request) {
+        Map<String, Object> context = request.getContext();
+        if (context == null) {
+            return null;
+        }
+        Object userId = context.get(USER_ID_KEY);
+        return userId == null ? null : userId.toString();
+    }
+
     /**
      * 加载用户偏好
      *
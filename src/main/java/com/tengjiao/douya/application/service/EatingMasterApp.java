@@ -2,10 +2,15 @@ package com.tengjiao.douya.application.service;
 
 import com.alibaba.cloud.ai.graph.exception.GraphRunnerException;
 import com.tengjiao.douya.application.graph.EatingMasterGraph;
+import com.tengjiao.douya.application.graph.GraphStreamListener;
+import com.tengjiao.douya.application.graph.SupervisorFastRouter;
 import com.tengjiao.douya.application.hook.CombinedMemoryHook;
 import com.tengjiao.douya.application.hook.PreferenceLearningHook;
 import com.tengjiao.douya.application.interceptors.UserPreferInterceptors;
+import com.tengjiao.douya.infrastructure.config.DocumentRerankProperties;
 import com.tengjiao.douya.infrastructure.config.PageIndexRagProperties;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PageIndexRagQueryEngine;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PythonWorkerPool;
 import com.tengjiao.douya.infrastructure.persistence.PostgresStore;
 import com.tengjiao.douya.infrastructure.tool.MemorySearchTool;
 import com.tengjiao.douya.infrastructure.tool.PageIndexRagSearchTool;
@@ -111,12 +116,26 @@ public class EatingMasterApp {
     private final ChatModel readUnderstandModel;
     private final ChatModel douBaoTransitDeepseek;
     private final PageIndexRagProperties pageIndexRagProperties;
+    private final DocumentRerankProperties documentRerankProperties;
+    private final PythonWorkerPool pythonWorkerPool;
+    private final PageIndexRagQueryEngine pageIndexRagQueryEngine;
 
     private final Store memoryStore = new MemoryStore();
 
+    // 启动期构建的智能体池与编译好的监督者图，所有请求共享；用户级状态经 RunnableConfig metadata 注入
+    private final ReactAgent eatingMasterAgent;
+    private final ReactAgent visionAgent;
+    private final ReactAgent dailyAgent;
+    private final ReactAgent promptRewriterAgent;
+    private final CompiledGraph eatingMasterGraph;
+    private final SupervisorFastRouter supervisorFastRouter = new SupervisorFastRouter();
+
     public EatingMasterApp(ChatModel eatingMasterModel, ChatModel structTransformModel, ChatModel summaryChatModel, Store douyaDatabaseStore,
                            UserVectorApp userVectorApp, ChatModel readUnderstandModel, ChatModel douBaoTransitDeepseek,
-                           PageIndexRagProperties pageIndexRagProperties) {
+                           PageIndexRagProperties pageIndexRagProperties,
+                           DocumentRerankProperties documentRerankProperties,
+                           PythonWorkerPool pythonWorkerPool,
+                           PageIndexRagQueryEngine pageIndexRagQueryEngine) {
         this.eatingMasterModel = eatingMasterModel;
         this.structTransformModel = structTransformModel;
         this.summaryChatModel = summaryChatModel;
@@ -125,22 +144,61 @@ public class EatingMasterApp {
         this.readUnderstandModel = readUnderstandModel;
         this.douBaoTransitDeepseek = douBaoTransitDeepseek;
         this.pageIndexRagProperties = pageIndexRagProperties;
-    }
+        this.documentRerankProperties = documentRerankProperties;
+        this.pythonWorkerPool = pythonWorkerPool;
+        this.pageIndexRagQueryEngine = pageIndexRagQueryEngine;
 
-    /**
-     * 核心处理逻辑：由监督者统一调度
-     */
-    private String process(UserMessage userMessage, String userId) {
-        // 1. 初始化子智能体
+        long start = System.currentTimeMillis();
+        // 1. 初始化子智能体 (Hook 与拦截器均从 RunnableConfig 读取 user_id，可安全共享)
         PreferenceLearningHook preferenceLearningHook = new PreferenceLearningHook(summaryChatModel,
                 douyaDatabaseStore);
         CombinedMemoryHook combinedMemoryHook = new CombinedMemoryHook(douyaDatabaseStore, summaryChatModel,
                 userVectorApp, 10, 10);
-        // 移除 RAGMessagesHook，改为工具模式
-        // RAGMessagesHook ragMessagesHook = new RAGMessagesHook(userVectorApp);
+        UserPreferInterceptors userPreferInterceptor = new UserPreferInterceptors(douyaDatabaseStore);
+
+        this.eatingMasterAgent = new EatingMasterAgent(eatingMasterModel,
+                buildEatingMasterTools(),
+                List.of(preferenceLearningHook, combinedMemoryHook),
+                List.of(userPreferInterceptor)).build();
 
+        this.visionAgent = new VisionUnderstandAgent(readUnderstandModel,
+                Collections.emptyList(),
+                List.of(),
+                List.of()).build();
+
+        this.dailyAgent = new DailyAssistantAgent(eatingMasterModel,
+                Collections.emptyList(),
+                List.of(preferenceLearningHook, combinedMemoryHook),
+                Collections.emptyList()).build();
+
+        this.promptRewriterAgent = new PromptRewriterAgent(douBaoTransitDeepseek,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Collections.emptyList()).build();
+
+        // 2. 编译核心监督者 Graph (Custom Implementation)
+        try {
+            this.eatingMasterGraph = new EatingMasterGraph(
+                    summaryChatModel,
+                    eatingMasterAgent,
+                    visionAgent,
+                    dailyAgent,
+                    promptRewriterAgent,
+                    supervisorSystemPrompt,
+                    supervisorInstruction,
+                    supervisorFastRouter).createGraph();
+        } catch (Exception e) {
+            throw new IllegalStateException("吃饭大师多智能体图编译失败: " + e.getMessage(), e);
+        }
+        log.info("[Multi-Agent] 智能体池与监督者图初始化完成, 耗时 {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 构建吃饭大师的工具集。工具本身无用户态，用户 ID 在调用时从 ToolContext 中解析。
+     */
+    private List<ToolCallback> buildEatingMasterTools() {
         // 创建本地记忆搜索工具
-        MemorySearchTool memorySearchTool = new MemorySearchTool(userVectorApp, userId);
+        MemorySearchTool memorySearchTool = new MemorySearchTool(userVectorApp);
         ToolCallback ragToolCallback = FunctionToolCallback.builder("memory_search",
                 memorySearchTool::search)
                 .description("搜索本地对话历史、用户偏好或已存背景知识。当你需要回忆之前的对话内容或了解用户特定喜好时使用。")
@@ -149,7 +207,7 @@ public class EatingMasterApp {
 
         // 创建公共文档搜索工具：统一走 Java + Chroma 检索链路。
         log.info("[Multi-Agent] public_search route=java_chroma");
-        PublicDocumentSearchTool publicDocTool = new PublicDocumentSearchTool(userVectorApp, douBaoTransitDeepseek);
+        PublicDocumentSearchTool publicDocTool = new PublicDocumentSearchTool(userVectorApp, douBaoTransitDeepseek, documentRerankProperties);
         ToolCallback publicDocToolCallback = FunctionToolCallback.builder("public_search",
                         publicDocTool::search)
                 .description("检索系统公共知识库、官方手册、菜谱指南或操作说明。默认走 Java + Chroma 检索链路。")
@@ -162,7 +220,7 @@ public class EatingMasterApp {
         toolCallbacks.add(ragToolCallback);
         toolCallbacks.add(publicDocToolCallback);
         if (pageIndexRagProperties.isEnabled()) {
-            PageIndexRagSearchTool pageIndexTool = new PageIndexRagSearchTool(pageIndexRagProperties);
+            PageIndexRagSearchTool pageIndexTool = new PageIndexRagSearchTool(pageIndexRagProperties, pythonWorkerPool, pageIndexRagQueryEngine);
             ToolCallback pageIndexToolCallback = FunctionToolCallback.builder("page_index_search",
                             pageIndexTool::search)
                     .description("调用本地 Python 脚本执行 PageIndexRAG 页级查询，返回引用信息。")
@@ -171,63 +229,27 @@ public class EatingMasterApp {
                     .build();
             toolCallbacks.add(pageIndexToolCallback);
         }
+        return toolCallbacks;
+    }
 
-        // 创建用户偏好注入拦截器 (由 userId 驱动)
-        UserPreferInterceptors userPreferInterceptor = new UserPreferInterceptors(douyaDatabaseStore, userId);
-
-        // 创建各类智能体
-        EatingMasterAgent eatingMasterAgentObj = new EatingMasterAgent(eatingMasterModel,
-                toolCallbacks,
-                List.of(preferenceLearningHook, combinedMemoryHook),
-                List.of(userPreferInterceptor));
-        ReactAgent eatingMasterAgent = eatingMasterAgentObj.build();
-
-        VisionUnderstandAgent visionAgentObj = new VisionUnderstandAgent(readUnderstandModel,
-                Collections.emptyList(),
-                List.of(),
-                List.of());
-        ReactAgent visionAgent = visionAgentObj.build();
-
-        DailyAssistantAgent dailyAgentObj = new DailyAssistantAgent(eatingMasterModel,
-                Collections.emptyList(),
-                List.of(preferenceLearningHook, combinedMemoryHook),
-                Collections.emptyList());
-        ReactAgent dailyAgent = dailyAgentObj.build();
-
-        PromptRewriterAgent promptRewriterAgentObj = new PromptRewriterAgent(douBaoTransitDeepseek,
-                Collections.emptyList(),
-                Collections.emptyList(),
-                Collections.emptyList());
-        ReactAgent promptRewriterAgent = promptRewriterAgentObj.build();
-
-
-        // 构建运行配置
-        RunnableConfig config = RunnableConfig.builder()
-                .threadId("douya_flow_" + userId)
-                .addMetadata("user_id", userId)
-                .store(memoryStore)
-                .build();
-
-        // 3. 构建核心监督者 Graph (Custom Implementation)
-        EatingMasterGraph eatingMasterGraph = new EatingMasterGraph(
-                summaryChatModel,
-                eatingMasterAgent,
-                visionAgent,
-                dailyAgent,
-                promptRewriterAgent,
-                supervisorSystemPrompt,
-                supervisorInstruction,
-                config);
+    /**
+     * 核心处理逻辑：由监督者统一调度
+     */
+    private String process(UserMessage userMessage, String userId, GraphStreamListener streamListener) {
+        // 构建运行配置：用户级状态仅通过 metadata 传递，图与智能体为启动期共享实例
+        RunnableConfig.Builder configBuilder = EatingMasterGraph.runConfig("douya_flow", userId)
+                .store(memoryStore);
+        if (streamListener != null) {
+            configBuilder.addMetadata(GraphStreamListener.METADATA_KEY, streamListener);
+        }
+        RunnableConfig config = configBuilder.build();
 
         try {
             log.info("[Multi-Agent] 开始处理请求, 用户: {}, 消息: {}", userId, userMessage.getText());
 
-            // 4. 尝试从持久化存储中恢复最近的上下文 (冷启动优化/自动切换)
+            // 尝试从持久化存储中恢复最近的上下文 (冷启动优化/自动切换)
             List<Message> history = loadRecentHistoryFromDatabase(userId, 10);
 
-            // 编译并运行
-            CompiledGraph graph = eatingMasterGraph.createGraph();
-
             // 初始化状态，合并历史与当前消息
             Map<String, Object> initialState = new HashMap<>();
             List<Message> messages = new ArrayList<>(history);
@@ -236,7 +258,7 @@ public class EatingMasterApp {
             initialState.put("routing_count", 0);
             initialState.put("routing_history", List.of());
 
-            Optional<OverAllState> invoke = graph.invoke(initialState, config);
+            Optional<OverAllState> invoke = eatingMasterGraph.invoke(initialState, config);
 
             if (invoke.isPresent()) {
                 OverAllState state = invoke.get();
@@ -297,7 +319,15 @@ public class EatingMasterApp {
      * 发送消息给智能体（文本模式）
      */
     public String ask(String message, String userId) {
-        return process(new UserMessage(message), userId);
+        return process(new UserMessage(message), userId, null);
+    }
+
+    /**
+     * 发送消息给智能体（流式模式）：路由决策、工具调用与最终作答 Agent 的 token 通过 listener 实时回调，
+     * 返回值与 {@link #ask(String, String)} 一致，为最终完整答复
+     */
+    public String askStream(String message, String userId, GraphStreamListener listener) {
+        return process(new UserMessage(message), userId, listener);
     }
 
     /**
@@ -326,15 +356,7 @@ public class EatingMasterApp {
                             .build())
                     .build();
 
-            VisionUnderstandAgent visionAgentObj = new VisionUnderstandAgent(readUnderstandModel,
-                    Collections.emptyList(),
-                    Collections.emptyList(),
-                    Collections.emptyList());
-            ReactAgent visionAgent = visionAgentObj.build();
-
-            RunnableConfig visionConfig = RunnableConfig.builder()
-                    .threadId("douya_vision_" + userId + "_" + System.currentTimeMillis())
-                    .addMetadata("user_id", userId)
+            RunnableConfig visionConfig = EatingMasterGraph.runConfig("douya_vision", userId)
                     .store(memoryStore)
                     .build();
 
@@ -354,15 +376,7 @@ public class EatingMasterApp {
                 ? "请详细解读图片内容，并提取对用户有帮助的关键信息。"
                 : userQuery.trim();
         try {
-            PromptRewriterAgent promptRewriterAgentObj = new PromptRewriterAgent(douBaoTransitDeepseek,
-                    Collections.emptyList(),
-                    Collections.emptyList(),
-                    Collections.emptyList());
-            ReactAgent promptRewriterAgent = promptRewriterAgentObj.build();
-
-            RunnableConfig rewriteConfig = RunnableConfig.builder()
-                    .threadId("douya_vision_rewrite_" + userId + "_" + System.currentTimeMillis())
-                    .addMetadata("user_id", userId)
+            RunnableConfig rewriteConfig = EatingMasterGraph.runConfig("douya_vision_rewrite", userId)
                     .store(memoryStore)
                     .build();
 
@@ -425,6 +439,13 @@ public class EatingMasterApp {
         return "你好！我是你的美食老友。想吃点治愈的，还是想学点硬菜手艺？我不仅能陪你聊文化，还能帮你'看'看食材（欢迎发图给我哦）。";
     }
 
+    /**
+     * Supervisor 规则路由命中统计（hits 即节省的 LLM 路由调用次数）
+     */
+    public Map<String, Object> getSupervisorRouteStats() {
+        return supervisorFastRouter.stats();
+    }
+
     public Store getMemoryStore() {
         return douyaDatabaseStore;
     }
@@ -1,87 +1,363 @@
 package com.tengjiao.douya.application.service.evaluator;
 
-import com.alibaba.cloud.ai.graph.agent.ReactAgent;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.tengjiao.douya.infrastructure.config.DocumentRerankProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.Document;
 import lombok.extern.slf4j.Slf4j;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
 
 /**
  * 文档评估与重排序服务
  * 负责对检索回来的粗排文档进行精细化评估，挑选最相关的 Top N
+ * <p>
+ * 逐文档评分在虚拟线程上并行执行，受最大在途数、单文档超时与全局截止时间约束；
+ * 未能在时限内完成评分（或调用失败）的文档保留其向量检索名次。
+ * 另支持 {@link RerankMode#LISTWISE}：所有候选放进同一个 Prompt，一次调用返回 JSON 分数数组，
+ * 响应无法解析时回退到逐文档评分。
+ * 指标：{@code douya.rerank.duration}（整次重排耗时，按 mode 打标签）、{@code douya.rerank.call.duration}（单次 LLM 评分耗时，含分位数）、
+ * {@code douya.rerank.fallback}（回退到向量名次的文档数）。
  *
  * @author tengjiao
  * @since 2026-01-28
  */
 @Slf4j
-public class DocumentEvaluator {
+public class DocumentEvaluator implements Reranker {
 
     private final ChatModel chatModel;
+    private final DocumentRerankProperties properties;
+    private final Map<RerankMode, Timer> rerankTimers = new EnumMap<>(RerankMode.class);
+    private final Timer callTimer;
+    private final Counter fallbackCounter;
 
     private static final String EVALUATOR_SYSTEM_PROMPT = """
             你是一个严谨的文档评估专家。你的任务是根据用户的查询 (Query)，评估给定的文档片段 (Document Chunk) 是否包含能够回答该查询的有价值信息。
-            
+
             评分标准 (0-10分)：
             - 10分：直接、完整地包含了问题的答案（例如具体的食谱步骤、明确的参数）。
             - 7-9分：包含核心信息，但可能需要结合其他片段。
             - 4-6分：提及了相关主题，但信息比较边缘或模糊。
             - 0-3分：完全不相关，或者是噪音数据。
-            
+
             请只输出一个数字作为分数，不要包含任何解释。
             """;
 
     private static final String EVALUATOR_INSTRUCTION = """
             User Query: {query}
-            
+
             Document Chunk:
             {content}
-            
+
             请评分 (0-10):
             """;
 
+    private static final String LISTWISE_SYSTEM_PROMPT = """
+            你是一个严谨的文档评估专家。你的任务是根据用户的查询 (Query)，逐一评估下面每个编号的文档片段是否包含能够回答该查询的有价值信息。
+
+            评分标准 (0-10分)：
+            - 10分：直接、完整地包含了问题的答案（例如具体的食谱步骤、明确的参数）。
+            - 7-9分：包含核心信息，但可能需要结合其他片段。
+            - 4-6分：提及了相关主题，但信息比较边缘或模糊。
+            - 0-3分：完全不相关，或者是噪音数据。
+
+            只输出一个 JSON 数组，每个片段一项，格式：[{"id": 1, "score": 8}, {"id": 2, "score": 3}]
+            不要包含任何解释或 Markdown 代码块。
+            """;
+
+    /**
+     * 列表模式下单个片段的最大字符数，避免候选过多时 Prompt 过长
+     */
+    private static final int LISTWISE_MAX_CHUNK_CHARS = 800;
+
     public DocumentEvaluator(ChatModel chatModel) {
+        this(chatModel, new DocumentRerankProperties(), Metrics.globalRegistry);
+    }
+
+    public DocumentEvaluator(ChatModel chatModel, DocumentRerankProperties properties) {
+        this(chatModel, properties, Metrics.globalRegistry);
+    }
+
+    public DocumentEvaluator(ChatModel chatModel, DocumentRerankProperties properties, MeterRegistry meterRegistry) {
         this.chatModel = chatModel;
+        this.properties = properties;
+        for (RerankMode mode : RerankMode.values()) {
+            rerankTimers.put(mode, Timer.builder("douya.rerank.duration")
+                    .description("文档重排整体耗时")
+                    .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+        this.callTimer = Timer.builder("douya.rerank.call.duration")
+                .description("单次 LLM 文档评分耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("douya.rerank.fallback")
+                .description("未完成评分、回退到向量名次的文档数")
+                .register(meterRegistry);
     }
 
     /**
-     * 评估并重排文档
+     * 按配置的默认模式重排
+     */
+    @Override
+    public List<Document> rerank(String query, List<Document> docs, int topK) {
+        return evaluateAndRerank(query, docs, topK, properties.getMode());
+    }
+
+    /**
+     * 评估并重排文档（逐文档评分）
      * @param query 用户查询
-     * @param docs 原始文档列表
+     * @param docs 原始文档列表（按向量相似度排序）
      * @param topK 需要返回的 Top K
      * @return 重排后的文档列表
      */
     public List<Document> evaluateAndRerank(String query, List<Document> docs, int topK) {
+        return evaluateAndRerank(query, docs, topK, RerankMode.POINTWISE);
+    }
+
+    /**
+     * 按指定模式评估并重排文档
+     * @param query 用户查询
+     * @param docs 原始文档列表（按向量相似度排序）
+     * @param topK 需要返回的 Top K
+     * @param mode 评分模式，LISTWISE 解析失败时回退 POINTWISE
+     * @return 重排后的文档列表
+     */
+    public List<Document> evaluateAndRerank(String query, List<Document> docs, int topK, RerankMode mode) {
         if (docs == null || docs.isEmpty()) {
             return Collections.emptyList();
         }
+        RerankMode effectiveMode = mode == null ? RerankMode.POINTWISE : mode;
 
-        log.info("[DocumentEvaluator] 开始评估 {} 个文档片段, Query: {}", docs.size(), query);
-        Map<Document, Integer> scores = new HashMap<>();
-
-        // 串行或并行评估 (简单起见这里用串行，生产环境建议 CompletableFuture 并行)
-        for (Document doc : docs) {
-            try {
-                int score = evaluateSingle(query, doc.getText());
-                scores.put(doc, score);
-                log.debug("文档片段评分: {}, 内容摘要: {}...", score, doc.getText().substring(0, Math.min(20, doc.getText().length())));
-            } catch (Exception e) {
-                log.warn("文档评估失败, 默认给 0 分", e);
-                scores.put(doc, 0);
+        log.info("[DocumentEvaluator] 开始评估 {} 个文档片段, mode={}, Query: {}", docs.size(), effectiveMode, query);
+        long start = System.nanoTime();
+        // 列表评分与逐文档回退共用同一截止时间，整次重排不超过 deadlineMillis
+        long deadline = System.currentTimeMillis() + properties.getDeadlineMillis();
+        Integer[] scores = null;
+        if (effectiveMode == RerankMode.LISTWISE) {
+            scores = scoreListwise(query, docs, deadline);
+            if (scores == null && System.currentTimeMillis() >= deadline) {
+                log.warn("[DocumentEvaluator] 列表评分耗尽截止时间，保留向量名次");
+                fallbackCounter.increment(docs.size());
+                scores = new Integer[docs.size()];
+            } else if (scores == null) {
+                log.warn("[DocumentEvaluator] 列表评分不可用，回退到逐文档评分");
+                effectiveMode = RerankMode.POINTWISE;
             }
         }
+        if (scores == null) {
+            scores = scoreInParallel(query, docs, deadline);
+        }
+        long wallNanos = System.nanoTime() - start;
+        rerankTimers.get(effectiveMode).record(wallNanos, TimeUnit.NANOSECONDS);
 
-        // 排序：分数降序
-        List<Document> sortedDocs = docs.stream()
-                .sorted((d1, d2) -> scores.get(d2).compareTo(scores.get(d1)))
+        List<Document> sortedDocs = mergeWithVectorRank(docs, scores).stream()
                 .limit(topK)
-                .collect(Collectors.toList());
+                .toList();
 
-        log.info("[DocumentEvaluator] 重排完成，保留 Top {}", sortedDocs.size());
+        log.info("[DocumentEvaluator] 重排完成，保留 Top {}, mode={}, 耗时 {} ms, 单次评分 p50={} ms, p95={} ms",
+                sortedDocs.size(), effectiveMode, TimeUnit.NANOSECONDS.toMillis(wallNanos),
+                percentileMillis(0.5), percentileMillis(0.95));
         return sortedDocs;
     }
 
+    /**
+     * 列表评分：一次调用为所有候选打分，最多等到 deadline（epoch 毫秒）。返回 null 表示调用失败、超时或响应无法解析，由调用方回退
+     */
+    private Integer[] scoreListwise(String query, List<Document> docs, long deadline) {
+        StringBuilder prompt = new StringBuilder(LISTWISE_SYSTEM_PROMPT)
+                .append("\nUser Query: ").append(query).append("\n\n");
+        for (int i = 0; i < docs.size(); i++) {
+            String text = docs.get(i).getText() == null ? "" : docs.get(i).getText();
+            if (text.length() > LISTWISE_MAX_CHUNK_CHARS) {
+                text = text.substring(0, LISTWISE_MAX_CHUNK_CHARS) + "...";
+            }
+            prompt.append("[").append(i + 1).append("]\n").append(text).append("\n\n");
+        }
+        prompt.append("请输出 JSON 分数数组:");
+
+        String result;
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<String> call = executor.submit(() -> {
+                long callStart = System.nanoTime();
+                try {
+                    return chatModel.call(new UserMessage(prompt.toString()));
+                } finally {
+                    callTimer.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+                }
+            });
+            result = call.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.warn("[DocumentEvaluator] 列表评分调用失败: {}", e.toString());
+            return null;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Integer[] scores = parseListwiseScores(result, docs.size());
+        if (scores == null) {
+            log.warn("[DocumentEvaluator] 列表评分解析失败: {}", result);
+        }
+        return scores;
+    }
+
+    /**
+     * 解析列表评分响应，兼容两种格式：
+     * <ul>
+     *     <li>对象数组 {@code [{"id": 1, "score": 8}, ...]}，id 为 1 起始的片段编号，缺失的片段得分为 null</li>
+     *     <li>与候选等长的纯数字数组 {@code [8, 3, ...]}</li>
+     * </ul>
+     * 没有任何有效分数时返回 null。
+     */
+    static Integer[] parseListwiseScores(String response, int size) {
+        if (response == null) {
+            return null;
+        }
+        int begin = response.indexOf('[');
+        int end = response.lastIndexOf(']');
+        if (begin < 0 || end <= begin) {
+            return null;
+        }
+        try {
+            JSONArray array = JSON.parseArray(response.substring(begin, end + 1));
+            Integer[] scores = new Integer[size];
+            boolean any = false;
+            if (!array.isEmpty() && array.get(0) instanceof JSONObject) {
+                for (int i = 0; i < array.size(); i++) {
+                    JSONObject item = array.getJSONObject(i);
+                    Integer id = item.getInteger("id");
+                    Integer score = item.getInteger("score");
+                    if (id != null && score != null && id >= 1 && id <= size) {
+                        scores[id - 1] = clampScore(score);
+                        any = true;
+                    }
+                }
+            } else if (array.size() == size) {
+                for (int i = 0; i < size; i++) {
+                    Integer score = array.getInteger(i);
+                    if (score != null) {
+                        scores[i] = clampScore(score);
+                        any = true;
+                    }
+                }
+            }
+            return any ? scores : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static int clampScore(int score) {
+        return Math.max(0, Math.min(10, score));
+    }
+
+    /**
+     * 并行评分：最多 maxConcurrency 个请求在途，单文档超时与截止时间（epoch 毫秒）到期的文档得分为 null
+     */
+    private Integer[] scoreInParallel(String query, List<Document> docs, long deadline) {
+        Integer[] scores = new Integer[docs.size()];
+        Semaphore permits = new Semaphore(Math.max(1, properties.getMaxConcurrency()));
+        long perDocTimeout = properties.getPerDocumentTimeoutMillis();
+
+        // 不使用 try-with-resources：close() 会等待被取消但仍阻塞在网络 IO 上的评分线程
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<Integer>> futures = new ArrayList<>(docs.size());
+            for (Document doc : docs) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        Future<Integer> call = executor.submit(() -> timedEvaluate(query, doc.getText()));
+                        try {
+                            return call.get(perDocTimeout, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException e) {
+                            call.cancel(true);
+                            log.warn("文档评分超时 ({} ms), 回退到向量名次", perDocTimeout);
+                            return null;
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Integer> future = futures.get(i);
+                long remaining = deadline - System.currentTimeMillis();
+                try {
+                    scores[i] = future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    log.warn("文档评估失败, 回退到向量名次", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long unscored = Arrays.stream(scores).filter(Objects::isNull).count();
+        if (unscored > 0) {
+            fallbackCounter.increment(unscored);
+            log.warn("[DocumentEvaluator] {} / {} 个文档未完成评分，保留向量名次", unscored, docs.size());
+        }
+        return scores;
+    }
+
+    /**
+     * 已评分文档按分数降序（同分保持向量名次）重新填入它们原来占据的位置，未评分文档原位不动
+     */
+    static List<Document> mergeWithVectorRank(List<Document> docs, Integer[] scores) {
+        List<Integer> scoredSlots = new ArrayList<>();
+        for (int i = 0; i < docs.size(); i++) {
+            if (scores[i] != null) {
+                scoredSlots.add(i);
+            }
+        }
+        List<Integer> byScore = new ArrayList<>(scoredSlots);
+        byScore.sort((a, b) -> scores[b].compareTo(scores[a]));
+
+        List<Document> merged = new ArrayList<>(docs);
+        for (int k = 0; k < scoredSlots.size(); k++) {
+            merged.set(scoredSlots.get(k), docs.get(byScore.get(k)));
+        }
+        return merged;
+    }
+
+    private int timedEvaluate(String query, String content) {
+        long start = System.nanoTime();
+        try {
+            int score = evaluateSingle(query, content);
+            log.debug("文档片段评分: {}, 内容摘要: {}...", score, content.substring(0, Math.min(20, content.length())));
+            return score;
+        } finally {
+            callTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long percentileMillis(double percentile) {
+        return Arrays.stream(callTimer.takeSnapshot().percentileValues())
+                .filter(value -> value.percentile() == percentile)
+                .findFirst()
+                .map(value -> (long) value.value(TimeUnit.MILLISECONDS))
+                .orElse(0L);
+    }
+
     private int evaluateSingle(String query, String content) {
         String prompt = EVALUATOR_INSTRUCTION
                 .replace("{query}", query)
@@ -0,0 +1,76 @@
+package com.tengjiao.douya.application.service.evaluator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * 分级重排策略：先用本地词法重排，只有结果难以区分时才升级到 LLM 评分
+ * <p>
+ * 升级条件（满足其一）：
+ * <ul>
+ *     <li>查询与所有候选没有任何词法重合（BM25 全为 0），本地分数不可信</li>
+ *     <li>Top K 截断边界处（第 K 名与第 K+1 名）或第 1、2 名之间的融合分差小于 margin</li>
+ * </ul>
+ * 指标：{@code douya.rerank.escalation}，tag {@code result=local|escalated}。
+ */
+@Slf4j
+public class EscalatingReranker implements Reranker {
+
+    private final LexicalReranker lexicalReranker;
+    private final Reranker llmReranker;
+    private final double margin;
+    private final Counter localCounter;
+    private final Counter escalatedCounter;
+
+    public EscalatingReranker(LexicalReranker lexicalReranker, Reranker llmReranker, double margin) {
+        this(lexicalReranker, llmReranker, margin, Metrics.globalRegistry);
+    }
+
+    public EscalatingReranker(LexicalReranker lexicalReranker, Reranker llmReranker, double margin,
+                              MeterRegistry meterRegistry) {
+        this.lexicalReranker = lexicalReranker;
+        this.llmReranker = llmReranker;
+        this.margin = margin;
+        this.localCounter = Counter.builder("douya.rerank.escalation").tag("result", "local").register(meterRegistry);
+        this.escalatedCounter = Counter.builder("douya.rerank.escalation").tag("result", "escalated").register(meterRegistry);
+    }
+
+    @Override
+    public List<Document> rerank(String query, List<Document> docs, int topK) {
+        if (docs == null || docs.isEmpty()) {
+            return List.of();
+        }
+        List<LexicalReranker.ScoredDocument> scored = lexicalReranker.score(query, docs);
+        String reason = escalationReason(scored, topK);
+        if (reason == null) {
+            localCounter.increment();
+            log.info("[Rerank] 本地词法重排已足够区分, 跳过 LLM 评分, top={}", String.format("%.3f", scored.get(0).score()));
+            return scored.stream().limit(topK).map(LexicalReranker.ScoredDocument::document).toList();
+        }
+        escalatedCounter.increment();
+        log.info("[Rerank] 本地分数难以区分 ({}), 升级到 LLM 评分", reason);
+        return llmReranker.rerank(query, docs, topK);
+    }
+
+    /**
+     * @return 需要升级的原因；null 表示本地结果可直接采用
+     */
+    String escalationReason(List<LexicalReranker.ScoredDocument> scored, int topK) {
+        if (scored.stream().allMatch(item -> item.bm25() <= 0)) {
+            return "no_lexical_overlap";
+        }
+        if (scored.size() > 1 && scored.get(0).score() - scored.get(1).score() < margin) {
+            return "top1_top2_gap";
+        }
+        if (topK > 0 && scored.size() > topK
+                && scored.get(topK - 1).score() - scored.get(topK).score() < margin) {
+            return "cutoff_gap";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,186 @@
+package com.tengjiao.douya.application.service.evaluator;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地词法重排：BM25 与向量相似度加权融合，不调用任何模型
+ * <p>
+ * 分词面向中文菜谱语料：连续的中日韩字符切为单字 + 相邻二元组，字母数字串整体小写作为一个词。
+ * BM25 的 IDF 只在本次候选集合内统计；两路分数分别按最大值 / 最小-最大归一化后加权。
+ */
+public class LexicalReranker implements Reranker {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final double lexicalWeight;
+
+    public LexicalReranker() {
+        this(0.5);
+    }
+
+    /**
+     * @param lexicalWeight BM25 分数权重（0-1），其余权重给向量相似度
+     */
+    public LexicalReranker(double lexicalWeight) {
+        this.lexicalWeight = Math.max(0.0, Math.min(1.0, lexicalWeight));
+    }
+
+    /**
+     * 融合评分结果
+     *
+     * @param document   文档
+     * @param vectorRank 原始向量名次（0 起始）
+     * @param bm25       原始 BM25 分数
+     * @param score      融合后分数（0-1）
+     */
+    public record ScoredDocument(Document document, int vectorRank, double bm25, double score) {
+    }
+
+    @Override
+    public List<Document> rerank(String query, List<Document> docs, int topK) {
+        return score(query, docs).stream()
+                .limit(topK)
+                .map(ScoredDocument::document)
+                .toList();
+    }
+
+    /**
+     * 计算所有候选的融合分数，按分数降序（同分保持向量名次）
+     */
+    public List<ScoredDocument> score(String query, List<Document> docs) {
+        if (docs == null || docs.isEmpty()) {
+            return List.of();
+        }
+        List<String> queryTerms = new ArrayList<>(new HashSet<>(tokenize(query)));
+        List<Map<String, Integer>> termFreqs = new ArrayList<>(docs.size());
+        int[] lengths = new int[docs.size()];
+        Map<String, Integer> docFreq = new HashMap<>();
+        long totalLength = 0;
+        for (int i = 0; i < docs.size(); i++) {
+            List<String> tokens = tokenize(docs.get(i).getText());
+            lengths[i] = tokens.size();
+            totalLength += tokens.size();
+            Map<String, Integer> tf = new HashMap<>();
+            for (String token : tokens) {
+                tf.merge(token, 1, Integer::sum);
+            }
+            termFreqs.add(tf);
+            for (String term : tf.keySet()) {
+                docFreq.merge(term, 1, Integer::sum);
+            }
+        }
+        double avgLength = Math.max(1.0, (double) totalLength / docs.size());
+
+        double[] bm25 = new double[docs.size()];
+        double maxBm25 = 0.0;
+        for (int i = 0; i < docs.size(); i++) {
+            Map<String, Integer> tf = termFreqs.get(i);
+            double sum = 0.0;
+            for (String term : queryTerms) {
+                Integer freq = tf.get(term);
+                if (freq == null) {
+                    continue;
+                }
+                int df = docFreq.getOrDefault(term, 0);
+                double idf = Math.log(1.0 + (docs.size() - df + 0.5) / (df + 0.5));
+                sum += idf * freq * (K1 + 1) / (freq + K1 * (1 - B + B * lengths[i] / avgLength));
+            }
+            bm25[i] = sum;
+            maxBm25 = Math.max(maxBm25, sum);
+        }
+
+        double[] similarity = vectorSimilarities(docs);
+        double minSim = Double.MAX_VALUE;
+        double maxSim = -Double.MAX_VALUE;
+        for (double value : similarity) {
+            minSim = Math.min(minSim, value);
+            maxSim = Math.max(maxSim, value);
+        }
+
+        List<ScoredDocument> scored = new ArrayList<>(docs.size());
+        for (int i = 0; i < docs.size(); i++) {
+            double lexical = maxBm25 > 0 ? bm25[i] / maxBm25 : 0.0;
+            double vector = maxSim > minSim ? (similarity[i] - minSim) / (maxSim - minSim) : 1.0;
+            double fused = lexicalWeight * lexical + (1 - lexicalWeight) * vector;
+            scored.add(new ScoredDocument(docs.get(i), i, bm25[i], fused));
+        }
+        scored.sort(Comparator.comparingDouble(ScoredDocument::score).reversed()
+                .thenComparingInt(ScoredDocument::vectorRank));
+        return scored;
+    }
+
+    /**
+     * 向量相似度：优先使用 Document#getScore，其次由 Chroma 返回的 distance 换算，都没有时按名次线性递减
+     */
+    private double[] vectorSimilarities(List<Document> docs) {
+        double[] similarity = new double[docs.size()];
+        for (int i = 0; i < docs.size(); i++) {
+            Document doc = docs.get(i);
+            if (doc.getScore() != null) {
+                similarity[i] = doc.getScore();
+            } else if (doc.getMetadata().get("distance") instanceof Number distance) {
+                similarity[i] = 1.0 - distance.doubleValue();
+            } else {
+                similarity[i] = 1.0 - (double) i / docs.size();
+            }
+        }
+        return similarity;
+    }
+
+    /**
+     * CJK 感知分词：中日韩字符输出单字与相邻二元组，字母数字串小写后整体输出，其余字符视为分隔符
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        int prevCjk = -1;
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                String ch = new String(Character.toChars(cp));
+                tokens.add(ch);
+                if (prevCjk >= 0) {
+                    tokens.add(new String(Character.toChars(prevCjk)) + ch);
+                }
+                prevCjk = cp;
+            } else if (Character.isLetterOrDigit(cp)) {
+                prevCjk = -1;
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                prevCjk = -1;
+                flushWord(word, tokens);
+            }
+        }
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,33 @@
+package com.tengjiao.douya.application.service.evaluator;
+
+import java.util.Locale;
+
+/**
+ * 文档重排评分模式
+ */
+public enum RerankMode {
+
+    /**
+     * 逐文档评分：每个候选一次 LLM 调用（并行执行）
+     */
+    POINTWISE,
+
+    /**
+     * 批量列表评分：所有候选放入同一个 Prompt，一次 LLM 调用返回全部分数
+     */
+    LISTWISE;
+
+    /**
+     * 宽松解析，无法识别时返回 fallback
+     */
+    public static RerankMode parse(String value, RerankMode fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return RerankMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.tengjiao.douya.application.service.evaluator;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * 检索结果重排器
+ * <p>
+ * 输入为按向量相似度排序的候选文档，输出重排后的 Top K。
+ * 实现包括本地词法重排 {@link LexicalReranker}、LLM 评分 {@link DocumentEvaluator}
+ * 以及先本地后按需升级到 LLM 的 {@link EscalatingReranker}。
+ */
+@FunctionalInterface
+public interface Reranker {
+
+    /**
+     * @param query 用户查询
+     * @param docs  候选文档（按向量相似度排序）
+     * @param topK  需要返回的 Top K
+     * @return 重排后的文档列表
+     */
+    List<Document> rerank(String query, List<Document> docs, int topK);
+}
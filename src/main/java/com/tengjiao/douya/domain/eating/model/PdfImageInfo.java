@@ -37,7 +37,7 @@ public class PdfImageInfo {
     private Float yPosition;
 
     /**
-     * 图片格式(png/jpeg)
+     * 图片格式(png/jpg/jp2)
      */
     private String format;
 }
@@ -0,0 +1,119 @@
+package com.tengjiao.douya.domain.eating.model;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PDF 异步入库任务
+ * <p>
+ * 状态流转：QUEUED -> RUNNING -> SUCCESS / FAILED；执行器队列已满时直接为 REJECTED。
+ * 进度计数由入库线程写入、查询线程读取，均为原子/volatile 字段。
+ */
+@Getter
+public class PdfIngestJob implements PdfIngestProgress {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+    public static final String REJECTED = "REJECTED";
+
+    private final String jobId;
+    private final String documentName;
+    private final Instant createdAt = Instant.now();
+    private final AtomicInteger pagesProcessed = new AtomicInteger();
+    private final AtomicInteger chunksStored = new AtomicInteger();
+    private final AtomicInteger imagesUploaded = new AtomicInteger();
+    private volatile String status = QUEUED;
+    private volatile String stage;
+    private volatile int totalPages;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String errorMessage;
+    private volatile PdfProcessResult result;
+
+    public PdfIngestJob(String jobId, String documentName) {
+        this.jobId = jobId;
+        this.documentName = documentName;
+    }
+
+    public void markRunning() {
+        startedAt = Instant.now();
+        status = RUNNING;
+    }
+
+    public void markFinished(PdfProcessResult processResult) {
+        result = processResult;
+        errorMessage = processResult.getErrorMessage();
+        finishedAt = Instant.now();
+        status = SUCCESS.equals(processResult.getStatus()) ? SUCCESS : FAILED;
+    }
+
+    public void markFailed(String message) {
+        errorMessage = message;
+        finishedAt = Instant.now();
+        status = FAILED;
+    }
+
+    public void markRejected(String message) {
+        errorMessage = message;
+        finishedAt = Instant.now();
+        status = REJECTED;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    @Override
+    public void onStarted(int pages) {
+        totalPages = pages;
+    }
+
+    @Override
+    public void onStage(String currentStage) {
+        stage = currentStage;
+    }
+
+    @Override
+    public void onImagesUploaded(int count) {
+        imagesUploaded.addAndGet(count);
+    }
+
+    @Override
+    public void onPagesProcessed(int count) {
+        pagesProcessed.addAndGet(count);
+    }
+
+    @Override
+    public void onChunksStored(int count) {
+        chunksStored.addAndGet(count);
+    }
+
+    /**
+     * 供状态查询接口返回的快照
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("jobId", jobId);
+        snapshot.put("documentName", documentName);
+        snapshot.put("status", status);
+        snapshot.put("stage", stage);
+        snapshot.put("totalPages", totalPages);
+        snapshot.put("pagesProcessed", pagesProcessed.get());
+        snapshot.put("chunksStored", chunksStored.get());
+        snapshot.put("imagesUploaded", imagesUploaded.get());
+        snapshot.put("createdAt", createdAt.toString());
+        snapshot.put("startedAt", startedAt == null ? null : startedAt.toString());
+        snapshot.put("finishedAt", finishedAt == null ? null : finishedAt.toString());
+        snapshot.put("errorMessage", errorMessage);
+        if (result != null) {
+            snapshot.put("result", result);
+        }
+        return snapshot;
+    }
+}
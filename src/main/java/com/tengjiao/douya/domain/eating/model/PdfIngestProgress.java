@@ -0,0 +1,42 @@
+package com.tengjiao.douya.domain.eating.model;
+
+/**
+ * PDF 入库进度回调
+ * <p>
+ * 在入库线程上同步触发，实现方只做计数等轻量操作，不要向外抛异常。
+ */
+public interface PdfIngestProgress {
+
+    PdfIngestProgress NOOP = new PdfIngestProgress() {
+    };
+
+    /**
+     * 文档加载完成
+     */
+    default void onStarted(int totalPages) {
+    }
+
+    /**
+     * 进入新阶段：EXTRACT_IMAGES / EXTRACT_TEXT / SPLIT_STORE
+     */
+    default void onStage(String stage) {
+    }
+
+    /**
+     * 一个窗口内的图片上传完成
+     */
+    default void onImagesUploaded(int count) {
+    }
+
+    /**
+     * 一个窗口的页面完成切分入库
+     */
+    default void onPagesProcessed(int count) {
+    }
+
+    /**
+     * 一批分片写入向量库
+     */
+    default void onChunksStored(int count) {
+    }
+}
@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * PDF 文档处理结果
@@ -38,6 +39,31 @@ public class PdfProcessResult {
      */
     private Integer chunkCount;
 
+    /**
+     * 本次新增（重新 Embedding）的分片数量
+     */
+    private Integer embeddedChunkCount;
+
+    /**
+     * 与上一版本完全一致、未做任何写入的分片数量
+     */
+    private Integer unchangedChunkCount;
+
+    /**
+     * 文本未变、仅元数据变化而原向量写回的分片数量
+     */
+    private Integer relabeledChunkCount;
+
+    /**
+     * 新版本中已不存在而被删除的分片数量
+     */
+    private Integer deletedChunkCount;
+
+    /**
+     * 各阶段耗时（毫秒），按执行顺序排列；image* 为图片子阶段，其中 imageEncode / imageUpload 为各任务耗时之和
+     */
+    private Map<String, Long> stageMillis;
+
     /**
      * 处理状态
      */
@@ -0,0 +1,260 @@
+package com.tengjiao.douya.domain.eating.service;
+
+import com.tengjiao.douya.infrastructure.vectorstore.ChunkManifestStore;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingBatchWriter;
+import com.tengjiao.douya.infrastructure.vectorstore.ParentBlockStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * 单次 PDF 入库的增量同步
+ * <p>
+ * 分片 id 由 (documentName, 内容哈希, 同内容出现序号) 确定性生成，与文档清单比对后：
+ * <ul>
+ *     <li>新 id：Embedding 后写入</li>
+ *     <li>已有 id 且元数据哈希一致：跳过，不产生任何写入</li>
+ *     <li>已有 id 但元数据变化（页码、序号、父块、图片等）：取回已存向量原样写回，不重新 Embedding</li>
+ *     <li>清单中未被本次命中的 id：全部窗口处理完成后删除（含历史随机 id 分片）</li>
+ * </ul>
+ * 子块元数据中的 {@code parent_text} 在写入前被替换为 {@link ParentBlockStore#PARENT_ID_KEY}，
+ * 父块按内容哈希去重后先于子块写入父块集合，已存在的父块不重复写入，不再被引用的父块在结束时删除。
+ * 中途失败时不做删除，重新上传即可收敛到新版本。
+ */
+@Slf4j
+final class DocumentChunkSync {
+
+    /**
+     * 不参与元数据哈希的键：写入时间每次都变，哈希字段本身不能自引用
+     */
+    private static final Set<String> VOLATILE_KEYS = Set.of(
+            "timestamp", ChunkManifestStore.CONTENT_HASH_KEY, ChunkManifestStore.METADATA_HASH_KEY);
+
+    private final String collectionName;
+    private final String documentName;
+    private final EmbeddingBatchWriter writer;
+    private final ChunkManifestStore manifestStore;
+    private final ParentBlockStore parentStore;
+    private final EmbeddingBatchWriter.ChunkSink sink;
+    private final Map<String, String> remaining;
+    private final Map<String, Integer> occurrences = new HashMap<>();
+    private final Set<String> existingParents;
+    private final Set<String> referencedParents = new HashSet<>();
+    private final Map<String, String> pendingParents = new LinkedHashMap<>();
+
+    private int embedded;
+    private int unchanged;
+    private int relabeled;
+    private int deleted;
+    private int parentsWritten;
+
+    private DocumentChunkSync(String collectionName, String documentName, EmbeddingBatchWriter writer,
+                              ChunkManifestStore manifestStore, ParentBlockStore parentStore,
+                              Map<String, String> manifest, Set<String> existingParents) {
+        this.collectionName = collectionName;
+        this.documentName = documentName;
+        this.writer = writer;
+        this.manifestStore = manifestStore;
+        this.parentStore = parentStore;
+        this.sink = writer.chromaSink(collectionName);
+        this.remaining = manifest;
+        this.existingParents = existingParents;
+    }
+
+    /**
+     * @param incremental 为 false 时不读取清单，所有分片重新 Embedding 并按确定性 id 覆盖写入
+     */
+    static DocumentChunkSync start(String collectionName, String documentName, EmbeddingBatchWriter writer,
+                                   ChunkManifestStore manifestStore, ParentBlockStore parentStore,
+                                   boolean incremental) {
+        Map<String, String> manifest = incremental
+                ? manifestStore.load(collectionName, documentName)
+                : new LinkedHashMap<>();
+        Set<String> existingParents = incremental ? parentStore.idsOf(documentName) : new HashSet<>();
+        return new DocumentChunkSync(collectionName, documentName, writer, manifestStore, parentStore,
+                manifest, existingParents);
+    }
+
+    /**
+     * 同步一个窗口的分片，onStored 对跳过的分片同样计数，保证进度能走到总数
+     */
+    void store(List<Document> documents, IntConsumer onStored) {
+        List<Document> identified = identify(documents);
+        // 父块先于引用它的子块落库，检索不会拿到悬空的 parent_id
+        if (!pendingParents.isEmpty()) {
+            parentStore.upsert(documentName, pendingParents);
+            parentsWritten += pendingParents.size();
+            pendingParents.clear();
+        }
+
+        List<Document> toEmbed = new ArrayList<>();
+        List<Document> toRelabel = new ArrayList<>();
+        int skipped = 0;
+        for (Document document : identified) {
+            String id = document.getId();
+            if (!remaining.containsKey(id)) {
+                toEmbed.add(document);
+                continue;
+            }
+            String previousHash = remaining.remove(id);
+            if (previousHash.equals(document.getMetadata().get(ChunkManifestStore.METADATA_HASH_KEY))) {
+                skipped++;
+            } else {
+                toRelabel.add(document);
+            }
+        }
+        unchanged += skipped;
+        if (skipped > 0) {
+            onStored.accept(skipped);
+        }
+
+        if (!toRelabel.isEmpty()) {
+            Map<String, float[]> stored = manifestStore.fetchEmbeddings(collectionName,
+                    toRelabel.stream().map(Document::getId).toList());
+            List<Document> docs = new ArrayList<>(toRelabel.size());
+            List<float[]> embeddings = new ArrayList<>(toRelabel.size());
+            for (Document document : toRelabel) {
+                float[] embedding = stored.get(document.getId());
+                if (embedding == null) {
+                    toEmbed.add(document);
+                } else {
+                    docs.add(document);
+                    embeddings.add(embedding);
+                }
+            }
+            if (!docs.isEmpty()) {
+                sink.upsert(docs, embeddings);
+                relabeled += docs.size();
+                onStored.accept(docs.size());
+            }
+        }
+
+        if (!toEmbed.isEmpty()) {
+            writer.write(toEmbed, sink, onStored);
+            embedded += toEmbed.size();
+        }
+    }
+
+    /**
+     * 全部窗口写入成功后删除新版本中已不存在的分片
+     */
+    void finish() {
+        if (!remaining.isEmpty()) {
+            deleted = manifestStore.delete(collectionName, remaining.keySet());
+            remaining.clear();
+        }
+        existingParents.removeAll(referencedParents);
+        int parentsDeleted = parentStore.delete(existingParents);
+        log.info("[ChunkSync] {} 增量入库完成: embedded={}, unchanged={}, relabeled={}, deleted={}, parentsWritten={}, parentsDeleted={}",
+                documentName, embedded, unchanged, relabeled, deleted, parentsWritten, parentsDeleted);
+    }
+
+    boolean changed() {
+        return embedded + relabeled + deleted > 0;
+    }
+
+    int embedded() {
+        return embedded;
+    }
+
+    int unchanged() {
+        return unchanged;
+    }
+
+    int relabeled() {
+        return relabeled;
+    }
+
+    int deleted() {
+        return deleted;
+    }
+
+    private List<Document> identify(List<Document> documents) {
+        List<Document> result = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            String text = document.getText() == null ? "" : document.getText();
+            String contentHash = sha256(text);
+            int occurrence = occurrences.merge(contentHash, 1, Integer::sum) - 1;
+
+            Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+            Object parentText = metadata.remove("parent_text");
+            if (parentText instanceof String parent && !parent.isBlank()) {
+                String parentId = parentId(documentName, sha256(parent));
+                metadata.put(ParentBlockStore.PARENT_ID_KEY, parentId);
+                if (referencedParents.add(parentId) && !existingParents.contains(parentId)) {
+                    pendingParents.put(parentId, parent);
+                }
+            }
+            metadata.put(ChunkManifestStore.CONTENT_HASH_KEY, contentHash);
+            metadata.put(ChunkManifestStore.METADATA_HASH_KEY, metadataHash(metadata));
+
+            result.add(Document.builder()
+                    .id(chunkId(documentName, contentHash, occurrence))
+                    .text(text)
+                    .metadata(metadata)
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * 同一文档内完全相同的分片按出现顺序区分，避免 id 冲突
+     */
+    static String chunkId(String documentName, String contentHash, int occurrence) {
+        String key = documentName + '\u0000' + contentHash + '\u0000' + occurrence;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * 同一文档内文本相同的父块共用一个 id
+     */
+    static String parentId(String documentName, String parentHash) {
+        String key = "parent\u0000" + documentName + '\u0000' + parentHash;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    static String metadataHash(Map<String, Object> metadata) {
+        Map<String, Object> stable = new TreeMap<>();
+        metadata.forEach((key, value) -> {
+            if (!VOLATILE_KEYS.contains(key)) {
+                stable.put(key, canonical(value));
+            }
+        });
+        return sha256(stable.toString());
+    }
+
+    private static Object canonical(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), canonical(v)));
+            return sorted;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(DocumentChunkSync::canonical).toList();
+        }
+        return String.valueOf(value);
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
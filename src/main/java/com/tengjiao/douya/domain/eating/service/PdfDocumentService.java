@@ -1,9 +1,11 @@
 package com.tengjiao.douya.domain.eating.service;
 
+import com.tengjiao.douya.domain.eating.model.PdfIngestProgress;
 import com.tengjiao.douya.domain.eating.model.PdfProcessResult;
 import com.tengjiao.douya.domain.eating.model.PdfSplitOptions;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -40,4 +42,13 @@ public interface PdfDocumentService {
             InputStream pdfInputStream,
             String documentName,
             PdfSplitOptions options);
+
+    /**
+     * 处理已落盘的 PDF 文件，入库过程中回调进度（文件由调用方负责清理）
+     */
+    PdfProcessResult processPdfDocument(
+            Path pdfFile,
+            String documentName,
+            PdfSplitOptions options,
+            PdfIngestProgress progress);
 }
@@ -1,41 +1,38 @@
 package com.tengjiao.douya.domain.eating.service;
 
 import com.tengjiao.douya.domain.eating.model.PdfImageInfo;
+import com.tengjiao.douya.domain.eating.model.PdfIngestProgress;
 import com.tengjiao.douya.domain.eating.model.PdfProcessResult;
 import com.tengjiao.douya.domain.eating.model.PdfSplitOptions;
 import com.tengjiao.douya.domain.eating.model.DocumentSplitStrategy;
+import com.tengjiao.douya.infrastructure.config.ChromaProperties;
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
 import com.tengjiao.douya.infrastructure.config.DocumentSplitProperties;
-import com.tengjiao.douya.infrastructure.oss.OssService;
+import com.tengjiao.douya.infrastructure.external.python.PythonProcessRunner;
+import com.tengjiao.douya.infrastructure.vectorstore.ChunkManifestStore;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingBatchWriter;
+import com.tengjiao.douya.infrastructure.vectorstore.ParentBlockStore;
+import com.tengjiao.douya.infrastructure.vectorstore.PublicSearchCache;
+import com.tengjiao.douya.infrastructure.vectorstore.UserVectorApp;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.util.regex.Pattern;
-
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -48,25 +45,30 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PdfDocumentServiceImpl implements PdfDocumentService {
 
-    private final OssService ossService;
-    private final VectorStore chromaVectorStore;
+    private final EmbeddingBatchWriter embeddingBatchWriter;
+    private final ChromaProperties chromaProperties;
     private final DocumentSplitProperties documentSplitProperties;
     private final ObjectMapper objectMapper;
+    private final PublicSearchCache publicSearchCache;
+    private final DocumentIngestProperties documentIngestProperties;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final ChunkManifestStore chunkManifestStore;
+    private final ParentBlockStore parentBlockStore;
+    private final PdfImageUploader pdfImageUploader;
 
     // 文本切分器配置 - 语义化 Parent-Child 策略
     private static final int PARENT_CONTEXT_SIZE = 500; // 侧向扩展的上下文
     private static final int CHILD_CHUNK_SIZE = 300; // 子块大小
+    private static final int PARENT_BLOCK_SIZE = CHILD_CHUNK_SIZE + 2 * PARENT_CONTEXT_SIZE; // 固定父块大小，与原滑动窗口上限一致
     private static final int CHILD_CHUNK_OVERLAP = 50;
 
-    // 图片格式
-    private static final String IMAGE_FORMAT = "png";
     private static final String ENV_DOC_SPLIT_PYTHON_COMMAND = "DOUYA_DOC_SPLIT_PYTHON_COMMAND";
     private static final String ENV_DOC_SPLIT_PYTHON_EXECUTABLE = "DOUYA_DOC_SPLIT_PYTHON_EXECUTABLE";
     private static final String ENV_DOC_SPLIT_PYTHON_SCRIPT = "DOUYA_DOC_SPLIT_PYTHON_SCRIPT";
     private static final String ENV_DOC_SPLIT_PYTHON_TIMEOUT_SECONDS = "DOUYA_DOC_SPLIT_PYTHON_TIMEOUT_SECONDS";
 
     @Override
-    @Async
+    @Async("pdfIngestExecutor")
     public CompletableFuture<PdfProcessResult> processPdfDocumentAsync(
             InputStream pdfInputStream,
             String documentName) {
@@ -74,7 +76,7 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
     }
 
     @Override
-    @Async
+    @Async("pdfIngestExecutor")
     public CompletableFuture<PdfProcessResult> processPdfDocumentAsync(
             InputStream pdfInputStream,
             String documentName,
@@ -105,69 +107,136 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
             InputStream pdfInputStream,
             String documentName,
             PdfSplitOptions options) {
+        Path tempFile;
+        try {
+            // 上传内容落盘，PDFBox 直接从文件随机读取，不再整体读入字节数组
+            tempFile = PdfTempFiles.spill(pdfInputStream, documentIngestProperties.getTempDir());
+        } catch (IOException e) {
+            log.error("PDF 上传内容落盘失败: {}", documentName, e);
+            return PdfProcessResult.builder()
+                    .documentName(documentName)
+                    .status("FAILED")
+                    .errorMessage("文件读取失败: " + e.getMessage())
+                    .build();
+        }
+        try {
+            return processPdfDocument(tempFile, documentName, options, PdfIngestProgress.NOOP);
+        } finally {
+            PdfTempFiles.deleteQuietly(tempFile);
+        }
+    }
+
+    @Override
+    public PdfProcessResult processPdfDocument(
+            Path pdfFile,
+            String documentName,
+            PdfSplitOptions options,
+            PdfIngestProgress progress) {
 
         log.info("开始处理 PDF 文档: {}", documentName);
 
         try {
             DocumentSplitStrategy splitStrategy = resolveStrategy(options);
             log.info("PDF 切分策略: {}", splitStrategy);
-            // 1. 加载 PDF 文档
-            byte[] pdfBytes = pdfInputStream.readAllBytes();
-            PDDocument pdDocument = Loader.loadPDF(pdfBytes);
 
-            int totalPages = pdDocument.getNumberOfPages();
-            log.info("PDF 总页数: {}", totalPages);
-
-            // 2. 提取图片并上传到 OSS
-            List<PdfImageInfo> allImages = extractAndUploadImages(pdDocument, documentName);
+            // 1. 从本地文件随机读取加载文档
+            int window = Math.max(1, documentIngestProperties.getWindowPages());
+
+            int totalPages;
+            List<PageContent> rawPageContents;
+            List<PdfImageInfo> allImages = new ArrayList<>();
+            Map<String, Long> stageMillis = new LinkedHashMap<>();
+            long stageStart = System.nanoTime();
+            try (PDDocument pdDocument = Loader.loadPDF(new RandomAccessReadBufferedFile(pdfFile.toFile()),
+                    IOUtils.createTempFileOnlyStreamCache())) {
+                totalPages = pdDocument.getNumberOfPages();
+                log.info("PDF 总页数: {}，处理窗口: {} 页", totalPages, window);
+                progress.onStarted(totalPages);
+                stageStart = recordStage(stageMillis, "load", stageStart);
+
+                // 2. 按窗口提取图片（上传完成后才进入下一窗口）
+                progress.onStage("EXTRACT_IMAGES");
+                PdfImageUploader.Session imageSession = pdfImageUploader.newSession();
+                for (int startPage = 1; startPage <= totalPages; startPage += window) {
+                    int endPage = Math.min(totalPages, startPage + window - 1);
+                    List<PdfImageInfo> windowImages = imageSession.extract(pdDocument, startPage, endPage);
+                    allImages.addAll(windowImages);
+                    progress.onImagesUploaded(windowImages.size());
+                }
+                log.info("图片去重: 新上传 {} 张，OSS 已存在 {} 张，进程内命中 {} 张",
+                        imageSession.uploaded(), imageSession.reused(), imageSession.cacheHits());
+                stageStart = recordStage(stageMillis, "images", stageStart);
+                stageMillis.putAll(imageSession.timings());
+
+                // 3. 解析文本内容(按页)，长文档由多个 worker 各自打开文件并行提取
+                progress.onStage("EXTRACT_TEXT");
+                List<String> pageTexts = pdfTextExtractor.extractPages(pdDocument, pdfFile);
+                rawPageContents = new ArrayList<>(totalPages);
+                for (int i = 0; i < pageTexts.size(); i++) {
+                    rawPageContents.add(new PageContent(i + 1, pageTexts.get(i)));
+                }
+                stageStart = recordStage(stageMillis, "text", stageStart);
+            }
+            allImages.sort(Comparator.comparingInt(PdfImageInfo::getPageNumber));
             log.info("提取并上传了 {} 张图片", allImages.size());
 
-            // 3. 解析文本内容(按页)
-            List<PageContent> rawPageContents = extractTextByPage(pdDocument);
+            // 页眉页脚识别需要全文统计，仅基于文本完成，图片已释放
+            Set<String> noiseLines = detectNoiseLines(rawPageContents);
 
-            // 4. 新流程：Filter -> Merge -> Split -> Clean
+            // 4. 按窗口执行 Filter -> Merge -> Split -> Clean -> Store，与文档现有分片清单增量比对
+            progress.onStage("SPLIT_STORE");
+            DocumentChunkSync chunkSync = DocumentChunkSync.start(chromaProperties.getCollectionName(), documentName,
+                    embeddingBatchWriter, chunkManifestStore, parentBlockStore, documentIngestProperties.isIncremental());
+            int chunkCount = 0;
+            for (int from = 0; from < rawPageContents.size(); from += window) {
+                List<PageContent> windowPages = rawPageContents.subList(from, Math.min(rawPageContents.size(), from + window));
 
-            // 4.1 初步去噪 (仅移除页眉页脚)
-            List<PageContent> filteredContents = filterNoise(rawPageContents);
+                // 4.1 初步去噪 (仅移除页眉页脚)
+                List<PageContent> filteredContents = filterNoise(windowPages, noiseLines);
 
-            // 4.2 段落重组 (修复断句)
-            List<PageContent> mergedContents = mergeParagraphs(filteredContents);
+                // 4.2 段落重组 (修复断句)
+                List<PageContent> mergedContents = mergeParagraphs(filteredContents);
 
-            // 4.3 切分文本 (Parent-Child 策略) 并关联图片
-            List<Document> rawDocuments = switch (splitStrategy) {
-                case PYTHON -> splitWithPythonOrFallback(mergedContents, allImages, documentName);
-                case JAVA -> splitParentChildAndAssociate(mergedContents, allImages, documentName);
-            };
+                // 4.3 切分文本 (Parent-Child 策略) 并关联图片，childIndex 跨窗口连续
+                List<Document> rawDocuments = switch (splitStrategy) {
+                    case PYTHON -> splitWithPythonOrFallback(mergedContents, allImages, documentName, chunkCount);
+                    case JAVA -> splitParentChildAndAssociate(mergedContents, allImages, documentName, chunkCount);
+                };
 
-            // 4.4 最终清洗 (对切片后的文本进行规范化)
-            List<Document> documents = cleanChunks(rawDocuments);
+                // 4.4 最终清洗 (对切片后的文本进行规范化)
+                List<Document> documents = cleanChunks(rawDocuments);
 
-            log.info("生成了 {} 个文档片段", documents.size());
-
-            // 5. 存储到向量数据库 (分批存储，解决 DashScope 单次请求限制，目前限制为 10 条)
-            int batchSize = 10;
-            for (int i = 0; i < documents.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, documents.size());
-                List<Document> batch = documents.subList(i, end);
-                chromaVectorStore.add(batch);
-                log.info("已存储向量分块: {} - {} / {}", i, end, documents.size());
+                // 5. 存储到向量数据库
+                storeChunks(chunkSync, documents, chunkCount, progress);
+                chunkCount += documents.size();
+                progress.onPagesProcessed(windowPages.size());
+            }
+            chunkSync.finish();
+            recordStage(stageMillis, "splitStore", stageStart);
+            log.info("成功存储到向量数据库，共 {} 个文档片段", chunkCount);
+            log.info("PDF 各阶段耗时(ms): {}", stageMillis);
+            if (chunkSync.changed()) {
+                publicSearchCache.bumpVersion("processPdfDocument");
             }
-            log.info("成功存储到向量数据库");
-
-            // 6. 关闭文档
-            pdDocument.close();
 
             return PdfProcessResult.builder()
                     .documentName(documentName)
                     .totalPages(totalPages)
                     .imageCount(allImages.size())
-                    .chunkCount(documents.size())
+                    .chunkCount(chunkCount)
+                    .embeddedChunkCount(chunkSync.embedded())
+                    .unchangedChunkCount(chunkSync.unchanged())
+                    .relabeledChunkCount(chunkSync.relabeled())
+                    .deletedChunkCount(chunkSync.deleted())
+                    .stageMillis(stageMillis)
                     .status("SUCCESS")
                     .images(allImages)
                     .build();
 
         } catch (Exception e) {
             log.error("处理 PDF 文档失败: {}", documentName, e);
+            // 可能已写入部分分块
+            publicSearchCache.bumpVersion("processPdfDocument_failed");
             return PdfProcessResult.builder()
                     .documentName(documentName)
                     .status("FAILED")
@@ -176,6 +245,30 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
         }
     }
 
+    /**
+     * 增量写入向量库：未变化的分片跳过，新分片并发 Embedding 后批量写入
+     *
+     * @param documents 当前窗口的分片
+     * @param offset    已处理的分片数，仅用于日志
+     */
+    private void storeChunks(DocumentChunkSync chunkSync, List<Document> documents, int offset, PdfIngestProgress progress) {
+        AtomicInteger stored = new AtomicInteger(offset);
+        chunkSync.store(documents, count -> {
+            progress.onChunksStored(count);
+            int end = stored.addAndGet(count);
+            log.info("已存储向量分块: {} - {}", end - count, end);
+        });
+    }
+
+    /**
+     * 记录从 startNanos 到现在的阶段耗时，返回下一阶段的起点
+     */
+    private static long recordStage(Map<String, Long> stageMillis, String stage, long startNanos) {
+        long now = System.nanoTime();
+        stageMillis.put(stage, TimeUnit.NANOSECONDS.toMillis(now - startNanos));
+        return now;
+    }
+
     private DocumentSplitStrategy resolveStrategy(PdfSplitOptions options) {
         if (options != null && options.getStrategy() != null) {
             return options.getStrategy();
@@ -186,19 +279,21 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
     private List<Document> splitWithPythonOrFallback(
             List<PageContent> pageContents,
             List<PdfImageInfo> allImages,
-            String documentName) {
+            String documentName,
+            int indexOffset) {
         try {
-            return splitWithPython(pageContents, allImages, documentName);
+            return splitWithPython(pageContents, allImages, documentName, indexOffset);
         } catch (Exception e) {
             log.warn("Python 切分失败，回退到 JAVA 切分: {}", e.getMessage(), e);
-            return splitParentChildAndAssociate(pageContents, allImages, documentName);
+            return splitParentChildAndAssociate(pageContents, allImages, documentName, indexOffset);
         }
     }
 
     private List<Document> splitWithPython(
             List<PageContent> pageContents,
             List<PdfImageInfo> allImages,
-            String documentName) throws Exception {
+            String documentName,
+            int indexOffset) throws Exception {
         PythonSplitRequest request = new PythonSplitRequest(
                 pageContents.stream().map(p -> new PythonPage(p.pageNumber(), p.text())).toList(),
                 CHILD_CHUNK_SIZE,
@@ -213,27 +308,14 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
             throw new IllegalStateException("Python 切分脚本不存在: " + scriptPath);
         }
 
-        ProcessBuilder processBuilder = new ProcessBuilder(buildPythonCommand(scriptPath));
-        Process process = processBuilder.start();
-
-        try (var outputStream = process.getOutputStream()) {
-            objectMapper.writeValue(outputStream, request);
-            outputStream.flush();
-        }
-
-        boolean finished = process.waitFor(resolvePythonTimeoutSeconds(), TimeUnit.SECONDS);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new IllegalStateException("Python 切分超时");
+        PythonProcessRunner runner = new PythonProcessRunner(objectMapper, documentSplitProperties.getPythonMaxOutputBytes());
+        PythonProcessRunner.Result<PythonSplitResponse> processResult = runner.run(
+                buildPythonCommand(scriptPath), null, request, resolvePythonTimeoutSeconds(), PythonSplitResponse.class);
+        if (!processResult.success()) {
+            throw new IllegalStateException("Python 切分进程失败: " + processResult.stderr());
         }
 
-        String stdout = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-        String stderr = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
-        if (process.exitValue() != 0) {
-            throw new IllegalStateException("Python 切分进程失败: " + stderr);
-        }
-
-        PythonSplitResponse response = objectMapper.readValue(stdout, PythonSplitResponse.class);
+        PythonSplitResponse response = processResult.requireParsed();
         if (response == null || response.chunks() == null || response.chunks().isEmpty()) {
             return Collections.emptyList();
         }
@@ -246,7 +328,7 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
                                 "pageNumber", img.getPageNumber()), Collectors.toList())));
 
         List<Document> documents = new ArrayList<>(response.chunks().size());
-        int index = 0;
+        int index = indexOffset;
         for (PythonChunk chunk : response.chunks()) {
             index++;
             int startPage = Math.max(1, chunk.startPage());
@@ -264,6 +346,7 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
             metadata.put("is_child", true);
             metadata.put("parent_text", chunk.parentText());
             metadata.put("splitStrategy", "PYTHON");
+            metadata.put(UserVectorApp.SCOPE_KEY, UserVectorApp.SCOPE_PUBLIC);
             if (!associatedImages.isEmpty()) {
                 metadata.put("images", associatedImages);
             }
@@ -324,197 +407,22 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
         return fallback;
     }
 
-    private List<PdfImageInfo> extractAndUploadImages(PDDocument document, String documentName) {
-        // 使用线程安全的列表存储结果
-        List<PdfImageInfo> imageInfos = Collections.synchronizedList(new ArrayList<>());
-
-        // 用于存储正在进行或已完成的上传任务，避免同一张图片重复处理
-        Map<COSStream, CompletableFuture<ImageUploadResult>> uploadTasks = new ConcurrentHashMap<>();
-
-        // 全局唯一图片计数器
-        AtomicInteger uniqueImageCounter = new AtomicInteger(0);
-
-        // 收集所有页面的图片关联任务
-        List<CompletableFuture<Void>> pageImageTasks = new ArrayList<>();
-
-        try {
-            int pageNum = 0;
-
-            for (PDPage page : document.getPages()) {
-                pageNum++;
-                final int currentPageNum = pageNum;
-
-                // 获取页面资源
-                if (page.getResources() == null) {
-                    continue;
-                }
-
-                // 遍历图片资源
-                for (var name : page.getResources().getXObjectNames()) {
-                    var xObject = page.getResources().getXObject(name);
-
-                    if (xObject instanceof PDImageXObject imageXObject) {
-                        COSStream cosStream = imageXObject.getCOSObject();
-
-                        // 1. 获取 BufferedImage (PDFBox 解析过程建议在主线程顺序执行以确保线程安全)
-                        BufferedImage bufferedImage = imageXObject.getImage();
-
-                        // 2. 提交并发任务处理编码与上传 (慢速操作并行化)
-                        CompletableFuture<ImageUploadResult> uploadTask = uploadTasks.computeIfAbsent(cosStream,
-                                stream -> {
-                                    return CompletableFuture.supplyAsync(() -> {
-                                        try {
-                                            int imgId = uniqueImageCounter.incrementAndGet();
-
-                                            // 转换为 PNG 格式 (CPU 密集)
-                                            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                                            ImageIO.write(bufferedImage, IMAGE_FORMAT, baos);
-                                            byte[] imageBytes = baos.toByteArray();
-
-                                            // 生成文件名与路径
-                                            String fileName = String.format(
-                                                    "%s_img%d.%s",
-                                                    sanitizeFileName(documentName),
-                                                    imgId,
-                                                    IMAGE_FORMAT);
-
-                                            String objectName = String.format(
-                                                    "documents/%s/%s",
-                                                    sanitizeFileName(documentName),
-                                                    fileName);
-
-                                            // 上传到 OSS (I/O 密集)
-                                            String ossUrl;
-                                            if (!ossService.doesObjectExist(objectName)) {
-                                                ossUrl = ossService.uploadFile(
-                                                        objectName,
-                                                        new ByteArrayInputStream(imageBytes));
-                                                log.info("上传新图片: {} -> {}", fileName, ossUrl);
-                                            } else {
-                                                ossUrl = ossService.getFileUrl(objectName);
-                                                log.info("复用 OSS 已有图片: {} -> {}", fileName, ossUrl);
-                                            }
-
-                                            return new ImageUploadResult(ossUrl, fileName);
-                                        } catch (Exception e) {
-                                            log.error("图片上传任务执行失败", e);
-                                            throw new RuntimeException("图片上传失败", e);
-                                        }
-                                    });
-                                });
-
-                        // 3. 当上传完成后，将记录添加到当前页面的信息列表中
-                        pageImageTasks.add(uploadTask.thenAccept(result -> {
-                            PdfImageInfo imageInfo = PdfImageInfo.builder()
-                                    .fileName(result.fileName())
-                                    .ossUrl(result.ossUrl())
-                                    .pageNumber(currentPageNum)
-                                    .yPosition(0f)
-                                    .format(IMAGE_FORMAT)
-                                    .build();
-                            imageInfos.add(imageInfo);
-                        }));
-                    }
-                }
-            }
-
-            // 等待所有图片处理完成
-            CompletableFuture.allOf(pageImageTasks.toArray(new CompletableFuture[0])).join();
-
-        } catch (Exception e) {
-            log.error("提取图片过程出错", e);
-        }
-
-        // 最终结果按照页码排序
-        return imageInfos.stream()
-                .sorted(Comparator.comparingInt(PdfImageInfo::getPageNumber))
-                .collect(Collectors.toList());
-    }
-
     /**
-     * 按页提取文本内容
+     * 统计全文行频次，识别页眉页脚
      */
-    private List<PageContent> extractTextByPage(PDDocument document) throws IOException {
-        List<PageContent> pageContents = new ArrayList<>();
-        PDFTextStripper stripper = new PDFTextStripper();
-        stripper.setSortByPosition(true); // 开启位置排序，处理多栏布局更准确
-
-        for (int i = 1; i <= document.getNumberOfPages(); i++) {
-            stripper.setStartPage(i);
-            stripper.setEndPage(i);
-            String text = stripper.getText(document);
-
-            // 保持页面的原始性，但在每一页末尾确保有换行
-            if (text != null && !text.endsWith("\n")) {
-                text += "\n";
-            }
-            pageContents.add(new PageContent(i, text));
-        }
-
-        return pageContents;
+    private Set<String> detectNoiseLines(List<PageContent> pageContents) {
+        return PdfTextCleaner.detectNoiseLines(pageContents.stream().map(PageContent::text).toList());
     }
 
     /**
      * 2. 数据清洗第一步：仅剔除明显的页眉页脚噪声，保留原始结构
      */
-    private List<PageContent> filterNoise(List<PageContent> pageContents) {
-        if (pageContents.isEmpty())
-            return pageContents;
-
-        // 统计行频次，识别页眉页脚
-        Map<String, Integer> lineCounts = new HashMap<>();
+    private List<PageContent> filterNoise(List<PageContent> pageContents, Set<String> noiseLines) {
+        List<PageContent> result = new ArrayList<>(pageContents.size());
         for (PageContent pc : pageContents) {
-            String[] lines = pc.text().split("\\r?\\n");
-            for (String line : lines) {
-                String trimmed = line.trim();
-                // 过滤掉太短的行（如页码）但注意不要误伤正文短句
-                if (trimmed.length() > 3) {
-                    lineCounts.merge(trimmed, 1, Integer::sum);
-                }
-            }
+            result.add(new PageContent(pc.pageNumber(), PdfTextCleaner.filterNoise(pc.text(), noiseLines)));
         }
-
-        // 出现频率极高（如超过 20% 的页面都有）且非正文内容的行
-        // 降低阈值到 20% 以更积极地去除页眉
-        Set<String> noiseLines = lineCounts.entrySet().stream()
-                .filter(e -> e.getValue() > pageContents.size() * 0.2)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
-
-        // 增加特定的装饰性噪声关键词
-        Set<String> explicitNoise = Set.of("Our Menu", "Recipe", "Ingredients", "Method", "主食谱", "配料", "做法");
-
-        return pageContents.stream().map(pc -> {
-            String text = pc.text();
-            String[] lines = text.split("\\r?\\n");
-            StringBuilder cleanedText = new StringBuilder();
-
-            for (String line : lines) {
-                String trimmed = line.trim();
-
-                // 1. 移除高频噪声行 (页眉页脚)
-                if (noiseLines.contains(trimmed)) {
-                    continue;
-                }
-
-                // 1.1 移除显式噪声关键词 (仅当行内容完全匹配或者是极短的装饰词)
-                if (explicitNoise.contains(trimmed)
-                        || (trimmed.length() < 20 && explicitNoise.stream().anyMatch(trimmed::contains))) {
-                    continue;
-                }
-
-                // 2. 移除孤立的页码
-                if (trimmed.matches("^\\s*第\\s*\\d+\\s*页.*$") ||
-                        trimmed.matches("^\\s*-\\s*\\d+\\s*-\\s*$") ||
-                        trimmed.matches("^\\s*\\d+\\s*/\\s*\\d+\\s*$") ||
-                        trimmed.matches("^\\s*\\d+\\s*$")) {
-                    continue;
-                }
-
-                cleanedText.append(line).append("\n");
-            }
-            return new PageContent(pc.pageNumber(), cleanedText.toString());
-        }).collect(Collectors.toList());
+        return result;
     }
 
     /**
@@ -522,84 +430,11 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
      * 优化：增加了对目录、列表项、短语标题的保护，防止错误合并
      */
     private List<PageContent> mergeParagraphs(List<PageContent> pageContents) {
-        return pageContents.stream().map(pc -> {
-            String text = pc.text();
-            String[] lines = text.split("\\n");
-            StringBuilder mergedText = new StringBuilder();
-
-            for (int i = 0; i < lines.length; i++) {
-                String line = lines[i].trim();
-                if (line.isEmpty()) {
-                    // 保留空行作为段落分隔符 (将连续空行归一化为双换行)
-                    if (mergedText.length() > 0 && mergedText.charAt(mergedText.length() - 1) != '\n') {
-                        mergedText.append("\n\n");
-                    }
-                    continue;
-                }
-
-                mergedText.append(line);
-
-                // 瞻前：获取下一行内容以辅助判断
-                String nextLine = (i + 1 < lines.length) ? lines[i + 1].trim() : "";
-
-                // 核心逻辑：判断是否需要合并下一行
-                if (shouldMerge(line, nextLine)) {
-                    mergedText.append(" ");
-                } else {
-                    mergedText.append("\n");
-                }
-            }
-            // 确保页面最后有换行
-            if (mergedText.length() > 0 && mergedText.charAt(mergedText.length() - 1) != '\n') {
-                mergedText.append("\n");
-            }
-
-            return new PageContent(pc.pageNumber(), mergedText.toString());
-        }).collect(Collectors.toList());
-    }
-
-    /**
-     * 判断是否应该合并下一行
-     * 只有当当前行看起来像是句子中间断开，且下一行不是新的列表项时，才合并
-     */
-    private boolean shouldMerge(String line, String nextLine) {
-        // 1. 如果当前行已经是句末，不合并
-        if (isSentenceEnd(line))
-            return false;
-
-        // 2. 目录保护：如果行尾是数字 (Page xx)，视为目录项，不合并
-        if (isTableOfContentsItem(line))
-            return false;
-
-        // 3. 列表/标题保护：如果当前行太短 (<20字符)，视为标签/标题/配料，不合并
-        if (isShortLine(line))
-            return false;
-
-        // 4. 下一行列表保护：如果下一行看起来像是列表项 (1. / - / •)，不合并
-        if (isListItem(nextLine))
-            return false;
-
-        return true;
-    }
-
-    private boolean isSentenceEnd(String line) {
-        if (line.isEmpty())
-            return false;
-        char lastChar = line.charAt(line.length() - 1);
-        return lastChar == '。' || lastChar == '！' || lastChar == '？' ||
-                lastChar == '.' || lastChar == '!' || lastChar == '?';
-    }
-
-    private boolean isTableOfContentsItem(String line) {
-        return line.matches(".*\\s+\\d+$");
-    }
-
-    private boolean isListItem(String line) {
-        return line.matches("^(\\d+\\.|[a-zA-Z]\\.|-|•|\\*|\\d+).*");
-    }
-
-    private boolean isShortLine(String line) {
-        return line.length() < 20;
+        List<PageContent> result = new ArrayList<>(pageContents.size());
+        for (PageContent pc : pageContents) {
+            result.add(new PageContent(pc.pageNumber(), PdfTextCleaner.mergeParagraphs(pc.text())));
+        }
+        return result;
     }
 
     /**
@@ -624,15 +459,7 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
     }
 
     private String deepClean(String text) {
-        if (text == null)
-            return "";
-        // 移除 ASCII 控制字符
-        text = text.replaceAll("[\\x00-\\x08\\x0B\\x0C\\x0E-\\x1F]", "");
-        // 规范化空白字符 (将连续空格合并，但保留换行结构)
-        text = text.replaceAll("[^\\S\\r\\n]{2,}", " ");
-        // 移除过多的连续空行 (保留段落结构 \n\n)
-        text = text.replaceAll("\\n{3,}", "\n\n");
-        return text.trim();
+        return PdfTextCleaner.deepClean(text);
     }
 
     /**
@@ -641,7 +468,8 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
     private List<Document> splitParentChildAndAssociate(
             List<PageContent> pageContents,
             List<PdfImageInfo> allImages,
-            String documentName) {
+            String documentName,
+            int indexOffset) {
 
         List<Document> resultDocuments = new ArrayList<>();
 
@@ -653,9 +481,12 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
             fullText.append(pc.text()).append("\n\n"); // 页面间留空，避免语义强行连接
         }
 
-        // 2. 语义化递归切分 (优先切分段落、句子)
-        // 此处模拟 RecursiveCharacterTextSplitter 逻辑
-        List<String> childTexts = recursiveSplit(fullText.toString(), CHILD_CHUNK_SIZE, CHILD_CHUNK_OVERLAP);
+        // 2. 语义化递归切分 (优先切分段落、句子)，直接得到每个子块在全文中的区间
+        String text = fullText.toString();
+        List<RecursiveTextSplitter.Span> childSpans = RecursiveTextSplitter.split(text, CHILD_CHUNK_SIZE, CHILD_CHUNK_OVERLAP);
+
+        // 2.1 固定父块：全文不重叠地切成父块，子块按中点归属，同一父块下的子块共享同一份父文本，入库时只存一次
+        String[] parentTexts = buildParentTexts(text, childSpans);
 
         // 3. 预分组图片
         Map<Integer, List<Map<String, Object>>> imagesByPage = allImages.stream()
@@ -665,25 +496,17 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
                                 "ossUrl", img.getOssUrl(),
                                 "pageNumber", img.getPageNumber()), Collectors.toList())));
 
-        int currentSearchOffset = 0;
-        for (int i = 0; i < childTexts.size(); i++) {
-            String childText = childTexts.get(i);
-
-            // 确定子块所在的原文位置（由于 Splitter 的特性，需向后搜索）
-            int startOffset = fullText.indexOf(childText, currentSearchOffset);
-            if (startOffset == -1)
-                startOffset = currentSearchOffset; // 降级处理
-            int endOffset = startOffset + childText.length();
-            currentSearchOffset = startOffset + (childText.length() / 2); // 移动搜索起点
+        for (int i = 0; i < childSpans.size(); i++) {
+            int startOffset = childSpans.get(i).start();
+            int endOffset = childSpans.get(i).end();
+            String childText = text.substring(startOffset, endOffset);
 
             // 确定涉及的页码
-            Integer startPage = offsetToPageMap.floorEntry(startOffset).getValue();
-            Integer endPage = offsetToPageMap.floorEntry(Math.max(0, endOffset - 1)).getValue();
+            int startPage = offsetToPageMap.floorEntry(startOffset).getValue();
+            int endPage = offsetToPageMap.floorEntry(Math.max(0, endOffset - 1)).getValue();
 
-            // 4. 构建 Parent Context (在子块前后扩展一定范围)
-            int parentStart = Math.max(0, startOffset - PARENT_CONTEXT_SIZE);
-            int parentEnd = Math.min(fullText.length(), endOffset + PARENT_CONTEXT_SIZE);
-            String parentText = fullText.substring(parentStart, parentEnd).trim();
+            // 4. Parent Context 取所属父块
+            String parentText = parentTexts[i];
 
             // 5. 关联图片 (涉及的所有页面的图片均可见)
             List<Map<String, Object>> associatedImages = new ArrayList<>();
@@ -695,11 +518,12 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
             Map<String, Object> metadata = new HashMap<>();
             metadata.put("documentName", documentName);
             metadata.put("pageNumber", startPage == endPage ? String.valueOf(startPage) : startPage + "-" + endPage);
-            metadata.put("childIndex", i + 1);
+            metadata.put("childIndex", indexOffset + i + 1);
             metadata.put("timestamp", Instant.now().toString());
             metadata.put("is_child", true);
             metadata.put("parent_text", parentText);
             metadata.put("splitStrategy", "JAVA");
+            metadata.put(UserVectorApp.SCOPE_KEY, UserVectorApp.SCOPE_PUBLIC);
 
             if (!associatedImages.isEmpty()) {
                 metadata.put("images", associatedImages);
@@ -718,80 +542,45 @@ public class PdfDocumentServiceImpl implements PdfDocumentService {
     }
 
     /**
-     * 简易递归切分器：优先尝试在段落(\n\n)、换行(\n)、标点(。|.)、空格处切分
+     * 为每个子块计算所属父块文本
+     * <p>
+     * 父块区间扩展到覆盖其全部子块，保证父文本总包含子块本身；子块与父块均按起点有序，单次指针遍历即可完成归属。
      */
-    private List<String> recursiveSplit(String text, int limit, int overlap) {
-        List<String> chunks = new ArrayList<>();
-        if (text == null || text.trim().isEmpty())
-            return chunks;
-
-        String[] separators = { "\n\n", "\n", "。", "！", "？", ". ", " " };
-        recursiveAction(text, limit, overlap, separators, 0, chunks);
-        return chunks;
-    }
-
-    private void recursiveAction(String text, int limit, int overlap, String[] separators, int sepIdx,
-            List<String> chunks) {
-        if (text.length() <= limit) {
-            chunks.add(text);
-            return;
+    private static String[] buildParentTexts(String text, List<RecursiveTextSplitter.Span> childSpans) {
+        List<RecursiveTextSplitter.Span> blocks = RecursiveTextSplitter.split(text, PARENT_BLOCK_SIZE, 0);
+        if (blocks.isEmpty()) {
+            blocks = List.of(new RecursiveTextSplitter.Span(0, text.length()));
         }
-
-        if (sepIdx >= separators.length) {
-            // 实在分不开了，强行按长度切分
-            for (int i = 0; i < text.length(); i += (limit - overlap)) {
-                int end = Math.min(i + limit, text.length());
-                chunks.add(text.substring(i, end));
-                if (end == text.length())
-                    break;
-            }
-            return;
+        int[] blockOf = new int[childSpans.size()];
+        int[] blockStart = new int[blocks.size()];
+        int[] blockEnd = new int[blocks.size()];
+        for (int b = 0; b < blocks.size(); b++) {
+            blockStart[b] = blocks.get(b).start();
+            blockEnd[b] = blocks.get(b).end();
         }
 
-        String sep = separators[sepIdx];
-        String[] parts = text.split("(?<=" + Pattern.quote(sep) + ")"); // 使用正向后瞻保留分隔符
-
-        StringBuilder current = new StringBuilder();
-        for (String part : parts) {
-            if (current.length() + part.length() > limit) {
-                if (current.length() > 0) {
-                    chunks.add(current.toString());
-                    // 计算 Overlap: 从当前块尾部回退
-                    int overlapStart = Math.max(0, current.length() - overlap);
-                    String overlapText = current.substring(overlapStart);
-                    current = new StringBuilder(overlapText);
-                }
-
-                // 如果单部分就超过了 limit，继续递归
-                if (part.length() > limit) {
-                    recursiveAction(part, limit, overlap, separators, sepIdx + 1, chunks);
-                    continue;
-                }
+        int b = 0;
+        for (int i = 0; i < childSpans.size(); i++) {
+            RecursiveTextSplitter.Span child = childSpans.get(i);
+            int mid = (child.start() + child.end()) >>> 1;
+            while (b < blocks.size() - 1 && blocks.get(b).end() <= mid) {
+                b++;
             }
-            current.append(part);
-        }
-        if (current.length() > overlap) { // 避免只剩下 overlap 部分
-            chunks.add(current.toString());
+            blockOf[i] = b;
+            blockStart[b] = Math.min(blockStart[b], child.start());
+            blockEnd[b] = Math.max(blockEnd[b], child.end());
         }
-    }
 
-    /**
-     * 清理文件名,移除特殊字符
-     */
-    private String sanitizeFileName(String fileName) {
-        // 移除扩展名
-        if (fileName.endsWith(".pdf") || fileName.endsWith(".PDF")) {
-            fileName = fileName.substring(0, fileName.length() - 4);
+        String[] blockTexts = new String[blocks.size()];
+        String[] parentTexts = new String[childSpans.size()];
+        for (int i = 0; i < childSpans.size(); i++) {
+            int block = blockOf[i];
+            if (blockTexts[block] == null) {
+                blockTexts[block] = text.substring(blockStart[block], blockEnd[block]).trim();
+            }
+            parentTexts[i] = blockTexts[block];
         }
-
-        // 替换特殊字符
-        return fileName.replaceAll("[^a-zA-Z0-9_\\u4e00-\\u9fa5-]", "_");
-    }
-
-    /**
-     * 图片上传结果记录
-     */
-    private record ImageUploadResult(String ossUrl, String fileName) {
+        return parentTexts;
     }
 
     /**
@@ -0,0 +1,466 @@
+package com.tengjiao.douya.domain.eating.service;
+
+import com.tengjiao.douya.domain.eating.model.PdfImageInfo;
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
+import com.tengjiao.douya.infrastructure.oss.OssService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * PDF 图片提取与上传
+ * <p>
+ * 以图片流原始（未解码）字节及影响解码结果的字典项计算 SHA-256，OSS 键为 {@code images/<hash>.<ext>}，
+ * 与文档无关，多份 PDF 中相同的图片（如 logo）全局只上传一次。每个窗口按以下顺序处理：
+ * <ol>
+ *     <li>主线程读取原始字节并计算哈希，不解码（PDFBox 对象非线程安全，只在主线程访问）</li>
+ *     <li>已知存在的键命中进程内缓存；其余键并发检查 OSS，已存在则直接复用</li>
+ *     <li>仅对 OSS 中缺失的图片：JPEG（DCTDecode）与 JPEG 2000（JPXDecode）原样上传，
+ *     其余在主线程解码后异步编码为 PNG 上传</li>
+ * </ol>
+ * PNG 编码在专用 CPU 线程池执行，上传与存在性检查在虚拟线程执行，均不占用公共 ForkJoinPool。
+ * 已解码未编码完的图片数受许可限制（全局共享），超出时主线程等待而不是继续解码，
+ * 大量图片的 PDF 不会同时在堆中堆积位图；OSS 请求并发同样受许可限制。
+ */
+@Slf4j
+@Component
+public class PdfImageUploader {
+
+    static final String OBJECT_PREFIX = "images/";
+    static final String PNG = "png";
+    static final String JPEG = "jpg";
+    static final String JPEG_2000 = "jp2";
+
+    /**
+     * 参与哈希的图片字典项：原始字节相同但这些项不同的图片解码结果可能不同
+     */
+    private static final List<COSName> DIGEST_KEYS = List.of(
+            COSName.WIDTH, COSName.HEIGHT, COSName.BITS_PER_COMPONENT, COSName.COLORSPACE,
+            COSName.FILTER, COSName.DECODE_PARMS, COSName.DECODE, COSName.IMAGE_MASK,
+            COSName.MASK, COSName.SMASK);
+    private static final int MAX_DIGEST_DEPTH = 8;
+
+    private final OssService ossService;
+    private final Map<String, String> knownObjects;
+    private final Executor encodeExecutor;
+    private final Executor uploadExecutor;
+    private final Semaphore decodedPermits;
+    private final Semaphore ossPermits;
+
+    public PdfImageUploader(OssService ossService,
+                            DocumentIngestProperties properties,
+                            @Qualifier("pdfImageEncodeExecutor") Executor encodeExecutor,
+                            @Qualifier("pdfImageUploadExecutor") Executor uploadExecutor) {
+        this.ossService = ossService;
+        this.encodeExecutor = encodeExecutor;
+        this.uploadExecutor = uploadExecutor;
+        this.decodedPermits = new Semaphore(Math.max(1, properties.getImageMaxDecodedInFlight()));
+        this.ossPermits = new Semaphore(Math.max(1, properties.getImageUploadConcurrency()));
+        int maxSize = Math.max(1, properties.getImageExistCacheSize());
+        this.knownObjects = Collections.synchronizedMap(new LinkedHashMap<>(Math.min(maxSize, 1024) + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * 开始一个文档的图片处理，会话内跨窗口按内容去重
+     */
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * 图片内容地址
+     *
+     * @param hash   原始字节与关键字典项的 SHA-256
+     * @param format 上传格式：jpg / jp2 原样上传，png 需解码重编码
+     */
+    record ImageSource(String hash, String format) {
+
+        String fileName() {
+            return hash + "." + format;
+        }
+
+        String objectName() {
+            return OBJECT_PREFIX + fileName();
+        }
+
+        boolean passThrough() {
+            return !PNG.equals(format);
+        }
+    }
+
+    private record PageImage(int pageNumber, ImageSource source) {
+    }
+
+    /**
+     * @param raw 原样上传时的原始字节，需重编码的格式为 null
+     */
+    record Probe(ImageSource source, byte[] raw) {
+    }
+
+    private record Pending(ImageSource source, PDImageXObject image, byte[] raw) {
+    }
+
+    public final class Session {
+
+        private final Map<COSStream, ImageSource> sources = new IdentityHashMap<>();
+        private final Map<String, CompletableFuture<String>> uploads = new HashMap<>();
+        private final AtomicInteger uploaded = new AtomicInteger();
+        private final AtomicLong encodeNanos = new AtomicLong();
+        private final AtomicLong uploadNanos = new AtomicLong();
+        private long probeNanos;
+        private long existNanos;
+        private long decodeWaitNanos;
+        private long decodeNanos;
+        private int reused;
+        private int cacheHits;
+
+        private Session() {
+        }
+
+        /**
+         * 提取 [startPage, endPage] 窗口内的图片并上传，等待窗口内上传全部完成后返回，结果按页码排序
+         */
+        public List<PdfImageInfo> extract(PDDocument document, int startPage, int endPage) {
+            List<PageImage> pageImages = new ArrayList<>();
+            Map<String, Pending> pending = new LinkedHashMap<>();
+
+            // 1. 计算内容地址，已知对象直接复用
+            long probeStart = System.nanoTime();
+            for (int pageNum = startPage; pageNum <= endPage; pageNum++) {
+                PDPage page = document.getPage(pageNum - 1);
+                PDResources resources = page.getResources();
+                if (resources == null) {
+                    continue;
+                }
+                for (COSName name : resources.getXObjectNames()) {
+                    try {
+                        PDXObject xObject = resources.getXObject(name);
+                        if (!(xObject instanceof PDImageXObject image)) {
+                            continue;
+                        }
+                        ImageSource source = sources.get(image.getCOSObject());
+                        if (source == null) {
+                            Probe probe = probe(image);
+                            source = probe.source();
+                            sources.put(image.getCOSObject(), source);
+                            String objectName = source.objectName();
+                            if (!uploads.containsKey(objectName) && !pending.containsKey(objectName)) {
+                                String url = knownObjects.get(objectName);
+                                if (url != null) {
+                                    cacheHits++;
+                                    uploads.put(objectName, CompletableFuture.completedFuture(url));
+                                } else {
+                                    pending.put(objectName, new Pending(source, image, probe.raw()));
+                                }
+                            }
+                        }
+                        pageImages.add(new PageImage(pageNum, source));
+                    } catch (Exception e) {
+                        log.warn("读取第 {} 页图片 {} 失败，已跳过", pageNum, name.getName(), e);
+                    }
+                }
+            }
+
+            probeNanos += System.nanoTime() - probeStart;
+
+            // 2. 并发检查 OSS 是否已存在
+            long existStart = System.nanoTime();
+            Map<String, CompletableFuture<Boolean>> existence = new HashMap<>();
+            pending.keySet().forEach(objectName -> existence.put(objectName, CompletableFuture.supplyAsync(
+                    () -> withOssPermit(() -> ossService.doesObjectExist(objectName)), uploadExecutor)));
+            CompletableFuture.allOf(existence.values().toArray(new CompletableFuture[0]))
+                    .exceptionally(e -> null)
+                    .join();
+            existNanos += System.nanoTime() - existStart;
+
+            // 3. 仅缺失的图片需要上传，非 JPEG 类图片在主线程解码后交给编码线程池
+            for (Pending item : pending.values()) {
+                String objectName = item.source().objectName();
+                try {
+                    if (existence.get(objectName).join()) {
+                        reused++;
+                        uploads.put(objectName, CompletableFuture.completedFuture(remember(objectName, ossService.getFileUrl(objectName))));
+                        continue;
+                    }
+                    uploads.put(objectName, item.source().passThrough()
+                            ? CompletableFuture.supplyAsync(() -> upload(objectName, item.raw()), uploadExecutor)
+                            : decodeAndUpload(objectName, item.image()));
+                } catch (Exception e) {
+                    log.warn("处理图片 {} 失败，已跳过", objectName, e);
+                    uploads.put(objectName, CompletableFuture.failedFuture(e));
+                }
+            }
+
+            // 4. 等待窗口内上传完成，解码后的 BufferedImage 随之释放
+            List<PdfImageInfo> imageInfos = new ArrayList<>(pageImages.size());
+            for (PageImage pageImage : pageImages) {
+                ImageSource source = pageImage.source();
+                String url;
+                try {
+                    url = uploads.get(source.objectName()).join();
+                } catch (CompletionException e) {
+                    continue;
+                }
+                imageInfos.add(PdfImageInfo.builder()
+                        .fileName(source.fileName())
+                        .ossUrl(url)
+                        .pageNumber(pageImage.pageNumber())
+                        .yPosition(0f)
+                        .format(source.format())
+                        .build());
+            }
+            return imageInfos;
+        }
+
+        /**
+         * 主线程持有解码许可后解码，许可在 PNG 编码完成、位图可回收时归还
+         */
+        private CompletableFuture<String> decodeAndUpload(String objectName, PDImageXObject image) throws IOException {
+            long waitStart = System.nanoTime();
+            decodedPermits.acquireUninterruptibly();
+            long decodeStart = System.nanoTime();
+            decodeWaitNanos += decodeStart - waitStart;
+            BufferedImage decoded;
+            try {
+                decoded = image.getImage();
+            } catch (IOException | RuntimeException e) {
+                decodedPermits.release();
+                throw e;
+            } finally {
+                decodeNanos += System.nanoTime() - decodeStart;
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                        long start = System.nanoTime();
+                        try {
+                            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                            ImageIO.write(decoded, PNG, baos);
+                            return baos.toByteArray();
+                        } catch (IOException e) {
+                            log.error("图片编码失败: {}", objectName, e);
+                            throw new CompletionException(new IOException("图片编码失败: " + objectName, e));
+                        } finally {
+                            decodedPermits.release();
+                            encodeNanos.addAndGet(System.nanoTime() - start);
+                        }
+                    }, encodeExecutor)
+                    .thenApplyAsync(bytes -> upload(objectName, bytes), uploadExecutor);
+        }
+
+        private String upload(String objectName, byte[] bytes) {
+            long start = System.nanoTime();
+            try {
+                String url = withOssPermit(() -> ossService.uploadFile(objectName, new ByteArrayInputStream(bytes)));
+                uploaded.incrementAndGet();
+                log.info("上传新图片: {} -> {}", objectName, url);
+                return remember(objectName, url);
+            } catch (RuntimeException e) {
+                log.error("图片上传任务执行失败: {}", objectName, e);
+                throw e;
+            } finally {
+                uploadNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * 各阶段耗时（毫秒）：probe / existCheck / decodeWait / decode 为主线程耗时，
+         * encode / upload 为各任务耗时之和，可能大于墙钟时间
+         */
+        public Map<String, Long> timings() {
+            Map<String, Long> timings = new LinkedHashMap<>();
+            timings.put("imageProbe", TimeUnit.NANOSECONDS.toMillis(probeNanos));
+            timings.put("imageExistCheck", TimeUnit.NANOSECONDS.toMillis(existNanos));
+            timings.put("imageDecodeWait", TimeUnit.NANOSECONDS.toMillis(decodeWaitNanos));
+            timings.put("imageDecode", TimeUnit.NANOSECONDS.toMillis(decodeNanos));
+            timings.put("imageEncode", TimeUnit.NANOSECONDS.toMillis(encodeNanos.get()));
+            timings.put("imageUpload", TimeUnit.NANOSECONDS.toMillis(uploadNanos.get()));
+            return timings;
+        }
+
+        /**
+         * 本会话实际上传的图片数
+         */
+        public int uploaded() {
+            return uploaded.get();
+        }
+
+        /**
+         * 本会话经 OSS 存在性检查后复用的图片数
+         */
+        public int reused() {
+            return reused;
+        }
+
+        /**
+         * 本会话命中进程内已知对象、无需任何 OSS 请求的图片数
+         */
+        public int cacheHits() {
+            return cacheHits;
+        }
+    }
+
+    private <T> T withOssPermit(Supplier<T> call) {
+        ossPermits.acquireUninterruptibly();
+        try {
+            return call.get();
+        } finally {
+            ossPermits.release();
+        }
+    }
+
+    private String remember(String objectName, String url) {
+        knownObjects.put(objectName, url);
+        return url;
+    }
+
+    /**
+     * 计算图片内容地址；原样上传的格式带回原始字节，其余格式只做流式哈希不保留字节
+     */
+    static Probe probe(PDImageXObject image) throws IOException {
+        COSStream stream = image.getCOSObject();
+        String format = uploadFormat(image);
+
+        MessageDigest digest = sha256();
+        digest.update(format.getBytes(StandardCharsets.UTF_8));
+        for (COSName key : DIGEST_KEYS) {
+            digest.update(key.getName().getBytes(StandardCharsets.UTF_8));
+            digestCos(digest, stream.getDictionaryObject(key), 0);
+        }
+        byte[] raw = null;
+        try (InputStream in = stream.createRawInputStream()) {
+            if (!PNG.equals(format)) {
+                raw = in.readAllBytes();
+                digest.update(raw);
+            } else {
+                digestStream(digest, in);
+            }
+        }
+        return new Probe(new ImageSource(HexFormat.of().formatHex(digest.digest()), format), raw);
+    }
+
+    /**
+     * 只有单一 DCT / JPX 滤镜、无遮罩与 Decode 数组的图片可以原样作为文件展示；
+     * CMYK 等非灰度/RGB 的 JPEG 在浏览器中颜色不可靠，仍解码为 PNG
+     */
+    static String uploadFormat(PDImageXObject image) throws IOException {
+        COSStream stream = image.getCOSObject();
+        List<COSName> filters = image.getStream().getFilters();
+        if (filters.size() != 1 || image.isStencil()
+                || stream.containsKey(COSName.SMASK) || stream.containsKey(COSName.MASK)
+                || stream.containsKey(COSName.DECODE)) {
+            return PNG;
+        }
+        if (COSName.DCT_DECODE.equals(filters.get(0))) {
+            int components = image.getColorSpace().getNumberOfComponents();
+            return components == 1 || components == 3 ? JPEG : PNG;
+        }
+        if (COSName.JPX_DECODE.equals(filters.get(0))) {
+            return JPEG_2000;
+        }
+        return PNG;
+    }
+
+    /**
+     * 按内容（而非对象编号）摘要 COS 结构，保证不同文档中的同一图片得到相同哈希
+     */
+    private static void digestCos(MessageDigest digest, COSBase base, int depth) throws IOException {
+        if (depth > MAX_DIGEST_DEPTH) {
+            return;
+        }
+        if (base instanceof COSObject reference) {
+            base = reference.getObject();
+        }
+        if (base == null) {
+            digest.update((byte) 0);
+        } else if (base instanceof COSString string) {
+            digest.update((byte) 's');
+            digest.update(string.getBytes());
+        } else if (base instanceof COSArray array) {
+            digest.update((byte) '[');
+            for (int i = 0; i < array.size(); i++) {
+                digestCos(digest, array.getObject(i), depth + 1);
+            }
+            digest.update((byte) ']');
+        } else if (base instanceof COSDictionary dictionary) {
+            digest.update((byte) '<');
+            Map<String, COSBase> sorted = new TreeMap<>();
+            for (COSName key : dictionary.keySet()) {
+                if (!COSName.LENGTH.equals(key)) {
+                    sorted.put(key.getName(), dictionary.getDictionaryObject(key));
+                }
+            }
+            for (Map.Entry<String, COSBase> entry : sorted.entrySet()) {
+                digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                digestCos(digest, entry.getValue(), depth + 1);
+            }
+            digest.update((byte) '>');
+            if (dictionary instanceof COSStream stream) {
+                try (InputStream in = stream.createRawInputStream()) {
+                    digestStream(digest, in);
+                }
+            }
+        } else {
+            // COSName / COSNumber / COSBoolean 的 toString 只包含取值
+            digest.update(base.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void digestStream(MessageDigest digest, InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.tengjiao.douya.domain.eating.service;
+
+import com.tengjiao.douya.domain.eating.model.PdfIngestJob;
+import com.tengjiao.douya.domain.eating.model.PdfProcessResult;
+import com.tengjiao.douya.domain.eating.model.PdfSplitOptions;
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PDF 异步入库任务管理
+ * <p>
+ * 提交时在请求线程上把上传内容落盘（请求结束后 MultipartFile 即失效），随后交给有界的
+ * {@code pdfIngestExecutor} 执行；队列已满时任务直接标记为 REJECTED 并返回给调用方。
+ * 任务状态仅保存在内存中，按 {@code jobRetention} 淘汰最早结束的任务。
+ */
+@Slf4j
+@Service
+public class PdfIngestJobService {
+
+    private final PdfDocumentService pdfDocumentService;
+    private final ThreadPoolTaskExecutor pdfIngestExecutor;
+    private final DocumentIngestProperties properties;
+    private final Map<String, PdfIngestJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public PdfIngestJobService(
+            PdfDocumentService pdfDocumentService,
+            @Qualifier("pdfIngestExecutor") ThreadPoolTaskExecutor pdfIngestExecutor,
+            DocumentIngestProperties properties
+    ) {
+        this.pdfDocumentService = pdfDocumentService;
+        this.pdfIngestExecutor = pdfIngestExecutor;
+        this.properties = properties;
+    }
+
+    /**
+     * 提交入库任务
+     *
+     * @return 任务对象，status 为 QUEUED 或 REJECTED
+     */
+    public PdfIngestJob submit(InputStream pdfInputStream, String documentName, PdfSplitOptions options) throws IOException {
+        // 落盘成功后再登记任务，落盘失败时不会在列表里留下永远 QUEUED 的任务
+        Path pdfFile = PdfTempFiles.spill(pdfInputStream, properties.getTempDir());
+        PdfIngestJob job = new PdfIngestJob(UUID.randomUUID().toString(), documentName);
+        jobs.put(job.getJobId(), job);
+        try {
+            pdfIngestExecutor.execute(() -> run(job, pdfFile, options));
+            log.info("PDF 入库任务已提交: jobId={}, document={}", job.getJobId(), documentName);
+        } catch (TaskRejectedException e) {
+            PdfTempFiles.deleteQuietly(pdfFile);
+            rejectedCount.incrementAndGet();
+            job.markRejected("入库队列已满（排队上限 " + properties.getJobQueueCapacity() + "），请稍后重试");
+            log.warn("PDF 入库任务被拒绝: jobId={}, document={}", job.getJobId(), documentName);
+            evictFinishedJobs();
+        }
+        return job;
+    }
+
+    public Optional<PdfIngestJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * 最近任务列表（按创建时间倒序）与执行器水位
+     */
+    public Map<String, Object> overview() {
+        List<Map<String, Object>> recent = jobs.values().stream()
+                .sorted(Comparator.comparing(PdfIngestJob::getCreatedAt).reversed())
+                .map(PdfIngestJob::snapshot)
+                .toList();
+        Map<String, Object> executor = new LinkedHashMap<>();
+        executor.put("activeCount", pdfIngestExecutor.getActiveCount());
+        executor.put("poolSize", pdfIngestExecutor.getPoolSize());
+        executor.put("maxPoolSize", pdfIngestExecutor.getMaxPoolSize());
+        executor.put("queueSize", pdfIngestExecutor.getQueueSize());
+        executor.put("queueCapacity", pdfIngestExecutor.getQueueCapacity());
+        executor.put("rejectedCount", rejectedCount.get());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("executor", executor);
+        result.put("jobs", recent);
+        return result;
+    }
+
+    private void run(PdfIngestJob job, Path pdfFile, PdfSplitOptions options) {
+        job.markRunning();
+        PdfProcessResult result = null;
+        String failure = null;
+        try {
+            result = pdfDocumentService.processPdfDocument(pdfFile, job.getDocumentName(), options, job);
+        } catch (Exception e) {
+            log.error("PDF 入库任务异常: jobId={}", job.getJobId(), e);
+            failure = e.getMessage();
+        } finally {
+            // 先清理落盘文件再更新终态，轮询方看到结束时资源已释放
+            PdfTempFiles.deleteQuietly(pdfFile);
+        }
+        if (result != null) {
+            job.markFinished(result);
+        } else {
+            job.markFailed(failure);
+        }
+        log.info("PDF 入库任务结束: jobId={}, status={}", job.getJobId(), job.getStatus());
+        evictFinishedJobs();
+    }
+
+    private void evictFinishedJobs() {
+        int overflow = jobs.size() - Math.max(1, properties.getJobRetention());
+        if (overflow <= 0) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(PdfIngestJob::isFinished)
+                .sorted(Comparator.comparing(PdfIngestJob::getFinishedAt))
+                .limit(overflow)
+                .map(PdfIngestJob::getJobId)
+                .toList()
+                .forEach(jobs::remove);
+    }
+}
@@ -0,0 +1,48 @@
+package com.tengjiao.douya.domain.eating.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * PDF 上传内容落盘工具
+ */
+@Slf4j
+final class PdfTempFiles {
+
+    private PdfTempFiles() {
+    }
+
+    /**
+     * 将上传流写入临时文件
+     *
+     * @param tempDir 落盘目录，为空时使用系统临时目录
+     */
+    static Path spill(InputStream pdfInputStream, String tempDir) throws IOException {
+        Path tempFile = (tempDir == null || tempDir.isBlank())
+                ? Files.createTempFile("douya-pdf-", ".pdf")
+                : Files.createTempFile(Files.createDirectories(Path.of(tempDir.trim())), "douya-pdf-", ".pdf");
+        try {
+            Files.copy(pdfInputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+
+    static void deleteQuietly(Path tempFile) {
+        if (tempFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.warn("删除 PDF 临时文件失败: {}", tempFile, e);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.tengjiao.douya.domain.eating.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * PDF 文本去噪、段落重组与切片清洗
+ * <p>
+ * 原实现逐行调用 {@code String.split / matches / replaceAll}，大文档上每行都要重新编译正则。
+ * 这里改为单次扫描：按行切分手写实现，判定逻辑尽量用字符检查，仍需正则的页码规则预编译，
+ * 且只在首字符可能命中时才执行匹配。输出与原正则实现逐字节一致（见 PdfTextCleanerBenchmarkTest）。
+ */
+public final class PdfTextCleaner {
+
+    /**
+     * 装饰性噪声关键词
+     */
+    private static final Set<String> EXPLICIT_NOISE = Set.of("Our Menu", "Recipe", "Ingredients", "Method", "主食谱", "配料", "做法");
+
+    private static final Pattern PAGE_NO_CN = Pattern.compile("^\\s*第\\s*\\d+\\s*页.*$");
+    private static final Pattern PAGE_NO_DASH = Pattern.compile("^\\s*-\\s*\\d+\\s*-\\s*$");
+    private static final Pattern PAGE_NO_RATIO = Pattern.compile("^\\s*\\d+\\s*/\\s*\\d+\\s*$");
+
+    private PdfTextCleaner() {
+    }
+
+    /**
+     * 统计全文行频次，出现在超过 20% 页面中的行视为页眉页脚
+     */
+    public static Set<String> detectNoiseLines(List<String> pageTexts) {
+        Map<String, Integer> lineCounts = new HashMap<>();
+        for (String text : pageTexts) {
+            for (String line : lines(text, true)) {
+                String trimmed = line.trim();
+                // 过滤掉太短的行（如页码）但注意不要误伤正文短句
+                if (trimmed.length() > 3) {
+                    lineCounts.merge(trimmed, 1, Integer::sum);
+                }
+            }
+        }
+        double threshold = pageTexts.size() * 0.2;
+        Set<String> noiseLines = new HashSet<>();
+        lineCounts.forEach((line, count) -> {
+            if (count > threshold) {
+                noiseLines.add(line);
+            }
+        });
+        return noiseLines;
+    }
+
+    /**
+     * 仅剔除页眉页脚、装饰关键词与孤立页码，保留原始行结构
+     */
+    public static String filterNoise(String text, Set<String> noiseLines) {
+        StringBuilder cleanedText = new StringBuilder(text.length());
+        for (String line : lines(text, true)) {
+            String trimmed = line.trim();
+            if (noiseLines.contains(trimmed) || isExplicitNoise(trimmed) || isPageNumber(trimmed)) {
+                continue;
+            }
+            cleanedText.append(line).append('\n');
+        }
+        return cleanedText.toString();
+    }
+
+    /**
+     * 合并被硬换行打断的段落，目录、列表项与短标题不参与合并
+     */
+    public static String mergeParagraphs(String text) {
+        List<String> lines = lines(text, false);
+        StringBuilder mergedText = new StringBuilder(text.length());
+        String next = lines.isEmpty() ? "" : lines.get(0).trim();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = next;
+            next = (i + 1 < lines.size()) ? lines.get(i + 1).trim() : "";
+            if (line.isEmpty()) {
+                // 保留空行作为段落分隔符 (将连续空行归一化为双换行)
+                if (!mergedText.isEmpty() && mergedText.charAt(mergedText.length() - 1) != '\n') {
+                    mergedText.append("\n\n");
+                }
+                continue;
+            }
+            mergedText.append(line).append(shouldMerge(line, next) ? ' ' : '\n');
+        }
+        // 确保页面最后有换行
+        if (!mergedText.isEmpty() && mergedText.charAt(mergedText.length() - 1) != '\n') {
+            mergedText.append('\n');
+        }
+        return mergedText.toString();
+    }
+
+    /**
+     * 切片清洗：移除控制字符，连续空格/制表符合并为一个空格，3 个以上连续换行压缩为 2 个，最后 trim
+     */
+    public static String deepClean(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        char blankChar = 0;
+        int blankRun = 0;
+        int newlineRun = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isRemovedControl(c)) {
+                continue;
+            }
+            if (c == ' ' || c == '\t') {
+                flushNewlines(out, newlineRun);
+                newlineRun = 0;
+                if (blankRun++ == 0) {
+                    blankChar = c;
+                }
+                continue;
+            }
+            flushBlanks(out, blankRun, blankChar);
+            blankRun = 0;
+            if (c == '\n') {
+                newlineRun++;
+                continue;
+            }
+            flushNewlines(out, newlineRun);
+            newlineRun = 0;
+            out.append(c);
+        }
+        flushBlanks(out, blankRun, blankChar);
+        flushNewlines(out, newlineRun);
+        return out.toString().trim();
+    }
+
+    /**
+     * 与 {@code text.split("\\r?\\n")}（stripCarriageReturn=true）或 {@code text.split("\\n")} 等价的按行切分：
+     * 没有换行时返回原文，末尾的空行被丢弃
+     */
+    static List<String> lines(String text, boolean stripCarriageReturn) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        int newline = text.indexOf('\n');
+        if (newline < 0) {
+            lines.add(text);
+            return lines;
+        }
+        while (newline >= 0) {
+            int end = stripCarriageReturn && newline > start && text.charAt(newline - 1) == '\r' ? newline - 1 : newline;
+            lines.add(text.substring(start, end));
+            start = newline + 1;
+            newline = text.indexOf('\n', start);
+        }
+        lines.add(text.substring(start));
+        int size = lines.size();
+        while (size > 0 && lines.get(size - 1).isEmpty()) {
+            lines.remove(--size);
+        }
+        return lines;
+    }
+
+    private static boolean isExplicitNoise(String trimmed) {
+        if (EXPLICIT_NOISE.contains(trimmed)) {
+            return true;
+        }
+        if (trimmed.length() >= 20) {
+            return false;
+        }
+        for (String keyword : EXPLICIT_NOISE) {
+            if (trimmed.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 孤立页码：第 N 页 / - N - / N/M / N。trimmed 首字符不会是空白，先按首字符分流再做预编译匹配
+     */
+    private static boolean isPageNumber(String trimmed) {
+        if (trimmed.isEmpty()) {
+            return false;
+        }
+        char first = trimmed.charAt(0);
+        if (first == '第') {
+            return PAGE_NO_CN.matcher(trimmed).matches();
+        }
+        if (first == '-') {
+            return PAGE_NO_DASH.matcher(trimmed).matches();
+        }
+        if (isDigit(first)) {
+            return isAllDigits(trimmed) || PAGE_NO_RATIO.matcher(trimmed).matches();
+        }
+        return false;
+    }
+
+    private static boolean shouldMerge(String line, String nextLine) {
+        // 当前行已是句末、目录项 (行尾页码)、短标签/标题，或下一行是列表项时不合并
+        return !isSentenceEnd(line)
+                && !isTableOfContentsItem(line)
+                && line.length() >= 20
+                && !isListItem(nextLine);
+    }
+
+    private static boolean isSentenceEnd(String line) {
+        char lastChar = line.charAt(line.length() - 1);
+        return lastChar == '。' || lastChar == '！' || lastChar == '？' ||
+                lastChar == '.' || lastChar == '!' || lastChar == '?';
+    }
+
+    /**
+     * 等价于 {@code line.matches(".*\\s+\\d+$")}：以数字结尾、数字前有空白，且空白之前不含行终止符（. 不匹配行终止符）
+     */
+    static boolean isTableOfContentsItem(String line) {
+        int i = line.length();
+        while (i > 0 && isDigit(line.charAt(i - 1))) {
+            i--;
+        }
+        if (i == line.length()) {
+            return false;
+        }
+        int digitsStart = i;
+        while (i > 0 && isRegexSpace(line.charAt(i - 1))) {
+            i--;
+        }
+        if (i == digitsStart) {
+            return false;
+        }
+        for (int j = 0; j < i; j++) {
+            if (isLineTerminator(line.charAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 等价于 {@code line.matches("^(\\d+\\.|[a-zA-Z]\\.|-|•|\\*|\\d+).*")}：前缀命中且整行不含行终止符
+     */
+    static boolean isListItem(String line) {
+        if (line.isEmpty()) {
+            return false;
+        }
+        char first = line.charAt(0);
+        boolean prefix = isDigit(first) || first == '-' || first == '•' || first == '*'
+                || (isAsciiLetter(first) && line.length() > 1 && line.charAt(1) == '.');
+        if (!prefix) {
+            return false;
+        }
+        for (int i = 0; i < line.length(); i++) {
+            if (isLineTerminator(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void flushBlanks(StringBuilder out, int run, char blankChar) {
+        if (run >= 2) {
+            out.append(' ');
+        } else if (run == 1) {
+            out.append(blankChar);
+        }
+    }
+
+    private static void flushNewlines(StringBuilder out, int run) {
+        if (run >= 3) {
+            out.append("\n\n");
+        } else {
+            for (int i = 0; i < run; i++) {
+                out.append('\n');
+            }
+        }
+    }
+
+    private static boolean isAllDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 正则默认的 \d 只含 ASCII 数字
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * 正则默认的 \s：[ \t\n\x0B\f\r]
+     */
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /**
+     * 非 UNIX_LINES 模式下 . 不匹配的字符
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * [\x00-\x08\x0B\x0C\x0E-\x1F]
+     */
+    private static boolean isRemovedControl(char c) {
+        return c <= 0x08 || c == 0x0B || c == 0x0C || (c >= 0x0E && c <= 0x1F);
+    }
+}
@@ -0,0 +1,151 @@
+package com.tengjiao.douya.domain.eating.service;
+
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PDF 按页文本提取
+ * <p>
+ * {@link PDFTextStripper#setSortByPosition(boolean)} 开启后文本提取是长文档入库的主要 CPU 开销。
+ * 页数达到阈值时把页码切成小段，由有界线程池中的多个 worker 并行提取：PDFBox 非线程安全，
+ * 每个 worker 从同一临时文件各自打开一份 {@link PDDocument} 并持有独立的 stripper，
+ * 通过共享游标领取页段，结果按页码写回，输出与串行逐页提取一致。
+ */
+@Slf4j
+@Component
+public class PdfTextExtractor {
+
+    private final DocumentIngestProperties properties;
+    private final ThreadPoolExecutor executor;
+
+    public PdfTextExtractor(DocumentIngestProperties properties) {
+        this.properties = properties;
+        int parallelism = Math.max(1, properties.getTextExtractParallelism());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(parallelism * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-text-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 队列满时由提交线程自行执行，形成背压
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提取全部页面文本
+     *
+     * @param document 已打开的文档，串行路径直接使用
+     * @param pdfFile  文档对应的本地文件，并行路径中每个 worker 各自打开
+     * @return 下标 i 对应第 i + 1 页的文本，每页以换行结尾
+     */
+    public List<String> extractPages(PDDocument document, Path pdfFile) throws IOException {
+        int totalPages = document.getNumberOfPages();
+        int parallelism = Math.max(1, properties.getTextExtractParallelism());
+        if (parallelism == 1 || pdfFile == null || totalPages < properties.getParallelTextMinPages()) {
+            return extractSerial(document, 1, totalPages);
+        }
+        return extractParallel(pdfFile, totalPages, parallelism);
+    }
+
+    /**
+     * 串行提取 [startPage, endPage]，与原有逐页提取逻辑一致
+     */
+    public List<String> extractSerial(PDDocument document, int startPage, int endPage) throws IOException {
+        List<String> pages = new ArrayList<>(Math.max(0, endPage - startPage + 1));
+        PDFTextStripper stripper = newStripper();
+        for (int i = startPage; i <= endPage; i++) {
+            pages.add(extractPage(stripper, document, i));
+        }
+        return pages;
+    }
+
+    private List<String> extractParallel(Path pdfFile, int totalPages, int parallelism) throws IOException {
+        int pagesPerTask = Math.max(1, properties.getTextExtractPagesPerTask());
+        int segments = (totalPages + pagesPerTask - 1) / pagesPerTask;
+        int workers = Math.min(parallelism, segments);
+        String[] pages = new String[totalPages];
+        AtomicInteger cursor = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(executor.submit(() -> {
+                try (PDDocument workerDocument = Loader.loadPDF(new RandomAccessReadBufferedFile(pdfFile.toFile()),
+                        IOUtils.createTempFileOnlyStreamCache())) {
+                    PDFTextStripper stripper = newStripper();
+                    int segment;
+                    while ((segment = cursor.getAndIncrement()) < segments) {
+                        int start = segment * pagesPerTask + 1;
+                        int end = Math.min(totalPages, start + pagesPerTask - 1);
+                        for (int page = start; page <= end; page++) {
+                            pages[page - 1] = extractPage(stripper, workerDocument, page);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IOException("PDF 文本提取被中断", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("PDF 文本并行提取失败", cause);
+        }
+        log.info("并行提取文本完成: {} 页, {} 个 worker", totalPages, workers);
+        return Arrays.asList(pages);
+    }
+
+    private PDFTextStripper newStripper() {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setSortByPosition(true); // 开启位置排序，处理多栏布局更准确
+        return stripper;
+    }
+
+    private String extractPage(PDFTextStripper stripper, PDDocument document, int page) throws IOException {
+        stripper.setStartPage(page);
+        stripper.setEndPage(page);
+        String text = stripper.getText(document);
+        // 保持页面的原始性，但在每一页末尾确保有换行
+        if (text != null && !text.endsWith("\n")) {
+            text += "\n";
+        }
+        return text;
+    }
+}
@@ -0,0 +1,124 @@
+package com.tengjiao.douya.domain.eating.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 语义化递归切分器：优先在段落(\n\n)、换行(\n)、中英文句末标点、空格处切分，仍超长时按固定窗口切开
+ * <p>
+ * 切分全程只在原文上移动下标，直接产出每个子块的 [start, end) 偏移，子块文本即原文的对应区间。
+ * 调用方据此做页码映射与父块窗口截取，不需要再用 indexOf 回查位置，整体 O(n × 分隔符层数)。
+ */
+public final class RecursiveTextSplitter {
+
+    private static final String[] SEPARATORS = {"\n\n", "\n", "。", "！", "？", ". ", " "};
+
+    /**
+     * 子块在原文中的区间
+     */
+    public record Span(int start, int end) {
+
+        public int length() {
+            return end - start;
+        }
+    }
+
+    private RecursiveTextSplitter() {
+    }
+
+    /**
+     * @param limit   子块目标长度；与上一块的重叠部分不计入，子块最长为 limit + overlap
+     * @param overlap 相邻子块重叠的字符数
+     */
+    public static List<Span> split(String text, int limit, int overlap) {
+        List<Span> spans = new ArrayList<>();
+        if (text == null || text.trim().isEmpty()) {
+            return spans;
+        }
+        split(text, 0, text.length(), limit, overlap, 0, spans);
+        return spans;
+    }
+
+    private static void split(String text, int from, int to, int limit, int overlap, int sepIdx, List<Span> spans) {
+        if (to - from <= limit) {
+            spans.add(new Span(from, to));
+            return;
+        }
+        if (sepIdx >= SEPARATORS.length) {
+            // 实在分不开了，强行按长度切分
+            int step = Math.max(1, limit - overlap);
+            for (int i = from; ; i += step) {
+                int end = Math.min(i + limit, to);
+                spans.add(new Span(i, end));
+                if (end == to) {
+                    break;
+                }
+            }
+            return;
+        }
+
+        String sep = SEPARATORS[sepIdx];
+        // 当前累积块 [currentStart, currentEnd)，其中 [newStart, currentEnd) 是上一块重叠之外的新内容
+        int currentStart = from;
+        int currentEnd = from;
+        int newStart = from;
+        int partStart = from;
+        while (partStart < to) {
+            // 分隔符保留在前一段末尾；重叠出现（如 "\n\n\n" 中的 "\n\n"）各切一次
+            int idx = text.indexOf(sep, Math.max(from, partStart - sep.length() + 1));
+            int partEnd = (idx < 0 || idx + sep.length() > to) ? to : idx + sep.length();
+            int partLength = partEnd - partStart;
+
+            if (currentEnd - currentStart + partLength > limit) {
+                newStart = flush(text, currentStart, newStart, currentEnd, limit + overlap, spans);
+                currentStart = Math.max(currentStart, currentEnd - overlap);
+                // 单段就超过 limit，下沉到更细的分隔符；之后以其尾部作为重叠继续累积
+                if (partLength > limit) {
+                    split(text, partStart, partEnd, limit, overlap, sepIdx + 1, spans);
+                    currentStart = Math.max(partStart, partEnd - overlap);
+                    currentEnd = partEnd;
+                    newStart = partEnd;
+                    partStart = partEnd;
+                    continue;
+                }
+            }
+            currentEnd = partEnd;
+            partStart = partEnd;
+        }
+        flush(text, currentStart, newStart, currentEnd, limit + overlap, spans);
+    }
+
+    /**
+     * 累积块 [currentStart, currentEnd) 成块，返回之后的 newStart
+     * <p>
+     * 只剩上一块的重叠部分时不产出；新内容只有分隔符（如段尾的 "\n\n"）时并入紧邻的上一块，
+     * 否则这类子块清洗后与相邻子块重复，会被重复向量化入库
+     */
+    private static int flush(String text, int currentStart, int newStart, int currentEnd, int maxLength, List<Span> spans) {
+        if (currentEnd <= newStart) {
+            return newStart;
+        }
+        if (!hasNewContent(text, newStart, currentEnd) && !spans.isEmpty()) {
+            Span last = spans.get(spans.size() - 1);
+            if (last.end() == newStart && currentEnd - last.start() <= maxLength) {
+                spans.set(spans.size() - 1, new Span(last.start(), currentEnd));
+                return currentEnd;
+            }
+        }
+        spans.add(new Span(currentStart, currentEnd));
+        return currentEnd;
+    }
+
+    /**
+     * [newStart, end) 中是否有分隔符与空白之外的字符
+     */
+    private static boolean hasNewContent(String text, int newStart, int end) {
+        for (int i = newStart; i < end; i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c) && c != '。' && c != '！' && c != '？' && c != '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
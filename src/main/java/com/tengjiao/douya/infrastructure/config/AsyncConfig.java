@@ -2,8 +2,14 @@ package com.tengjiao.douya.infrastructure.config;
 
 
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * 异步任务配置
@@ -11,4 +17,52 @@ import org.springframework.scheduling.annotation.EnableAsync;
 @Configuration
 @EnableAsync
 public class AsyncConfig {
+
+    /**
+     * 流式对话执行器：图执行以阻塞方式等待多个模型调用，使用虚拟线程避免占用 Servlet 线程
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService chatStreamExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-stream-", 0).factory());
+    }
+
+    /**
+     * PDF 入库执行器：有界线程数 + 有界队列，队列满时抛出 TaskRejectedException 由调用方上报，
+     * 突发上传不会占满请求线程或挤占 Embedding 配额
+     */
+    @Bean
+    public ThreadPoolTaskExecutor pdfIngestExecutor(DocumentIngestProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, properties.getJobCorePoolSize()));
+        executor.setMaxPoolSize(Math.max(properties.getJobCorePoolSize(), properties.getJobMaxPoolSize()));
+        executor.setQueueCapacity(Math.max(0, properties.getJobQueueCapacity()));
+        executor.setThreadNamePrefix("pdf-ingest-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * PDF 图片编码执行器（CPU 密集）：固定线程数 + 有界队列。
+     * 提交量已由 PdfImageUploader 的解码许可限制，队列满时由提交线程自行编码兜底
+     */
+    @Bean
+    public ThreadPoolTaskExecutor pdfImageEncodeExecutor(DocumentIngestProperties properties) {
+        int threads = Math.max(1, properties.getImageEncodeThreads());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(Math.max(1, properties.getImageMaxDecodedInFlight()));
+        executor.setThreadNamePrefix("pdf-image-encode-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * PDF 图片上传执行器（I/O 密集）：虚拟线程，OSS 并发由 PdfImageUploader 的上传许可限制
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pdfImageUploadExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("pdf-image-upload-", 0).factory());
+    }
 }
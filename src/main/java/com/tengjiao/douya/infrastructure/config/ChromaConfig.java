@@ -4,6 +4,8 @@ package com.tengjiao.douya.infrastructure.config;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.infrastructure.vectorstore.CachingEmbeddingModel;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingCache;
 
 import jakarta.annotation.Resource;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -41,8 +43,10 @@ public class ChromaConfig {
     }
 
     @Bean
-    public VectorStore chromaVectorStore(@Qualifier("dashscopeEmbeddingModel") EmbeddingModel dashscopeEmbeddingModel, ChromaApi chromaApi) {
-        return ChromaVectorStore.builder(chromaApi, dashscopeEmbeddingModel)
+    public VectorStore chromaVectorStore(@Qualifier("dashscopeEmbeddingModel") EmbeddingModel dashscopeEmbeddingModel, ChromaApi chromaApi,
+                                         EmbeddingCache embeddingCache) {
+        // 查询向量经缓存装饰，重复/近似重复的查询不再触发远程 Embedding 调用
+        return ChromaVectorStore.builder(chromaApi, new CachingEmbeddingModel(dashscopeEmbeddingModel, embeddingCache))
                 .collectionName(chromaProperties.getCollectionName())
                 .databaseName("SpringAiDatabase")  // Chroma v2 需要的 database 参数
                 .tenantName("SpringAiTenant")      // Chroma v2 需要的 tenant 参数
@@ -0,0 +1,86 @@
+package com.tengjiao.douya.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * PDF 入库流水线配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "douya.document.ingest")
+public class DocumentIngestProperties {
+
+    /**
+     * 每个处理窗口包含的页数：窗口内的图片解码上传完成后才进入下一窗口，
+     * 切分与入库同样按窗口推进，堆内只保留当前窗口的图片与分片
+     */
+    private int windowPages = 16;
+
+    /**
+     * 上传内容落盘目录，为空时使用系统临时目录
+     */
+    private String tempDir;
+
+    /**
+     * 文本提取并行度（worker 数），为 1 时退化为串行逐页提取
+     */
+    private int textExtractParallelism = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * 每个 worker 单次领取的页数
+     */
+    private int textExtractPagesPerTask = 8;
+
+    /**
+     * 页数达到该值才启用并行提取，小文档打开多份 PDDocument 得不偿失
+     */
+    private int parallelTextMinPages = 32;
+
+    /**
+     * 入库任务执行器核心线程数，同时也限制了并发入库对 Embedding 配额的占用
+     */
+    private int jobCorePoolSize = 2;
+
+    /**
+     * 入库任务执行器最大线程数
+     */
+    private int jobMaxPoolSize = 2;
+
+    /**
+     * 入库任务排队上限，超出后提交直接返回 REJECTED
+     */
+    private int jobQueueCapacity = 20;
+
+    /**
+     * 内存中保留的已结束任务数，超出后淘汰最早结束的任务
+     */
+    private int jobRetention = 200;
+
+    /**
+     * 增量入库：按确定性分片 id 与文档现有分片比对，只对新增分片 Embedding，删除已消失的分片。
+     * 关闭后每次全部重新 Embedding 并覆盖写入，不删除旧分片
+     */
+    private boolean incremental = true;
+
+    /**
+     * 进程内记住的已存在图片对象数（按内容寻址的 OSS 键），命中时不再请求 OSS
+     */
+    private int imageExistCacheSize = 10000;
+
+    /**
+     * 图片 PNG 编码线程数（CPU 密集，独立线程池）
+     */
+    private int imageEncodeThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * 已解码、尚未编码完成的图片上限（全局），达到后提取线程暂停解码；同时作为编码线程池的队列容量
+     */
+    private int imageMaxDecodedInFlight = 8;
+
+    /**
+     * 图片上传与存在性检查的最大并发 OSS 请求数（全局），请求在虚拟线程上执行
+     */
+    private int imageUploadConcurrency = 16;
+}
@@ -0,0 +1,50 @@
+package com.tengjiao.douya.infrastructure.config;
+
+import com.tengjiao.douya.application.service.evaluator.RerankMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 公共文档检索重排配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "douya.rerank")
+public class DocumentRerankProperties {
+
+    /**
+     * 默认评分模式：POINTWISE 逐文档并行评分，LISTWISE 单次调用批量评分
+     */
+    private RerankMode mode = RerankMode.POINTWISE;
+
+    /**
+     * 同时在途的 LLM 评分请求上限
+     */
+    private int maxConcurrency = 4;
+
+    /**
+     * 单个文档评分超时（毫秒），超时的文档回退到向量检索名次
+     */
+    private long perDocumentTimeoutMillis = 8000;
+
+    /**
+     * 整次重排的全局截止时间（毫秒），到期仍未完成评分的文档回退到向量检索名次
+     */
+    private long deadlineMillis = 15000;
+
+    /**
+     * 是否先使用本地词法重排（BM25 + 向量相似度），仅在分数难以区分时升级到 LLM 评分
+     */
+    private boolean lexicalFirst = true;
+
+    /**
+     * 本地重排中 BM25 分数的权重（0-1），其余权重给向量相似度
+     */
+    private double lexicalWeight = 0.5;
+
+    /**
+     * 本地融合分数差小于该值时视为难以区分，升级到 LLM 评分
+     */
+    private double escalationMargin = 0.05;
+}
@@ -37,4 +37,9 @@ public class DocumentSplitProperties {
      * Python 子进程超时（秒）
      */
     private long pythonTimeoutSeconds = 60;
+
+    /**
+     * Python 子进程 stdout 上限（字节），超过时结束子进程并报错
+     */
+    private long pythonMaxOutputBytes = 64L * 1024 * 1024;
 }
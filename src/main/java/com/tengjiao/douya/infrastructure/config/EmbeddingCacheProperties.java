@@ -0,0 +1,34 @@
+package com.tengjiao.douya.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 查询向量缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "douya.embedding.cache")
+public class EmbeddingCacheProperties {
+
+    /**
+     * 是否启用查询向量缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最大缓存条数，超出后按最近最少使用淘汰
+     */
+    private int maxSize = 2000;
+
+    /**
+     * 缓存有效期（秒）
+     */
+    private long ttlSeconds = 1800;
+
+    /**
+     * 缓存键中的模型标识，切换 Embedding 模型后旧向量自动失效
+     */
+    private String model = "dashscope";
+}
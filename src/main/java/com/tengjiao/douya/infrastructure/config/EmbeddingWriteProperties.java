@@ -0,0 +1,54 @@
+package com.tengjiao.douya.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 入库 Embedding 与 Chroma 写入配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "douya.embedding.write")
+public class EmbeddingWriteProperties {
+
+    /**
+     * 单次 Embedding 请求的文本条数（DashScope 单次上限 10 条）
+     */
+    private int embedBatchSize = 10;
+
+    /**
+     * 单次 Chroma upsert 的条数，与 Embedding 批大小相互独立
+     */
+    private int upsertBatchSize = 100;
+
+    /**
+     * 同时在途的 Embedding 请求数
+     */
+    private int maxInFlight = 4;
+
+    /**
+     * Embedding 请求速率上限（次/秒），≤0 表示不限
+     */
+    private double requestsPerSecond = 10;
+
+    /**
+     * Embedding token 速率上限（token/秒），按文本字符数估算，≤0 表示不限
+     */
+    private double tokensPerSecond = 20000;
+
+    /**
+     * 单批 Embedding 失败（含限流）后的最大重试次数
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 首次重试退避时间（毫秒），之后按 2 倍递增
+     */
+    private long initialBackoffMillis = 500;
+
+    /**
+     * 退避时间上限（毫秒）
+     */
+    private long maxBackoffMillis = 8000;
+}
@@ -10,6 +10,7 @@ import com.tengjiao.douya.entity.feishu.content.FeishuPostMessageContent;
 import com.tengjiao.douya.entity.feishu.content.FeishuTextContent;
 import com.tengjiao.douya.infrastructure.external.feishu.FeiShuGetMessageResourceUtils;
 import com.tengjiao.douya.infrastructure.external.feishu.FeishuService;
+import com.tengjiao.douya.infrastructure.external.feishu.FeishuStreamingReply;
 
 
 import com.lark.oapi.core.request.EventReq;
@@ -274,10 +275,26 @@ public class FeishuConfig {
             return;
         }
 
-        // 正常聊天流程
-        sendTextMessage(userId, "稍等哦，本大师正在思考...");
-        String aiResponse = eatingMasterApp.ask(safeQuery, userId);
-        sendAiResponse(userId, aiResponse);
+        // 正常聊天流程：占位消息随图运行进度增量编辑，最终答复覆盖占位
+        FeishuStreamingReply streamingReply = new FeishuStreamingReply(feishuService, userId);
+        streamingReply.start("稍等哦，本大师正在思考...");
+        String aiResponse = eatingMasterApp.askStream(safeQuery, userId, streamingReply);
+        finishStreamingReply(streamingReply, userId, aiResponse);
+    }
+
+    /**
+     * 纯文本答复直接覆盖占位消息；含图片资产时占位消息收尾，再按原逻辑发送 post 富文本
+     */
+    private void finishStreamingReply(FeishuStreamingReply streamingReply, String userId, String aiResponse) {
+        String reply = aiResponse == null ? "" : aiResponse;
+        if (parseRichMessage(reply).imageUrls().isEmpty()) {
+            if (!streamingReply.finish(reply)) {
+                sendTextMessage(userId, reply);
+            }
+            return;
+        }
+        streamingReply.finish("图文答复已整理好，请看下一条消息~");
+        sendAiResponse(userId, reply);
     }
 
     private void sendAiResponse(String userId, String aiResponse) {
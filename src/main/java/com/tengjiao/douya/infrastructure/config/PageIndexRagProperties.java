@@ -58,4 +58,46 @@ public class PageIndexRagProperties {
      * Python 脚本调用超时（秒）。
      */
     private int pythonTimeoutSeconds = 60;
+
+    /**
+     * 单次脚本 stdout 上限（字节），超过时结束子进程并报错。
+     */
+    private long pythonMaxOutputBytes = 64L * 1024 * 1024;
+
+    /**
+     * 是否启用常驻 Python worker 进程池。
+     * 启用后查询/入库请求复用已启动的解释器，worker 不可用时回退为每次调用启动脚本。
+     */
+    private boolean workerPoolEnabled = true;
+
+    /**
+     * 常驻 worker 脚本路径。
+     */
+    private String workerScript = "apps/python-rag/scripts/page_index_worker.py";
+
+    /**
+     * worker 进程数量，同时也是并发请求上限，超出的请求排队等待空闲 worker。
+     */
+    private int workerPoolSize = 2;
+
+    /**
+     * 单个 worker 启动（导入依赖并输出 ready）的超时（秒）。
+     */
+    private int workerStartupTimeoutSeconds = 30;
+
+    /**
+     * 空闲 worker 健康检查间隔（秒），小于等于 0 时不做周期检查。
+     */
+    private int workerHealthCheckIntervalSeconds = 30;
+
+    /**
+     * 查询执行方式：PYTHON 调用脚本/worker，JAVA 在进程内直接读取索引文件查询。
+     * 入库、状态等其他操作始终由 Python 执行。
+     */
+    private QueryEngine queryEngine = QueryEngine.PYTHON;
+
+    public enum QueryEngine {
+        PYTHON,
+        JAVA
+    }
 }
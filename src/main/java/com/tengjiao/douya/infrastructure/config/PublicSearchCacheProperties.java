@@ -0,0 +1,39 @@
+package com.tengjiao.douya.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 公共知识库检索结果缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "douya.public-search.cache")
+public class PublicSearchCacheProperties {
+
+    /**
+     * 是否启用检索结果缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最大缓存条数，超出后按最近最少使用淘汰
+     */
+    private int maxSize = 256;
+
+    /**
+     * 缓存有效期（秒），集合发生写入时会提前整体失效
+     */
+    private long ttlSeconds = 600;
+
+    /**
+     * 是否允许近似命中：查询向量与已缓存查询的余弦相似度不低于阈值时直接复用结果
+     */
+    private boolean approximate = false;
+
+    /**
+     * 近似命中的余弦相似度阈值
+     */
+    private double similarityThreshold = 0.97;
+}
@@ -0,0 +1,45 @@
+package com.tengjiao.douya.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 向量集合拆分配置：公共文档留在 {@code spring.ai.vectorstore.chroma.collection-name}，
+ * 用户记忆按 userId 分片写入独立集合
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "douya.vector.collections")
+public class VectorCollectionProperties {
+
+    /**
+     * 是否将用户记忆拆分到独立集合；关闭时所有数据仍写入公共集合
+     */
+    private boolean split = true;
+
+    /**
+     * 用户记忆集合名前缀，完整名称为 prefix + 分片序号
+     */
+    private String memoryCollectionPrefix = "douya_memory_";
+
+    /**
+     * 用户记忆分片数，上线后修改会导致已有用户路由到新分片
+     */
+    private int memoryShards = 4;
+
+    /**
+     * 检索用户记忆时是否同时查询公共集合中拆分前写入的旧记忆（按 userId 过滤）
+     */
+    private boolean legacyMemoryFallback = true;
+
+    /**
+     * 多集合并行检索的整体超时（毫秒），超时的集合结果被丢弃
+     */
+    private long fanOutTimeoutMillis = 5000;
+
+    /**
+     * 父块集合名称：PDF 子块通过 parent_id 引用，父块文本只在该集合中存一份
+     */
+    private String parentCollection = "douya_parents";
+}
@@ -36,6 +36,16 @@ public interface FeishuService {
      */
     FeishuMessageSendResponse sendMessage(String receiveIdType, FeishuMessageSendRequest request);
 
+    /**
+     * 编辑已发送的消息（仅支持 text / post，单条消息可编辑次数有限）
+     *
+     * @param messageId 待编辑消息 ID
+     * @param msgType   消息类型 (text, post)
+     * @param content   新的消息内容，JSON 结构序列化后的字符串
+     * @return 响应结果
+     */
+    FeishuMessageSendResponse updateMessage(String messageId, String msgType, String content);
+
     /**
      * 上传图片
      *
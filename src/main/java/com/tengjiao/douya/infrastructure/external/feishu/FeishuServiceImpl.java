@@ -11,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -192,6 +193,42 @@ public class FeishuServiceImpl implements FeishuService {
         }
     }
 
+    @Override
+    public FeishuMessageSendResponse updateMessage(String messageId, String msgType, String content) {
+        String tenantToken = getTenantAccessToken();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Authorization", "Bearer " + tenantToken);
+
+        String url = feishuProperties.getMessageSendUrl() + "/" + messageId;
+
+        Map<String, String> body = new HashMap<>();
+        body.put("msg_type", msgType);
+        body.put("content", content);
+
+        try {
+            ResponseEntity<FeishuMessageSendResponse> response = restTemplate.exchange(url, HttpMethod.PUT,
+                    new HttpEntity<>(body, headers), FeishuMessageSendResponse.class);
+
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                FeishuMessageSendResponse respBody = response.getBody();
+                if (respBody.getCode() == 0) {
+                    return respBody;
+                } else {
+                    log.error("编辑飞书消息失败: messageId={}, code={}, msg={}", messageId, respBody.getCode(), respBody.getMsg());
+                    throw new RuntimeException("编辑飞书消息失败: " + respBody.getMsg());
+                }
+            } else {
+                log.error("请求飞书编辑消息接口失败: status={}", response.getStatusCode());
+                throw new RuntimeException("请求飞书编辑消息接口失败");
+            }
+        } catch (Exception e) {
+            log.error("编辑飞书消息异常", e);
+            throw new RuntimeException("编辑飞书消息异常", e);
+        }
+    }
+
     @Override
     public String uploadImage(File imageFile) {
         if (imageFile == null || !imageFile.exists()) {
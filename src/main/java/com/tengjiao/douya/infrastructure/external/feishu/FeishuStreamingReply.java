@@ -0,0 +1,124 @@
+package com.tengjiao.douya.infrastructure.external.feishu;
+
+import com.tengjiao.douya.application.graph.GraphStreamListener;
+import com.tengjiao.douya.entity.feishu.FeishuMessageSendRequest;
+import com.tengjiao.douya.entity.feishu.FeishuMessageSendResponse;
+import com.tengjiao.douya.entity.feishu.content.FeishuTextContent;
+
+import com.lark.oapi.core.utils.Jsons;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * 飞书增量回复：先发送一条占位消息，再随图运行进度（路由、工具调用、答复 token）编辑同一条消息。
+ * <p>
+ * 飞书对单条消息的编辑频率与次数有限制，这里按最小间隔节流，并为最终答复预留一次编辑机会。
+ */
+@Slf4j
+public class FeishuStreamingReply implements GraphStreamListener {
+
+    private static final long MIN_EDIT_INTERVAL_MS = 1500L;
+    private static final int MAX_EDITS = 18;
+    private static final String TYPING_SUFFIX = " ...";
+
+    private final FeishuService feishuService;
+    private final String userId;
+    private final LongSupplier clock;
+    private final StringBuilder answer = new StringBuilder();
+
+    private String messageId;
+    private int edits;
+    private long lastEditAt;
+
+    public FeishuStreamingReply(FeishuService feishuService, String userId) {
+        this(feishuService, userId, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 毫秒时钟，节流按它计算编辑间隔
+     */
+    public FeishuStreamingReply(FeishuService feishuService, String userId, LongSupplier clock) {
+        this.feishuService = feishuService;
+        this.userId = userId;
+        this.clock = clock;
+    }
+
+    /**
+     * 发送占位消息并记录其 messageId，失败时后续编辑全部跳过，由调用方回退为整条发送
+     */
+    public void start(String placeholder) {
+        try {
+            FeishuMessageSendResponse response = feishuService.sendMessage("user_id",
+                    new FeishuMessageSendRequest(userId, "text", toTextContent(placeholder),
+                            UUID.randomUUID().toString()));
+            if (response != null && response.getData() != null) {
+                messageId = response.getData().getMessageId();
+            }
+        } catch (Exception e) {
+            log.warn("[Feishu] 占位消息发送失败，将回退为完整回复: userId={}", userId, e);
+        }
+    }
+
+    @Override
+    public synchronized void onRoute(Map<String, Object> entry) {
+        Object decision = entry.get("decision");
+        if (answer.isEmpty() && decision != null && !"FINISH".equals(decision)) {
+            editThrottled("本大师已交给 " + decision + " 处理" + TYPING_SUFFIX);
+        }
+    }
+
+    @Override
+    public synchronized void onToolCall(String agentName, String toolName) {
+        if (answer.isEmpty()) {
+            editThrottled("正在调用 " + toolName + " 查找资料" + TYPING_SUFFIX);
+        }
+    }
+
+    @Override
+    public synchronized void onToken(String agentName, String token) {
+        answer.append(token);
+        editThrottled(answer + TYPING_SUFFIX);
+    }
+
+    /**
+     * 用最终答复覆盖占位消息
+     *
+     * @return 是否编辑成功；false 时调用方应改为新发一条消息
+     */
+    public synchronized boolean finish(String finalText) {
+        return edit(finalText == null ? "" : finalText);
+    }
+
+    private void editThrottled(String text) {
+        long now = clock.getAsLong();
+        // 预留最后一次编辑给最终答复
+        if (now - lastEditAt < MIN_EDIT_INTERVAL_MS || edits >= MAX_EDITS - 1) {
+            return;
+        }
+        edit(text);
+    }
+
+    private boolean edit(String text) {
+        if (messageId == null || edits >= MAX_EDITS) {
+            return false;
+        }
+        lastEditAt = clock.getAsLong();
+        try {
+            feishuService.updateMessage(messageId, "text", toTextContent(text));
+            edits++;
+            return true;
+        } catch (Exception e) {
+            log.warn("[Feishu] 增量编辑消息失败: messageId={}, edits={}", messageId, edits, e);
+            return false;
+        }
+    }
+
+    private String toTextContent(String text) {
+        FeishuTextContent content = new FeishuTextContent();
+        content.setText(text == null ? "" : text);
+        return Jsons.DEFAULT.toJson(content);
+    }
+}
@@ -0,0 +1,23 @@
+package com.tengjiao.douya.infrastructure.external.pageindexrag;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据文件的修改时间（纳秒）与大小，用于判断缓存是否仍对应磁盘上的文件；文件不存在时为 (-1, -1)
+ */
+record FileStamp(long modifiedNanos, long size) {
+
+    static FileStamp of(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileStamp(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size());
+        } catch (NoSuchFileException e) {
+            return new FileStamp(-1, -1);
+        }
+    }
+}
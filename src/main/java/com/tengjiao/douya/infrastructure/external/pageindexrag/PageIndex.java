@@ -0,0 +1,706 @@
+package com.tengjiao.douya.infrastructure.external.pageindexrag;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PageIndexRAG 存储快照的只读内存索引，以及与 {@code PageIndexRagService.query} 一致的查询算法
+ * <p>
+ * 加载时把 {@code page_index_store.json} 压成原始数组：稠密向量为连续的 {@code float[]}，
+ * 稀疏词项为「词 → 倒排表」，IDF 随倒排表预先算好；页面词频按词排序存放，供重排时二分查找。
+ * 查询只遍历命中的倒排表与稠密向量的非零维度，不再为每次查询重建 IDF。
+ * <p>
+ * 排序规则与 Python 的稳定排序一致：同分按存储顺序。RRF 融合分相同的 chunk 在 Python 中的先后取决于
+ * 集合遍历顺序（随哈希种子变化），这里固定按存储顺序。
+ */
+public final class PageIndex {
+
+    /**
+     * 以下参数对应 apps/python-rag/app/core/config.py 中 RagConfig 的默认值
+     */
+    static final int VECTOR_DIM = 384;
+    static final int DENSE_TOP_K = 60;
+    static final int SPARSE_TOP_K = 60;
+    static final int KEYWORD_TOP_K = 60;
+    static final int RRF_K = 60;
+    static final int PAGE_POOL_SIZE = 20;
+    static final int NEIGHBOR_WINDOW = 1;
+    static final int RERANK_TOP_K = 10;
+    static final int MAX_CONTEXT_PAGES = 8;
+    static final double MIN_SCORE_THRESHOLD = 0.22;
+    static final double RERANK_LEXICAL_ALPHA = 0.2;
+    static final String RERANKER_NAME = "lexical";
+
+    private static final double NEIGHBOR_DECAY = 0.75;
+
+    private final int chunkCount;
+    private final String[] chunkIds;
+    private final String[] chunkDocIds;
+    private final int[] chunkPageNos;
+    private final int[] chunkPageSlots;
+    /**
+     * chunkCount * VECTOR_DIM，维度不一致的向量整行为 0 并在 denseValid 中标记
+     */
+    private final float[] dense;
+    private final boolean[] denseValid;
+    private final Map<String, Posting> postings;
+
+    /**
+     * 页面槽位：pages 中的页面，以及只被 chunk 引用、pages 中不存在的 page_id
+     */
+    private final boolean[] pageStored;
+    private final String[] pageDocIds;
+    private final int[] pageNos;
+    private final String[][] pageTerms;
+    private final double[][] pageTf;
+    private final Map<String, Integer> pageByDocAndNo;
+
+    private PageIndex(Builder builder) {
+        this.chunkCount = builder.chunkIds.size();
+        this.chunkIds = builder.chunkIds.toArray(String[]::new);
+        this.chunkDocIds = builder.chunkDocIds.toArray(String[]::new);
+        this.chunkPageNos = builder.chunkPageNos.stream().mapToInt(Integer::intValue).toArray();
+        this.chunkPageSlots = builder.chunkPageSlots.stream().mapToInt(Integer::intValue).toArray();
+        this.dense = builder.dense.length == chunkCount * VECTOR_DIM
+                ? builder.dense : Arrays.copyOf(builder.dense, chunkCount * VECTOR_DIM);
+        this.denseValid = Arrays.copyOf(builder.denseValid, chunkCount);
+
+        Map<String, Posting> compiled = new HashMap<>(builder.postingChunks.size() * 2);
+        builder.postingChunks.forEach((term, chunks) -> {
+            double[] tf = builder.postingTf.get(term).toArray();
+            compiled.put(term, new Posting(chunks.toArray(), tf, PageIndexScoring.idf(chunkCount, chunks.size())));
+        });
+        this.postings = compiled;
+
+        int pages = builder.pageIds.size();
+        this.pageStored = new boolean[pages];
+        this.pageDocIds = new String[pages];
+        this.pageNos = new int[pages];
+        this.pageTerms = new String[pages][];
+        this.pageTf = new double[pages][];
+        for (int slot = 0; slot < pages; slot++) {
+            PageRecord page = builder.pageRecords.get(slot);
+            if (page == null) {
+                pageTerms[slot] = new String[0];
+                pageTf[slot] = new double[0];
+                continue;
+            }
+            pageStored[slot] = true;
+            pageDocIds[slot] = page.docId();
+            pageNos[slot] = page.pageNo();
+            LinkedHashMap<String, Double> tf = PageIndexScoring.sparseTerms(PageIndexScoring.tokenize(page.pageText()));
+            String[] terms = tf.keySet().toArray(String[]::new);
+            Arrays.sort(terms);
+            double[] values = new double[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                values[i] = tf.get(terms[i]);
+            }
+            pageTerms[slot] = terms;
+            pageTf[slot] = values;
+        }
+        Map<String, Integer> byDocAndNo = new HashMap<>();
+        for (int slot = 0; slot < pages; slot++) {
+            if (pageStored[slot]) {
+                // 与 Python 字典推导一致：同一 (doc_id, page_no) 后出现的覆盖先出现的
+                byDocAndNo.put(docPageKey(pageDocIds[slot], pageNos[slot]), slot);
+            }
+        }
+        this.pageByDocAndNo = byDocAndNo;
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    public int pageCount() {
+        int stored = 0;
+        for (boolean s : pageStored) {
+            if (s) {
+                stored++;
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * 执行查询，返回与 page_index_query.py 输出相同结构的结果（answer / citations / debug）
+     */
+    public Map<String, Object> query(String rawQuery, int topK, boolean withDebug) {
+        if (chunkCount == 0) {
+            Map<String, Object> debug = null;
+            if (withDebug) {
+                debug = debug(0, 0, 0, null, new LinkedHashMap<>());
+            }
+            return response("知识库为空，请先调用 ingest 接口导入文档。", List.of(), debug);
+        }
+
+        String query = PageIndexScoring.normalizeText(rawQuery);
+        List<String> queryTokens = PageIndexScoring.tokenize(query);
+        LinkedHashMap<String, Double> queryTerms = PageIndexScoring.sparseTerms(queryTokens);
+
+        // 1. 三路召回
+        int[] denseTop = denseTop(PageIndexScoring.hashEmbedding(queryTokens, VECTOR_DIM));
+        double[] sparseScores = new double[chunkCount];
+        double[] keywordScores = new double[chunkCount];
+        int[] touched = lexicalScores(queryTerms, queryTokens, sparseScores, keywordScores);
+        int[] sparseTop = topK(sparseScores, touched, SPARSE_TOP_K, true);
+        int[] keywordTop = topK(keywordScores, touched, KEYWORD_TOP_K, true);
+
+        Map<String, Integer> routeHits = new LinkedHashMap<>();
+        routeHits.put("dense", denseTop.length);
+        routeHits.put("sparse", sparseTop.length);
+        routeHits.put("keyword", keywordTop.length);
+        List<String> activeRoutes = new ArrayList<>();
+        routeHits.forEach((route, hits) -> {
+            if (hits > 0) {
+                activeRoutes.add(route);
+            }
+        });
+        String retrievalSource = activeRoutes.isEmpty() ? "local_rrf[none]" : "local_rrf[" + String.join("+", activeRoutes) + "]";
+
+        // 2. RRF 融合（按路由顺序累加倒数名次）
+        double[] fused = new double[chunkCount];
+        int[] fusedCandidates = rrf(fused, denseTop, sparseTop, keywordTop);
+        int[] ranked = topK(fused, fusedCandidates, fusedCandidates.length, false);
+
+        List<Integer> selected = new ArrayList<>();
+        for (int chunk : ranked) {
+            if (fused[chunk] >= MIN_SCORE_THRESHOLD) {
+                selected.add(chunk);
+            }
+        }
+        if (selected.isEmpty()) {
+            int fallback = Math.min(ranked.length, Math.max(10, topK * 2));
+            for (int i = 0; i < fallback; i++) {
+                selected.add(ranked[i]);
+            }
+        }
+
+        // 3. 页聚合
+        LinkedHashMap<Integer, Double> pageScores = new LinkedHashMap<>();
+        Map<Integer, List<Integer>> pageToChunks = new HashMap<>();
+        for (int chunk : selected) {
+            int slot = chunkPageSlots[chunk];
+            pageScores.merge(slot, fused[chunk], Double::sum);
+            pageToChunks.computeIfAbsent(slot, k -> new ArrayList<>()).add(chunk);
+        }
+        List<Map.Entry<Integer, Double>> candidatePages = sortDescending(new ArrayList<>(pageScores.entrySet()));
+        if (candidatePages.size() > PAGE_POOL_SIZE) {
+            candidatePages = candidatePages.subList(0, PAGE_POOL_SIZE);
+        }
+
+        // 4. 邻页扩展 + 词法重排
+        List<Map.Entry<Integer, Double>> reranked = rerank(queryTerms, expandNeighbors(candidatePages));
+        List<Map.Entry<Integer, Double>> topPages = reranked.subList(0, Math.min(reranked.size(), Math.min(topK, MAX_CONTEXT_PAGES)));
+
+        // 5. 每页取融合分最高的 2 个 chunk 作为引用
+        List<Map<String, Object>> citations = new ArrayList<>();
+        for (Map.Entry<Integer, Double> page : topPages) {
+            List<Integer> chunks = new ArrayList<>(pageToChunks.getOrDefault(page.getKey(), List.of()));
+            chunks.sort((a, b) -> Double.compare(fused[b], fused[a]));
+            for (int i = 0; i < Math.min(2, chunks.size()); i++) {
+                int chunk = chunks.get(i);
+                Map<String, Object> citation = new LinkedHashMap<>();
+                citation.put("doc_id", chunkDocIds[chunk]);
+                citation.put("page_no", chunkPageNos[chunk]);
+                citation.put("chunk_id", chunkIds[chunk]);
+                citations.add(citation);
+            }
+        }
+        if (citations.size() > topK) {
+            citations = new ArrayList<>(citations.subList(0, topK));
+        }
+
+        Map<String, Object> debug = null;
+        if (withDebug) {
+            debug = debug(selected.size(), candidatePages.size(), topPages.size(), retrievalSource, routeHits);
+        }
+        return response("未配置生成器。问题：" + query + "。", citations, debug);
+    }
+
+    private int[] denseTop(double[] queryVector) {
+        int nonZero = 0;
+        for (double v : queryVector) {
+            if (v != 0) {
+                nonZero++;
+            }
+        }
+        int[] dims = new int[nonZero];
+        double[] values = new double[nonZero];
+        for (int d = 0, i = 0; d < VECTOR_DIM; d++) {
+            if (queryVector[d] != 0) {
+                dims[i] = d;
+                values[i++] = queryVector[d];
+            }
+        }
+        // 零值维度的乘积不改变累加结果，只按非零维度升序累加，与 Python 全量点积逐位相同
+        double[] scores = new double[chunkCount];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (!denseValid[chunk]) {
+                continue;
+            }
+            int base = chunk * VECTOR_DIM;
+            double sum = 0.0;
+            for (int i = 0; i < nonZero; i++) {
+                sum += values[i] * dense[base + dims[i]];
+            }
+            scores[chunk] = sum;
+        }
+        return topK(scores, null, DENSE_TOP_K, false);
+    }
+
+    /**
+     * 遍历查询词的倒排表，同时算出 sparse 与 keyword 两路分数，返回被命中的 chunk
+     */
+    private int[] lexicalScores(LinkedHashMap<String, Double> queryTerms, List<String> queryTokens,
+                                double[] sparseScores, double[] keywordScores) {
+        boolean[] hit = new boolean[chunkCount];
+        int[] touched = new int[chunkCount];
+        int touchedCount = 0;
+        for (Map.Entry<String, Double> term : queryTerms.entrySet()) {
+            Posting posting = postings.get(term.getKey());
+            if (posting == null) {
+                continue;
+            }
+            double queryTf = term.getValue();
+            for (int i = 0; i < posting.chunks.length; i++) {
+                int chunk = posting.chunks[i];
+                sparseScores[chunk] += queryTf * posting.tf[i] * posting.idf;
+                if (!hit[chunk]) {
+                    hit[chunk] = true;
+                    touched[touchedCount++] = chunk;
+                }
+            }
+        }
+        if (touchedCount == 0) {
+            return new int[0];
+        }
+
+        // keyword：查询词去重后按 IDF 加权的覆盖率为主，命中词的平均词频为辅
+        double totalIdf = 0.0;
+        for (String term : queryTerms.keySet()) {
+            Posting posting = postings.get(term);
+            totalIdf += posting == null ? 1.0 : posting.idf;
+        }
+        double[] hitIdf = new double[chunkCount];
+        double[] tfSum = new double[chunkCount];
+        int[] hits = new int[chunkCount];
+        for (String term : queryTerms.keySet()) {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            for (int i = 0; i < posting.chunks.length; i++) {
+                int chunk = posting.chunks[i];
+                hitIdf[chunk] += posting.idf;
+                tfSum[chunk] += posting.tf[i];
+                hits[chunk]++;
+            }
+        }
+        int[] result = Arrays.copyOf(touched, touchedCount);
+        if (queryTokens.isEmpty()) {
+            return result;
+        }
+        for (int chunk : result) {
+            double coverage = totalIdf > 0 ? hitIdf[chunk] / totalIdf : 0.0;
+            double density = tfSum[chunk] / (double) hits[chunk];
+            keywordScores[chunk] = coverage * 0.85 + density * 0.15;
+        }
+        return result;
+    }
+
+    private int[] rrf(double[] fused, int[]... routes) {
+        boolean[] seen = new boolean[chunkCount];
+        int[] candidates = new int[chunkCount];
+        int count = 0;
+        for (int[] route : routes) {
+            for (int rank = 0; rank < route.length; rank++) {
+                int chunk = route[rank];
+                fused[chunk] += 1.0 / (RRF_K + rank + 1);
+                if (!seen[chunk]) {
+                    seen[chunk] = true;
+                    candidates[count++] = chunk;
+                }
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private List<Map.Entry<Integer, Double>> expandNeighbors(List<Map.Entry<Integer, Double>> candidatePages) {
+        LinkedHashMap<Integer, Double> merged = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Double> entry : candidatePages) {
+            merged.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Integer, Double> entry : candidatePages) {
+            int slot = entry.getKey();
+            if (!pageStored[slot]) {
+                continue;
+            }
+            for (int delta = 1; delta <= NEIGHBOR_WINDOW; delta++) {
+                for (int next : new int[]{pageNos[slot] - delta, pageNos[slot] + delta}) {
+                    Integer neighbor = pageByDocAndNo.get(docPageKey(pageDocIds[slot], next));
+                    if (neighbor != null && !merged.containsKey(neighbor)) {
+                        merged.put(neighbor, entry.getValue() * NEIGHBOR_DECAY);
+                    }
+                }
+            }
+        }
+        return sortDescending(new ArrayList<>(merged.entrySet()));
+    }
+
+    /**
+     * 对应 LexicalReranker：在候选页集合内动态计算 IDF，最终分 = 召回分 * (1 - alpha) + 词法分 * alpha
+     */
+    private List<Map.Entry<Integer, Double>> rerank(LinkedHashMap<String, Double> queryTerms,
+                                                    List<Map.Entry<Integer, Double>> expandedPages) {
+        List<Map.Entry<Integer, Double>> items = new ArrayList<>();
+        for (Map.Entry<Integer, Double> entry : expandedPages) {
+            if (pageStored[entry.getKey()]) {
+                items.add(entry);
+            }
+        }
+        Map<String, Double> idf = new HashMap<>();
+        for (String term : queryTerms.keySet()) {
+            int df = 0;
+            for (Map.Entry<Integer, Double> item : items) {
+                if (Arrays.binarySearch(pageTerms[item.getKey()], term) >= 0) {
+                    df++;
+                }
+            }
+            if (df > 0) {
+                idf.put(term, PageIndexScoring.idf(items.size(), df));
+            }
+        }
+        List<Map.Entry<Integer, Double>> scored = new ArrayList<>(items.size());
+        for (Map.Entry<Integer, Double> item : items) {
+            int slot = item.getKey();
+            double lexical = 0.0;
+            for (Map.Entry<String, Double> term : queryTerms.entrySet()) {
+                int pos = Arrays.binarySearch(pageTerms[slot], term.getKey());
+                if (pos < 0) {
+                    continue;
+                }
+                lexical += term.getValue() * pageTf[slot][pos] * idf.getOrDefault(term.getKey(), 1.0);
+            }
+            double score = item.getValue() * (1.0 - RERANK_LEXICAL_ALPHA) + lexical * RERANK_LEXICAL_ALPHA;
+            scored.add(Map.entry(slot, score));
+        }
+        List<Map.Entry<Integer, Double>> sorted = sortDescending(scored);
+        return sorted.size() > RERANK_TOP_K ? sorted.subList(0, RERANK_TOP_K) : sorted;
+    }
+
+    /**
+     * 按分数降序取前 k 个，同分按存储顺序（与 Python 稳定排序一致）
+     *
+     * @param candidates   参与排序的 chunk，为 null 时取全部
+     * @param positiveOnly 是否只保留分数大于 0 的 chunk
+     */
+    private int[] topK(double[] scores, int[] candidates, int k, boolean positiveOnly) {
+        int total = candidates == null ? chunkCount : candidates.length;
+        int[] heap = new int[Math.min(k, total)];
+        int size = 0;
+        for (int i = 0; i < total; i++) {
+            int chunk = candidates == null ? i : candidates[i];
+            if (positiveOnly && !(scores[chunk] > 0)) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = chunk;
+                siftUp(heap, size++, scores);
+            } else if (size > 0 && better(chunk, heap[0], scores)) {
+                heap[0] = chunk;
+                siftDown(heap, size, scores);
+            }
+        }
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, scores);
+        }
+        return result;
+    }
+
+    private static boolean better(int a, int b, double[] scores) {
+        int cmp = Double.compare(scores[a], scores[b]);
+        return cmp > 0 || (cmp == 0 && a < b);
+    }
+
+    /**
+     * 小顶堆：堆顶是当前保留集合中「最差」的 chunk
+     */
+    private static void siftUp(int[] heap, int index, double[] scores) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(heap[parent], heap[index], scores)) {
+                break;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, double[] scores) {
+        int index = 0;
+        while (true) {
+            int left = index * 2 + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && better(heap[worst], heap[right], scores)) {
+                worst = right;
+            }
+            if (!better(heap[index], heap[worst], scores)) {
+                return;
+            }
+            swap(heap, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+
+    private static List<Map.Entry<Integer, Double>> sortDescending(List<Map.Entry<Integer, Double>> entries) {
+        // List.sort 是稳定排序，同分保持插入顺序
+        entries.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        return entries;
+    }
+
+    private static Map<String, Object> debug(int retrievedChunks, int candidatePages, int rerankPages,
+                                             String retrievalSource, Map<String, Integer> routeHits) {
+        Map<String, Object> debug = new LinkedHashMap<>();
+        debug.put("retrieved_chunks", retrievedChunks);
+        debug.put("candidate_pages", candidatePages);
+        debug.put("rerank_pages", rerankPages);
+        debug.put("reranker", RERANKER_NAME);
+        debug.put("generator", null);
+        debug.put("retrieval_source", retrievalSource);
+        debug.put("retrieval_route_hits", routeHits);
+        return debug;
+    }
+
+    private static Map<String, Object> response(String answer, List<Map<String, Object>> citations,
+                                                Map<String, Object> debug) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("answer", answer);
+        response.put("citations", citations);
+        response.put("debug", debug);
+        return response;
+    }
+
+    private static String docPageKey(String docId, int pageNo) {
+        return docId + '\u0000' + pageNo;
+    }
+
+    /**
+     * 倒排表：按存储顺序排列的 chunk 下标与对应词频
+     */
+    private record Posting(int[] chunks, double[] tf, double idf) {
+    }
+
+    private record PageRecord(String docId, int pageNo, String pageText) {
+    }
+
+    /**
+     * 流式读取 page_index_store.json，不构建完整的 JSON 树；文件不存在时返回空索引
+     */
+    public static PageIndex load(Path file, ObjectMapper objectMapper) throws IOException {
+        Builder builder = new Builder();
+        if (!Files.exists(file)) {
+            return builder.build();
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(file.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("PageIndexRAG 数据文件格式错误: " + file);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.currentName();
+                parser.nextToken();
+                if ("pages".equals(section) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        parser.nextToken();
+                        JsonNode page = parser.readValueAsTree();
+                        builder.addPage(page.path("page_id").asText(), page.path("doc_id").asText(),
+                                page.path("page_no").asInt(), page.path("page_text").asText(""));
+                    }
+                } else if ("chunks".equals(section) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        parser.nextToken();
+                        builder.addChunk(parser.readValueAsTree());
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 从内存映射的索引段构建，与读取生成该索引段的 JSON 得到相同的索引
+     */
+    public static PageIndex load(PageIndexSegment segment) {
+        Builder builder = new Builder();
+        for (int page = 0; page < segment.pageCount(); page++) {
+            builder.addPage(segment.pageId(page), segment.pageDocId(page), segment.pageNo(page),
+                    segment.pageText(page));
+        }
+        boolean dimMatches = segment.vectorDim() == VECTOR_DIM;
+        for (int chunk = 0; chunk < segment.chunkCount(); chunk++) {
+            float[] denseVector = null;
+            if (dimMatches && segment.chunkDenseValid(chunk)) {
+                denseVector = new float[VECTOR_DIM];
+                segment.readVector(chunk, denseVector, 0);
+            }
+            builder.addChunk(segment.chunkId(chunk), segment.chunkPageId(chunk), segment.chunkDocId(chunk),
+                    segment.chunkPageNo(chunk), denseVector, Map.of());
+        }
+        for (int term = 0; term < segment.termCount(); term++) {
+            String text = segment.term(term);
+            int start = segment.termPostingStart(term);
+            for (int posting = start; posting < start + segment.termPostingCount(term); posting++) {
+                builder.addPosting(text, segment.postingChunk(posting), segment.postingTf(posting));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 逐条收集页面与 chunk 后编译成数组索引，页面与 chunk 的添加顺序不限
+     */
+    public static final class Builder {
+
+        private final List<String> chunkIds = new ArrayList<>();
+        private final List<String> chunkDocIds = new ArrayList<>();
+        private final List<Integer> chunkPageNos = new ArrayList<>();
+        private final List<Integer> chunkPageSlots = new ArrayList<>();
+        private float[] dense = new float[0];
+        private boolean[] denseValid = new boolean[0];
+        private final Map<String, IntList> postingChunks = new LinkedHashMap<>();
+        private final Map<String, DoubleList> postingTf = new HashMap<>();
+        private final List<String> pageIds = new ArrayList<>();
+        private final List<PageRecord> pageRecords = new ArrayList<>();
+        private final Map<String, Integer> pageSlots = new HashMap<>();
+
+        public Builder addPage(String pageId, String docId, int pageNo, String pageText) {
+            int slot = pageSlot(pageId);
+            pageRecords.set(slot, new PageRecord(docId, pageNo, pageText));
+            return this;
+        }
+
+        /**
+         * @param denseVector 稠密向量，维度与 {@link #VECTOR_DIM} 不一致时该 chunk 的 dense 分按 0 计
+         * @param sparseTerms 稀疏词项，按存储顺序
+         */
+        public Builder addChunk(String chunkId, String pageId, String docId, int pageNo,
+                                float[] denseVector, Map<String, Double> sparseTerms) {
+            int chunk = chunkIds.size();
+            chunkIds.add(chunkId);
+            chunkDocIds.add(docId);
+            chunkPageNos.add(pageNo);
+            chunkPageSlots.add(pageSlot(pageId));
+            ensureDenseCapacity(chunk + 1);
+            if (denseVector != null && denseVector.length == VECTOR_DIM) {
+                System.arraycopy(denseVector, 0, dense, chunk * VECTOR_DIM, VECTOR_DIM);
+                denseValid[chunk] = true;
+            }
+            sparseTerms.forEach((term, tf) -> addPosting(term, chunk, tf));
+            return this;
+        }
+
+        /**
+         * 追加一条倒排记录，同一词项需按 chunk 添加顺序调用
+         */
+        Builder addPosting(String term, int chunk, double tf) {
+            postingChunks.computeIfAbsent(term, k -> new IntList()).add(chunk);
+            postingTf.computeIfAbsent(term, k -> new DoubleList()).add(tf);
+            return this;
+        }
+
+        private void addChunk(JsonNode chunk) {
+            JsonNode vector = chunk.path("dense_vector");
+            float[] denseVector = new float[vector.size()];
+            for (int i = 0; i < denseVector.length; i++) {
+                denseVector[i] = (float) vector.get(i).asDouble();
+            }
+            Map<String, Double> sparse = new LinkedHashMap<>();
+            chunk.path("sparse_terms").fields().forEachRemaining(e -> sparse.put(e.getKey(), e.getValue().asDouble()));
+            addChunk(chunk.path("chunk_id").asText(), chunk.path("page_id").asText(), chunk.path("doc_id").asText(),
+                    chunk.path("page_no").asInt(), denseVector, sparse);
+        }
+
+        public PageIndex build() {
+            return new PageIndex(this);
+        }
+
+        private int pageSlot(String pageId) {
+            return pageSlots.computeIfAbsent(pageId, id -> {
+                pageIds.add(id);
+                pageRecords.add(null);
+                return pageIds.size() - 1;
+            });
+        }
+
+        private void ensureDenseCapacity(int chunks) {
+            if (denseValid.length < chunks) {
+                int capacity = Math.max(chunks, denseValid.length * 2);
+                denseValid = Arrays.copyOf(denseValid, capacity);
+                dense = Arrays.copyOf(dense, capacity * VECTOR_DIM);
+            }
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class DoubleList {
+        private double[] values = new double[4];
+        private int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
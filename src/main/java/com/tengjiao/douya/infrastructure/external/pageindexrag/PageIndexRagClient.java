@@ -3,12 +3,12 @@ package com.tengjiao.douya.infrastructure.external.pageindexrag;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tengjiao.douya.infrastructure.config.PageIndexRagProperties;
+import com.tengjiao.douya.infrastructure.external.python.PythonProcessRunner;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -17,10 +17,10 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * PageIndexRAG PythonTool 脚本客户端（本地进程调用）。
+ * 常驻 worker 池可用时请求交给 {@link PythonWorkerPool}，否则每次调用启动对应的单次脚本。
  */
 @Slf4j
 @Component
@@ -37,24 +37,29 @@ public class PageIndexRagClient {
     private static final String ENV_TIMEOUT_SECONDS = "PAGE_INDEX_RAG_PYTHON_TIMEOUT_SECONDS";
 
     private final PageIndexRagProperties properties;
+    private final PythonWorkerPool workerPool;
+    private final PageIndexRagQueryEngine queryEngine;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public Map<String, Object> status() throws Exception {
         ensureEnabled();
         String script = resolveEnv(ENV_STATUS_SCRIPT, properties.getStatusScript());
-        return runScript(script, Map.of(), "PYTHON_SCRIPT_STATUS_FAILED");
+        return runScript("status", script, Map.of(), "PYTHON_SCRIPT_STATUS_FAILED");
     }
 
     public Map<String, Object> ingest(Map<String, Object> request) throws Exception {
         ensureEnabled();
         String script = resolveEnv(ENV_INGEST_SCRIPT, properties.getIngestScript());
-        return runScript(script, request == null ? Map.of() : request, "PYTHON_SCRIPT_INGEST_FAILED");
+        return runScript("ingest", script, request == null ? Map.of() : request, "PYTHON_SCRIPT_INGEST_FAILED");
     }
 
     public Map<String, Object> query(Map<String, Object> request) throws Exception {
         ensureEnabled();
+        if (queryEngine.isEnabled()) {
+            return queryEngine.query(enrichDataFile(request));
+        }
         String script = resolveEnv(ENV_QUERY_SCRIPT, properties.getQueryScript());
-        return runScript(script, request == null ? Map.of() : request, "PYTHON_SCRIPT_QUERY_FAILED");
+        return runScript("query", script, request == null ? Map.of() : request, "PYTHON_SCRIPT_QUERY_FAILED");
     }
 
     public Map<String, Object> ingestFile(
@@ -87,11 +92,14 @@ public class PageIndexRagClient {
         }
 
         String script = resolveEnv(ENV_INGEST_FILE_SCRIPT, properties.getIngestFileScript());
-        return runScript(script, payload, "PYTHON_SCRIPT_INGEST_FILE_FAILED");
+        return runScript("ingest_file", script, payload, "PYTHON_SCRIPT_INGEST_FILE_FAILED");
     }
 
-    private Map<String, Object> runScript(String script, Map<String, Object> payload, String defaultErrorCode)
+    private Map<String, Object> runScript(String op, String script, Map<String, Object> payload, String defaultErrorCode)
             throws Exception {
+        if (workerPool.isAvailable()) {
+            return workerPool.call(op, enrichDataFile(payload), resolveTimeoutSeconds());
+        }
         Path scriptPath = resolveScriptPath(script);
         if (!Files.exists(scriptPath)) {
             throw new IllegalStateException("PageIndexRAG 脚本不存在: " + scriptPath);
@@ -101,35 +109,21 @@ public class PageIndexRagClient {
         List<String> command = buildPythonCommand(scriptPath);
         log.info("page_index_rag_python_tool_run script={} command={}", scriptPath, command);
 
-        ProcessBuilder processBuilder = new ProcessBuilder(command);
-        processBuilder.directory(Path.of(System.getProperty("user.dir")).toFile());
-        Process process = processBuilder.start();
-
-        try (var outputStream = process.getOutputStream()) {
-            objectMapper.writeValue(outputStream, requestPayload);
-            outputStream.flush();
-        }
-
-        boolean finished = process.waitFor(resolveTimeoutSeconds(), TimeUnit.SECONDS);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new IllegalStateException("PageIndexRAG PythonTool 执行超时");
-        }
-
-        String stdout = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
-        String stderr = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        PythonProcessRunner runner = new PythonProcessRunner(objectMapper, properties.getPythonMaxOutputBytes());
+        PythonProcessRunner.Result<Map<String, Object>> processResult = runner.run(
+                command, Path.of(System.getProperty("user.dir")), requestPayload, resolveTimeoutSeconds(),
+                new TypeReference<>() {
+                });
 
-        if (process.exitValue() != 0) {
-            String reason = stderr.isBlank() ? stdout : stderr;
+        if (!processResult.success()) {
+            String reason = processResult.failureReason();
             throw new IllegalStateException(reason.isBlank() ? defaultErrorCode : reason);
         }
 
-        if (stdout.isBlank()) {
+        Map<String, Object> result = processResult.requireParsed();
+        if (result == null) {
             throw new IllegalStateException("PythonTool 返回为空");
         }
-
-        Map<String, Object> result = objectMapper.readValue(stdout, new TypeReference<>() {
-        });
         Object code = result.get("code");
         Object status = result.get("status");
         if ("FAILED".equals(String.valueOf(status)) || (code != null && !String.valueOf(code).isBlank())) {
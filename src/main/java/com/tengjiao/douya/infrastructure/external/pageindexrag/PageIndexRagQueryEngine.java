@@ -0,0 +1,154 @@
+package com.tengjiao.douya.infrastructure.external.pageindexrag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.infrastructure.config.PageIndexRagProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内 PageIndexRAG 查询引擎（{@code page-index-rag.query-engine=JAVA}）
+ * <p>
+ * 优先内存映射与 JSON 一致的 {@code page_index_store.seg} 索引段构建 {@link PageIndex}，没有或已过期时读取
+ * {@code page_index_store.json}；按 JSON 修改时间与大小缓存，入库脚本写入新快照后下一次查询自动重新加载。
+ * 请求参数的解析规则与 page_index_query.py 一致。
+ * 仅支持 lexical 重排：环境变量 RERANK_PROVIDER=bge 时不启用，仍交给 Python 执行。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PageIndexRagQueryEngine {
+
+    private static final String ENV_RERANK_PROVIDER = "RERANK_PROVIDER";
+    private static final int DEFAULT_TOP_K = 8;
+    private static final Set<String> TRUE_VALUES = Set.of("1", "true", "yes", "y");
+    private static final Set<String> FALSE_VALUES = Set.of("0", "false", "no", "n");
+
+    private final PageIndexRagProperties properties;
+    private final PageIndexRagStoreService storeService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile LoadedIndex loaded;
+
+    /**
+     * 是否由 Java 引擎处理查询
+     */
+    public boolean isEnabled() {
+        if (properties.getQueryEngine() != PageIndexRagProperties.QueryEngine.JAVA) {
+            return false;
+        }
+        String provider = System.getenv(ENV_RERANK_PROVIDER);
+        return provider == null || !"bge".equals(provider.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 执行查询
+     *
+     * @param request 与 page_index_query.py stdin 相同的请求体：query / top_k / with_debug / data_file
+     * @return 与脚本 stdout 相同结构的结果
+     * @throws IllegalArgumentException query 为空
+     */
+    public Map<String, Object> query(Map<String, Object> request) throws IOException {
+        Object rawQuery = request == null ? null : request.get("query");
+        String query = rawQuery == null ? "" : String.valueOf(rawQuery).strip();
+        if (query.isEmpty()) {
+            throw new IllegalArgumentException("query is required");
+        }
+        int topK = toInt(request.get("top_k"), DEFAULT_TOP_K);
+        boolean withDebug = toBool(request.get("with_debug"), true);
+
+        PageIndex index = index(resolveDataFile(request.get("data_file")));
+        long start = System.nanoTime();
+        Map<String, Object> result = index.query(query, topK, withDebug);
+        log.debug("page_index_rag_java_query chunks={} top_k={} cost={}us", index.chunkCount(), topK,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * 取数据文件对应的索引，文件未变化时复用已加载的索引
+     */
+    PageIndex index(Path dataFile) throws IOException {
+        FileStamp stamp = FileStamp.of(dataFile);
+        LoadedIndex current = loaded;
+        if (current != null && current.path().equals(dataFile) && current.stamp().equals(stamp)) {
+            return current.index();
+        }
+        synchronized (this) {
+            current = loaded;
+            if (current != null && current.path().equals(dataFile) && current.stamp().equals(stamp)) {
+                return current.index();
+            }
+            long start = System.nanoTime();
+            Optional<PageIndexSegment> segment = PageIndexSegment.openFor(dataFile);
+            PageIndex index = segment.isPresent() ? PageIndex.load(segment.get()) : PageIndex.load(dataFile, objectMapper);
+            loaded = new LoadedIndex(dataFile, stamp, index);
+            log.info("page_index_rag_java_index_loaded path={} source={} pages={} chunks={} cost={}ms", dataFile,
+                    segment.isPresent() ? "segment" : "json", index.pageCount(), index.chunkCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return index;
+        }
+    }
+
+    private Path resolveDataFile(Object rawDataFile) {
+        if (rawDataFile == null || String.valueOf(rawDataFile).isBlank()) {
+            return storeService.resolveDataFile();
+        }
+        String value = String.valueOf(rawDataFile).trim();
+        if (value.equals("~") || value.startsWith("~/")) {
+            value = System.getProperty("user.home") + value.substring(1);
+        }
+        return Path.of(value).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 对应脚本的 _to_int：可转为正整数则使用，否则回退默认值
+     */
+    private static int toInt(Object value, int defaultValue) {
+        long parsed;
+        if (value instanceof Boolean bool) {
+            parsed = bool ? 1 : 0;
+        } else if (value instanceof Number number) {
+            parsed = number.longValue();
+        } else if (value instanceof String text) {
+            try {
+                parsed = Long.parseLong(text.strip());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        } else {
+            return defaultValue;
+        }
+        return parsed > 0 && parsed <= Integer.MAX_VALUE ? (int) parsed : defaultValue;
+    }
+
+    /**
+     * 对应脚本的 _to_bool：只识别布尔值与常见真假字符串
+     */
+    private static boolean toBool(Object value, boolean defaultValue) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value instanceof String text) {
+            String lowered = text.strip().toLowerCase(Locale.ROOT);
+            if (TRUE_VALUES.contains(lowered)) {
+                return true;
+            }
+            if (FALSE_VALUES.contains(lowered)) {
+                return false;
+            }
+        }
+        return defaultValue;
+    }
+
+    private record LoadedIndex(Path path, FileStamp stamp, PageIndex index) {
+    }
+}
@@ -7,18 +7,28 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 读取/写入 PageIndexRAG 本地 JSON 存储快照（data/page_index_store.json）。
+ * <p>
+ * 只读接口优先使用与 JSON 一致的二进制索引段（page_index_store.seg），不解析向量与词项；
+ * 删除文档仍以 JSON 为准改写，并删除随之过期的索引段。
+ * <p>
+ * 只读接口共用一份按数据文件修改时间与大小缓存的目录（文档排序、按文档分组的页面与 chunk 计数），
+ * 文件未变化时不再解析，分页只复制当前页。
  */
 @Slf4j
 @Component
@@ -32,18 +42,17 @@ public class PageIndexRagStoreService {
     private final PageIndexRagProperties properties;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private volatile Catalog cachedCatalog;
+
     public Map<String, Object> getStatus() {
-        Map<String, Object> snapshot = loadSnapshot();
-        Map<String, Object> docs = asMap(snapshot.get("documents"));
-        Map<String, Object> pages = asMap(snapshot.get("pages"));
-        Map<String, Object> chunks = asMap(snapshot.get("chunks"));
+        Catalog catalog = catalog();
 
         Map<String, Object> result = new LinkedHashMap<>();
-        result.put("docs", docs.size());
-        result.put("pages", pages.size());
-        result.put("chunks", chunks.size());
-        result.put("updated_at", snapshot.get("updated_at"));
-        result.put("data_file", resolveDataFile().toString());
+        result.put("docs", catalog.documents().size());
+        result.put("pages", catalog.pageCount());
+        result.put("chunks", catalog.chunkCount());
+        result.put("updated_at", catalog.updatedAt());
+        result.put("data_file", catalog.dataFile().toString());
         return result;
     }
 
@@ -51,60 +60,26 @@ public class PageIndexRagStoreService {
         int pageSize = (limit != null && limit > 0) ? limit : 20;
         int pageOffset = (offset != null && offset >= 0) ? offset : 0;
 
-        Map<String, Object> snapshot = loadSnapshot();
-        Map<String, Object> docs = asMap(snapshot.get("documents"));
-        Map<String, Object> pages = asMap(snapshot.get("pages"));
-        Map<String, Object> chunks = asMap(snapshot.get("chunks"));
-
-        Map<String, Integer> pageCountByDoc = new LinkedHashMap<>();
-        for (Object pageObj : pages.values()) {
-            Map<String, Object> page = asMap(pageObj);
-            String docId = String.valueOf(page.getOrDefault("doc_id", ""));
-            if (docId.isBlank()) {
-                continue;
-            }
-            pageCountByDoc.put(docId, pageCountByDoc.getOrDefault(docId, 0) + 1);
+        Catalog catalog = catalog();
+        List<Map<String, Object>> allItems = catalog.documents();
+        if (keyword != null && !keyword.isBlank()) {
+            allItems = allItems.stream().filter(item -> matchesKeyword(item, keyword)).toList();
         }
 
-        Map<String, Integer> chunkCountByDoc = new LinkedHashMap<>();
-        for (Object chunkObj : chunks.values()) {
-            Map<String, Object> chunk = asMap(chunkObj);
-            String docId = String.valueOf(chunk.getOrDefault("doc_id", ""));
-            if (docId.isBlank()) {
-                continue;
-            }
-            chunkCountByDoc.put(docId, chunkCountByDoc.getOrDefault(docId, 0) + 1);
-        }
-
-        List<Map<String, Object>> allItems = new ArrayList<>();
-        for (Map.Entry<String, Object> entry : docs.entrySet()) {
-            String docId = entry.getKey();
-            Map<String, Object> doc = asMap(entry.getValue());
-            Map<String, Object> item = new LinkedHashMap<>(doc);
-            item.putIfAbsent("doc_id", docId);
-            item.put("page_count", pageCountByDoc.getOrDefault(docId, 0));
-            item.put("chunk_count", chunkCountByDoc.getOrDefault(docId, 0));
-            if (matchesKeyword(item, keyword)) {
-                allItems.add(item);
-            }
-        }
-
-        allItems.sort(Comparator.<Map<String, Object>, String>comparing(
-                item -> String.valueOf(item.getOrDefault("updated_at", "")),
-                Comparator.nullsLast(String::compareTo)
-        ).reversed());
-
         int total = allItems.size();
         int from = Math.min(pageOffset, total);
         int to = Math.min(from + pageSize, total);
-        List<Map<String, Object>> pageItems = allItems.subList(from, to);
+        List<Map<String, Object>> pageItems = new ArrayList<>(to - from);
+        for (Map<String, Object> item : allItems.subList(from, to)) {
+            pageItems.add(new LinkedHashMap<>(item));
+        }
 
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("limit", pageSize);
         result.put("offset", pageOffset);
         result.put("total", total);
         result.put("items", pageItems);
-        result.put("data_file", resolveDataFile().toString());
+        result.put("data_file", catalog.dataFile().toString());
         return result;
     }
 
@@ -113,42 +88,23 @@ public class PageIndexRagStoreService {
             return Map.of("error", "docId 不能为空");
         }
 
-        Map<String, Object> snapshot = loadSnapshot();
-        Map<String, Object> docs = asMap(snapshot.get("documents"));
-        Map<String, Object> pages = asMap(snapshot.get("pages"));
-        Map<String, Object> chunks = asMap(snapshot.get("chunks"));
-
-        Object rawDoc = docs.get(docId);
+        Catalog catalog = catalog();
+        Map<String, Object> rawDoc = catalog.documentsById().get(docId);
         if (rawDoc == null) {
             return Map.of("error", "未找到文档: " + docId);
         }
 
-        Map<String, Object> document = new LinkedHashMap<>(asMap(rawDoc));
-        document.putIfAbsent("doc_id", docId);
-
         List<Map<String, Object>> pageList = new ArrayList<>();
-        for (Object pageObj : pages.values()) {
-            Map<String, Object> page = asMap(pageObj);
-            if (docId.equals(String.valueOf(page.get("doc_id")))) {
-                pageList.add(new LinkedHashMap<>(page));
-            }
-        }
-        pageList.sort(Comparator.comparingInt(this::extractPageNo));
-
-        int chunkCount = 0;
-        for (Object chunkObj : chunks.values()) {
-            Map<String, Object> chunk = asMap(chunkObj);
-            if (docId.equals(String.valueOf(chunk.get("doc_id")))) {
-                chunkCount++;
-            }
+        for (Map<String, Object> page : catalog.pagesByDoc().getOrDefault(docId, List.of())) {
+            pageList.add(new LinkedHashMap<>(page));
         }
 
         Map<String, Object> result = new LinkedHashMap<>();
-        result.put("document", document);
+        result.put("document", new LinkedHashMap<>(rawDoc));
         result.put("pages", pageList);
         result.put("page_count", pageList.size());
-        result.put("chunk_count", chunkCount);
-        result.put("data_file", resolveDataFile().toString());
+        result.put("chunk_count", catalog.chunkCountByDoc().getOrDefault(docId, 0));
+        result.put("data_file", catalog.dataFile().toString());
         return result;
     }
 
@@ -157,6 +113,11 @@ public class PageIndexRagStoreService {
             return Map.of("error", "docId 不能为空");
         }
 
+        // 先用缓存判断文档是否存在，不存在时无需解析整个 JSON
+        if (!catalog().documentsById().containsKey(docId)) {
+            return Map.of("error", "未找到文档: " + docId);
+        }
+
         Map<String, Object> snapshot = loadSnapshot();
         Map<String, Object> docs = asMap(snapshot.get("documents"));
         Map<String, Object> pages = asMap(snapshot.get("pages"));
@@ -215,30 +176,180 @@ public class PageIndexRagStoreService {
         return resolvePath(Path.of(dataDir, DEFAULT_DATA_FILE_NAME).toString());
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> loadSnapshot() {
+    /**
+     * 取只读接口使用的目录缓存；数据文件修改时间或大小变化时重新加载
+     */
+    private Catalog catalog() {
         Path dataFile = resolveDataFile();
-        if (!Files.exists(dataFile)) {
-            return emptySnapshot();
+        FileStamp stamp = null;
+        try {
+            stamp = FileStamp.of(dataFile);
+        } catch (IOException e) {
+            // 取不到文件戳时照常加载，但不缓存
+            log.warn("page_index_rag_snapshot_stat_failed path={} error={}", dataFile, e.getMessage());
+        }
+        Catalog current = cachedCatalog;
+        if (current != null && current.isFor(dataFile, stamp)) {
+            return current;
+        }
+        synchronized (this) {
+            current = cachedCatalog;
+            if (current != null && current.isFor(dataFile, stamp)) {
+                return current;
+            }
+            long start = System.nanoTime();
+            Map<String, Object> snapshot;
+            try {
+                snapshot = loadCatalogSnapshot(dataFile);
+            } catch (Exception e) {
+                // 解析失败（如文件正在被改写）不缓存，下次调用重试
+                log.error("page_index_rag_snapshot_load_failed path={} error={}", dataFile, e.getMessage(), e);
+                return buildCatalog(dataFile, null, emptySnapshot());
+            }
+            Catalog built = buildCatalog(dataFile, stamp, snapshot);
+            if (stamp != null) {
+                cachedCatalog = built;
+            }
+            log.info("page_index_rag_catalog_loaded path={} docs={} pages={} chunks={} cost={}ms", dataFile,
+                    built.documents().size(), built.pageCount(), built.chunkCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return built;
+        }
+    }
+
+    /**
+     * 只读接口使用的快照：索引段与 JSON 一致时从索引段构建（chunk 只含元数据字段），否则解析 JSON
+     */
+    private Map<String, Object> loadCatalogSnapshot(Path dataFile) throws IOException {
+        Optional<PageIndexSegment> segment = PageIndexSegment.openFor(dataFile);
+        if (segment.isPresent()) {
+            try {
+                return catalogOf(segment.get());
+            } catch (Exception e) {
+                log.warn("page_index_rag_segment_catalog_failed path={} error={}", segment.get().path(), e.getMessage());
+            }
         }
+        return readSnapshot(dataFile);
+    }
+
+    /**
+     * 预先按 doc_id 分组页面、统计 chunk，并把文档列表按 updated_at 倒序排好，分页时只复制当前页
+     */
+    private Catalog buildCatalog(Path dataFile, FileStamp stamp, Map<String, Object> snapshot) {
+        Map<String, Object> docs = asMap(snapshot.get("documents"));
+        Map<String, Object> pages = asMap(snapshot.get("pages"));
+        Map<String, Object> chunks = asMap(snapshot.get("chunks"));
+
+        Map<String, List<Map<String, Object>>> pagesByDoc = new HashMap<>();
+        for (Object pageObj : pages.values()) {
+            Map<String, Object> page = asMap(pageObj);
+            String docId = String.valueOf(page.getOrDefault("doc_id", ""));
+            if (docId.isBlank()) {
+                continue;
+            }
+            pagesByDoc.computeIfAbsent(docId, k -> new ArrayList<>()).add(page);
+        }
+        pagesByDoc.values().forEach(list -> list.sort(Comparator.comparingInt(this::extractPageNo)));
+
+        Map<String, Integer> chunkCountByDoc = new HashMap<>();
+        for (Object chunkObj : chunks.values()) {
+            Map<String, Object> chunk = asMap(chunkObj);
+            String docId = String.valueOf(chunk.getOrDefault("doc_id", ""));
+            if (docId.isBlank()) {
+                continue;
+            }
+            chunkCountByDoc.merge(docId, 1, Integer::sum);
+        }
+
+        Map<String, Map<String, Object>> documentsById = new LinkedHashMap<>();
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : docs.entrySet()) {
+            String docId = entry.getKey();
+            Map<String, Object> document = new LinkedHashMap<>(asMap(entry.getValue()));
+            document.putIfAbsent("doc_id", docId);
+            documentsById.put(docId, document);
+
+            Map<String, Object> item = new LinkedHashMap<>(document);
+            item.put("page_count", pagesByDoc.getOrDefault(docId, List.of()).size());
+            item.put("chunk_count", chunkCountByDoc.getOrDefault(docId, 0));
+            items.add(item);
+        }
+        items.sort(Comparator.<Map<String, Object>, String>comparing(
+                item -> String.valueOf(item.getOrDefault("updated_at", "")),
+                Comparator.nullsLast(String::compareTo)
+        ).reversed());
+
+        return new Catalog(dataFile, stamp, List.copyOf(items), documentsById, pagesByDoc, chunkCountByDoc,
+                pages.size(), chunks.size(), snapshot.get("updated_at"));
+    }
+
+    private Map<String, Object> catalogOf(PageIndexSegment segment) throws IOException {
+        Map<String, Object> documents = new LinkedHashMap<>();
+        for (int doc = 0; doc < segment.docCount(); doc++) {
+            documents.put(segment.docId(doc), objectMapper.readValue(segment.documentJson(doc),
+                    new TypeReference<Map<String, Object>>() {
+                    }));
+        }
+        Map<String, Object> pages = new LinkedHashMap<>();
+        for (int page = 0; page < segment.pageCount(); page++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("page_id", segment.pageId(page));
+            item.put("doc_id", segment.pageDocId(page));
+            item.put("page_no", segment.pageNo(page));
+            item.put("page_text", segment.pageText(page));
+            item.put("page_summary", segment.pageSummary(page));
+            item.put("keywords", objectMapper.readValue(segment.pageKeywordsJson(page), new TypeReference<List<String>>() {
+            }));
+            pages.put(segment.pageId(page), item);
+        }
+        Map<String, Object> chunks = new LinkedHashMap<>();
+        for (int chunk = 0; chunk < segment.chunkCount(); chunk++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("chunk_id", segment.chunkId(chunk));
+            item.put("page_id", segment.chunkPageId(chunk));
+            item.put("doc_id", segment.chunkDocId(chunk));
+            item.put("page_no", segment.chunkPageNo(chunk));
+            item.put("chunk_no", segment.chunkNo(chunk));
+            chunks.put(segment.chunkId(chunk), item);
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("documents", documents);
+        snapshot.put("pages", pages);
+        snapshot.put("chunks", chunks);
+        snapshot.put("updated_at", segment.updatedAt());
+        return snapshot;
+    }
+
+    private Map<String, Object> loadSnapshot() {
+        Path dataFile = resolveDataFile();
         try {
-            Map<String, Object> snapshot = objectMapper.readValue(dataFile.toFile(), new TypeReference<>() {
-            });
-            snapshot.putIfAbsent("documents", new LinkedHashMap<>());
-            snapshot.putIfAbsent("pages", new LinkedHashMap<>());
-            snapshot.putIfAbsent("chunks", new LinkedHashMap<>());
-            return snapshot;
+            return readSnapshot(dataFile);
         } catch (Exception e) {
             log.error("page_index_rag_snapshot_load_failed path={} error={}", dataFile, e.getMessage(), e);
             return emptySnapshot();
         }
     }
 
+    private Map<String, Object> readSnapshot(Path dataFile) throws IOException {
+        if (!Files.exists(dataFile)) {
+            return emptySnapshot();
+        }
+        Map<String, Object> snapshot = objectMapper.readValue(dataFile.toFile(), new TypeReference<>() {
+        });
+        snapshot.putIfAbsent("documents", new LinkedHashMap<>());
+        snapshot.putIfAbsent("pages", new LinkedHashMap<>());
+        snapshot.putIfAbsent("chunks", new LinkedHashMap<>());
+        return snapshot;
+    }
+
     private void saveSnapshot(Map<String, Object> snapshot) {
         Path dataFile = resolveDataFile();
         try {
             Files.createDirectories(dataFile.getParent());
             objectMapper.writerWithDefaultPrettyPrinter().writeValue(dataFile.toFile(), snapshot);
+            // JSON 已改写，旧索引段随之过期；下次入库或执行 page_index_build_segment.py 时重新生成
+            Files.deleteIfExists(PageIndexSegment.segmentPath(dataFile));
+            cachedCatalog = null;
         } catch (Exception e) {
             throw new IllegalStateException("写入 PageIndexRAG 数据文件失败: " + e.getMessage(), e);
         }
@@ -301,4 +412,18 @@ public class PageIndexRagStoreService {
     private boolean hasText(String value) {
         return value != null && !value.isBlank();
     }
+
+    /**
+     * 某个数据文件版本的只读目录：documents 已按 updated_at 倒序，pagesByDoc 内按页码排序；内容不可修改，返回前需复制
+     */
+    private record Catalog(Path dataFile, FileStamp stamp, List<Map<String, Object>> documents,
+                           Map<String, Map<String, Object>> documentsById,
+                           Map<String, List<Map<String, Object>>> pagesByDoc,
+                           Map<String, Integer> chunkCountByDoc,
+                           int pageCount, int chunkCount, Object updatedAt) {
+
+        boolean isFor(Path file, FileStamp fileStamp) {
+            return stamp != null && dataFile.equals(file) && stamp.equals(fileStamp);
+        }
+    }
 }
@@ -0,0 +1,142 @@
+package com.tengjiao.douya.infrastructure.external.pageindexrag;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PageIndexRAG 文本与打分函数的 Java 实现，逐项对应 {@code apps/python-rag/app/indexing/chunker.py}
+ * 与 {@code app/core/retrieval.py}。
+ * <p>
+ * 浮点运算顺序与 Python 保持一致（累加顺序、先乘后除），同一输入得到相同的分数。
+ */
+public final class PageIndexScoring {
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("[\\u4e00-\\u9fff]|[A-Za-z0-9_]+");
+    private static final Pattern EXTRA_BLANK_LINES = Pattern.compile("\n{3,}");
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private PageIndexScoring() {
+    }
+
+    /**
+     * 对应 normalize_text：统一换行、压缩连续空行、去掉首尾空白
+     */
+    public static String normalizeText(String text) {
+        String compact = text.replace("\r\n", "\n").replace("\r", "\n");
+        compact = EXTRA_BLANK_LINES.matcher(compact).replaceAll("\n\n");
+        return pythonStrip(compact);
+    }
+
+    /**
+     * 对应 tokenize：单个汉字或连续的 ASCII 字母数字下划线，统一小写
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN_PATTERN.matcher(text);
+        while (matcher.find()) {
+            tokens.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    /**
+     * 对应 sparse_terms：词频占比，按首次出现顺序排列
+     */
+    public static LinkedHashMap<String, Double> sparseTerms(List<String> tokens) {
+        LinkedHashMap<String, Integer> counts = new LinkedHashMap<>();
+        for (String token : tokens) {
+            counts.merge(token, 1, Integer::sum);
+        }
+        LinkedHashMap<String, Double> tf = new LinkedHashMap<>();
+        double total = tokens.size();
+        counts.forEach((term, count) -> tf.put(term, count / total));
+        return tf;
+    }
+
+    /**
+     * 对应 hash_embedding：token 的 sha256 前 4 字节决定维度，第 5 字节奇偶决定符号，最后 L2 归一化
+     */
+    public static double[] hashEmbedding(List<String> tokens, int dim) {
+        double[] vec = new double[dim];
+        if (tokens.isEmpty()) {
+            return vec;
+        }
+        MessageDigest digest = SHA256.get();
+        for (String token : tokens) {
+            byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            long prefix = ((hash[0] & 0xFFL) << 24) | ((hash[1] & 0xFFL) << 16) | ((hash[2] & 0xFFL) << 8) | (hash[3] & 0xFFL);
+            int idx = (int) (prefix % dim);
+            vec[idx] += (hash[4] & 0xFF) % 2 == 0 ? 1.0 : -1.0;
+        }
+        double sum = 0.0;
+        for (double v : vec) {
+            sum += v * v;
+        }
+        double norm = Math.sqrt(sum);
+        if (norm == 0) {
+            return vec;
+        }
+        for (int i = 0; i < dim; i++) {
+            vec[i] = vec[i] / norm;
+        }
+        return vec;
+    }
+
+    /**
+     * 对应 build_idf 中单个词的公式：log(1 + (n - df + 0.5) / (df + 0.5))
+     */
+    public static double idf(int documentCount, int documentFrequency) {
+        int n = Math.max(documentCount, 1);
+        return Math.log(1 + (n - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * 对应 sparse_similarity：只对查询与文档都出现的词累加 q_tf * d_tf * idf
+     */
+    public static double sparseSimilarity(Map<String, Double> queryTerms, Map<String, Double> docTerms,
+                                          Map<String, Double> idf) {
+        double score = 0.0;
+        for (Map.Entry<String, Double> entry : queryTerms.entrySet()) {
+            Double docTf = docTerms.get(entry.getKey());
+            if (docTf == null) {
+                continue;
+            }
+            score += entry.getValue() * docTf * idf.getOrDefault(entry.getKey(), 1.0);
+        }
+        return score;
+    }
+
+    /**
+     * Python str.strip() 的空白定义比 String.strip() 宽（含 NBSP 等 Zs 字符）
+     */
+    private static String pythonStrip(String text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && isPythonSpace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && isPythonSpace(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(start, end);
+    }
+
+    private static boolean isPythonSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\u0085';
+    }
+}
@@ -0,0 +1,334 @@
+package com.tengjiao.douya.infrastructure.external.pageindexrag;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * PageIndexRAG 二进制索引段（{@code page_index_store.seg}）的只读视图
+ * <p>
+ * 文件由 Python 侧 {@code app/storage/segment.py} 随 JSON 快照一起写出，布局见该文件说明：
+ * 64 字节 header、8 个 section（字符串池、文档/页面/chunk 定长表、float32 向量块、词典与倒排表），小端序。
+ * 通过 {@link FileChannel#map} 映射后按偏移读取，不解析数字文本；header 记录了生成时 JSON 的修改时间与大小，
+ * 与当前 JSON 不一致说明 JSON 已被改写（如 Java 侧删除文档），此时应回退到 JSON。
+ */
+@Slf4j
+public final class PageIndexSegment {
+
+    static final int VERSION = 1;
+    private static final byte[] MAGIC = "PIDXSEG1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 64;
+    private static final int SECTION_COUNT = 8;
+    private static final long NULL_LENGTH = 0xFFFFFFFFL;
+
+    private static final int STRINGS = 0;
+    private static final int DOCS = 1;
+    private static final int PAGES = 2;
+    private static final int CHUNKS = 3;
+    private static final int VECTORS = 4;
+    private static final int TERMS = 5;
+    private static final int POSTING_CHUNKS = 6;
+    private static final int POSTING_TF = 7;
+
+    private static final int DOC_SIZE = 16;
+    private static final int PAGE_SIZE = 48;
+    private static final int CHUNK_SIZE = 56;
+    private static final int TERM_SIZE = 16;
+    private static final int FLAG_DENSE_VALID = 1;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int vectorDim;
+    private final int docCount;
+    private final int pageCount;
+    private final int chunkCount;
+    private final int termCount;
+    private final int postingCount;
+    private final long sourceModifiedNanos;
+    private final long sourceSize;
+    private final String updatedAt;
+    private final long[] sectionOffsets = new long[SECTION_COUNT];
+
+    private PageIndexSegment(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE + SECTION_COUNT * 16) {
+            throw new IOException("PageIndexRAG 索引段过短: " + path);
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("不是 PageIndexRAG 索引段: " + path);
+        }
+        int version = buffer.getInt(8);
+        if (version != VERSION) {
+            throw new IOException("不支持的 PageIndexRAG 索引段版本 " + version + ": " + path);
+        }
+        this.vectorDim = buffer.getInt(12);
+        this.docCount = buffer.getInt(16);
+        this.pageCount = buffer.getInt(20);
+        this.chunkCount = buffer.getInt(24);
+        this.termCount = buffer.getInt(28);
+        this.postingCount = buffer.getInt(32);
+        this.sourceModifiedNanos = buffer.getLong(40);
+        this.sourceSize = buffer.getLong(48);
+        long[] expectedLengths = {-1, (long) docCount * DOC_SIZE, (long) pageCount * PAGE_SIZE,
+                (long) chunkCount * CHUNK_SIZE, (long) chunkCount * vectorDim * Float.BYTES,
+                (long) termCount * TERM_SIZE, (long) postingCount * Integer.BYTES, (long) postingCount * Double.BYTES};
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            long offset = buffer.getLong(HEADER_SIZE + i * 16);
+            long length = buffer.getLong(HEADER_SIZE + i * 16 + 8);
+            if (offset < 0 || length < 0 || offset + length > buffer.capacity()
+                    || (expectedLengths[i] >= 0 && expectedLengths[i] != length)) {
+                throw new IOException("PageIndexRAG 索引段 section " + i + " 越界或长度不符: " + path);
+            }
+            sectionOffsets[i] = offset;
+        }
+        this.updatedAt = string(56);
+    }
+
+    /**
+     * JSON 快照对应的索引段路径：同目录同名，扩展名换成 .seg（与 Python Path.with_suffix 一致）
+     */
+    public static Path segmentPath(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return dataFile.resolveSibling(base + ".seg");
+    }
+
+    /**
+     * 映射索引段文件，不检查是否与 JSON 一致
+     *
+     * @throws IOException 文件不存在、格式或版本不符
+     */
+    public static PageIndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new PageIndexSegment(file, mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * 打开 JSON 快照旁边的索引段；索引段不存在、已过期或损坏时返回空，调用方回退到 JSON
+     */
+    public static Optional<PageIndexSegment> openFor(Path dataFile) {
+        Path file = segmentPath(dataFile);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            PageIndexSegment segment = open(file);
+            if (segment.matches(dataFile)) {
+                return Optional.of(segment);
+            }
+            log.debug("page_index_rag_segment_stale path={}", file);
+        } catch (IOException e) {
+            log.warn("page_index_rag_segment_open_failed path={} error={}", file, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 索引段是否由当前 JSON 文件生成（修改时间精确到纳秒且大小相同）
+     */
+    public boolean matches(Path dataFile) {
+        try {
+            return new FileStamp(sourceModifiedNanos, sourceSize).equals(FileStamp.of(dataFile));
+        } catch (IOException e) {
+            log.warn("page_index_rag_segment_stat_failed path={} error={}", dataFile, e.getMessage());
+            return false;
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int vectorDim() {
+        return vectorDim;
+    }
+
+    public int docCount() {
+        return docCount;
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public long sourceModifiedNanos() {
+        return sourceModifiedNanos;
+    }
+
+    public String updatedAt() {
+        return updatedAt;
+    }
+
+    public String docId(int doc) {
+        return string(record(DOCS, DOC_SIZE, doc));
+    }
+
+    /**
+     * 文档元数据（doc_name / version / metadata / created_at / updated_at）的 JSON 文本
+     */
+    public String documentJson(int doc) {
+        return string(record(DOCS, DOC_SIZE, doc) + 8);
+    }
+
+    public String pageId(int page) {
+        return string(record(PAGES, PAGE_SIZE, page));
+    }
+
+    public String pageDocId(int page) {
+        return string(record(PAGES, PAGE_SIZE, page) + 8);
+    }
+
+    public int pageNo(int page) {
+        return buffer.getInt(record(PAGES, PAGE_SIZE, page) + 16);
+    }
+
+    public String pageText(int page) {
+        return string(record(PAGES, PAGE_SIZE, page) + 20);
+    }
+
+    public String pageSummary(int page) {
+        return string(record(PAGES, PAGE_SIZE, page) + 28);
+    }
+
+    /**
+     * 页面关键词列表的 JSON 文本
+     */
+    public String pageKeywordsJson(int page) {
+        return string(record(PAGES, PAGE_SIZE, page) + 36);
+    }
+
+    public String chunkId(int chunk) {
+        return string(record(CHUNKS, CHUNK_SIZE, chunk));
+    }
+
+    public String chunkPageId(int chunk) {
+        return string(record(CHUNKS, CHUNK_SIZE, chunk) + 8);
+    }
+
+    public String chunkDocId(int chunk) {
+        return string(record(CHUNKS, CHUNK_SIZE, chunk) + 16);
+    }
+
+    public String chunkText(int chunk) {
+        return string(record(CHUNKS, CHUNK_SIZE, chunk) + 24);
+    }
+
+    public int chunkPageNo(int chunk) {
+        return buffer.getInt(record(CHUNKS, CHUNK_SIZE, chunk) + 32);
+    }
+
+    public int chunkNo(int chunk) {
+        return buffer.getInt(record(CHUNKS, CHUNK_SIZE, chunk) + 36);
+    }
+
+    public int chunkOffsetStart(int chunk) {
+        return buffer.getInt(record(CHUNKS, CHUNK_SIZE, chunk) + 40);
+    }
+
+    public int chunkOffsetEnd(int chunk) {
+        return buffer.getInt(record(CHUNKS, CHUNK_SIZE, chunk) + 44);
+    }
+
+    public int chunkTokenCount(int chunk) {
+        return buffer.getInt(record(CHUNKS, CHUNK_SIZE, chunk) + 48);
+    }
+
+    /**
+     * 原始 dense_vector 维度是否等于 {@link #vectorDim()}；不等时向量块中该行为 0
+     */
+    public boolean chunkDenseValid(int chunk) {
+        return (buffer.getInt(record(CHUNKS, CHUNK_SIZE, chunk) + 52) & FLAG_DENSE_VALID) != 0;
+    }
+
+    /**
+     * 把 chunk 的稠密向量复制到 target[offset, offset + vectorDim)
+     */
+    public void readVector(int chunk, float[] target, int offset) {
+        checkIndex(chunk, chunkCount);
+        buffer.slice(Math.toIntExact(sectionOffsets[VECTORS] + (long) chunk * vectorDim * Float.BYTES),
+                        vectorDim * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer()
+                .get(target, offset, vectorDim);
+    }
+
+    public String term(int term) {
+        return string(record(TERMS, TERM_SIZE, term));
+    }
+
+    /**
+     * 词项倒排表在 POSTING_* 数组中的起始下标
+     */
+    public int termPostingStart(int term) {
+        return buffer.getInt(record(TERMS, TERM_SIZE, term) + 8);
+    }
+
+    public int termPostingCount(int term) {
+        return buffer.getInt(record(TERMS, TERM_SIZE, term) + 12);
+    }
+
+    public int postingChunk(int posting) {
+        checkIndex(posting, postingCount);
+        return buffer.getInt(Math.toIntExact(sectionOffsets[POSTING_CHUNKS] + (long) posting * Integer.BYTES));
+    }
+
+    public double postingTf(int posting) {
+        checkIndex(posting, postingCount);
+        return buffer.getDouble(Math.toIntExact(sectionOffsets[POSTING_TF] + (long) posting * Double.BYTES));
+    }
+
+    private int record(int section, int size, int index) {
+        int count = switch (section) {
+            case DOCS -> docCount;
+            case PAGES -> pageCount;
+            case CHUNKS -> chunkCount;
+            default -> termCount;
+        };
+        checkIndex(index, count);
+        return Math.toIntExact(sectionOffsets[section] + (long) index * size);
+    }
+
+    /**
+     * 读取 position 处的 string ref：(offset u32, length u32)，length=0xFFFFFFFF 表示 null
+     */
+    private String string(int position) {
+        long offset = Integer.toUnsignedLong(buffer.getInt(position));
+        long length = Integer.toUnsignedLong(buffer.getInt(position + 4));
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.toIntExact(length)];
+        buffer.get(Math.toIntExact(sectionOffsets[STRINGS] + offset), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkIndex(int index, int count) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index + " / " + count);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.tengjiao.douya.infrastructure.external.pageindexrag;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.infrastructure.config.PageIndexRagProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PageIndexRAG 常驻 Python worker 池
+ * <p>
+ * 每个 worker 是一个长期运行的 {@code page_index_worker.py} 进程，经 stdin/stdout 以换行分隔的 JSON 通信，
+ * 解释器启动、模块导入与索引文件加载只发生一次。worker 被独占借出，一次只处理一个请求：
+ * <ul>
+ *     <li>按需启动，最多 {@code workerPoolSize} 个；借出时发现进程已退出则丢弃并重启</li>
+ *     <li>单次请求超时后强制结束该 worker（协议流已无法对齐），下次借用时重新启动</li>
+ *     <li>后台定期对空闲 worker 发送 ping，无响应的 worker 被回收</li>
+ * </ul>
+ * stderr 由虚拟线程持续读取写入日志，避免管道写满阻塞子进程。
+ */
+@Slf4j
+@Component
+public class PythonWorkerPool {
+
+    private static final String ENV_PYTHON_COMMAND = "PAGE_INDEX_RAG_PYTHON_COMMAND";
+    private static final String ENV_PYTHON_EXECUTABLE = "PAGE_INDEX_RAG_PYTHON_EXECUTABLE";
+    private static final String ENV_WORKER_SCRIPT = "PAGE_INDEX_RAG_WORKER_SCRIPT";
+    private static final long PING_TIMEOUT_SECONDS = 5;
+    private static final int STDERR_TAIL_LINES = 20;
+
+    private final PageIndexRagProperties properties;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private final AtomicLong requestIds = new AtomicLong();
+    private final ScheduledExecutorService healthChecker;
+    private volatile boolean closed;
+
+    public PythonWorkerPool(PageIndexRagProperties properties) {
+        this.properties = properties;
+        this.permits = new Semaphore(Math.max(1, properties.getWorkerPoolSize()), true);
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofVirtual().name("python-worker-health-", 0).factory());
+        long interval = properties.getWorkerHealthCheckIntervalSeconds();
+        if (interval > 0) {
+            healthChecker.scheduleWithFixedDelay(this::checkIdleWorkers, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * worker 池是否可用：开关打开且 worker 脚本存在
+     */
+    public boolean isAvailable() {
+        Path scriptPath = resolveScriptPath();
+        return properties.isWorkerPoolEnabled() && !closed && scriptPath != null && Files.isRegularFile(scriptPath);
+    }
+
+    /**
+     * 借用一个 worker 执行请求
+     *
+     * @param op             worker 操作：query / status / ingest / ingest_file
+     * @param payload        与单次脚本 stdin 相同的请求体
+     * @param timeoutSeconds 单次请求超时，包括等待空闲 worker 的时间
+     * @return 与单次脚本 stdout 相同的结果 JSON
+     * @throws IllegalStateException worker 返回失败（消息为错误 JSON，与单次脚本一致）、超时或进程异常退出
+     */
+    public Map<String, Object> call(String op, Map<String, Object> payload, long timeoutSeconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, timeoutSeconds));
+        if (!permits.tryAcquire(Math.max(1, timeoutSeconds), TimeUnit.SECONDS)) {
+            throw new IllegalStateException("PageIndexRAG worker 繁忙，等待超时");
+        }
+        Worker worker = null;
+        try {
+            worker = borrow();
+            WorkerResponse response = worker.request(op, payload, deadline);
+            if (!response.ok()) {
+                throw new IllegalStateException(objectMapper.writeValueAsString(response.result()));
+            }
+            return response.result();
+        } finally {
+            if (worker != null) {
+                if (worker.isAlive() && !closed) {
+                    idle.offerFirst(worker);
+                } else {
+                    worker.destroy();
+                }
+            }
+            permits.release();
+        }
+    }
+
+    private Worker borrow() throws IOException, InterruptedException {
+        Worker worker;
+        while ((worker = idle.pollFirst()) != null) {
+            if (worker.isAlive()) {
+                return worker;
+            }
+            log.warn("[PythonWorker] pid={} 已退出(exit={})，重新启动", worker.pid(), worker.exitValue());
+            worker.destroy();
+        }
+        return startWorker();
+    }
+
+    private Worker startWorker() throws IOException, InterruptedException {
+        Path scriptPath = resolveScriptPath();
+        if (scriptPath == null || !Files.isRegularFile(scriptPath)) {
+            throw new IllegalStateException("PageIndexRAG worker 脚本不存在: " + scriptPath);
+        }
+        List<String> command = buildPythonCommand(scriptPath);
+        long start = System.nanoTime();
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(Path.of(System.getProperty("user.dir")).toFile());
+        Worker worker = new Worker(processBuilder.start());
+        long startupDeadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(Math.max(1, properties.getWorkerStartupTimeoutSeconds()));
+        String ready = worker.readLine(startupDeadline);
+        if (ready == null || !ready.contains("\"ready\"")) {
+            worker.destroy();
+            throw new IllegalStateException("PageIndexRAG worker 启动失败: " + (ready == null ? "无响应" : ready));
+        }
+        log.info("[PythonWorker] 启动 pid={} 耗时 {} ms command={}", worker.pid(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), command);
+        return worker;
+    }
+
+    /**
+     * 对空闲 worker 做存活与 ping 检查，只检查当前可立即借出的 worker，不与业务请求争抢
+     */
+    void checkIdleWorkers() {
+        int size = idle.size();
+        for (int i = 0; i < size && permits.tryAcquire(); i++) {
+            Worker worker = idle.pollLast();
+            try {
+                if (worker == null) {
+                    return;
+                }
+                boolean healthy = false;
+                if (worker.isAlive()) {
+                    try {
+                        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(PING_TIMEOUT_SECONDS);
+                        healthy = worker.request("ping", Map.of(), deadline).ok();
+                    } catch (Exception e) {
+                        log.warn("[PythonWorker] pid={} 健康检查失败: {}", worker.pid(), e.getMessage());
+                    }
+                }
+                if (healthy && !closed) {
+                    idle.offerFirst(worker);
+                } else {
+                    log.warn("[PythonWorker] pid={} 不健康，已回收", worker.pid());
+                    worker.destroy();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 当前空闲 worker 数
+     */
+    public int idleCount() {
+        return idle.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        healthChecker.shutdownNow();
+        Worker worker;
+        while ((worker = idle.pollFirst()) != null) {
+            worker.destroy();
+        }
+    }
+
+    private record WorkerResponse(boolean ok, Map<String, Object> result) {
+    }
+
+    /**
+     * 单个 worker 进程：stdout 由读线程逐行放入队列，请求方按截止时间等待
+     */
+    private final class Worker {
+
+        private static final String EOF = new String("EOF");
+
+        private final Process process;
+        private final BufferedWriter stdin;
+        private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private final ArrayDeque<String> stderrTail = new ArrayDeque<>();
+        private volatile boolean broken;
+
+        Worker(Process process) {
+            this.process = process;
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            Thread.ofVirtual().name("python-worker-out-" + process.pid()).start(this::pumpStdout);
+            Thread.ofVirtual().name("python-worker-err-" + process.pid()).start(this::pumpStderr);
+        }
+
+        WorkerResponse request(String op, Map<String, Object> payload, long deadline) throws Exception {
+            String id = String.valueOf(requestIds.incrementAndGet());
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("id", id);
+            request.put("op", op);
+            request.put("payload", payload == null ? Map.of() : payload);
+            try {
+                stdin.write(objectMapper.writeValueAsString(request));
+                stdin.newLine();
+                stdin.flush();
+            } catch (IOException e) {
+                destroy();
+                throw new IllegalStateException("PageIndexRAG worker 写入失败，进程可能已退出", e);
+            }
+
+            String line = readLine(deadline);
+            if (line == null) {
+                kill();
+                throw new IllegalStateException("PageIndexRAG worker 执行超时: op=" + op);
+            }
+            Map<String, Object> response;
+            try {
+                response = objectMapper.readValue(line, new TypeReference<>() {
+                });
+            } catch (JsonProcessingException e) {
+                // stdout 已被非协议输出污染，后续响应无法再对齐，不能放回池中
+                kill();
+                throw new IllegalStateException("PageIndexRAG worker 输出无法解析: " + line, e);
+            }
+            if (!id.equals(String.valueOf(response.get("id")))) {
+                kill();
+                throw new IllegalStateException("PageIndexRAG worker 响应错位: " + line);
+            }
+            Object result = response.get("result");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> resultMap = result instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+            return new WorkerResponse(Boolean.TRUE.equals(response.get("ok")), resultMap);
+        }
+
+        /**
+         * 读取下一行，超时返回 null；进程退出时抛出异常
+         */
+        String readLine(long deadline) throws InterruptedException {
+            String line = lines.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (line == EOF) {
+                lines.offer(EOF);
+                throw new IllegalStateException("PageIndexRAG worker 进程已退出(exit=" + exitValue() + "): " + stderrTail());
+            }
+            return line;
+        }
+
+        private void pumpStdout() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        lines.offer(line);
+                    }
+                }
+            } catch (IOException ignored) {
+                // 进程被结束时流随之关闭
+            } finally {
+                lines.offer(EOF);
+            }
+        }
+
+        private void pumpStderr() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.debug("[PythonWorker:{}] {}", process.pid(), line);
+                    synchronized (stderrTail) {
+                        if (stderrTail.size() == STDERR_TAIL_LINES) {
+                            stderrTail.pollFirst();
+                        }
+                        stderrTail.offerLast(line);
+                    }
+                }
+            } catch (IOException ignored) {
+                // 进程被结束时流随之关闭
+            }
+        }
+
+        String stderrTail() {
+            synchronized (stderrTail) {
+                return String.join("\n", stderrTail);
+            }
+        }
+
+        boolean isAlive() {
+            return !broken && process.isAlive();
+        }
+
+        long pid() {
+            return process.pid();
+        }
+
+        Integer exitValue() {
+            return process.isAlive() ? null : process.exitValue();
+        }
+
+        /**
+         * 请求超时或协议错位时直接强制结束，不等待正在执行的请求
+         */
+        void kill() {
+            broken = true;
+            process.destroyForcibly();
+        }
+
+        void destroy() {
+            broken = true;
+            try {
+                stdin.close();
+            } catch (IOException ignored) {
+                // 关闭 stdin 让 worker 正常退出
+            }
+            try {
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private List<String> buildPythonCommand(Path scriptPath) {
+        List<String> cmd = new ArrayList<>();
+        String pythonExecutable = resolveEnv(ENV_PYTHON_EXECUTABLE, properties.getPythonExecutable());
+        if (hasText(pythonExecutable)) {
+            cmd.add(pythonExecutable.trim());
+        } else {
+            String command = resolveEnv(ENV_PYTHON_COMMAND, properties.getPythonCommand());
+            cmd.add(hasText(command) ? command.trim() : "python3");
+        }
+        cmd.add(scriptPath.toString());
+        return cmd;
+    }
+
+    private Path resolveScriptPath() {
+        String script = resolveEnv(ENV_WORKER_SCRIPT, properties.getWorkerScript());
+        if (!hasText(script)) {
+            return null;
+        }
+        Path scriptPath = Path.of(script.trim());
+        if (scriptPath.isAbsolute()) {
+            return scriptPath.normalize();
+        }
+        return Path.of(System.getProperty("user.dir")).resolve(scriptPath).normalize();
+    }
+
+    private String resolveEnv(String envKey, String fallback) {
+        String envValue = System.getenv(envKey);
+        if (hasText(envValue)) {
+            return envValue;
+        }
+        return fallback;
+    }
+
+    private boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
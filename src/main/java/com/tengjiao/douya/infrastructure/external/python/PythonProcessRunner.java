@@ -0,0 +1,308 @@
+package com.tengjiao.douya.infrastructure.external.python;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 单次 Python 脚本子进程执行器（stdin 写入 JSON 请求，stdout 返回 JSON 结果）
+ * <p>
+ * stdin 写入、stdout 解析、stderr 收集各自在虚拟线程上并发进行，输出超过管道缓冲区时子进程也不会被阻塞到超时；
+ * stdout 直接交给 Jackson 流式解析，不先拼成字符串，累计超过 {@code maxOutputBytes} 时结束进程并报错。
+ * 错误信息只保留 stdout 开头与 stderr 末尾的少量文本。
+ */
+@Slf4j
+public class PythonProcessRunner {
+
+    /**
+     * 默认 stdout 上限：64MB
+     */
+    public static final long DEFAULT_MAX_OUTPUT_BYTES = 64L * 1024 * 1024;
+
+    private static final int STDOUT_HEAD_BYTES = 8 * 1024;
+    private static final int STDERR_TAIL_BYTES = 16 * 1024;
+    private static final long DRAIN_JOIN_MILLIS = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final long maxOutputBytes;
+
+    public PythonProcessRunner(ObjectMapper objectMapper, long maxOutputBytes) {
+        this.objectMapper = objectMapper;
+        this.maxOutputBytes = maxOutputBytes > 0 ? maxOutputBytes : DEFAULT_MAX_OUTPUT_BYTES;
+    }
+
+    public <T> Result<T> run(List<String> command, Path workingDirectory, Object request, long timeoutSeconds,
+                             Class<T> type) throws IOException, InterruptedException {
+        return run(command, workingDirectory, request, timeoutSeconds, objectMapper.constructType(type));
+    }
+
+    public <T> Result<T> run(List<String> command, Path workingDirectory, Object request, long timeoutSeconds,
+                             TypeReference<T> type) throws IOException, InterruptedException {
+        return run(command, workingDirectory, request, timeoutSeconds, objectMapper.getTypeFactory().constructType(type));
+    }
+
+    /**
+     * 启动子进程并等待结束
+     *
+     * @return 退出码、解析结果与诊断文本；非 0 退出码不抛异常，由调用方按各自的错误语义处理
+     * @throws IllegalStateException 超时或 stdout 超过上限（子进程均已被强制结束）
+     */
+    private <T> Result<T> run(List<String> command, Path workingDirectory, Object request, long timeoutSeconds,
+                              JavaType type) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, timeoutSeconds));
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        if (workingDirectory != null) {
+            processBuilder.directory(workingDirectory.toFile());
+        }
+        Process process = processBuilder.start();
+
+        BoundedStdout stdout = new BoundedStdout(process.getInputStream(), maxOutputBytes);
+        ByteTail stderr = new ByteTail(STDERR_TAIL_BYTES);
+        CompletableFuture<T> parsed = new CompletableFuture<>();
+        Thread stdoutReader = Thread.ofVirtual().name("python-stdout-" + process.pid()).start(() -> {
+            try {
+                parsed.complete(parse(stdout, type));
+            } catch (Throwable e) {
+                if (e instanceof OutputLimitExceededException) {
+                    process.destroyForcibly();
+                }
+                parsed.completeExceptionally(e);
+            } finally {
+                stdout.drainAndClose();
+            }
+        });
+        Thread stderrReader = Thread.ofVirtual().name("python-stderr-" + process.pid()).start(() -> {
+            try (InputStream in = process.getErrorStream()) {
+                in.transferTo(stderr);
+            } catch (IOException ignored) {
+                // 进程被结束时流随之关闭
+            }
+        });
+        Thread.ofVirtual().name("python-stdin-" + process.pid()).start(() -> {
+            try (OutputStream out = process.getOutputStream()) {
+                objectMapper.writeValue(out, request);
+            } catch (IOException e) {
+                // 子进程提前退出时写入失败，原因以退出码与 stderr 为准
+                log.debug("写入 Python 子进程 stdin 失败: {}", e.getMessage());
+            }
+        });
+
+        try {
+            if (!process.waitFor(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Python 子进程执行超时(" + timeoutSeconds + "s)");
+            }
+            T value = null;
+            Exception parseError = null;
+            try {
+                value = parsed.get(Math.max(remainingNanos(deadline), TimeUnit.MILLISECONDS.toNanos(DRAIN_JOIN_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof OutputLimitExceededException limit) {
+                    throw new IllegalStateException(limit.getMessage());
+                }
+                parseError = e.getCause() instanceof Exception cause ? cause : e;
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Python 子进程已退出但 stdout 未关闭");
+            }
+            stdoutReader.join(DRAIN_JOIN_MILLIS);
+            stderrReader.join(DRAIN_JOIN_MILLIS);
+            return new Result<>(process.exitValue(), value, parseError, stdout.head(), stderr.text(), stdout.total());
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private <T> T parse(BoundedStdout stdout, JavaType type) throws IOException {
+        try {
+            return objectMapper.readValue(stdout, type);
+        } catch (OutputLimitExceededException e) {
+            throw e;
+        } catch (IOException e) {
+            // 空输出（或只有空白）视为无结果，由调用方判定
+            if (stdout.head().isBlank()) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * 子进程执行结果
+     *
+     * @param exitCode    退出码
+     * @param value       stdout 解析结果，输出为空或解析失败时为 null
+     * @param parseError  stdout 不是合法 JSON 时的解析异常
+     * @param stdoutHead  stdout 开头（最多 8KB），用于错误信息
+     * @param stderr      stderr 末尾（最多 16KB）
+     * @param stdoutBytes stdout 总字节数
+     */
+    public record Result<T>(int exitCode, T value, Exception parseError, String stdoutHead, String stderr,
+                            long stdoutBytes) {
+
+        public boolean success() {
+            return exitCode == 0;
+        }
+
+        /**
+         * 失败原因：优先 stderr，为空时使用 stdout（单次脚本失败时把错误 JSON 打印到 stdout）
+         */
+        public String failureReason() {
+            return stderr.isBlank() ? stdoutHead.trim() : stderr.trim();
+        }
+
+        /**
+         * 成功退出时取出解析结果
+         *
+         * @throws IllegalStateException stdout 不是合法 JSON
+         */
+        public T requireParsed() {
+            if (parseError != null) {
+                throw new IllegalStateException("Python 输出不是合法 JSON: " + parseError.getMessage(), parseError);
+            }
+            return value;
+        }
+    }
+
+    private static final class OutputLimitExceededException extends IOException {
+        OutputLimitExceededException(long limit) {
+            super("Python 子进程输出超过上限(" + limit + " bytes)");
+        }
+    }
+
+    /**
+     * 计数并限长的 stdout：超过上限抛出异常，同时保留开头若干字节；关闭由执行器负责，Jackson 解析完不会关闭管道
+     */
+    private static final class BoundedStdout extends FilterInputStream {
+
+        private final long limit;
+        private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+        private long total;
+
+        BoundedStdout(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                record(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                record(buffer, offset, n);
+            }
+            return n;
+        }
+
+        private void record(byte[] buffer, int offset, int length) throws IOException {
+            total += length;
+            if (total > limit) {
+                throw new OutputLimitExceededException(limit);
+            }
+            int keep = Math.min(length, STDOUT_HEAD_BYTES - head.size());
+            if (keep > 0) {
+                synchronized (head) {
+                    head.write(buffer, offset, keep);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            // 由 drainAndClose 关闭，避免解析器提前关闭管道导致子进程写入失败
+        }
+
+        /**
+         * 读走 JSON 之后的剩余输出（仍受上限约束），再关闭管道
+         */
+        void drainAndClose() {
+            try {
+                byte[] buffer = new byte[8192];
+                while (read(buffer, 0, buffer.length) >= 0) {
+                    // 丢弃
+                }
+            } catch (IOException ignored) {
+                // 超限或进程被结束
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // ignore
+                }
+            }
+        }
+
+        String head() {
+            synchronized (head) {
+                return head.toString(StandardCharsets.UTF_8);
+            }
+        }
+
+        long total() {
+            return total;
+        }
+    }
+
+    /**
+     * 只保留末尾若干字节的输出缓冲
+     */
+    private static final class ByteTail extends OutputStream {
+
+        private final byte[] ring;
+        private long written;
+
+        ByteTail(int capacity) {
+            this.ring = new byte[capacity];
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            ring[(int) (written++ % ring.length)] = (byte) b;
+        }
+
+        @Override
+        public synchronized void write(byte[] buffer, int offset, int length) {
+            for (int i = 0; i < length; i++) {
+                ring[(int) (written++ % ring.length)] = buffer[offset + i];
+            }
+        }
+
+        synchronized String text() {
+            if (written <= ring.length) {
+                return new String(ring, 0, (int) written, StandardCharsets.UTF_8);
+            }
+            int start = (int) (written % ring.length);
+            byte[] ordered = new byte[ring.length];
+            System.arraycopy(ring, start, ordered, 0, ring.length - start);
+            System.arraycopy(ring, 0, ordered, ring.length - start, start);
+            return new String(ordered, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -3,15 +3,20 @@ package com.tengjiao.douya.infrastructure.tool;
 import com.tengjiao.douya.infrastructure.vectorstore.UserVectorApp;
 
 
+import com.alibaba.cloud.ai.graph.RunnableConfig;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.document.Document;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * 记忆搜索工具 - 支持 Agentic RAG
  * 允许智能体根据需要主动检索用户的历史背景或本地知识库
+ * <p>
+ * 工具实例随智能体共享，用户 ID 在每次调用时从 ToolContext 携带的 RunnableConfig metadata 中解析。
  *
  * @author tengjiao
  * @since 2026-01-13
@@ -19,12 +24,12 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MemorySearchTool {
 
+    private static final String USER_ID_KEY = "user_id";
+
     private final UserVectorApp userVectorApp;
-    private final String userId;
 
-    public MemorySearchTool(UserVectorApp userVectorApp, String userId) {
+    public MemorySearchTool(UserVectorApp userVectorApp) {
         this.userVectorApp = userVectorApp;
-        this.userId = userId;
     }
 
     /**
@@ -42,11 +47,17 @@ public class MemorySearchTool {
     /**
      * 搜索本地历史记忆或背景知识
      *
-     * @param request 包含查询文本的请求
+     * @param request     包含查询文本的请求
+     * @param toolContext 工具上下文，携带当次运行的 RunnableConfig
      * @return 检索到的聚合内容
      */
-    public Response search(Request request) {
+    public Response search(Request request, ToolContext toolContext) {
         String query = request.query();
+        String userId = resolveUserId(toolContext);
+        if (userId == null) {
+            log.warn("[MemoryTool] 未能从工具上下文解析 user_id，跳过记忆检索");
+            return new Response("当前会话缺少用户标识，无法检索本地记忆。");
+        }
         log.info("[MemoryTool] 用户 {} 正在检索记忆, Query: {}", userId, query);
 
         try {
@@ -71,4 +82,24 @@ public class MemorySearchTool {
             return new Response("检索本地记忆时发生错误，请尝试其他方式。");
         }
     }
+
+    /**
+     * 从工具上下文中解析用户 ID：优先读取 RunnableConfig metadata，其次读取上下文中的 user_id
+     */
+    private String resolveUserId(ToolContext toolContext) {
+        if (toolContext == null || toolContext.getContext() == null) {
+            return null;
+        }
+        Map<String, Object> context = toolContext.getContext();
+        for (Object value : context.values()) {
+            if (value instanceof RunnableConfig config) {
+                Object userId = config.metadata(USER_ID_KEY).orElse(null);
+                if (userId != null) {
+                    return userId.toString();
+                }
+            }
+        }
+        Object userId = context.get(USER_ID_KEY);
+        return userId == null ? null : userId.toString();
+    }
 }
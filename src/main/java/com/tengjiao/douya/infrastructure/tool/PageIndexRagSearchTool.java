@@ -3,21 +3,23 @@ package com.tengjiao.douya.infrastructure.tool;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tengjiao.douya.infrastructure.config.PageIndexRagProperties;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PageIndexRagQueryEngine;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PythonWorkerPool;
+import com.tengjiao.douya.infrastructure.external.python.PythonProcessRunner;
 import lombok.extern.slf4j.Slf4j;
 
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * 基于 Python PageIndexRAG 的页级引用查询工具。
  * 调用本地 Python 脚本执行查询，避免通过 HTTP Client 代理调用。
+ * 配置为 Java 查询引擎时在进程内查询；否则常驻 worker 池可用时复用已加载索引的 worker 进程，再否则每次查询启动一次脚本。
  */
 @Slf4j
 public class PageIndexRagSearchTool {
@@ -29,10 +31,23 @@ public class PageIndexRagSearchTool {
     private static final String ENV_TIMEOUT_SECONDS = "PAGE_INDEX_RAG_PYTHON_TIMEOUT_SECONDS";
 
     private final PageIndexRagProperties properties;
+    private final PythonWorkerPool workerPool;
+    private final PageIndexRagQueryEngine queryEngine;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public PageIndexRagSearchTool(PageIndexRagProperties properties) {
+        this(properties, null, null);
+    }
+
+    public PageIndexRagSearchTool(PageIndexRagProperties properties, PythonWorkerPool workerPool) {
+        this(properties, workerPool, null);
+    }
+
+    public PageIndexRagSearchTool(PageIndexRagProperties properties, PythonWorkerPool workerPool,
+                                  PageIndexRagQueryEngine queryEngine) {
         this.properties = properties;
+        this.workerPool = workerPool;
+        this.queryEngine = queryEngine;
     }
 
     public record Request(String query, Integer topK, Boolean withDebug) {
@@ -75,36 +90,29 @@ public class PageIndexRagSearchTool {
 
     private Map<String, Object> runPythonQuery(Map<String, Object> payload) throws Exception {
         Map<String, Object> requestPayload = enrichDataFile(payload);
+        if (queryEngine != null && queryEngine.isEnabled()) {
+            return queryEngine.query(requestPayload);
+        }
+        if (workerPool != null && workerPool.isAvailable()) {
+            return workerPool.call("query", requestPayload, resolveTimeoutSeconds());
+        }
         Path scriptPath = resolveScriptPath(resolveEnv(ENV_QUERY_SCRIPT, properties.getQueryScript()));
         if (!Files.exists(scriptPath)) {
             throw new IllegalStateException("PageIndexRAG 查询脚本不存在: " + scriptPath);
         }
-        ProcessBuilder processBuilder = new ProcessBuilder(buildPythonCommand(scriptPath));
-        processBuilder.directory(Path.of(System.getProperty("user.dir")).toFile());
-        Process process = processBuilder.start();
-
-        try (var outputStream = process.getOutputStream()) {
-            objectMapper.writeValue(outputStream, requestPayload);
-            outputStream.flush();
-        }
-
-        boolean finished = process.waitFor(resolveTimeoutSeconds(), TimeUnit.SECONDS);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new IllegalStateException("PageIndexRAG 查询脚本执行超时");
-        }
-
-        String stdout = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
-        String stderr = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8).trim();
-        if (process.exitValue() != 0) {
-            String reason = stderr.isBlank() ? stdout : stderr;
-            throw new IllegalStateException("PageIndexRAG 查询脚本执行失败: " + reason);
+        PythonProcessRunner runner = new PythonProcessRunner(objectMapper, properties.getPythonMaxOutputBytes());
+        PythonProcessRunner.Result<Map<String, Object>> processResult = runner.run(
+                buildPythonCommand(scriptPath), Path.of(System.getProperty("user.dir")), requestPayload,
+                resolveTimeoutSeconds(), new TypeReference<>() {
+                });
+        if (!processResult.success()) {
+            throw new IllegalStateException("PageIndexRAG 查询脚本执行失败: " + processResult.failureReason());
         }
-        if (stdout.isBlank()) {
+        Map<String, Object> result = processResult.requireParsed();
+        if (result == null) {
             throw new IllegalStateException("PageIndexRAG 查询脚本返回为空");
         }
-        return objectMapper.readValue(stdout, new TypeReference<>() {
-        });
+        return result;
     }
 
     private List<String> buildPythonCommand(Path scriptPath) {
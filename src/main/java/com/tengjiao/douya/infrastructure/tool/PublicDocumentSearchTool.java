@@ -1,5 +1,6 @@
 package com.tengjiao.douya.infrastructure.tool;
 
+import com.tengjiao.douya.infrastructure.config.DocumentRerankProperties;
 import com.tengjiao.douya.infrastructure.vectorstore.UserVectorApp;
 
 
@@ -7,6 +8,10 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.tengjiao.douya.application.service.evaluator.DocumentEvaluator;
+import com.tengjiao.douya.application.service.evaluator.EscalatingReranker;
+import com.tengjiao.douya.application.service.evaluator.LexicalReranker;
+import com.tengjiao.douya.application.service.evaluator.RerankMode;
+import com.tengjiao.douya.application.service.evaluator.Reranker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.Document;
@@ -28,16 +33,34 @@ public class PublicDocumentSearchTool {
 
     private final UserVectorApp userVectorApp;
     private final DocumentEvaluator evaluator;
+    private final RerankMode defaultRerankMode;
+    private final DocumentRerankProperties rerankProperties;
+    private final LexicalReranker lexicalReranker;
 
     public PublicDocumentSearchTool(UserVectorApp userVectorApp, ChatModel chatModel) {
+        this(userVectorApp, chatModel, new DocumentRerankProperties());
+    }
+
+    public PublicDocumentSearchTool(UserVectorApp userVectorApp, ChatModel chatModel,
+                                    DocumentRerankProperties rerankProperties) {
         this.userVectorApp = userVectorApp;
-        this.evaluator = new DocumentEvaluator(chatModel);
+        this.evaluator = new DocumentEvaluator(chatModel, rerankProperties);
+        this.defaultRerankMode = rerankProperties.getMode();
+        this.rerankProperties = rerankProperties;
+        this.lexicalReranker = new LexicalReranker(rerankProperties.getLexicalWeight());
     }
 
     /**
      * 搜索请求
+     *
+     * @param query      查询文本
+     * @param rerankMode 可选重排模式（POINTWISE / LISTWISE），为空时使用配置默认值
      */
-    public record Request(String query) {
+    public record Request(String query, String rerankMode) {
+
+        public Request(String query) {
+            this(query, null);
+        }
     }
 
     /**
@@ -65,8 +88,8 @@ public class PublicDocumentSearchTool {
                 return new Response("未在公共知识库中找到相关信息。");
             }
 
-            // 2. 评估与重排：取 Top 3
-            List<Document> docs = evaluator.evaluateAndRerank(query, rawDocs, 3);
+            // 2. 评估与重排：取 Top 3（默认先本地词法重排，难以区分时才升级到 LLM 评分）
+            List<Document> docs = resolveReranker(request).rerank(query, rawDocs, 3);
 
             if (docs.isEmpty()) {
                 return new Response("虽然初筛有结果，但经评估与您的问题关联度不高。");
@@ -111,4 +134,15 @@ public class PublicDocumentSearchTool {
             return new Response("检索公共知识库时发生错误。");
         }
     }
+
+    private Reranker resolveReranker(Request request) {
+        RerankMode rerankMode = RerankMode.parse(request.rerankMode(), defaultRerankMode);
+        Reranker llmReranker = (q, candidates, topK) -> evaluator.evaluateAndRerank(q, candidates, topK, rerankMode);
+        // 显式指定了合法 LLM 评分模式的请求直接走 LLM；无法识别的取值（如 "auto"）仍走词法优先
+        boolean explicitMode = RerankMode.parse(request.rerankMode(), null) != null;
+        if (!rerankProperties.isLexicalFirst() || explicitMode) {
+            return llmReranker;
+        }
+        return new EscalatingReranker(lexicalReranker, llmReranker, rerankProperties.getEscalationMargin());
+    }
 }
@@ -0,0 +1,134 @@
+package com.tengjiao.douya.infrastructure.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chroma.vectorstore.ChromaApi;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档分片清单
+ * <p>
+ * 清单直接由 Chroma 中该文档分片的元数据构成（{@code documentName} 过滤），不单独落盘，
+ * 因此不会与向量库实际内容发生漂移。每个分片记录 {@link #CONTENT_HASH_KEY} 与 {@link #METADATA_HASH_KEY}，
+ * 重新入库时据此判断分片是新增、仅元数据变化还是完全未变。
+ */
+@Slf4j
+@Component
+public class ChunkManifestStore {
+
+    private static final String TENANT = "SpringAiTenant";
+    private static final String DATABASE = "SpringAiDatabase";
+    private static final int PAGE_SIZE = 1000;
+
+    public static final String CONTENT_HASH_KEY = "content_hash";
+    public static final String METADATA_HASH_KEY = "metadata_hash";
+
+    private final ChromaApi chromaApi;
+
+    public ChunkManifestStore(ChromaApi chromaApi) {
+        this.chromaApi = chromaApi;
+    }
+
+    /**
+     * 读取文档当前的分片清单
+     *
+     * @return 分片 id -> metadata_hash，历史分片没有该字段时为空串
+     */
+    public Map<String, String> load(String collectionName, String documentName) {
+        ChromaApi.Collection collection = chromaApi.getCollection(TENANT, DATABASE, collectionName);
+        if (collection == null) {
+            return new LinkedHashMap<>();
+        }
+        Map<String, String> manifest = new LinkedHashMap<>();
+        int offset = 0;
+        while (true) {
+            ChromaApi.GetEmbeddingsRequest request = new ChromaApi.GetEmbeddingsRequest(
+                    null,
+                    Map.of("documentName", documentName),
+                    PAGE_SIZE,
+                    offset,
+                    List.of(ChromaApi.QueryRequest.Include.METADATAS));
+            ChromaApi.GetEmbeddingResponse response = chromaApi.getEmbeddings(TENANT, DATABASE, collection.id(), request);
+            List<String> ids = response == null ? null : response.ids();
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            List<Map<String, String>> metadatas = response.metadata();
+            for (int i = 0; i < ids.size(); i++) {
+                Object hash = metadatas != null && i < metadatas.size() && metadatas.get(i) != null
+                        ? metadatas.get(i).get(METADATA_HASH_KEY) : null;
+                manifest.put(ids.get(i), hash == null ? "" : hash.toString());
+            }
+            if (ids.size() < PAGE_SIZE) {
+                break;
+            }
+            offset += ids.size();
+        }
+        log.info("[ChunkManifest] {} 现有分片 {} 条", documentName, manifest.size());
+        return manifest;
+    }
+
+    /**
+     * 按 id 取回已存储的向量，用于仅元数据变化的分片原样写回
+     *
+     * @return id -> 向量，缺失的 id 不在结果中
+     */
+    public Map<String, float[]> fetchEmbeddings(String collectionName, List<String> ids) {
+        Map<String, float[]> result = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        String collectionId = requireCollection(collectionName).id();
+        for (int from = 0; from < ids.size(); from += PAGE_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + PAGE_SIZE));
+            ChromaApi.GetEmbeddingsRequest request = new ChromaApi.GetEmbeddingsRequest(
+                    batch,
+                    null,
+                    batch.size(),
+                    0,
+                    List.of(ChromaApi.QueryRequest.Include.EMBEDDINGS));
+            ChromaApi.GetEmbeddingResponse response = chromaApi.getEmbeddings(TENANT, DATABASE, collectionId, request);
+            if (response == null || response.ids() == null || response.embeddings() == null) {
+                continue;
+            }
+            for (int i = 0; i < response.ids().size() && i < response.embeddings().size(); i++) {
+                if (response.embeddings().get(i) != null) {
+                    result.put(response.ids().get(i), response.embeddings().get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 删除已不存在于新版本文档中的分片
+     *
+     * @return 删除条数
+     */
+    public int delete(String collectionName, Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        String collectionId = requireCollection(collectionName).id();
+        List<String> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += PAGE_SIZE) {
+            List<String> batch = all.subList(from, Math.min(all.size(), from + PAGE_SIZE));
+            chromaApi.deleteEmbeddings(TENANT, DATABASE, collectionId, new ChromaApi.DeleteEmbeddingsRequest(batch));
+        }
+        return all.size();
+    }
+
+    private ChromaApi.Collection requireCollection(String collectionName) {
+        ChromaApi.Collection collection = chromaApi.getCollection(TENANT, DATABASE, collectionName);
+        if (collection == null) {
+            throw new IllegalStateException("Collection not found: " + collectionName);
+        }
+        return collection;
+    }
+}
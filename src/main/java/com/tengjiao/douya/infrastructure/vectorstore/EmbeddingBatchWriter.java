@@ -0,0 +1,221 @@
+package com.tengjiao.douya.infrastructure.vectorstore;
+
+import com.tengjiao.douya.infrastructure.config.EmbeddingWriteProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chroma.vectorstore.ChromaApi;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * 入库向量批量写入器
+ * <p>
+ * 把「Embedding」与「Chroma upsert」拆成两侧各自批量：
+ * <ul>
+ *     <li>Embedding 按 {@code embedBatchSize} 切批，最多 {@code maxInFlight} 批同时在途，
+ *     每批发出前经 {@link EmbeddingRateLimiter} 同时受请求数/秒与 token/秒约束，失败（含限流）按指数退避重试</li>
+ *     <li>写入侧按原文顺序收集已完成的向量，攒够 {@code upsertBatchSize} 条一次 upsert，
+ *     与后续批次的 Embedding 重叠执行</li>
+ * </ul>
+ * 任一批重试耗尽即取消其余在途批次并抛出异常，已 upsert 的分片保留（上层入库会整体标记失败）。
+ * 指标：{@code douya.embedding.write.retry}，tag {@code throttled=true|false}。
+ */
+@Slf4j
+@Component
+public class EmbeddingBatchWriter {
+
+    private static final String TENANT = "SpringAiTenant";
+    private static final String DATABASE = "SpringAiDatabase";
+
+    /**
+     * 向量写入目标，默认实现为 Chroma upsert
+     */
+    @FunctionalInterface
+    public interface ChunkSink {
+        void upsert(List<Document> documents, List<float[]> embeddings);
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final ChromaApi chromaApi;
+    private final EmbeddingWriteProperties properties;
+    private final EmbeddingRateLimiter rateLimiter;
+    private final Counter retryCounter;
+    private final Counter throttledRetryCounter;
+    private final Map<String, String> collectionIds = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EmbeddingBatchWriter(
+            @Qualifier("dashscopeEmbeddingModel") EmbeddingModel embeddingModel,
+            ChromaApi chromaApi,
+            EmbeddingWriteProperties properties
+    ) {
+        this(embeddingModel, chromaApi, properties, Metrics.globalRegistry);
+    }
+
+    public EmbeddingBatchWriter(
+            EmbeddingModel embeddingModel,
+            ChromaApi chromaApi,
+            EmbeddingWriteProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        this.embeddingModel = embeddingModel;
+        this.chromaApi = chromaApi;
+        this.properties = properties;
+        this.rateLimiter = new EmbeddingRateLimiter(properties.getRequestsPerSecond(), properties.getTokensPerSecond());
+        this.retryCounter = Counter.builder("douya.embedding.write.retry").tag("throttled", "false").register(meterRegistry);
+        this.throttledRetryCounter = Counter.builder("douya.embedding.write.retry").tag("throttled", "true").register(meterRegistry);
+    }
+
+    /**
+     * 写入指定 Chroma 集合的 upsert 目标，集合需已存在
+     */
+    public ChunkSink chromaSink(String collectionName) {
+        return (documents, embeddings) -> {
+            String collectionId = collectionIds.computeIfAbsent(collectionName, name -> {
+                ChromaApi.Collection collection = chromaApi.getCollection(TENANT, DATABASE, name);
+                if (collection == null) {
+                    throw new IllegalStateException("Collection not found: " + name);
+                }
+                return collection.id();
+            });
+            List<String> ids = new ArrayList<>(documents.size());
+            List<Map<String, Object>> metadatas = new ArrayList<>(documents.size());
+            List<String> contents = new ArrayList<>(documents.size());
+            for (Document document : documents) {
+                ids.add(document.getId());
+                metadatas.add(document.getMetadata());
+                contents.add(document.getText());
+            }
+            chromaApi.upsertEmbeddings(TENANT, DATABASE, collectionId,
+                    new ChromaApi.AddEmbeddingsRequest(ids, embeddings, metadatas, contents));
+        };
+    }
+
+    /**
+     * 并发 Embedding 并按批写入
+     *
+     * @param documents 待写入分片
+     * @param sink      写入目标
+     * @param onStored  每次 upsert 成功后回调写入条数，可为 null
+     */
+    public void write(List<Document> documents, ChunkSink sink, IntConsumer onStored) {
+        if (documents == null || documents.isEmpty()) {
+            return;
+        }
+        int embedBatchSize = Math.max(1, properties.getEmbedBatchSize());
+        int upsertBatchSize = Math.max(1, properties.getUpsertBatchSize());
+        Semaphore inFlight = new Semaphore(Math.max(1, properties.getMaxInFlight()));
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<List<float[]>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < documents.size(); i += embedBatchSize) {
+                List<Document> batch = documents.subList(i, Math.min(documents.size(), i + embedBatchSize));
+                futures.add(executor.submit(() -> {
+                    inFlight.acquire();
+                    try {
+                        return embedWithRetry(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+
+            List<Document> pendingDocs = new ArrayList<>(upsertBatchSize);
+            List<float[]> pendingEmbeddings = new ArrayList<>(upsertBatchSize);
+            for (int b = 0; b < futures.size(); b++) {
+                List<float[]> embeddings = futures.get(b).get();
+                int from = b * embedBatchSize;
+                pendingDocs.addAll(documents.subList(from, Math.min(documents.size(), from + embedBatchSize)));
+                pendingEmbeddings.addAll(embeddings);
+                if (pendingDocs.size() >= upsertBatchSize) {
+                    flush(sink, pendingDocs, pendingEmbeddings, onStored);
+                }
+            }
+            flush(sink, pendingDocs, pendingEmbeddings, onStored);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("向量写入被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException("Embedding 失败: " + cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void flush(ChunkSink sink, List<Document> docs, List<float[]> embeddings, IntConsumer onStored) {
+        if (docs.isEmpty()) {
+            return;
+        }
+        sink.upsert(List.copyOf(docs), List.copyOf(embeddings));
+        if (onStored != null) {
+            onStored.accept(docs.size());
+        }
+        log.debug("已写入向量分块 {} 条", docs.size());
+        docs.clear();
+        embeddings.clear();
+    }
+
+    private List<float[]> embedWithRetry(List<Document> batch) throws InterruptedException {
+        List<String> texts = batch.stream().map(Document::getText).toList();
+        int tokens = texts.stream().mapToInt(String::length).sum();
+        long backoff = Math.max(1, properties.getInitialBackoffMillis());
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire(tokens);
+            try {
+                List<float[]> embeddings = embeddingModel.embed(texts);
+                if (embeddings.size() != texts.size()) {
+                    throw new IllegalStateException("Embedding 返回条数不匹配: " + embeddings.size() + " != " + texts.size());
+                }
+                return embeddings;
+            } catch (RuntimeException e) {
+                if (attempt >= properties.getMaxRetries()) {
+                    throw e;
+                }
+                boolean throttled = isThrottled(e);
+                (throttled ? throttledRetryCounter : retryCounter).increment();
+                long sleep = Math.min(backoff, properties.getMaxBackoffMillis());
+                log.warn("Embedding 批次失败{}，{} ms 后第 {} 次重试: {}",
+                        throttled ? "（限流）" : "", sleep, attempt + 1, e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(sleep);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private boolean isThrottled(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String message = t.getMessage();
+            if (message == null) {
+                continue;
+            }
+            String lower = message.toLowerCase(Locale.ROOT);
+            if (lower.contains("429") || lower.contains("throttl") || lower.contains("rate limit")
+                    || lower.contains("too many requests")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,117 @@
+package com.tengjiao.douya.infrastructure.vectorstore;
+
+import com.tengjiao.douya.infrastructure.config.EmbeddingCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 查询向量缓存
+ * <p>
+ * 以 (模型, 归一化文本) 为键缓存 Embedding 结果，有界（LRU）且带 TTL。
+ * 归一化包括 NFKC（全角转半角）、去首尾空白与句末标点、合并连续空白、英文小写，
+ * 让「红烧肉怎么做？」与「红烧肉怎么做」命中同一条缓存。
+ * 指标：{@code douya.embedding.cache}，tag {@code result=hit|miss}；{@code douya.embedding.cache.size}。
+ */
+@Slf4j
+@Component
+public class EmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}。？！，、；：～…\\s]+$");
+
+    private record Entry(float[] vector, long expireAt) {
+    }
+
+    private final EmbeddingCacheProperties properties;
+    private final Map<String, Entry> cache;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    @Autowired
+    public EmbeddingCache(EmbeddingCacheProperties properties) {
+        this(properties, Metrics.globalRegistry);
+    }
+
+    public EmbeddingCache(EmbeddingCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int maxSize = Math.max(1, properties.getMaxSize());
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(Math.min(maxSize, 1024) + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.hitCounter = Counter.builder("douya.embedding.cache").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("douya.embedding.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("douya.embedding.cache.size", cache, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * 读取缓存，未命中或已过期时调用 loader 计算并写入
+     *
+     * @param text   原始文本
+     * @param loader 实际的 Embedding 调用
+     * @return 向量副本，调用方可安全修改
+     */
+    public float[] getOrCompute(String text, Function<String, float[]> loader) {
+        if (!properties.isEnabled() || text == null) {
+            return loader.apply(text);
+        }
+        String key = properties.getModel() + "|" + normalize(text);
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(key);
+        if (entry != null && entry.expireAt() > now) {
+            hitCounter.increment();
+            return entry.vector().clone();
+        }
+        missCounter.increment();
+        float[] vector = loader.apply(text);
+        if (vector != null) {
+            cache.put(key, new Entry(vector.clone(), now + properties.getTtlSeconds() * 1000L));
+        }
+        return vector;
+    }
+
+    /**
+     * 缓存键使用的文本归一化
+     */
+    public static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).trim();
+        normalized = TRAILING_PUNCTUATION.matcher(normalized).replaceAll("");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ");
+        return normalized.toLowerCase(Locale.ROOT);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public Map<String, Object> stats() {
+        double hits = hitCounter.count();
+        double misses = missCounter.count();
+        double total = hits + misses;
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("size", cache.size());
+        result.put("maxSize", properties.getMaxSize());
+        result.put("ttlSeconds", properties.getTtlSeconds());
+        result.put("hits", (long) hits);
+        result.put("misses", (long) misses);
+        result.put("hitRate", total == 0 ? 0.0 : hits / total);
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+package com.tengjiao.douya.infrastructure.vectorstore;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedding 调用限速器：同时约束请求数/秒与 token/秒
+ * <p>
+ * 采用预约制：每次 acquire 在两条时间线上各预约一段时长，取较晚的可用时刻等待，
+ * 不允许突发，保证长期速率不超过配置值。单个请求的 token 超过每秒预算时只是预约更久，不会死锁。
+ */
+public class EmbeddingRateLimiter {
+
+    private final double requestIntervalNanos;
+    private final double tokenIntervalNanos;
+    private long nextRequestAt;
+    private long nextTokenAt;
+
+    public EmbeddingRateLimiter(double requestsPerSecond, double tokensPerSecond) {
+        this.requestIntervalNanos = requestsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / requestsPerSecond : 0;
+        this.tokenIntervalNanos = tokensPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / tokensPerSecond : 0;
+        long now = System.nanoTime();
+        this.nextRequestAt = now;
+        this.nextTokenAt = now;
+    }
+
+    /**
+     * 阻塞直到可以发出一次消耗 tokens 的请求
+     *
+     * @return 实际等待的纳秒数
+     */
+    public long acquire(int tokens) throws InterruptedException {
+        long waitNanos = reserve(tokens);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    private synchronized long reserve(int tokens) {
+        long now = System.nanoTime();
+        long requestStart = Math.max(now, nextRequestAt);
+        long tokenStart = Math.max(now, nextTokenAt);
+        long start = Math.max(requestStart, tokenStart);
+        nextRequestAt = start + (long) requestIntervalNanos;
+        nextTokenAt = start + (long) (tokenIntervalNanos * Math.max(0, tokens));
+        return start - now;
+    }
+}
@@ -0,0 +1,183 @@
+package com.tengjiao.douya.infrastructure.vectorstore;
+
+import com.tengjiao.douya.infrastructure.config.VectorCollectionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chroma.vectorstore.ChromaApi;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 父块存储
+ * <p>
+ * Parent-Child 检索中，子块只在元数据里保存 {@link #PARENT_ID_KEY}，父块文本集中存放在独立集合
+ * （{@code douya.vector.collections.parent-collection}）中，每个父块只存一份。父块不参与检索，
+ * 写入时使用 1 维占位向量，不调用 Embedding。检索命中后按 parent_id 一次批量取回。
+ */
+@Slf4j
+@Component
+public class ParentBlockStore {
+
+    private static final String TENANT = "SpringAiTenant";
+    private static final String DATABASE = "SpringAiDatabase";
+    private static final int PAGE_SIZE = 1000;
+    private static final float[] PLACEHOLDER_EMBEDDING = {0f};
+
+    public static final String PARENT_ID_KEY = "parent_id";
+
+    private final ChromaApi chromaApi;
+    private final VectorCollectionProperties properties;
+    private volatile String collectionId;
+
+    public ParentBlockStore(ChromaApi chromaApi, VectorCollectionProperties properties) {
+        this.chromaApi = chromaApi;
+        this.properties = properties;
+    }
+
+    /**
+     * 写入父块，id 相同的父块被覆盖
+     *
+     * @param documentName 所属文档，用于按文档清理
+     * @param blocks       parent_id -> 父块文本
+     */
+    public void upsert(String documentName, Map<String, String> blocks) {
+        if (blocks == null || blocks.isEmpty()) {
+            return;
+        }
+        String id = collectionId(true);
+        List<String> ids = new ArrayList<>(blocks.size());
+        List<float[]> embeddings = new ArrayList<>(blocks.size());
+        List<Map<String, Object>> metadatas = new ArrayList<>(blocks.size());
+        List<String> texts = new ArrayList<>(blocks.size());
+        blocks.forEach((parentId, text) -> {
+            ids.add(parentId);
+            embeddings.add(PLACEHOLDER_EMBEDDING);
+            metadatas.add(Map.of("documentName", documentName));
+            texts.add(text);
+        });
+        chromaApi.upsertEmbeddings(TENANT, DATABASE, id,
+                new ChromaApi.AddEmbeddingsRequest(ids, embeddings, metadatas, texts));
+    }
+
+    /**
+     * 批量取回父块文本
+     *
+     * @return parent_id -> 父块文本，不存在的 id 不在结果中
+     */
+    public Map<String, String> fetch(Collection<String> parentIds) {
+        Map<String, String> result = new HashMap<>();
+        if (parentIds == null || parentIds.isEmpty()) {
+            return result;
+        }
+        String id = collectionId(false);
+        if (id == null) {
+            return result;
+        }
+        List<String> all = new ArrayList<>(new LinkedHashSet<>(parentIds));
+        for (int from = 0; from < all.size(); from += PAGE_SIZE) {
+            List<String> batch = all.subList(from, Math.min(all.size(), from + PAGE_SIZE));
+            ChromaApi.GetEmbeddingsRequest request = new ChromaApi.GetEmbeddingsRequest(
+                    batch,
+                    null,
+                    batch.size(),
+                    0,
+                    List.of(ChromaApi.QueryRequest.Include.DOCUMENTS));
+            ChromaApi.GetEmbeddingResponse response = chromaApi.getEmbeddings(TENANT, DATABASE, id, request);
+            if (response == null || response.ids() == null || response.documents() == null) {
+                continue;
+            }
+            for (int i = 0; i < response.ids().size() && i < response.documents().size(); i++) {
+                result.put(response.ids().get(i), response.documents().get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 文档当前的全部父块 id
+     */
+    public Set<String> idsOf(String documentName) {
+        Set<String> ids = new LinkedHashSet<>();
+        String id = collectionId(false);
+        if (id == null) {
+            return ids;
+        }
+        int offset = 0;
+        while (true) {
+            ChromaApi.GetEmbeddingsRequest request = new ChromaApi.GetEmbeddingsRequest(
+                    null,
+                    Map.of("documentName", documentName),
+                    PAGE_SIZE,
+                    offset,
+                    List.of());
+            ChromaApi.GetEmbeddingResponse response = chromaApi.getEmbeddings(TENANT, DATABASE, id, request);
+            List<String> page = response == null ? null : response.ids();
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            ids.addAll(page);
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            offset += page.size();
+        }
+        return ids;
+    }
+
+    /**
+     * 删除指定父块
+     *
+     * @return 删除条数
+     */
+    public int delete(Collection<String> parentIds) {
+        if (parentIds == null || parentIds.isEmpty()) {
+            return 0;
+        }
+        String id = collectionId(false);
+        if (id == null) {
+            return 0;
+        }
+        List<String> all = new ArrayList<>(parentIds);
+        for (int from = 0; from < all.size(); from += PAGE_SIZE) {
+            chromaApi.deleteEmbeddings(TENANT, DATABASE, id,
+                    new ChromaApi.DeleteEmbeddingsRequest(all.subList(from, Math.min(all.size(), from + PAGE_SIZE))));
+        }
+        return all.size();
+    }
+
+    /**
+     * 删除文档的全部父块
+     */
+    public int deleteByDocumentName(String documentName) {
+        return delete(idsOf(documentName));
+    }
+
+    private String collectionId(boolean create) {
+        String id = collectionId;
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            if (collectionId != null) {
+                return collectionId;
+            }
+            String name = properties.getParentCollection();
+            ChromaApi.Collection collection = chromaApi.getCollection(TENANT, DATABASE, name);
+            if (collection == null) {
+                if (!create) {
+                    return null;
+                }
+                collection = chromaApi.createCollection(TENANT, DATABASE, new ChromaApi.CreateCollectionRequest(name));
+                log.info("[ParentBlockStore] 已创建父块集合: {}", name);
+            }
+            collectionId = collection.id();
+            return collectionId;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.tengjiao.douya.infrastructure.vectorstore;
+
+import com.tengjiao.douya.infrastructure.config.PublicSearchCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 公共知识库检索结果缓存
+ * <p>
+ * 键为 (查询向量分桶, topK)：查询向量按 1e-4 精度量化后取哈希，同一归一化查询经
+ * {@link EmbeddingCache} 得到的向量完全一致，因此落在同一个桶内；命中时再用余弦相似度复核，避免哈希碰撞。
+ * 开启近似命中后，未精确命中的查询会扫描同 topK 的条目，余弦相似度不低于阈值即复用结果。
+ * <p>
+ * 集合任何写入（入库、编辑、删除、去重）都需调用 {@link #bumpVersion(String)}：版本号递增并清空缓存；
+ * 写入前开始、写入后才回填的检索结果因版本不一致会被丢弃。
+ * 指标：{@code douya.public.search.cache}，tag {@code result=hit|approx_hit|miss}；{@code douya.public.search.cache.size}。
+ */
+@Slf4j
+@Component
+public class PublicSearchCache {
+
+    private static final double EXACT_COSINE = 0.9999;
+    private static final float QUANTIZE_SCALE = 10_000f;
+
+    private record Entry(float[] embedding, int topK, long version, List<Document> documents, long expireAt) {
+    }
+
+    private final PublicSearchCacheProperties properties;
+    private final Map<String, Entry> cache;
+    private final AtomicLong version = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter approximateHitCounter;
+    private final Counter missCounter;
+
+    @Autowired
+    public PublicSearchCache(PublicSearchCacheProperties properties) {
+        this(properties, Metrics.globalRegistry);
+    }
+
+    public PublicSearchCache(PublicSearchCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int maxSize = Math.max(1, properties.getMaxSize());
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(Math.min(maxSize, 1024) + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.hitCounter = Counter.builder("douya.public.search.cache").tag("result", "hit").register(meterRegistry);
+        this.approximateHitCounter = Counter.builder("douya.public.search.cache").tag("result", "approx_hit").register(meterRegistry);
+        this.missCounter = Counter.builder("douya.public.search.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("douya.public.search.cache.size", cache, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * 当前集合版本号，检索开始前读取，回填时传给 {@link #put}
+     */
+    public long currentVersion() {
+        return version.get();
+    }
+
+    /**
+     * 集合内容发生变化：版本号递增并清空缓存
+     *
+     * @param reason 触发原因，仅用于日志
+     */
+    public void bumpVersion(String reason) {
+        long next = version.incrementAndGet();
+        cache.clear();
+        log.debug("[PublicSearchCache] 集合版本更新为 {}，原因: {}", next, reason);
+    }
+
+    /**
+     * 查找缓存结果
+     *
+     * @param embedding 查询向量
+     * @param topK      检索条数
+     * @return 命中时返回结果副本
+     */
+    public Optional<List<Document>> get(float[] embedding, int topK) {
+        if (!properties.isEnabled() || embedding == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        long currentVersion = version.get();
+
+        Entry exact = cache.get(bucketKey(embedding, topK));
+        if (isUsable(exact, topK, currentVersion, now) && cosine(exact.embedding(), embedding) >= EXACT_COSINE) {
+            hitCounter.increment();
+            return Optional.of(new ArrayList<>(exact.documents()));
+        }
+
+        if (properties.isApproximate()) {
+            Entry best = null;
+            double bestSimilarity = properties.getSimilarityThreshold();
+            List<Entry> candidates;
+            synchronized (cache) {
+                candidates = new ArrayList<>(cache.values());
+            }
+            for (Entry candidate : candidates) {
+                if (!isUsable(candidate, topK, currentVersion, now)) {
+                    continue;
+                }
+                double similarity = cosine(candidate.embedding(), embedding);
+                if (similarity >= bestSimilarity) {
+                    best = candidate;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best != null) {
+                approximateHitCounter.increment();
+                return Optional.of(new ArrayList<>(best.documents()));
+            }
+        }
+
+        missCounter.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * 回填检索结果；若检索期间集合版本已变化则丢弃
+     *
+     * @param embedding     查询向量
+     * @param topK          检索条数
+     * @param searchVersion 检索开始前读取的 {@link #currentVersion()}
+     * @param documents     检索结果
+     */
+    public void put(float[] embedding, int topK, long searchVersion, List<Document> documents) {
+        if (!properties.isEnabled() || embedding == null || documents == null) {
+            return;
+        }
+        if (searchVersion != version.get()) {
+            return;
+        }
+        long expireAt = System.currentTimeMillis() + properties.getTtlSeconds() * 1000L;
+        cache.put(bucketKey(embedding, topK), new Entry(embedding.clone(), topK, searchVersion, List.copyOf(documents), expireAt));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public Map<String, Object> stats() {
+        double hits = hitCounter.count();
+        double approximateHits = approximateHitCounter.count();
+        double misses = missCounter.count();
+        double total = hits + approximateHits + misses;
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("approximate", properties.isApproximate());
+        result.put("similarityThreshold", properties.getSimilarityThreshold());
+        result.put("version", version.get());
+        result.put("size", cache.size());
+        result.put("maxSize", properties.getMaxSize());
+        result.put("hits", (long) hits);
+        result.put("approximateHits", (long) approximateHits);
+        result.put("misses", (long) misses);
+        result.put("hitRate", total == 0 ? 0.0 : (hits + approximateHits) / total);
+        return result;
+    }
+
+    private boolean isUsable(Entry entry, int topK, long currentVersion, long now) {
+        return entry != null && entry.topK() == topK && entry.version() == currentVersion && entry.expireAt() > now;
+    }
+
+    private static String bucketKey(float[] embedding, int topK) {
+        int[] quantized = new int[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            quantized[i] = Math.round(embedding[i] * QUANTIZE_SCALE);
+        }
+        return topK + "|" + embedding.length + "|" + Arrays.hashCode(quantized);
+    }
+
+    static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += (double) a[i] * b[i];
+            normA += (double) a[i] * a[i];
+            normB += (double) b[i] * b[i];
+        }
+        if (normA == 0 || normB == 0) {
+            return 0;
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
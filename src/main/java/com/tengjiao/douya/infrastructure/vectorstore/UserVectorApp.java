@@ -14,10 +14,14 @@ import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * 用户向量服务 - 吃饭大师场景
@@ -31,22 +35,64 @@ import java.util.UUID;
 public class UserVectorApp {
     private static final String TENANT = "SpringAiTenant";
     private static final String DATABASE = "SpringAiDatabase";
+
+    /**
+     * 文档归属范围元数据：公共文档在入库时写入 {@link #SCOPE_PUBLIC}，用户记忆写入 {@link #SCOPE_USER}，
+     * 公共检索据此在 Chroma 侧过滤
+     */
+    public static final String SCOPE_KEY = "scope";
+    public static final String SCOPE_PUBLIC = "public";
+    public static final String SCOPE_USER = "user";
     private final VectorStore chromaVectorStore;
     private final ChromaApi chromaApi;
     private final EmbeddingModel embeddingModel;
+    /**
+     * 未经查询缓存的原始模型：文档内容入库不走查询归一化，也不占用查询缓存
+     */
+    private final EmbeddingModel documentEmbeddingModel;
+    private final EmbeddingCache embeddingCache;
+    private final PublicSearchCache publicSearchCache;
+    private final VectorCollectionRouter collectionRouter;
+    private final EmbeddingBatchWriter embeddingBatchWriter;
+    private final ParentBlockStore parentBlockStore;
 
     public UserVectorApp(
             VectorStore chromaVectorStore,
             ChromaApi chromaApi,
-            @Qualifier("dashscopeEmbeddingModel") EmbeddingModel embeddingModel
+            @Qualifier("dashscopeEmbeddingModel") EmbeddingModel embeddingModel,
+            EmbeddingCache embeddingCache,
+            PublicSearchCache publicSearchCache,
+            VectorCollectionRouter collectionRouter,
+            EmbeddingBatchWriter embeddingBatchWriter,
+            ParentBlockStore parentBlockStore
     ) {
         this.chromaVectorStore = chromaVectorStore;
         this.chromaApi = chromaApi;
-        this.embeddingModel = embeddingModel;
+        this.embeddingModel = new CachingEmbeddingModel(embeddingModel, embeddingCache);
+        this.documentEmbeddingModel = embeddingModel;
+        this.embeddingCache = embeddingCache;
+        this.publicSearchCache = publicSearchCache;
+        this.collectionRouter = collectionRouter;
+        this.embeddingBatchWriter = embeddingBatchWriter;
+        this.parentBlockStore = parentBlockStore;
     }
 
     /**
-     * 存储向量数据（按 userId 隔离）
+     * 查询向量缓存命中统计
+     */
+    public Map<String, Object> getEmbeddingCacheStats() {
+        return embeddingCache.stats();
+    }
+
+    /**
+     * 公共检索结果缓存命中统计
+     */
+    public Map<String, Object> getPublicSearchCacheStats() {
+        return publicSearchCache.stats();
+    }
+
+    /**
+     * 存储向量数据（按 userId 隔离，写入用户所属的记忆分片集合）
      *
      * @param documents 要存储的文档列表
      * @param userId    用户ID，用于数据隔离
@@ -62,16 +108,18 @@ public class UserVectorApp {
         // 为每个文档添加 userId 元数据，实现数据隔离
         documents.forEach(doc -> {
             doc.getMetadata().put("userId", userId);
+            doc.getMetadata().put(SCOPE_KEY, SCOPE_USER);
             // 添加时间戳，便于后续管理
             doc.getMetadata().put("timestamp", System.currentTimeMillis());
         });
 
-        // 存储到向量数据库 (分批存储，解决 DashScope 单次请求限制，目前限制为 10 条)
-        int batchSize = 10;
-        for (int i = 0; i < documents.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, documents.size());
-            List<Document> batch = documents.subList(i, end);
-            chromaVectorStore.add(batch);
+        // 先确保分片集合已创建，再由批量写入器并发 Embedding（受 DashScope 限流约束）后 upsert
+        collectionRouter.memoryStore(userId);
+        embeddingBatchWriter.write(documents,
+                embeddingBatchWriter.chromaSink(collectionRouter.memoryCollection(userId)), null);
+        if (!collectionRouter.isSplit()) {
+            // 未拆分时用户记忆与公共文档同集合，旧数据回退检索会受影响
+            publicSearchCache.bumpVersion("addDocuments");
         }
     }
 
@@ -111,8 +159,10 @@ public class UserVectorApp {
                 .filterExpression("userId == '" + userId + "'")
                 .build();
 
-        // 执行相似度搜索
-        List<Document> docs = chromaVectorStore.similaritySearch(searchRequest);
+        // 执行相似度搜索：用户所属分片（及兼容期的公共集合旧记忆）并行检索
+        List<Document> docs = collectionRouter.fanOut(collectionRouter.memoryReadStores(userId).stream()
+                .<Supplier<List<Document>>>map(store -> () -> store.similaritySearch(searchRequest))
+                .toList(), k);
 
         // 应用 Parent-Child 策略：替换为父块文本并去重
         return applyParentContext(docs);
@@ -148,21 +198,25 @@ public class UserVectorApp {
                 .topK(k)
                 .similarityThreshold(0.0); // 最低阈值，接受所有结果
 
-        // 如果指定了 userId，添加过滤条件
+        // 如果指定了 userId，添加过滤条件，只扫描该用户所在集合
+        List<VectorStore> stores = collectionRouter.allStores();
         if (userId != null && !userId.trim().isEmpty()) {
             requestBuilder.filterExpression("userId == '" + userId + "'");
+            stores = collectionRouter.memoryReadStores(userId);
         }
 
         SearchRequest searchRequest = requestBuilder.build();
 
         // 执行搜索
-        List<Document> docs = chromaVectorStore.similaritySearch(searchRequest);
+        List<Document> docs = collectionRouter.fanOut(stores.stream()
+                .<Supplier<List<Document>>>map(store -> () -> store.similaritySearch(searchRequest))
+                .toList(), k);
         return applyParentContext(docs);
     }
 
     /**
-     * 搜索公共文档（不带 userId 过滤）
-     * 适用于检索 PDF 文档上传等系统级公共知识
+     * 搜索公共文档（Chroma 侧按 scope=public 过滤）
+     * 适用于检索 PDF 文档上传等系统级公共知识；集合内尚无带标签的分片时回退为全库检索后排除用户文档
      *
      * @param query 查询文本
      * @param topK  数量
@@ -171,24 +225,43 @@ public class UserVectorApp {
     public List<Document> searchPublic(String query, Integer topK) {
         int k = (topK != null && topK > 0) ? topK : 5;
 
-        // 构建搜索请求：不指定 filterExpression 默认检索全库
-        // 如果后续需要明确区分，可以在上传时添加 public=true 并在此时过滤
+        // 查询向量走 EmbeddingCache，VectorStore 内部再次 embed 时同样命中，不会多一次远程调用
+        long searchVersion = publicSearchCache.currentVersion();
+        float[] queryEmbedding = embeddingModel.embed(query);
+        Optional<List<Document>> cached = publicSearchCache.get(queryEmbedding, k);
+        if (cached.isPresent()) {
+            log.info("[UserVectorApp] Search for '{}' served from public search cache ({} docs)", query, cached.get().size());
+            return cached.get();
+        }
+
+        // 在 Chroma 侧按 scope 过滤，保证用户记忆再多也能拿满 topK 条公共文档
         SearchRequest searchRequest = SearchRequest.builder()
                 .query(query)
                 .topK(k)
                 .similarityThreshold(0.0) // 设置更温和的阈值以适应短关键词
+                .filterExpression(SCOPE_KEY + " == '" + SCOPE_PUBLIC + "'")
                 .build();
 
-        List<Document> docs = chromaVectorStore.similaritySearch(searchRequest);
+        List<Document> publicDocs = chromaVectorStore.similaritySearch(searchRequest);
+        if (publicDocs.isEmpty()) {
+            // 兼容尚未执行 scope 回填的历史数据：回退为全库检索后排除用户文档
+            log.warn("[UserVectorApp] No docs tagged {}={}, falling back to post-filter. Run backfillPublicScope to tag legacy chunks.",
+                    SCOPE_KEY, SCOPE_PUBLIC);
+            SearchRequest legacyRequest = SearchRequest.builder()
+                    .query(query)
+                    .topK(k)
+                    .similarityThreshold(0.0)
+                    .build();
+            publicDocs = chromaVectorStore.similaritySearch(legacyRequest).stream()
+                    .filter(doc -> !doc.getMetadata().containsKey("userId"))
+                    .toList();
+        }
         log.info("[UserVectorApp] Search for '{}' found {} docs. Top distances: {}",
-                query, docs.size(), docs.stream().map(d -> d.getMetadata().get("distance")).toList());
-
-        // 排除掉带有 userId 的文档，只保留公共文档
-        List<Document> publicDocs = docs.stream()
-                .filter(doc -> !doc.getMetadata().containsKey("userId"))
-                .toList();
+                query, publicDocs.size(), publicDocs.stream().map(d -> d.getMetadata().get("distance")).toList());
 
-        return applyParentContext(publicDocs);
+        List<Document> result = applyParentContext(publicDocs);
+        publicSearchCache.put(queryEmbedding, k, searchVersion, result);
+        return result;
     }
 
     /**
@@ -207,23 +280,39 @@ public class UserVectorApp {
                 .similarityThreshold(0.7)
                 .build();
 
-        List<Document> docs = chromaVectorStore.similaritySearch(searchRequest);
+        List<Document> docs = collectionRouter.fanOut(collectionRouter.allStores().stream()
+                .<Supplier<List<Document>>>map(store -> () -> store.similaritySearch(searchRequest))
+                .toList(), k);
         return applyParentContext(docs);
     }
 
     /**
      * 应用 Parent-Child 扩展策略并去重
      * 保持原始排序（基于 LinkedHashMap）
+     * <p>
+     * 子块通过 parent_id 引用父块集合，命中结果的父块一次批量取回；
+     * 历史分片仍带 parent_text 元数据，作为回退直接使用。
      */
     private List<Document> applyParentContext(List<Document> docs) {
         if (docs == null || docs.isEmpty()) {
             return docs;
         }
 
+        Set<String> parentIds = new LinkedHashSet<>();
+        for (Document doc : docs) {
+            if (doc.getMetadata().get(ParentBlockStore.PARENT_ID_KEY) instanceof String parentId && !parentId.isBlank()) {
+                parentIds.add(parentId);
+            }
+        }
+        Map<String, String> parents = parentIds.isEmpty() ? Map.of() : parentBlockStore.fetch(parentIds);
+
         Map<String, Document> processedMap = new LinkedHashMap<>();
 
         for (Document doc : docs) {
-            String parentText = (String) doc.getMetadata().get("parent_text");
+            Object parentId = doc.getMetadata().get(ParentBlockStore.PARENT_ID_KEY);
+            String parentText = parentId != null
+                    ? parents.get(parentId.toString())
+                    : (String) doc.getMetadata().get("parent_text");
             String contentToUse = (parentText != null && !parentText.trim().isEmpty())
                     ? parentText
                     : doc.getText();
@@ -446,7 +535,7 @@ public class UserVectorApp {
         mergedMetadata.put("kb_last_edit_at", System.currentTimeMillis());
         mergedMetadata.putIfAbsent("kb_edit_token", UUID.randomUUID().toString());
 
-        float[] embedding = embeddingModel.embed(content);
+        float[] embedding = documentEmbeddingModel.embed(content);
         ChromaApi.AddEmbeddingsRequest request = new ChromaApi.AddEmbeddingsRequest(
                 id,
                 embedding,
@@ -454,6 +543,7 @@ public class UserVectorApp {
                 content
         );
         chromaApi.upsertEmbeddings(TENANT, DATABASE, collection.id(), request);
+        bumpIfPublic(collectionName, "updateChunkById");
 
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("status", "SUCCESS");
@@ -473,6 +563,7 @@ public class UserVectorApp {
             return Map.of("error", "Collection not found: " + collectionName);
         }
         int status = chromaApi.deleteEmbeddings(TENANT, DATABASE, collection.id(), new ChromaApi.DeleteEmbeddingsRequest(List.of(id)));
+        bumpIfPublic(collectionName, "deleteById");
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("status", "SUCCESS");
         result.put("apiStatus", status);
@@ -498,6 +589,7 @@ public class UserVectorApp {
                 totalDeleted += ids.size();
             }
         }
+        bumpIfPublic(collectionName, "deleteAll");
         return Map.of("status", "SUCCESS", "deletedCount", totalDeleted);
     }
 
@@ -545,9 +637,20 @@ public class UserVectorApp {
             }
         }
 
+        if (totalDeleted > 0) {
+            bumpIfPublic(collectionName, "deleteByDocumentName");
+        }
+
+        // 父块仅由公共文档入库产生，随子块一并清理
+        int parentDeleted = 0;
+        if (!collectionRouter.isSplit() || collectionRouter.isPublicCollection(collectionName)) {
+            parentDeleted = parentBlockStore.deleteByDocumentName(documentName);
+        }
+
         Map<String, Object> report = new LinkedHashMap<>();
         report.put("documentName", documentName);
         report.put("deletedCount", totalDeleted);
+        report.put("parentDeletedCount", parentDeleted);
         report.put("status", "SUCCESS");
         return report;
     }
@@ -596,6 +699,7 @@ public class UserVectorApp {
         if (!idsToDelete.isEmpty()) {
             ChromaApi.DeleteEmbeddingsRequest deleteRequest = new ChromaApi.DeleteEmbeddingsRequest(idsToDelete);
             deleteApiStatus = chromaApi.deleteEmbeddings(TENANT, DATABASE, collection.id(), deleteRequest);
+            bumpIfPublic(collectionName, "cleanupDuplicates");
         }
 
         // 5. 生成报告
@@ -609,6 +713,107 @@ public class UserVectorApp {
         return report;
     }
 
+    /**
+     * 一次性回填：为历史公共分片（无 userId 且未打 scope 标签）补写 {@code scope=public}
+     * <p>
+     * 按批扫描集合，原样带回向量与文本，仅合并元数据后批量 upsert，不会重新调用 Embedding。
+     * 已打标签的分片会被跳过，可重复执行。
+     *
+     * @param collectionName 集合名称
+     * @param batchSize      每批扫描/写回条数
+     * @return 回填报告
+     */
+    public Map<String, Object> backfillPublicScope(String collectionName, Integer batchSize) {
+        int size = (batchSize != null && batchSize > 0) ? batchSize : 200;
+        ChromaApi.Collection collection = chromaApi.getCollection(TENANT, DATABASE, collectionName);
+        if (collection == null) {
+            return Map.of("error", "Collection not found: " + collectionName);
+        }
+
+        int scanned = 0;
+        int tagged = 0;
+        int skippedUser = 0;
+        int offset = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+            ChromaApi.GetEmbeddingsRequest request = new ChromaApi.GetEmbeddingsRequest(
+                    null,
+                    null,
+                    size,
+                    offset,
+                    List.of(ChromaApi.QueryRequest.Include.DOCUMENTS,
+                            ChromaApi.QueryRequest.Include.METADATAS,
+                            ChromaApi.QueryRequest.Include.EMBEDDINGS));
+            ChromaApi.GetEmbeddingResponse response = chromaApi.getEmbeddings(TENANT, DATABASE, collection.id(), request);
+            List<String> ids = response == null ? List.of() : response.ids();
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            List<String> documents = response.documents();
+            List<Map<String, String>> metadatas = response.metadata();
+            List<float[]> embeddings = response.embeddings();
+
+            List<String> upsertIds = new ArrayList<>();
+            List<float[]> upsertEmbeddings = new ArrayList<>();
+            List<Map<String, Object>> upsertMetadatas = new ArrayList<>();
+            List<String> upsertDocuments = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i++) {
+                Map<String, Object> metadata = new LinkedHashMap<>();
+                if (metadatas != null && i < metadatas.size() && metadatas.get(i) != null) {
+                    metadata.putAll(metadatas.get(i));
+                }
+                if (metadata.containsKey("userId")) {
+                    skippedUser++;
+                    continue;
+                }
+                if (SCOPE_PUBLIC.equals(metadata.get(SCOPE_KEY))) {
+                    continue;
+                }
+                if (embeddings == null || i >= embeddings.size() || embeddings.get(i) == null) {
+                    log.warn("[UserVectorApp] Backfill skipped {}: embedding missing", ids.get(i));
+                    continue;
+                }
+                metadata.put(SCOPE_KEY, SCOPE_PUBLIC);
+                upsertIds.add(ids.get(i));
+                upsertEmbeddings.add(embeddings.get(i));
+                upsertMetadatas.add(metadata);
+                upsertDocuments.add(documents != null && i < documents.size() ? documents.get(i) : "");
+            }
+            if (!upsertIds.isEmpty()) {
+                chromaApi.upsertEmbeddings(TENANT, DATABASE, collection.id(),
+                        new ChromaApi.AddEmbeddingsRequest(upsertIds, upsertEmbeddings, upsertMetadatas, upsertDocuments));
+                tagged += upsertIds.size();
+            }
+
+            scanned += ids.size();
+            // upsert 不改变条目数量，offset 分页保持稳定
+            offset += ids.size();
+            hasMore = ids.size() >= size;
+            log.info("[UserVectorApp] Scope backfill progress: scanned={}, tagged={}", scanned, tagged);
+        }
+
+        if (tagged > 0) {
+            publicSearchCache.bumpVersion("backfillPublicScope");
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("collection", collectionName);
+        report.put("scanned", scanned);
+        report.put("tagged", tagged);
+        report.put("skippedUser", skippedUser);
+        report.put("status", "SUCCESS");
+        return report;
+    }
+
+    /**
+     * 仅公共集合的变更会影响公共检索结果缓存
+     */
+    private void bumpIfPublic(String collectionName, String reason) {
+        if (!collectionRouter.isSplit() || collectionRouter.isPublicCollection(collectionName)) {
+            publicSearchCache.bumpVersion(reason);
+        }
+    }
+
     private boolean matchesItem(
             String id,
             String content,
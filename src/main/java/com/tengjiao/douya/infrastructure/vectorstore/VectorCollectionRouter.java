@@ -0,0 +1,227 @@
+package com.tengjiao.douya.infrastructure.vectorstore;
+
+import com.tengjiao.douya.infrastructure.config.ChromaProperties;
+import com.tengjiao.douya.infrastructure.config.VectorCollectionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chroma.vectorstore.ChromaApi;
+import org.springframework.ai.chroma.vectorstore.ChromaVectorStore;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 向量集合路由
+ * <p>
+ * 公共 PDF 文档留在原集合（{@code spring.ai.vectorstore.chroma.collection-name}），
+ * 用户对话记忆按 userId 哈希写入 {@code memoryCollectionPrefix + shard} 分片集合，
+ * 用户检索只扫描所属分片，公共检索只扫描公共集合；需要跨集合的查询（调试全量检索、旧记忆兼容）
+ * 通过 {@link #fanOut} 并行检索后按相似度合并。
+ */
+@Slf4j
+@Component
+public class VectorCollectionRouter {
+
+    private static final String TENANT = "SpringAiTenant";
+    private static final String DATABASE = "SpringAiDatabase";
+
+    private final VectorStore publicStore;
+    private final ChromaApi chromaApi;
+    private final EmbeddingModel embeddingModel;
+    private final ChromaProperties chromaProperties;
+    private final VectorCollectionProperties properties;
+    private final Map<String, VectorStore> memoryStores = new ConcurrentHashMap<>();
+
+    public VectorCollectionRouter(
+            VectorStore chromaVectorStore,
+            ChromaApi chromaApi,
+            @Qualifier("dashscopeEmbeddingModel") EmbeddingModel embeddingModel,
+            EmbeddingCache embeddingCache,
+            ChromaProperties chromaProperties,
+            VectorCollectionProperties properties
+    ) {
+        this.publicStore = chromaVectorStore;
+        this.chromaApi = chromaApi;
+        this.embeddingModel = new CachingEmbeddingModel(embeddingModel, embeddingCache);
+        this.chromaProperties = chromaProperties;
+        this.properties = properties;
+    }
+
+    public boolean isSplit() {
+        return properties.isSplit();
+    }
+
+    public String publicCollection() {
+        return chromaProperties.getCollectionName();
+    }
+
+    public boolean isPublicCollection(String collectionName) {
+        return publicCollection().equals(collectionName);
+    }
+
+    public VectorStore publicStore() {
+        return publicStore;
+    }
+
+    /**
+     * 用户记忆所在集合名称
+     */
+    public String memoryCollection(String userId) {
+        if (!properties.isSplit()) {
+            return publicCollection();
+        }
+        int shards = Math.max(1, properties.getMemoryShards());
+        return properties.getMemoryCollectionPrefix() + Math.floorMod(userId.hashCode(), shards);
+    }
+
+    /**
+     * 用户记忆写入目标
+     */
+    public VectorStore memoryStore(String userId) {
+        if (!properties.isSplit()) {
+            return publicStore;
+        }
+        return memoryStores.computeIfAbsent(memoryCollection(userId), this::createStore);
+    }
+
+    /**
+     * 用户记忆检索范围：所属分片，开启兼容时附带公共集合中的旧记忆
+     */
+    public List<VectorStore> memoryReadStores(String userId) {
+        if (!properties.isSplit()) {
+            return List.of(publicStore);
+        }
+        if (properties.isLegacyMemoryFallback()) {
+            return List.of(memoryStore(userId), publicStore);
+        }
+        return List.of(memoryStore(userId));
+    }
+
+    /**
+     * 全部用户记忆分片集合名称，未拆分时为空
+     */
+    public List<String> memoryCollections() {
+        if (!properties.isSplit()) {
+            return List.of();
+        }
+        int shards = Math.max(1, properties.getMemoryShards());
+        List<String> names = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            names.add(properties.getMemoryCollectionPrefix() + i);
+        }
+        return names;
+    }
+
+    /**
+     * 公共集合 + 全部记忆分片，供仪表盘遍历
+     */
+    public List<String> collections() {
+        List<String> names = new ArrayList<>();
+        names.add(publicCollection());
+        names.addAll(memoryCollections());
+        return names;
+    }
+
+    public boolean isKnownCollection(String collectionName) {
+        return collections().contains(collectionName);
+    }
+
+    /**
+     * 公共集合与全部记忆分片对应的 VectorStore
+     */
+    public List<VectorStore> allStores() {
+        List<VectorStore> stores = new ArrayList<>();
+        stores.add(publicStore);
+        memoryCollections().forEach(name -> stores.add(memoryStores.computeIfAbsent(name, this::createStore)));
+        return stores;
+    }
+
+    /**
+     * 并行检索多个集合并按相似度合并
+     * <p>
+     * 单个集合失败或超时只记录告警，不影响其余集合的结果；按 id 去重后取分数最高的 topK 条。
+     *
+     * @param searches 每个集合的检索动作
+     * @param topK     合并后保留条数
+     */
+    public List<Document> fanOut(List<Supplier<List<Document>>> searches, int topK) {
+        if (searches.isEmpty()) {
+            return List.of();
+        }
+        if (searches.size() == 1) {
+            return limit(searches.getFirst().get(), topK);
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<List<Document>>> futures = new ArrayList<>(searches.size());
+            for (Supplier<List<Document>> search : searches) {
+                futures.add(executor.submit(search::get));
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFanOutTimeoutMillis());
+            List<Document> merged = new ArrayList<>();
+            for (Future<List<Document>> future : futures) {
+                try {
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    List<Document> docs = future.get(remaining, TimeUnit.NANOSECONDS);
+                    if (docs != null) {
+                        merged.addAll(docs);
+                    }
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    log.warn("[VectorCollectionRouter] 集合检索超时，已丢弃该集合结果");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    log.warn("[VectorCollectionRouter] 集合检索失败: {}", e.getMessage());
+                }
+            }
+            return limit(merged, topK);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Document> limit(List<Document> docs, int topK) {
+        if (docs == null || docs.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Document> unique = new LinkedHashMap<>();
+        docs.stream()
+                .sorted(Comparator.comparing((Document doc) -> doc.getScore() == null ? 0.0 : doc.getScore()).reversed())
+                .forEach(doc -> unique.putIfAbsent(doc.getId(), doc));
+        return unique.values().stream().limit(topK).toList();
+    }
+
+    private VectorStore createStore(String collectionName) {
+        ChromaVectorStore store = ChromaVectorStore.builder(chromaApi, embeddingModel)
+                .collectionName(collectionName)
+                .databaseName(DATABASE)
+                .tenantName(TENANT)
+                .initializeSchema(true)
+                .build();
+        try {
+            // 非 Spring 管理的实例需手动初始化，集合不存在时自动创建
+            store.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new IllegalStateException("初始化向量集合失败: " + collectionName, e);
+        }
+        log.info("[VectorCollectionRouter] 已初始化记忆集合 {}", collectionName);
+        return store;
+    }
+}
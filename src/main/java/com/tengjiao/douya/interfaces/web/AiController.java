@@ -8,15 +8,19 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 /**
  * 智能体
@@ -24,13 +28,20 @@ import java.util.Optional;
  * @author tengjiao
  * @since 2025-12-04 14:56
  */
+@Slf4j
 @RestController
 @RequestMapping("/douya")
 @Tag(name = "智能体")
 @RequiredArgsConstructor
 public class AiController {
 
+    /**
+     * 流式对话最长保持时间：覆盖 PromptRewriter + Supervisor + Worker 的完整链路
+     */
+    private static final long CHAT_STREAM_TIMEOUT_MS = 5 * 60 * 1000L;
+
     private final EatingMasterApp eatingMasterApp;
+    private final ExecutorService chatStreamExecutor;
 
     @GetMapping("/hello")
     @Operation(summary = "健康监测")
@@ -47,6 +58,28 @@ public class AiController {
         return eatingMasterApp.ask(message, userId);
     }
 
+    @GetMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "与吃饭大师对话（SSE 流式：路由决策、工具调用与答复 token 实时推送）")
+    public SseEmitter chatStream(
+            @Parameter(description = "用户消息") @RequestParam String message,
+            @Parameter(description = "用户ID") @RequestParam(defaultValue = "user_001") String userId
+    ) {
+        SseEmitter emitter = new SseEmitter(CHAT_STREAM_TIMEOUT_MS);
+        SseGraphStreamListener listener = new SseGraphStreamListener(emitter);
+        chatStreamExecutor.execute(() -> {
+            try {
+                String reply = eatingMasterApp.askStream(message, userId, listener);
+                listener.done(reply);
+            } catch (Exception e) {
+                log.error("[SSE] 流式对话失败, userId={}", userId, e);
+                listener.error(e.getMessage());
+            } finally {
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
     @GetMapping("/preferences")
     @Operation(summary = "获取用户偏好")
     public List<String> getPreferences(
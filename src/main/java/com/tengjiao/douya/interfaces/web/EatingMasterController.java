@@ -2,9 +2,11 @@ package com.tengjiao.douya.interfaces.web;
 
 import com.tengjiao.douya.application.service.EatingMasterApp;
 import com.tengjiao.douya.domain.eating.model.DocumentSplitStrategy;
+import com.tengjiao.douya.domain.eating.model.PdfIngestJob;
 import com.tengjiao.douya.domain.eating.model.PdfProcessResult;
 import com.tengjiao.douya.domain.eating.model.PdfSplitOptions;
 import com.tengjiao.douya.domain.eating.service.PdfDocumentService;
+import com.tengjiao.douya.domain.eating.service.PdfIngestJobService;
 import com.tengjiao.douya.infrastructure.config.ChromaProperties;
 import com.tengjiao.douya.infrastructure.vectorstore.UserVectorApp;
 
@@ -18,6 +20,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -39,6 +42,7 @@ public class EatingMasterController {
     private final UserVectorApp userVectorApp;
     private final ChromaProperties chromaProperties;
     private final PdfDocumentService pdfDocumentService;
+    private final PdfIngestJobService pdfIngestJobService;
 
     @GetMapping("/ask")
     @Operation(summary = "询问美食问题")
@@ -46,6 +50,12 @@ public class EatingMasterController {
         return eatingMasterApp.ask(question);
     }
 
+    @GetMapping("/supervisor/stats")
+    @Operation(summary = "查看 Supervisor 规则路由命中统计（节省的 LLM 路由调用次数）")
+    public Map<String, Object> getSupervisorStats() {
+        return eatingMasterApp.getSupervisorRouteStats();
+    }
+
     @PostMapping("/pdf/upload")
     @Operation(summary = "上传并处理 PDF 文档(同步)")
     public PdfProcessResult uploadPdf(
@@ -73,6 +83,46 @@ public class EatingMasterController {
         }
     }
 
+    @PostMapping("/pdf/jobs")
+    @Operation(summary = "提交 PDF 异步入库任务，返回 jobId")
+    public Map<String, Object> submitPdfJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "documentName", required = false) String documentName,
+            @RequestParam(value = "splitStrategy", required = false) String splitStrategy) {
+
+        String fileName = (documentName != null && !documentName.isEmpty())
+                ? documentName : file.getOriginalFilename();
+        log.info("接收到 PDF 异步入库请求: {}, 大小: {} bytes", fileName, file.getSize());
+
+        PdfSplitOptions options = PdfSplitOptions.builder()
+                .strategy(parseSplitStrategy(splitStrategy))
+                .build();
+        try (InputStream inputStream = file.getInputStream()) {
+            return pdfIngestJobService.submit(inputStream, fileName, options).snapshot();
+        } catch (IOException e) {
+            log.error("读取上传文件失败: {}", e.getMessage(), e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("documentName", fileName);
+            error.put("status", "FAILED");
+            error.put("errorMessage", "文件读取失败: " + e.getMessage());
+            return error;
+        }
+    }
+
+    @GetMapping("/pdf/jobs/{jobId}")
+    @Operation(summary = "查询 PDF 入库任务状态与进度")
+    public Map<String, Object> getPdfJob(@PathVariable String jobId) {
+        return pdfIngestJobService.getJob(jobId)
+                .map(PdfIngestJob::snapshot)
+                .orElseGet(() -> Map.of("error", "任务不存在或已过期: " + jobId));
+    }
+
+    @GetMapping("/pdf/jobs")
+    @Operation(summary = "查看最近的 PDF 入库任务与执行器水位")
+    public Map<String, Object> listPdfJobs() {
+        return pdfIngestJobService.overview();
+    }
+
     private DocumentSplitStrategy parseSplitStrategy(String splitStrategy) {
         if (splitStrategy == null || splitStrategy.isBlank()) {
             return null;
@@ -133,6 +183,18 @@ public class EatingMasterController {
         return result;
     }
 
+    @GetMapping("/vector/embedding-cache")
+    @Operation(summary = "查看查询向量缓存命中率")
+    public Map<String, Object> getEmbeddingCacheStats() {
+        return userVectorApp.getEmbeddingCacheStats();
+    }
+
+    @GetMapping("/vector/public-search-cache")
+    @Operation(summary = "查看公共检索结果缓存命中率与集合版本")
+    public Map<String, Object> getPublicSearchCacheStats() {
+        return userVectorApp.getPublicSearchCacheStats();
+    }
+
     @GetMapping("/vector/collection/raw")
     @Operation(summary = "获取 Collection 的原始向量内容（参考 Chroma get 接口）")
     public Map<String, Object> getCollectionRaw(
@@ -164,6 +226,20 @@ public class EatingMasterController {
         }
     }
 
+    @PostMapping("/vector/backfill-scope")
+    @Operation(summary = "一次性为历史公共分片补写 scope=public 元数据")
+    public Map<String, Object> backfillPublicScope(@RequestParam(required = false) Integer batchSize) {
+        String collectionName = chromaProperties.getCollectionName();
+        try {
+            return userVectorApp.backfillPublicScope(collectionName, batchSize);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("status", "FAILED");
+            return error;
+        }
+    }
+
     @PostMapping("/vector/clean")
     @Operation(summary = "手动触发向量库去重清洗")
     public Map<String, Object> cleanVectors() {
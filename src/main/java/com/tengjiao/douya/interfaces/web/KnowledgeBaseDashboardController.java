@@ -1,9 +1,9 @@
 package com.tengjiao.douya.interfaces.web;
 
-import com.tengjiao.douya.infrastructure.config.ChromaProperties;
 import com.tengjiao.douya.infrastructure.external.pageindexrag.PageIndexRagClient;
 import com.tengjiao.douya.infrastructure.external.pageindexrag.PageIndexRagStoreService;
 import com.tengjiao.douya.infrastructure.vectorstore.UserVectorApp;
+import com.tengjiao.douya.infrastructure.vectorstore.VectorCollectionRouter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -35,7 +35,7 @@ import java.util.Map;
 public class KnowledgeBaseDashboardController {
 
     private final UserVectorApp userVectorApp;
-    private final ChromaProperties chromaProperties;
+    private final VectorCollectionRouter collectionRouter;
     private final PageIndexRagClient pageIndexRagClient;
     private final PageIndexRagStoreService pageIndexRagStoreService;
 
@@ -45,15 +45,15 @@ public class KnowledgeBaseDashboardController {
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("updated_at", Instant.now().toString());
 
-        String collectionName = chromaProperties.getCollectionName();
         Map<String, Object> chroma = new LinkedHashMap<>();
-        chroma.put("collection_name", collectionName);
-        try {
-            Map<String, Object> raw = userVectorApp.getChromaRawData(collectionName, 1, 0);
-            chroma.put("total_chunks", raw.getOrDefault("total", 0));
-        } catch (Exception e) {
-            chroma.put("error", e.getMessage());
-        }
+        chroma.put("collection_name", collectionRouter.publicCollection());
+        List<Map<String, Object>> collections = collectionStats();
+        chroma.put("collections", collections);
+        chroma.put("total_chunks", collections.stream()
+                .map(item -> item.get("total_chunks"))
+                .filter(Number.class::isInstance)
+                .mapToLong(total -> ((Number) total).longValue())
+                .sum());
         result.put("chroma", chroma);
 
         Map<String, Object> pageIndex = new LinkedHashMap<>();
@@ -67,38 +67,106 @@ public class KnowledgeBaseDashboardController {
         return result;
     }
 
+    @GetMapping("/chroma/collections")
+    @Operation(summary = "列出 Chroma 集合（公共文档 + 用户记忆分片）及条目数")
+    public List<Map<String, Object>> chromaCollections() {
+        return collectionStats();
+    }
+
     @GetMapping("/chroma/items")
     @Operation(summary = "分页查看 Chroma 知识条目")
     public Map<String, Object> chromaItems(
             @RequestParam(required = false, defaultValue = "20") Integer limit,
             @RequestParam(required = false, defaultValue = "0") Integer offset,
             @RequestParam(required = false) String keyword,
-            @RequestParam(required = false) String documentName
+            @RequestParam(required = false) String documentName,
+            @RequestParam(required = false) String collection
     ) {
-        return userVectorApp.getDashboardItems(chromaProperties.getCollectionName(), limit, offset, keyword, documentName);
+        String collectionName = resolveCollection(collection);
+        if (collectionName == null) {
+            return unknownCollection(collection);
+        }
+        return userVectorApp.getDashboardItems(collectionName, limit, offset, keyword, documentName);
     }
 
     @GetMapping("/chroma/items/{id}")
     @Operation(summary = "查看单个 Chroma 条目详情")
-    public Map<String, Object> chromaItem(@PathVariable String id) {
-        return userVectorApp.getChunkById(chromaProperties.getCollectionName(), id);
+    public Map<String, Object> chromaItem(
+            @PathVariable String id,
+            @RequestParam(required = false) String collection
+    ) {
+        String collectionName = resolveCollection(collection);
+        if (collectionName == null) {
+            return unknownCollection(collection);
+        }
+        return userVectorApp.getChunkById(collectionName, id);
     }
 
     @PutMapping("/chroma/items/{id}")
     @Operation(summary = "编辑更新单个 Chroma 条目")
     public Map<String, Object> updateChromaItem(
             @PathVariable String id,
+            @RequestParam(required = false) String collection,
             @RequestBody Map<String, Object> request
     ) {
+        String collectionName = resolveCollection(collection);
+        if (collectionName == null) {
+            return unknownCollection(collection);
+        }
         String content = toText(request.get("content"));
         Map<String, Object> metadata = toMetadataMap(request.get("metadata"));
-        return userVectorApp.updateChunkById(chromaProperties.getCollectionName(), id, content, metadata);
+        return userVectorApp.updateChunkById(collectionName, id, content, metadata);
     }
 
     @DeleteMapping("/chroma/items/{id}")
     @Operation(summary = "删除单个 Chroma 条目")
-    public Map<String, Object> deleteChromaItem(@PathVariable String id) {
-        return userVectorApp.deleteById(chromaProperties.getCollectionName(), id);
+    public Map<String, Object> deleteChromaItem(
+            @PathVariable String id,
+            @RequestParam(required = false) String collection
+    ) {
+        String collectionName = resolveCollection(collection);
+        if (collectionName == null) {
+            return unknownCollection(collection);
+        }
+        return userVectorApp.deleteById(collectionName, id);
+    }
+
+    /**
+     * 未指定时默认公共集合；仅允许访问路由器管理的集合
+     */
+    private String resolveCollection(String collection) {
+        if (collection == null || collection.isBlank()) {
+            return collectionRouter.publicCollection();
+        }
+        String name = collection.trim();
+        return collectionRouter.isKnownCollection(name) ? name : null;
+    }
+
+    private Map<String, Object> unknownCollection(String collection) {
+        return Map.of("error", "未知集合: " + collection, "collections", collectionRouter.collections());
+    }
+
+    private List<Map<String, Object>> collectionStats() {
+        List<Map<String, Object>> collections = new ArrayList<>();
+        for (String name : collectionRouter.collections()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("collection_name", name);
+            item.put("scope", collectionRouter.isPublicCollection(name) ? "public" : "memory");
+            try {
+                Map<String, Object> raw = userVectorApp.getChromaRawData(name, 1, 0);
+                if (raw.containsKey("error")) {
+                    // 记忆分片在首次写入前不存在
+                    item.put("total_chunks", 0);
+                } else {
+                    item.put("total_chunks", raw.getOrDefault("total", 0));
+                }
+            } catch (Exception e) {
+                item.put("total_chunks", 0);
+                item.put("error", e.getMessage());
+            }
+            collections.add(item);
+        }
+        return collections;
     }
 
     @GetMapping("/page-index/docs")
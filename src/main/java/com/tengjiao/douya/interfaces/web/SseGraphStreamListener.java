@@ -0,0 +1,71 @@
+package com.tengjiao.douya.interfaces.web;
+
+import com.tengjiao.douya.application.graph.GraphStreamListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 将图运行进度写出为 SSE 事件
+ * <p>
+ * 事件类型：route（路由决策）、agent（子 Agent 开始）、tool（工具调用）、token（增量文本）、done（最终答复）、error。
+ * 客户端断开后静默丢弃后续事件，不影响图继续执行与对话落库。
+ */
+@Slf4j
+class SseGraphStreamListener implements GraphStreamListener {
+
+    private final SseEmitter emitter;
+    private volatile boolean closed;
+
+    SseGraphStreamListener(SseEmitter emitter) {
+        this.emitter = emitter;
+        emitter.onCompletion(() -> closed = true);
+        emitter.onTimeout(() -> closed = true);
+        emitter.onError(e -> closed = true);
+    }
+
+    @Override
+    public void onRoute(Map<String, Object> entry) {
+        send("route", entry);
+    }
+
+    @Override
+    public void onAgentStart(String agentName) {
+        send("agent", Map.of("agent", agentName));
+    }
+
+    @Override
+    public void onToolCall(String agentName, String toolName) {
+        send("tool", Map.of("agent", agentName, "tool", toolName));
+    }
+
+    @Override
+    public void onToken(String agentName, String token) {
+        send("token", Map.of("agent", agentName, "content", token));
+    }
+
+    void done(String reply) {
+        send("done", Map.of("content", reply == null ? "" : reply));
+    }
+
+    void error(String message) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("error", message);
+        send("error", data);
+    }
+
+    private synchronized void send(String event, Object data) {
+        if (closed) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            closed = true;
+            log.debug("[SSE] 客户端已断开，停止推送: event={}, reason={}", event, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.tengjiao.douya.app;
+
+import com.tengjiao.douya.application.service.evaluator.DocumentEvaluator;
+import com.tengjiao.douya.application.service.evaluator.RerankMode;
+import com.tengjiao.douya.infrastructure.config.DocumentRerankProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DocumentEvaluator 并行评分、超时回退、列表评分与指标
+ * 使用桩 ChatModel：文档内容中的 score=N 即为评分，slow 文档模拟卡住的模型调用。
+ */
+class DocumentEvaluatorTest {
+
+    private static final Pattern SCORE = Pattern.compile("score=(\\d+)");
+    private static final long CALL_LATENCY_MS = 200;
+
+    private final ChatModel stubModel = prompt -> {
+        String text = prompt.getContents();
+        sleep(text.contains("slow") ? 5_000 : CALL_LATENCY_MS);
+        Matcher matcher = SCORE.matcher(text);
+        String score = matcher.find() ? matcher.group(1) : "0";
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(score))));
+    };
+
+    @Test
+    void scoresInParallelAndSortsByScore() {
+        DocumentRerankProperties properties = new DocumentRerankProperties();
+        properties.setMaxConcurrency(6);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DocumentEvaluator evaluator = new DocumentEvaluator(stubModel, properties, registry);
+
+        List<Document> docs = List.of(doc("a", 2), doc("b", 9), doc("c", 5), doc("d", 7), doc("e", 1), doc("f", 8));
+
+        long start = System.currentTimeMillis();
+        List<Document> ranked = evaluator.evaluateAndRerank("红烧肉", docs, 3);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(List.of("b", "f", "d"), ranked.stream().map(Document::getId).toList());
+        assertTrue(elapsed < docs.size() * CALL_LATENCY_MS, "并行评分耗时应明显低于串行: " + elapsed + " ms");
+        assertEquals(6, registry.get("douya.rerank.call.duration").timer().count());
+        assertEquals(1, registry.get("douya.rerank.duration").tag("mode", "pointwise").timer().count());
+    }
+
+    @Test
+    void timedOutDocumentKeepsVectorRank() {
+        DocumentRerankProperties properties = new DocumentRerankProperties();
+        properties.setMaxConcurrency(4);
+        properties.setPerDocumentTimeoutMillis(600);
+        properties.setDeadlineMillis(2_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DocumentEvaluator evaluator = new DocumentEvaluator(stubModel, properties, registry);
+
+        // 向量名次第一的文档评分卡住，应保留在第一位；其余按分数重排
+        List<Document> docs = List.of(
+                new Document("slow", "slow 文档", Map.of()),
+                doc("b", 3), doc("c", 9), doc("d", 6));
+
+        long start = System.currentTimeMillis();
+        List<Document> ranked = evaluator.evaluateAndRerank("红烧肉", docs, 4);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(List.of("slow", "c", "d", "b"), ranked.stream().map(Document::getId).toList());
+        assertTrue(elapsed < 2_000, "超时文档不应拖慢整体重排: " + elapsed + " ms");
+        assertEquals(1.0, registry.get("douya.rerank.fallback").counter().count());
+    }
+
+    @Test
+    void listwiseScoresAllCandidatesInOneCall() {
+        AtomicInteger calls = new AtomicInteger();
+        ChatModel listwiseModel = countingModel(calls, prompt ->
+                "[{\"id\": 1, \"score\": 2}, {\"id\": 2, \"score\": 9}, {\"id\": 3, \"score\": 5}]");
+        DocumentEvaluator evaluator = new DocumentEvaluator(listwiseModel, new DocumentRerankProperties(), new SimpleMeterRegistry());
+
+        List<Document> ranked = evaluator.evaluateAndRerank("红烧肉", List.of(doc("a", 0), doc("b", 0), doc("c", 0)), 3, RerankMode.LISTWISE);
+
+        assertEquals(1, calls.get());
+        assertEquals(List.of("b", "c", "a"), ranked.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    void listwiseAcceptsPlainScoreArray() {
+        AtomicInteger calls = new AtomicInteger();
+        ChatModel listwiseModel = countingModel(calls, prompt -> "评分如下：[1, 4, 8]");
+        DocumentEvaluator evaluator = new DocumentEvaluator(listwiseModel, new DocumentRerankProperties(), new SimpleMeterRegistry());
+
+        List<Document> ranked = evaluator.evaluateAndRerank("红烧肉", List.of(doc("a", 0), doc("b", 0), doc("c", 0)), 2, RerankMode.LISTWISE);
+
+        assertEquals(1, calls.get());
+        assertEquals(List.of("c", "b"), ranked.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    void listwiseFallsBackToPointwiseWhenUnparseable() {
+        AtomicInteger calls = new AtomicInteger();
+        ChatModel model = countingModel(calls, prompt -> {
+            if (prompt.contains("JSON 分数数组")) {
+                return "抱歉，我无法给出评分";
+            }
+            Matcher matcher = SCORE.matcher(prompt);
+            return matcher.find() ? matcher.group(1) : "0";
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DocumentEvaluator evaluator = new DocumentEvaluator(model, new DocumentRerankProperties(), registry);
+
+        List<Document> ranked = evaluator.evaluateAndRerank("红烧肉", List.of(doc("a", 3), doc("b", 7), doc("c", 5)), 3, RerankMode.LISTWISE);
+
+        assertEquals(1 + 3, calls.get());
+        assertEquals(List.of("b", "c", "a"), ranked.stream().map(Document::getId).toList());
+        assertEquals(1, registry.get("douya.rerank.duration").tag("mode", "pointwise").timer().count());
+    }
+
+    @Test
+    void listwiseTimeoutKeepsVectorOrderWithinDeadline() {
+        AtomicInteger calls = new AtomicInteger();
+        ChatModel model = countingModel(calls, prompt -> {
+            if (prompt.contains("JSON 分数数组")) {
+                sleep(5_000);
+            }
+            Matcher matcher = SCORE.matcher(prompt);
+            return matcher.find() ? matcher.group(1) : "0";
+        });
+        DocumentRerankProperties properties = new DocumentRerankProperties();
+        properties.setDeadlineMillis(800);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DocumentEvaluator evaluator = new DocumentEvaluator(model, properties, registry);
+
+        long start = System.currentTimeMillis();
+        List<Document> ranked = evaluator.evaluateAndRerank("红烧肉", List.of(doc("a", 3), doc("b", 7), doc("c", 5)), 3, RerankMode.LISTWISE);
+        long elapsed = System.currentTimeMillis() - start;
+
+        // 列表评分已用完截止时间，不再追加一轮逐文档评分
+        assertEquals(1, calls.get());
+        assertEquals(List.of("a", "b", "c"), ranked.stream().map(Document::getId).toList());
+        assertTrue(elapsed < 1_500, "整次重排不应超过一个截止时间: " + elapsed + " ms");
+        assertEquals(3.0, registry.get("douya.rerank.fallback").counter().count());
+    }
+
+    private static ChatModel countingModel(AtomicInteger calls, Function<String, String> reply) {
+        return prompt -> {
+            calls.incrementAndGet();
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(reply.apply(prompt.getContents())))));
+        };
+    }
+
+    private static Document doc(String id, int score) {
+        return new Document(id, "菜谱片段 " + id + " score=" + score, Map.of());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.tengjiao.douya.app;
+
+import com.alibaba.cloud.ai.graph.CompiledGraph;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.agent.ReactAgent;
+import com.alibaba.cloud.ai.graph.store.stores.MemoryStore;
+import com.tengjiao.douya.application.agent.DailyAssistantAgent;
+import com.tengjiao.douya.application.agent.EatingMasterAgent;
+import com.tengjiao.douya.application.agent.PromptRewriterAgent;
+import com.tengjiao.douya.application.agent.VisionUnderstandAgent;
+import com.tengjiao.douya.application.graph.EatingMasterGraph;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多智能体图单次请求耗时对比：
+ * 旧方案每次请求都构建 4 个 ReactAgent（含 Skill 扫描）并编译 StateGraph，
+ * 新方案启动期编译一次，请求期只构建 RunnableConfig。
+ * 两组都计入完整的单次请求路径（准备 + 运行图），使用桩 ChatModel，不产生真实 LLM 调用。
+ */
+@Slf4j
+class EatingMasterGraphSetupBenchmarkTest {
+
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 30;
+
+    private final ChatModel stubModel = prompt -> new ChatResponse(List.of(new Generation(new AssistantMessage("FINISH"))));
+    private final MemoryStore memoryStore = new MemoryStore();
+
+    @Test
+    void perRequestSetupCost() throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            invoke(buildGraphPerRequest(), "bench_user_" + i);
+        }
+        long perRequestNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            OverAllState state = invoke(buildGraphPerRequest(), "bench_user_" + i);
+            perRequestNanos += System.nanoTime() - start;
+            assertNotNull(state);
+        }
+
+        CompiledGraph shared = buildGraphPerRequest();
+        for (int i = 0; i < WARMUP; i++) {
+            invoke(shared, "bench_user_" + i);
+        }
+        long sharedNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            OverAllState state = invoke(shared, "bench_user_" + i);
+            sharedNanos += System.nanoTime() - start;
+            assertNotNull(state);
+        }
+
+        double beforeMs = perRequestNanos / 1_000_000.0 / ITERATIONS;
+        double afterMs = sharedNanos / 1_000_000.0 / ITERATIONS;
+        log.info("[Benchmark] 每请求构建 Agent + 编译图 + 运行: {} ms/req, 启动期编译复用 + 运行: {} ms/req",
+                String.format("%.3f", beforeMs), String.format("%.3f", afterMs));
+        assertTrue(afterMs <= beforeMs, "复用编译图的单次请求耗时不应高于每请求编译");
+    }
+
+    /**
+     * 单次请求路径：构建 config 并运行图（PromptRewriter -> supervisor -> FINISH）
+     */
+    private OverAllState invoke(CompiledGraph graph, String userId) throws Exception {
+        RunnableConfig config = EatingMasterGraph.runConfig("douya_flow", userId).store(memoryStore).build();
+        Map<String, Object> initialState = new HashMap<>();
+        initialState.put("messages", List.of(new UserMessage("今天吃什么")));
+        initialState.put("routing_count", 0);
+        initialState.put("routing_history", List.of());
+        return graph.invoke(initialState, config).orElseThrow();
+    }
+
+    private CompiledGraph buildGraphPerRequest() throws Exception {
+        ReactAgent eatingMaster = new EatingMasterAgent(stubModel, List.of(), List.of(), List.of()).build();
+        ReactAgent vision = new VisionUnderstandAgent(stubModel, List.of(), List.of(), List.of()).build();
+        ReactAgent daily = new DailyAssistantAgent(stubModel, List.of(), List.of(), List.of()).build();
+        ReactAgent rewriter = new PromptRewriterAgent(stubModel, List.of(), List.of(), List.of()).build();
+        return new EatingMasterGraph(stubModel, eatingMaster, vision, daily, rewriter,
+                "system", "{input}").createGraph();
+    }
+}
@@ -0,0 +1,103 @@
+package com.tengjiao.douya.app;
+
+import com.alibaba.cloud.ai.graph.CompiledGraph;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.store.stores.MemoryStore;
+import com.tengjiao.douya.application.agent.DailyAssistantAgent;
+import com.tengjiao.douya.application.agent.EatingMasterAgent;
+import com.tengjiao.douya.application.agent.PromptRewriterAgent;
+import com.tengjiao.douya.application.agent.VisionUnderstandAgent;
+import com.tengjiao.douya.application.graph.EatingMasterGraph;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 启动期编译一次的图被同一用户连续调用时，第二轮的状态与答复不带入第一轮的内容
+ * <p>
+ * 第一轮命中检索关键词交给 EatingMaster，第二轮由（桩）LLM 路由给 DailyAssistant；
+ * 若两轮共用 checkpoint，第二轮会继承 next=FINISH 与上一轮的 EatingMaster 输出。
+ */
+class EatingMasterGraphTurnIsolationTest {
+
+    private static final String USER_ID = "turn_user";
+
+    /**
+     * 子 Agent 桩模型：回显 prompt 中全部用户消息，若 Agent 读到上一轮的对话会体现在答复里
+     */
+    private final ChatModel agentModel = prompt -> reply("回复:" + userTexts(prompt));
+    private final ChatModel supervisorModel = prompt -> reply("DailyAssistant");
+    private final MemoryStore memoryStore = new MemoryStore();
+
+    @Test
+    void consecutiveTurnsDoNotShareState() throws Exception {
+        CompiledGraph graph = new EatingMasterGraph(supervisorModel,
+                new EatingMasterAgent(agentModel, List.of(), List.of(), List.of()).build(),
+                new VisionUnderstandAgent(agentModel, List.of(), List.of(), List.of()).build(),
+                new DailyAssistantAgent(agentModel, List.of(), List.of(), List.of()).build(),
+                new PromptRewriterAgent(agentModel, List.of(), List.of(), List.of()).build(),
+                "system", "{input}").createGraph();
+
+        RunnableConfig firstConfig = config();
+        OverAllState first = graph.invoke(initialState("搜索食谱 红烧肉"), firstConfig).orElseThrow();
+        assertTrue(answer(first, "EatingMaster").contains("红烧肉"));
+
+        RunnableConfig secondConfig = config();
+        assertNotEquals(firstConfig.threadId(), secondConfig.threadId());
+        OverAllState second = graph.invoke(initialState("今天金价多少"), secondConfig).orElseThrow();
+
+        assertFalse(second.data().containsKey("EatingMaster"), "上一轮的 EatingMaster 输出不应留在状态中");
+        String answer = answer(second, "DailyAssistant");
+        assertTrue(answer.contains("金价"));
+        assertFalse(answer.contains("红烧肉"), "第二轮答复不应包含上一轮内容: " + answer);
+
+        List<?> messages = (List<?>) second.value("messages").orElseThrow();
+        assertEquals(1, messages.stream().filter(UserMessage.class::isInstance).count());
+        for (Object message : messages) {
+            assertFalse(((Message) message).getText().contains("红烧肉"), "第二轮消息不应包含上一轮内容: " + message);
+        }
+    }
+
+    private RunnableConfig config() {
+        return EatingMasterGraph.runConfig("douya_flow", USER_ID).store(memoryStore).build();
+    }
+
+    private Map<String, Object> initialState(String text) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("messages", List.of(new UserMessage(text)));
+        state.put("routing_count", 0);
+        state.put("routing_history", List.of());
+        return state;
+    }
+
+    private String answer(OverAllState state, String agent) {
+        return ((AssistantMessage) state.value(agent).orElseThrow()).getText();
+    }
+
+    private static String userTexts(Prompt prompt) {
+        return prompt.getInstructions().stream()
+                .filter(UserMessage.class::isInstance)
+                .map(Message::getText)
+                .collect(Collectors.joining("|"));
+    }
+
+    private static ChatResponse reply(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
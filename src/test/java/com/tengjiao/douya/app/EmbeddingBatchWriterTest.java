@@ -0,0 +1,166 @@
+package com.tengjiao.douya.app;
+
+import com.tengjiao.douya.infrastructure.config.EmbeddingWriteProperties;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingBatchWriter;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddingBatchWriterTest {
+
+    @Test
+    void upsertsInOriginalOrderWithIndependentBatchSizes() {
+        EmbeddingWriteProperties properties = properties();
+        properties.setEmbedBatchSize(10);
+        properties.setUpsertBatchSize(25);
+        StubEmbeddingModel model = new StubEmbeddingModel(20, 0);
+        EmbeddingBatchWriter writer = new EmbeddingBatchWriter(model, null, properties, new SimpleMeterRegistry());
+
+        List<Document> documents = documents(95);
+        List<Integer> upsertSizes = Collections.synchronizedList(new ArrayList<>());
+        List<String> storedIds = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger reported = new AtomicInteger();
+        writer.write(documents, (docs, embeddings) -> {
+            upsertSizes.add(docs.size());
+            for (int i = 0; i < docs.size(); i++) {
+                storedIds.add(docs.get(i).getId());
+                assertArrayEquals(StubEmbeddingModel.vector(docs.get(i).getText()), embeddings.get(i));
+            }
+        }, reported::addAndGet);
+
+        assertEquals(documents.stream().map(Document::getId).toList(), storedIds);
+        assertEquals(95, reported.get());
+        // 每批 10 条攒到 ≥25 才 upsert：30 + 30 + 30 + 5
+        assertEquals(List.of(30, 30, 30, 5), upsertSizes);
+        assertEquals(10, model.calls.get());
+        assertTrue(model.maxConcurrent.get() > 1, "Embedding 批次应并发在途");
+        assertTrue(model.maxConcurrent.get() <= properties.getMaxInFlight());
+    }
+
+    @Test
+    void retriesFailedBatchWithBackoff() {
+        EmbeddingWriteProperties properties = properties();
+        StubEmbeddingModel model = new StubEmbeddingModel(0, 2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EmbeddingBatchWriter writer = new EmbeddingBatchWriter(model, null, properties, registry);
+
+        AtomicInteger stored = new AtomicInteger();
+        writer.write(documents(5), (docs, embeddings) -> stored.addAndGet(docs.size()), null);
+
+        assertEquals(5, stored.get());
+        assertEquals(3, model.calls.get());
+        assertEquals(2.0, registry.get("douya.embedding.write.retry").tag("throttled", "true").counter().count());
+    }
+
+    @Test
+    void failsAfterRetriesExhausted() {
+        EmbeddingWriteProperties properties = properties();
+        properties.setMaxRetries(1);
+        StubEmbeddingModel model = new StubEmbeddingModel(0, Integer.MAX_VALUE);
+        EmbeddingBatchWriter writer = new EmbeddingBatchWriter(model, null, properties, new SimpleMeterRegistry());
+
+        AtomicInteger stored = new AtomicInteger();
+        assertThrows(RuntimeException.class,
+                () -> writer.write(documents(5), (docs, embeddings) -> stored.addAndGet(docs.size()), null));
+        assertEquals(0, stored.get());
+    }
+
+    @Test
+    void rateLimiterSpacesRequestsAndTokens() throws InterruptedException {
+        EmbeddingRateLimiter requestLimited = new EmbeddingRateLimiter(20, 0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            requestLimited.acquire(1);
+        }
+        // 5 次请求在 20 次/秒下至少跨越 4 个间隔 = 200ms
+        assertTrue(System.nanoTime() - start >= 190_000_000L);
+
+        EmbeddingRateLimiter tokenLimited = new EmbeddingRateLimiter(0, 1000);
+        tokenLimited.acquire(100);
+        assertTrue(tokenLimited.acquire(100) >= 90_000_000L, "上一请求 100 token 在 1000 token/秒下应预约约 100ms");
+    }
+
+    private EmbeddingWriteProperties properties() {
+        EmbeddingWriteProperties properties = new EmbeddingWriteProperties();
+        properties.setRequestsPerSecond(0);
+        properties.setTokensPerSecond(0);
+        properties.setInitialBackoffMillis(1);
+        properties.setMaxBackoffMillis(5);
+        return properties;
+    }
+
+    private List<Document> documents(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Document.builder().id("doc-" + i).text("chunk text " + i).build())
+                .toList();
+    }
+
+    private static class StubEmbeddingModel implements EmbeddingModel {
+
+        private final long latencyMillis;
+        private final AtomicInteger remainingFailures;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        StubEmbeddingModel(long latencyMillis, int failures) {
+            this.latencyMillis = latencyMillis;
+            this.remainingFailures = new AtomicInteger(failures);
+        }
+
+        static float[] vector(String text) {
+            return new float[]{text.length(), text.hashCode()};
+        }
+
+        @Override
+        public List<float[]> embed(List<String> texts) {
+            calls.incrementAndGet();
+            maxConcurrent.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (remainingFailures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("429 Too Many Requests");
+                }
+                if (latencyMillis > 0) {
+                    Thread.sleep(latencyMillis);
+                }
+                return texts.stream().map(StubEmbeddingModel::vector).toList();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<float[]> vectors = embed(request.getInstructions());
+            List<Embedding> embeddings = new ArrayList<>(vectors.size());
+            for (int i = 0; i < vectors.size(); i++) {
+                embeddings.add(new Embedding(vectors.get(i), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.tengjiao.douya.app;
+
+import com.tengjiao.douya.infrastructure.config.EmbeddingCacheProperties;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 查询向量缓存：归一化命中、TTL 与容量淘汰
+ */
+class EmbeddingCacheTest {
+
+    private final AtomicInteger remoteCalls = new AtomicInteger();
+    private final Function<String, float[]> loader = text -> {
+        remoteCalls.incrementAndGet();
+        return new float[]{text.length(), 1f};
+    };
+
+    @Test
+    void nearDuplicateQueriesShareOneEmbedding() {
+        EmbeddingCache cache = new EmbeddingCache(new EmbeddingCacheProperties(), new SimpleMeterRegistry());
+
+        float[] first = cache.getOrCompute("红烧肉怎么做？", loader);
+        float[] second = cache.getOrCompute("  红烧肉怎么做  ", loader);
+        float[] third = cache.getOrCompute("红烧肉怎么做?", loader);
+
+        assertEquals(1, remoteCalls.get());
+        assertArrayEquals(first, second);
+        assertArrayEquals(first, third);
+        assertEquals(2.0 / 3, (double) cache.stats().get("hitRate"), 1e-9);
+    }
+
+    @Test
+    void expiredEntriesAreRecomputed() {
+        EmbeddingCacheProperties properties = new EmbeddingCacheProperties();
+        properties.setTtlSeconds(0);
+        EmbeddingCache cache = new EmbeddingCache(properties, new SimpleMeterRegistry());
+
+        cache.getOrCompute("番茄炒蛋", loader);
+        cache.getOrCompute("番茄炒蛋", loader);
+
+        assertEquals(2, remoteCalls.get());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        EmbeddingCacheProperties properties = new EmbeddingCacheProperties();
+        properties.setMaxSize(2);
+        EmbeddingCache cache = new EmbeddingCache(properties, new SimpleMeterRegistry());
+
+        cache.getOrCompute("a", loader);
+        cache.getOrCompute("b", loader);
+        cache.getOrCompute("a", loader);
+        cache.getOrCompute("c", loader);
+        cache.getOrCompute("a", loader);
+        cache.getOrCompute("b", loader);
+
+        // a/b/c 各一次未命中，a 两次命中，b 被 c 淘汰后再次未命中
+        assertEquals(4, remoteCalls.get());
+    }
+
+    @Test
+    void modelIsPartOfTheKey() {
+        EmbeddingCacheProperties properties = new EmbeddingCacheProperties();
+        properties.setModel("text-embedding-v3");
+        EmbeddingCache cache = new EmbeddingCache(properties, new SimpleMeterRegistry());
+
+        cache.getOrCompute("hello", loader);
+        properties.setModel("text-embedding-v4");
+        cache.getOrCompute("hello", loader);
+
+        assertEquals(2, remoteCalls.get());
+        assertEquals("hello world", EmbeddingCache.normalize("Hello  World!"));
+    }
+}
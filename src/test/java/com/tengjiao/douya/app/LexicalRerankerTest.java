@@ -0,0 +1,111 @@
+package com.tengjiao.douya.app;
+
+import com.tengjiao.douya.application.service.evaluator.EscalatingReranker;
+import com.tengjiao.douya.application.service.evaluator.LexicalReranker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地词法重排与分级升级策略
+ */
+class LexicalRerankerTest {
+
+    @Test
+    void tokenizeEmitsCjkUnigramsAndBigrams() {
+        List<String> tokens = LexicalReranker.tokenize("番茄炒蛋 Tomato-Egg 2人份");
+
+        assertTrue(tokens.containsAll(List.of("番", "茄", "番茄", "茄炒", "炒蛋", "tomato", "egg", "2", "人", "份", "人份")));
+        assertTrue(!tokens.contains("蛋t") && !tokens.contains("2人"), "CJK 二元组不应跨越非中文字符");
+    }
+
+    @Test
+    void lexicalMatchOutranksVectorNeighbour() {
+        List<Document> docs = List.of(
+                doc("tomato-soup", "番茄牛腩汤：牛腩焯水后与番茄同炖两小时。", 0.82),
+                doc("scrambled", "番茄炒蛋做法：鸡蛋打散炒至凝固盛出，番茄炒出汁后回锅翻炒。", 0.80),
+                doc("noise", "厨房清洁小贴士：灶台油污可用小苏打擦拭。", 0.70));
+
+        List<Document> ranked = new LexicalReranker().rerank("番茄炒蛋怎么做", docs, 2);
+
+        assertEquals(List.of("scrambled", "tomato-soup"), ranked.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    void clearWinnerStaysLocal() {
+        AtomicInteger llmCalls = new AtomicInteger();
+        EscalatingReranker reranker = new EscalatingReranker(new LexicalReranker(),
+                (query, docs, topK) -> {
+                    llmCalls.incrementAndGet();
+                    return docs;
+                }, 0.05, new SimpleMeterRegistry());
+
+        List<Document> docs = List.of(
+                doc("a", "红烧肉：五花肉切块焯水，炒糖色后小火慢炖。", 0.9),
+                doc("b", "清炒时蔬：大火快炒，少油少盐。", 0.5),
+                doc("c", "米饭蒸制：米水比例一比一点二。", 0.4));
+
+        List<Document> ranked = reranker.rerank("红烧肉做法", docs, 1);
+
+        assertEquals(0, llmCalls.get());
+        assertEquals("a", ranked.get(0).getId());
+    }
+
+    @Test
+    void noLexicalOverlapEscalatesToLlm() {
+        AtomicInteger llmCalls = new AtomicInteger();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EscalatingReranker reranker = new EscalatingReranker(new LexicalReranker(),
+                (query, docs, topK) -> {
+                    llmCalls.incrementAndGet();
+                    return List.of(docs.get(1));
+                }, 0.05, registry);
+
+        // 查询与候选无词法重合，本地分数不可信
+        List<Document> docs = List.of(
+                doc("a", "红烧肉：五花肉切块焯水。", 0.81),
+                doc("b", "糖醋排骨：排骨炸至金黄。", 0.80));
+
+        List<Document> ranked = reranker.rerank("今晚吃什么", docs, 1);
+
+        assertEquals(1, llmCalls.get());
+        assertEquals("b", ranked.get(0).getId());
+        assertEquals(1.0, registry.get("douya.rerank.escalation").tag("result", "escalated").counter().count());
+    }
+
+    @Test
+    void closeLexicalScoresEscalateToLlm() {
+        AtomicInteger llmCalls = new AtomicInteger();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EscalatingReranker reranker = new EscalatingReranker(new LexicalReranker(),
+                (query, docs, topK) -> {
+                    llmCalls.incrementAndGet();
+                    return List.of(docs.get(1));
+                }, 0.05, registry);
+
+        // 两个候选都与查询重合、向量相似度相同，仅篇幅略有差异，融合分差落在 margin 内
+        List<Document> docs = List.of(
+                doc("a", "红烧肉：五花肉切块焯水，炒糖色后小火慢炖。", 0.8),
+                doc("b", "红烧肉：五花肉切块焯水，冰糖炒色后小火慢炖。", 0.8));
+        List<LexicalReranker.ScoredDocument> scored = new LexicalReranker().score("红烧肉做法", docs);
+        assertTrue(scored.stream().allMatch(item -> item.bm25() > 0), "两个候选都应有词法重合");
+        assertTrue(scored.get(0).score() - scored.get(1).score() < 0.05);
+
+        List<Document> ranked = reranker.rerank("红烧肉做法", docs, 1);
+
+        assertEquals(1, llmCalls.get());
+        assertEquals("b", ranked.get(0).getId());
+        assertEquals(1.0, registry.get("douya.rerank.escalation").tag("result", "escalated").counter().count());
+    }
+
+    private static Document doc(String id, String text, double score) {
+        return Document.builder().id(id).text(text).metadata(Map.of()).score(score).build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.tengjiao.douya.app;
+
+import com.tengjiao.douya.infrastructure.config.PublicSearchCacheProperties;
+import com.tengjiao.douya.infrastructure.vectorstore.PublicSearchCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 公共检索结果缓存：精确命中、版本失效与近似命中
+ */
+class PublicSearchCacheTest {
+
+    private final float[] query = {0.6f, 0.8f, 0f};
+    private final List<Document> docs = List.of(Document.builder().id("d1").text("红烧肉做法").build());
+
+    @Test
+    void sameEmbeddingAndTopKHits() {
+        PublicSearchCache cache = new PublicSearchCache(new PublicSearchCacheProperties(), new SimpleMeterRegistry());
+        cache.put(query, 10, cache.currentVersion(), docs);
+
+        assertEquals(docs, cache.get(query.clone(), 10).orElseThrow());
+        assertTrue(cache.get(query, 5).isEmpty(), "不同 topK 不应命中");
+    }
+
+    @Test
+    void bumpVersionInvalidatesAndDropsStaleWrites() {
+        PublicSearchCache cache = new PublicSearchCache(new PublicSearchCacheProperties(), new SimpleMeterRegistry());
+        cache.put(query, 10, cache.currentVersion(), docs);
+        long searchStartedAt = cache.currentVersion();
+
+        cache.bumpVersion("test");
+        assertTrue(cache.get(query, 10).isEmpty());
+
+        // 检索在写入前开始、写入后才回填，结果已过时
+        cache.put(query, 10, searchStartedAt, docs);
+        assertTrue(cache.get(query, 10).isEmpty());
+    }
+
+    @Test
+    void approximateHitRespectsThreshold() {
+        PublicSearchCacheProperties properties = new PublicSearchCacheProperties();
+        properties.setApproximate(true);
+        properties.setSimilarityThreshold(0.99);
+        PublicSearchCache cache = new PublicSearchCache(properties, new SimpleMeterRegistry());
+        cache.put(query, 10, cache.currentVersion(), docs);
+
+        assertEquals(docs, cache.get(new float[]{0.61f, 0.79f, 0.01f}, 10).orElseThrow());
+        assertTrue(cache.get(new float[]{0.8f, 0.6f, 0f}, 10).isEmpty(), "cos=0.96 低于阈值");
+        assertEquals(1L, cache.stats().get("approximateHits"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.tengjiao.douya.app;
+
+import com.tengjiao.douya.application.graph.SupervisorFastRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Supervisor 规则快速路由的确定性场景与命中统计
+ */
+class SupervisorFastRouterTest {
+
+    private final SupervisorFastRouter router = new SupervisorFastRouter();
+
+    @Test
+    void finishAfterExpertAnswered() {
+        List<Object> messages = List.of(new UserMessage("红烧肉怎么做"), new AssistantMessage("先焯水..."));
+
+        SupervisorFastRouter.Decision decision = router.route(messages, "EatingMaster", false);
+
+        assertTrue(decision.confident());
+        assertEquals("FINISH", decision.next());
+        assertEquals("FINISH", router.route(messages, "DailyAssistant", false).next());
+    }
+
+    @Test
+    void visionOutputIsSummarizedByEatingMaster() {
+        List<Object> messages = List.of(new UserMessage("看看这是什么菜"), new AssistantMessage("图片中是宫保鸡丁"));
+
+        SupervisorFastRouter.Decision decision = router.route(messages, "VisionUnderstand", true);
+
+        assertTrue(decision.confident());
+        assertEquals("EatingMaster", decision.next());
+    }
+
+    @Test
+    void mediaRoutesToVisionOnce() {
+        UserMessage withImage = UserMessage.builder()
+                .text("这道菜叫什么")
+                .media(Media.builder()
+                        .mimeType(MimeTypeUtils.IMAGE_PNG)
+                        .data(new byte[]{1, 2, 3})
+                        .build())
+                .build();
+        List<Object> messages = List.of(withImage, new AssistantMessage("识别图片中的菜品名称"));
+
+        assertEquals("VisionUnderstand", router.route(messages, "PromptRewriter", false).next());
+        assertFalse(router.route(messages, "PromptRewriter", true).confident());
+    }
+
+    @Test
+    void retrievalKeywordsRouteToEatingMaster() {
+        List<Object> messages = List.of(new UserMessage("番茄炒蛋"), new AssistantMessage("请调用 public_search 搜索番茄炒蛋的标准做法"));
+
+        SupervisorFastRouter.Decision decision = router.route(messages, "PromptRewriter", false);
+
+        assertTrue(decision.confident());
+        assertEquals("EatingMaster", decision.next());
+    }
+
+    @Test
+    void ambiguousInputFallsBackToLlmAndCountsMiss() {
+        List<Object> messages = List.of(new UserMessage("今天金价多少"), new AssistantMessage("查询今日黄金价格"));
+
+        SupervisorFastRouter.Decision decision = router.route(messages, "PromptRewriter", false);
+        router.route(List.of(new UserMessage("x"), new AssistantMessage("y")), "EatingMaster", false);
+
+        assertFalse(decision.confident());
+        assertEquals(1L, router.getHits());
+        assertEquals(1L, router.getMisses());
+        assertEquals(0.5, (double) router.stats().get("hitRate"), 1e-9);
+    }
+}
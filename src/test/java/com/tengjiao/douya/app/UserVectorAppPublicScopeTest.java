@@ -0,0 +1,207 @@
+package com.tengjiao.douya.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.infrastructure.config.EmbeddingCacheProperties;
+import com.tengjiao.douya.infrastructure.config.PublicSearchCacheProperties;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingCache;
+import com.tengjiao.douya.infrastructure.vectorstore.PublicSearchCache;
+import com.tengjiao.douya.infrastructure.vectorstore.UserVectorApp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chroma.vectorstore.ChromaApi;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 公共检索按 scope 在 Chroma 侧过滤，未打标签的历史数据回退为后置过滤；scope 回填分页扫描、跳过用户记忆与已打标签的分片
+ */
+class UserVectorAppPublicScopeTest {
+
+    private static final String COLLECTION = "douya";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StubVectorStore vectorStore = new StubVectorStore();
+    private final StubChromaApi chromaApi = new StubChromaApi();
+    private final PublicSearchCache publicSearchCache =
+            new PublicSearchCache(new PublicSearchCacheProperties(), new SimpleMeterRegistry());
+    private final UserVectorApp userVectorApp = new UserVectorApp(vectorStore, chromaApi, new StubEmbeddingModel(),
+            new EmbeddingCache(new EmbeddingCacheProperties(), new SimpleMeterRegistry()), publicSearchCache,
+            null, null, null);
+
+    @Test
+    void searchPublicFiltersByScopeInChroma() {
+        Document publicDoc = document("p1", Map.of(UserVectorApp.SCOPE_KEY, UserVectorApp.SCOPE_PUBLIC));
+        vectorStore.filteredResults = List.of(publicDoc);
+
+        List<Document> result = userVectorApp.searchPublic("南瓜粥", 3);
+
+        assertEquals(List.of("p1"), result.stream().map(Document::getId).toList());
+        assertEquals(1, vectorStore.requests.size(), "已打标签时不应再做全库检索");
+        SearchRequest request = vectorStore.requests.get(0);
+        assertEquals(3, request.getTopK());
+        assertEquals(new FilterExpressionTextParser().parse("scope == 'public'"), request.getFilterExpression());
+    }
+
+    @Test
+    void searchPublicFallsBackToPostFilterWhenNothingIsTagged() {
+        vectorStore.unfilteredResults = List.of(
+                document("legacy-1", Map.of("documentName", "南瓜粥做法.pdf")),
+                document("memory-1", Map.of("userId", "u1")),
+                document("legacy-2", Map.of()));
+
+        List<Document> result = userVectorApp.searchPublic("南瓜粥", 3);
+
+        assertEquals(List.of("legacy-1", "legacy-2"), result.stream().map(Document::getId).toList());
+        assertEquals(2, vectorStore.requests.size());
+        assertNull(vectorStore.requests.get(1).getFilterExpression());
+        assertEquals(3, vectorStore.requests.get(1).getTopK());
+    }
+
+    @Test
+    void backfillTagsUntaggedPublicChunksPageByPage() {
+        chromaApi.entries.add(entry("c0", Map.of("documentName", "a.pdf")));
+        chromaApi.entries.add(entry("c1", Map.of("userId", "u1")));
+        chromaApi.entries.add(entry("c2", Map.of(UserVectorApp.SCOPE_KEY, UserVectorApp.SCOPE_PUBLIC)));
+        chromaApi.entries.add(entry("c3", Map.of()));
+        chromaApi.entries.add(entry("c4", Map.of("documentName", "b.pdf")));
+        long version = publicSearchCache.currentVersion();
+
+        Map<String, Object> report = userVectorApp.backfillPublicScope(COLLECTION, 2);
+
+        assertEquals(List.of(0, 2, 4), chromaApi.requestedOffsets);
+        assertEquals(List.of("c0", "c3", "c4"), chromaApi.upsertedIds);
+        assertEquals(Map.of("documentName", "a.pdf", UserVectorApp.SCOPE_KEY, UserVectorApp.SCOPE_PUBLIC),
+                chromaApi.entries.get(0).metadata());
+        assertEquals(Map.of("userId", "u1"), chromaApi.entries.get(1).metadata());
+        assertEquals(5, report.get("scanned"));
+        assertEquals(3, report.get("tagged"));
+        assertEquals(1, report.get("skippedUser"));
+        assertEquals(version + 1, publicSearchCache.currentVersion());
+
+        // 再次执行没有需要打标签的分片，不应写回也不应让缓存失效
+        chromaApi.upsertedIds.clear();
+        Map<String, Object> again = userVectorApp.backfillPublicScope(COLLECTION, 2);
+        assertEquals(0, again.get("tagged"));
+        assertEquals(List.of(), chromaApi.upsertedIds);
+        assertEquals(version + 1, publicSearchCache.currentVersion());
+    }
+
+    private Document document(String id, Map<String, Object> metadata) {
+        return Document.builder().id(id).text("text of " + id).metadata(metadata).build();
+    }
+
+    private StoredEntry entry(String id, Map<String, String> metadata) {
+        return new StoredEntry(id, "text of " + id, new float[]{id.length(), 1f}, new LinkedHashMap<>(metadata));
+    }
+
+    private record StoredEntry(String id, String document, float[] embedding, Map<String, String> metadata) {
+    }
+
+    private static class StubVectorStore implements VectorStore {
+
+        private final List<SearchRequest> requests = new ArrayList<>();
+        private List<Document> filteredResults = List.of();
+        private List<Document> unfilteredResults = List.of();
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            requests.add(request);
+            return request.getFilterExpression() != null ? filteredResults : unfilteredResults;
+        }
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+    }
+
+    /**
+     * 内存中的单个集合；响应按 Chroma 返回的 JSON 结构构造
+     */
+    private class StubChromaApi extends ChromaApi {
+
+        private final List<StoredEntry> entries = new ArrayList<>();
+        private final List<Integer> requestedOffsets = new ArrayList<>();
+        private final List<String> upsertedIds = new ArrayList<>();
+
+        StubChromaApi() {
+            super("http://localhost:8000", RestClient.builder(), new ObjectMapper());
+        }
+
+        @Override
+        public Collection getCollection(String tenantName, String databaseName, String collectionName) {
+            return objectMapper.convertValue(Map.of("id", "collection-1", "name", collectionName), Collection.class);
+        }
+
+        @Override
+        public GetEmbeddingResponse getEmbeddings(String tenantName, String databaseName, String collectionId,
+                                                  GetEmbeddingsRequest request) {
+            requestedOffsets.add(request.offset());
+            List<StoredEntry> page = entries.subList(Math.min(request.offset(), entries.size()),
+                    Math.min(request.offset() + request.limit(), entries.size()));
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("ids", page.stream().map(StoredEntry::id).toList());
+            response.put("documents", page.stream().map(StoredEntry::document).toList());
+            response.put("embeddings", page.stream().map(StoredEntry::embedding).toList());
+            response.put("metadatas", page.stream().map(StoredEntry::metadata).toList());
+            return objectMapper.convertValue(response, GetEmbeddingResponse.class);
+        }
+
+        @Override
+        public void upsertEmbeddings(String tenantName, String databaseName, String collectionId,
+                                     AddEmbeddingsRequest request) {
+            for (int i = 0; i < request.ids().size(); i++) {
+                String id = request.ids().get(i);
+                upsertedIds.add(id);
+                for (int j = 0; j < entries.size(); j++) {
+                    if (entries.get(j).id().equals(id)) {
+                        Map<String, String> metadata = new LinkedHashMap<>();
+                        request.metadata().get(i).forEach((k, v) -> metadata.put(k, String.valueOf(v)));
+                        entries.set(j, new StoredEntry(id, request.documents().get(i),
+                                request.embeddings().get(i), metadata));
+                    }
+                }
+            }
+        }
+    }
+
+    private static class StubEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(new float[]{1f, 0f}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return new float[]{1f, 0f};
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.tengjiao.douya.app;
+
+import com.tengjiao.douya.infrastructure.config.ChromaProperties;
+import com.tengjiao.douya.infrastructure.config.EmbeddingCacheProperties;
+import com.tengjiao.douya.infrastructure.config.VectorCollectionProperties;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingCache;
+import com.tengjiao.douya.infrastructure.vectorstore.VectorCollectionRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 集合路由：用户分片稳定、多集合并行检索合并与失败隔离
+ */
+class VectorCollectionRouterTest {
+
+    private VectorCollectionRouter router(VectorCollectionProperties properties) {
+        ChromaProperties chromaProperties = new ChromaProperties();
+        chromaProperties.setCollectionName("douya");
+        EmbeddingCache embeddingCache = new EmbeddingCache(new EmbeddingCacheProperties(), new SimpleMeterRegistry());
+        return new VectorCollectionRouter(null, null, null, embeddingCache, chromaProperties, properties);
+    }
+
+    @Test
+    void routesUsersToStableMemoryShards() {
+        VectorCollectionRouter router = router(new VectorCollectionProperties());
+
+        String shard = router.memoryCollection("ou_user_1");
+        assertEquals(shard, router.memoryCollection("ou_user_1"));
+        assertTrue(shard.startsWith("douya_memory_"));
+        assertTrue(router.memoryCollections().contains(shard));
+        assertEquals(List.of("douya", "douya_memory_0", "douya_memory_1", "douya_memory_2", "douya_memory_3"),
+                router.collections());
+
+        VectorCollectionProperties single = new VectorCollectionProperties();
+        single.setSplit(false);
+        assertEquals("douya", router(single).memoryCollection("ou_user_1"));
+        assertEquals(List.of("douya"), router(single).collections());
+    }
+
+    @Test
+    void fanOutMergesByScoreAndSkipsFailedCollections() {
+        VectorCollectionRouter router = router(new VectorCollectionProperties());
+        List<Supplier<List<Document>>> searches = List.of(
+                () -> List.of(doc("p1", 0.62), doc("p2", 0.40)),
+                () -> List.of(doc("m1", 0.91), doc("p1", 0.62)),
+                () -> {
+                    throw new IllegalStateException("collection unavailable");
+                }
+        );
+
+        List<Document> merged = router.fanOut(searches, 3);
+
+        assertEquals(List.of("m1", "p1", "p2"), merged.stream().map(Document::getId).toList());
+    }
+
+    private Document doc(String id, double score) {
+        return Document.builder().id(id).text(id).score(score).build();
+    }
+}
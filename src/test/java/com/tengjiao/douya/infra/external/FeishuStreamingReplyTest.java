@@ -0,0 +1,132 @@
+package com.tengjiao.douya.infra.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.entity.feishu.FeishuMessageSendRequest;
+import com.tengjiao.douya.entity.feishu.FeishuMessageSendResponse;
+import com.tengjiao.douya.infrastructure.external.feishu.FeishuService;
+import com.tengjiao.douya.infrastructure.external.feishu.FeishuStreamingReply;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 飞书增量回复：编辑按最小间隔节流、进度编辑不超过上限并为最终答复留一次、占位消息失败时整体回退
+ */
+class FeishuStreamingReplyTest {
+
+    private static final long INTERVAL_MS = 1500L;
+    private static final int MAX_EDITS = 18;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StubFeishuService feishuService = new StubFeishuService();
+    private long now = 10_000L;
+
+    @Test
+    void editsAreThrottledByMinimumInterval() throws Exception {
+        FeishuStreamingReply reply = startedReply();
+
+        reply.onToken("supervisor", "红烧");
+        now += INTERVAL_MS - 1;
+        reply.onToken("supervisor", "肉");
+        assertEquals(1, feishuService.updates.size(), "间隔不足 1500ms 不应编辑");
+
+        now += 1;
+        reply.onToken("supervisor", "要");
+        assertEquals(List.of("红烧 ...", "红烧肉要 ..."), texts());
+    }
+
+    @Test
+    void progressEditsStopBeforeCapAndFinishUsesTheLastOne() throws Exception {
+        FeishuStreamingReply reply = startedReply();
+        reply.onRoute(Map.of("decision", "recipe_agent"));
+        for (int i = 0; i < MAX_EDITS * 2; i++) {
+            now += INTERVAL_MS;
+            reply.onToken("recipe_agent", "字");
+        }
+        assertEquals(MAX_EDITS - 1, feishuService.updates.size());
+        assertEquals("本大师已交给 recipe_agent 处理 ...", texts().get(0));
+
+        // 最终答复不受节流限制，占用预留的最后一次编辑
+        assertTrue(reply.finish("最终答复"));
+        assertEquals(MAX_EDITS, feishuService.updates.size());
+        assertEquals("最终答复", texts().get(MAX_EDITS - 1));
+        assertFalse(reply.finish("再来一次"), "编辑次数用尽后应回退为新发消息");
+    }
+
+    @Test
+    void finishFailsWhenPlaceholderWasNotSent() {
+        feishuService.failSend = true;
+        FeishuStreamingReply reply = new FeishuStreamingReply(feishuService, "u1", () -> now);
+        reply.start("思考中 ...");
+        now += INTERVAL_MS;
+        reply.onToolCall("recipe_agent", "publicDocumentSearch");
+        reply.onToken("recipe_agent", "答");
+
+        assertFalse(reply.finish("最终答复"));
+        assertTrue(feishuService.updates.isEmpty());
+    }
+
+    private FeishuStreamingReply startedReply() {
+        FeishuStreamingReply reply = new FeishuStreamingReply(feishuService, "u1", () -> now);
+        reply.start("思考中 ...");
+        assertEquals(1, feishuService.sent.size());
+        return reply;
+    }
+
+    private List<String> texts() throws Exception {
+        List<String> texts = new ArrayList<>();
+        for (String content : feishuService.updates) {
+            texts.add(objectMapper.readTree(content).get("text").asText());
+        }
+        return texts;
+    }
+
+    private static class StubFeishuService implements FeishuService {
+
+        private final List<FeishuMessageSendRequest> sent = new ArrayList<>();
+        private final List<String> updates = new ArrayList<>();
+        private boolean failSend;
+
+        @Override
+        public String getAppAccessToken() {
+            return "app-token";
+        }
+
+        @Override
+        public String getTenantAccessToken() {
+            return "tenant-token";
+        }
+
+        @Override
+        public FeishuMessageSendResponse sendMessage(String receiveIdType, FeishuMessageSendRequest request) {
+            if (failSend) {
+                throw new IllegalStateException("feishu unavailable");
+            }
+            sent.add(request);
+            FeishuMessageSendResponse.MessageData data = new FeishuMessageSendResponse.MessageData();
+            data.setMessageId("om_" + sent.size());
+            FeishuMessageSendResponse response = new FeishuMessageSendResponse();
+            response.setData(data);
+            return response;
+        }
+
+        @Override
+        public FeishuMessageSendResponse updateMessage(String messageId, String msgType, String content) {
+            assertEquals("om_1", messageId);
+            updates.add(content);
+            return new FeishuMessageSendResponse();
+        }
+
+        @Override
+        public String uploadImage(File imageFile) {
+            return "img_1";
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.tengjiao.douya.infra.external;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tengjiao.douya.infrastructure.config.PageIndexRagProperties;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PageIndexRagStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 看板接口复用缓存的目录，数据文件变化（外部改写或删除文档）后重新加载
+ */
+class PageIndexRagStoreServiceTest {
+
+    private static final Path FIXTURE = Path.of("src", "test", "resources", "page-index-parity", "page_index_store.json");
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Path dataFile;
+    private PageIndexRagStoreService storeService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataFile = tempDir.resolve("page_index_store.json");
+        Files.copy(FIXTURE, dataFile);
+        PageIndexRagProperties properties = new PageIndexRagProperties();
+        properties.setDataFile(dataFile.toString());
+        storeService = new PageIndexRagStoreService(properties);
+    }
+
+    @Test
+    void servesCachedCatalogUntilFileChanges() throws Exception {
+        JsonNode snapshot = objectMapper.readTree(dataFile.toFile());
+        int docs = snapshot.get("documents").size();
+        assertEquals(docs, storeService.getStatus().get("docs"));
+
+        // 内容换成无法解析的同长度数据并还原修改时间：命中缓存时不会重新解析
+        FileTime modified = Files.getLastModifiedTime(dataFile);
+        byte[] garbage = new byte[(int) Files.size(dataFile)];
+        Arrays.fill(garbage, (byte) 'x');
+        Files.write(dataFile, garbage);
+        Files.setLastModifiedTime(dataFile, modified);
+        assertEquals(docs, storeService.listDocuments(100, 0, null).get("total"));
+
+        String removed = snapshot.get("documents").fieldNames().next();
+        ((ObjectNode) snapshot.get("documents")).remove(removed);
+        objectMapper.writeValue(dataFile.toFile(), snapshot);
+        assertEquals(docs - 1, storeService.getStatus().get("docs"));
+        assertTrue(storeService.getDocumentDetail(removed).containsKey("error"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pagingAndDetailUsePrecomputedIndexes() throws Exception {
+        JsonNode snapshot = objectMapper.readTree(dataFile.toFile());
+        int docs = snapshot.get("documents").size();
+
+        List<Map<String, Object>> all = (List<Map<String, Object>>) storeService.listDocuments(100, 0, null).get("items");
+        List<Map<String, Object>> second = (List<Map<String, Object>>) storeService.listDocuments(2, 2, null).get("items");
+        assertEquals(docs, all.size());
+        assertEquals(all.subList(2, 4), second);
+        assertEquals(1, storeService.listDocuments(10, 0, "膳食纤维报告").get("total"));
+
+        // 调用方修改返回结果不影响缓存
+        second.get(0).put("page_count", -1);
+        assertEquals(all.get(2), ((List<?>) storeService.listDocuments(2, 2, null).get("items")).get(0));
+
+        String docId = "fiber-report";
+        Map<String, Object> detail = storeService.getDocumentDetail(docId);
+        List<Map<String, Object>> pages = (List<Map<String, Object>>) detail.get("pages");
+        assertEquals(List.of(1, 2, 3), pages.stream().map(page -> page.get("page_no")).toList());
+        long chunks = 0;
+        for (JsonNode chunk : snapshot.get("chunks")) {
+            if (docId.equals(chunk.get("doc_id").asText())) {
+                chunks++;
+            }
+        }
+        assertEquals((int) chunks, detail.get("chunk_count"));
+    }
+
+    @Test
+    void deleteInvalidatesCatalog() {
+        int docs = (int) storeService.getStatus().get("docs");
+        assertEquals("SUCCESS", storeService.deleteDocument("kitchen-safety").get("status"));
+        assertEquals(docs - 1, storeService.getStatus().get("docs"));
+        assertTrue(storeService.deleteDocument("kitchen-safety").containsKey("error"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.tengjiao.douya.infra.external;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.infrastructure.config.PageIndexRagProperties;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PageIndex;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PageIndexRagStoreService;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PageIndexSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Python 写出的索引段在 Java 侧读取结果与对应 JSON 一致，过期的索引段不会被使用
+ */
+class PageIndexSegmentTest {
+
+    private static final Path FIXTURE_DIR = Path.of("src", "test", "resources", "page-index-parity");
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void segmentMatchesJsonSnapshot() throws Exception {
+        PageIndexSegment segment = PageIndexSegment.open(FIXTURE_DIR.resolve("page_index_store.seg"));
+        JsonNode snapshot = objectMapper.readTree(FIXTURE_DIR.resolve("page_index_store.json").toFile());
+
+        assertEquals(snapshot.get("documents").size(), segment.docCount());
+        assertEquals(snapshot.get("pages").size(), segment.pageCount());
+        assertEquals(snapshot.get("chunks").size(), segment.chunkCount());
+        assertEquals(snapshot.get("updated_at").asText(), segment.updatedAt());
+
+        float[] vector = new float[segment.vectorDim()];
+        Iterator<JsonNode> chunks = snapshot.get("chunks").elements();
+        for (int i = 0; i < segment.chunkCount(); i++) {
+            JsonNode chunk = chunks.next();
+            assertEquals(chunk.get("chunk_id").asText(), segment.chunkId(i));
+            assertEquals(chunk.get("page_id").asText(), segment.chunkPageId(i));
+            assertEquals(chunk.get("chunk_text").asText(), segment.chunkText(i));
+            assertEquals(chunk.get("page_no").asInt(), segment.chunkPageNo(i));
+            assertTrue(segment.chunkDenseValid(i));
+            segment.readVector(i, vector, 0);
+            for (int d = 0; d < vector.length; d++) {
+                assertEquals((float) chunk.get("dense_vector").get(d).asDouble(), vector[d]);
+            }
+        }
+    }
+
+    @Test
+    void indexFromSegmentAnswersLikePython() throws Exception {
+        PageIndex index = PageIndex.load(PageIndexSegment.open(FIXTURE_DIR.resolve("page_index_store.seg")));
+        for (JsonNode item : objectMapper.readTree(FIXTURE_DIR.resolve("expected_queries.json").toFile())) {
+            JsonNode request = item.get("request");
+            Map<String, Object> actual = index.query(request.get("query").asText(), request.get("top_k").asInt(),
+                    request.get("with_debug").asBoolean());
+            assertEquals(item.get("response"), objectMapper.readTree(objectMapper.writeValueAsString(actual)),
+                    "query=" + request.get("query").asText());
+        }
+    }
+
+    @Test
+    void staleSegmentIsIgnored() throws Exception {
+        Path dataFile = tempDir.resolve("page_index_store.json");
+        Files.copy(FIXTURE_DIR.resolve("page_index_store.json"), dataFile);
+        Files.copy(FIXTURE_DIR.resolve("page_index_store.seg"), tempDir.resolve("page_index_store.seg"));
+        assertFalse(PageIndexSegment.openFor(dataFile).isPresent(), "复制后修改时间不同");
+
+        PageIndexSegment segment = PageIndexSegment.open(tempDir.resolve("page_index_store.seg"));
+        Files.setLastModifiedTime(dataFile, FileTime.from(segment.sourceModifiedNanos(), TimeUnit.NANOSECONDS));
+        assertTrue(PageIndexSegment.openFor(dataFile).isPresent());
+
+        PageIndexRagProperties properties = new PageIndexRagProperties();
+        properties.setDataFile(dataFile.toString());
+        PageIndexRagStoreService storeService = new PageIndexRagStoreService(properties);
+        Map<String, Object> fromSegment = storeService.listDocuments(50, 0, null);
+        String docId = firstDocId(dataFile);
+        Object detailFromSegment = storeService.getDocumentDetail(docId).get("pages");
+
+        Files.writeString(dataFile, " ", StandardOpenOption.APPEND);
+        assertFalse(PageIndexSegment.openFor(dataFile).isPresent(), "JSON 改写后索引段过期");
+        assertEquals(fromSegment, storeService.listDocuments(50, 0, null));
+        assertEquals(detailFromSegment, storeService.getDocumentDetail(docId).get("pages"));
+    }
+
+    private String firstDocId(Path dataFile) throws Exception {
+        return objectMapper.readTree(dataFile.toFile()).get("documents").fieldNames().next();
+    }
+}
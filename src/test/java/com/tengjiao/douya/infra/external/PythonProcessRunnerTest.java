@@ -0,0 +1,114 @@
+package com.tengjiao.douya.infra.external;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.infrastructure.external.python.PythonProcessRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 子进程输出远大于管道缓冲区时不阻塞，stdout 超限、超时与失败退出按约定返回
+ */
+class PythonProcessRunnerTest {
+
+    private static final String SCRIPT = """
+            import json, sys, time
+            payload = json.loads(sys.stdin.read() or "{}")
+            mode = payload.get("mode")
+            if mode == "big":
+                # 先写大量 stderr 再写大 stdout，旧实现 waitFor 后才读管道会卡到超时
+                sys.stderr.write("x" * 200000)
+                sys.stderr.flush()
+                print(json.dumps({"items": ["chunk-%d-" % i + "y" * 100 for i in range(payload["count"])]}))
+            elif mode == "fail":
+                print(json.dumps({"status": "FAILED", "code": "PYTHON_SCRIPT_QUERY_FAILED", "error": "boom"}))
+                sys.exit(1)
+            elif mode == "sleep":
+                time.sleep(30)
+            elif mode == "empty":
+                pass
+            else:
+                print(json.dumps({"echo": payload}))
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Path script;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(pythonAvailable(), "python3 不可用，跳过");
+        script = tempDir.resolve("runner_probe.py");
+        Files.writeString(script, SCRIPT);
+    }
+
+    @Test
+    void outputLargerThanPipeBufferDoesNotBlock() throws Exception {
+        PythonProcessRunner runner = new PythonProcessRunner(objectMapper, PythonProcessRunner.DEFAULT_MAX_OUTPUT_BYTES);
+        long start = System.nanoTime();
+        PythonProcessRunner.Result<Map<String, List<String>>> result = runner.run(
+                command(), tempDir, Map.of("mode", "big", "count", 20000), 20, new TypeReference<>() {
+                });
+
+        assertTrue(result.success());
+        assertEquals(20000, result.requireParsed().get("items").size());
+        assertTrue(result.stdoutBytes() > 2_000_000);
+        assertTrue(result.stderr().length() <= 16 * 1024, "stderr 只保留末尾");
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void outputOverLimitKillsProcess() {
+        PythonProcessRunner runner = new PythonProcessRunner(objectMapper, 64 * 1024);
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> runner.run(
+                command(), tempDir, Map.of("mode", "big", "count", 20000), 20, Map.class));
+        assertTrue(error.getMessage().contains("超过上限"));
+    }
+
+    @Test
+    void failureTimeoutAndEmptyOutput() throws Exception {
+        PythonProcessRunner runner = new PythonProcessRunner(objectMapper, PythonProcessRunner.DEFAULT_MAX_OUTPUT_BYTES);
+
+        PythonProcessRunner.Result<Map> failed = runner.run(command(), tempDir, Map.of("mode", "fail"), 10, Map.class);
+        assertFalse(failed.success());
+        assertTrue(failed.failureReason().contains("PYTHON_SCRIPT_QUERY_FAILED"), "stderr 为空时使用 stdout 中的错误 JSON");
+
+        PythonProcessRunner.Result<Map> empty = runner.run(command(), tempDir, Map.of("mode", "empty"), 10, Map.class);
+        assertTrue(empty.success());
+        assertNull(empty.requireParsed());
+
+        long start = System.nanoTime();
+        assertThrows(IllegalStateException.class,
+                () -> runner.run(command(), tempDir, Map.of("mode", "sleep"), 1, Map.class));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    private List<String> command() {
+        return List.of("python3", script.toString());
+    }
+
+    private boolean pythonAvailable() {
+        try {
+            Process process = new ProcessBuilder("python3", "--version").redirectErrorStream(true).start();
+            return process.waitFor(5, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.tengjiao.douya.infra.tool;
+
+import com.tengjiao.douya.infrastructure.config.PageIndexRagProperties;
+import com.tengjiao.douya.infrastructure.external.pageindexrag.PythonWorkerPool;
+import com.tengjiao.douya.infrastructure.tool.PageIndexRagSearchTool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 每次查询启动脚本 vs 常驻 worker 池的延迟对比，以及 worker 崩溃/超时后的自动恢复。
+ * 使用协议兼容的假脚本：启动时模拟依赖导入耗时，单次模式与 worker 模式共用同一文件。
+ */
+@Slf4j
+class PageIndexRagWorkerPoolBenchmarkTest {
+
+    private static final int ITERATIONS = 10;
+    private static final String FAKE_SCRIPT = """
+            import json, os, sys, time
+            time.sleep(0.2)  # 模拟导入 pydantic / 加载索引的启动成本
+
+            def handle(op, payload):
+                if op == "crash":
+                    os._exit(3)
+                if op == "sleep":
+                    time.sleep(float(payload.get("seconds", 5)))
+                if op == "fail":
+                    return False, {"status": "FAILED", "code": "PYTHON_SCRIPT_QUERY_FAILED", "error": "boom"}
+                return True, {"answer": "answer:" + str(payload.get("query", "")), "citations": [], "pid": os.getpid()}
+
+            if "--mode" in sys.argv:
+                ok, result = handle("query", json.loads(sys.stdin.read() or "{}"))
+                print(json.dumps(result))
+                raise SystemExit(0 if ok else 1)
+
+            out = sys.stdout
+            sys.stdout = sys.stderr
+            out.write(json.dumps({"event": "ready", "pid": os.getpid()}) + "\\n")
+            out.flush()
+            for line in sys.stdin:
+                request = json.loads(line)
+                if request["op"] == "garbage":
+                    out.write("Traceback (most recent call last): not json\\n")
+                    out.flush()
+                    continue
+                ok, result = handle(request["op"], request.get("payload") or {})
+                out.write(json.dumps({"id": request["id"], "ok": ok, "result": result}) + "\\n")
+                out.flush()
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private final PageIndexRagProperties properties = new PageIndexRagProperties();
+    private PythonWorkerPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(pythonAvailable(), "python3 不可用，跳过");
+        Path script = tempDir.resolve("fake_page_index.py");
+        Files.writeString(script, FAKE_SCRIPT);
+        properties.setPythonCommand("python3");
+        properties.setQueryScript(script.toString());
+        properties.setWorkerScript(script.toString());
+        properties.setWorkerPoolSize(2);
+        properties.setWorkerHealthCheckIntervalSeconds(0);
+        properties.setPythonTimeoutSeconds(10);
+        pool = new PythonWorkerPool(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void pooledQueriesSkipInterpreterStartup() {
+        PageIndexRagSearchTool forkTool = new PageIndexRagSearchTool(properties);
+        PageIndexRagSearchTool pooledTool = new PageIndexRagSearchTool(properties, pool);
+        pooledTool.search(new PageIndexRagSearchTool.Request("warmup", 3, false));
+
+        long forkNanos = 0;
+        long pooledNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            String forked = forkTool.search(new PageIndexRagSearchTool.Request("q" + i, 3, false)).content();
+            forkNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            String pooled = pooledTool.search(new PageIndexRagSearchTool.Request("q" + i, 3, false)).content();
+            pooledNanos += System.nanoTime() - start;
+
+            assertEquals(forked, pooled, "两种调用方式结果应一致");
+            assertTrue(pooled.contains("answer:q" + i));
+        }
+        long forkAvg = TimeUnit.NANOSECONDS.toMillis(forkNanos / ITERATIONS);
+        long pooledAvg = TimeUnit.NANOSECONDS.toMillis(pooledNanos / ITERATIONS);
+        log.info("[PageIndexRagBench] 每次启动脚本 avg={} ms, worker 池 avg={} ms", forkAvg, pooledAvg);
+        assertTrue(pooledNanos * 2 < forkNanos, "worker 池应明显快于每次启动脚本");
+    }
+
+    @Test
+    void crashedAndTimedOutWorkersAreReplaced() throws Exception {
+        Object firstPid = pool.call("query", Map.of("query", "a"), 10).get("pid");
+        assertEquals(firstPid, pool.call("query", Map.of("query", "b"), 10).get("pid"), "空闲 worker 应被复用");
+
+        assertThrows(IllegalStateException.class, () -> pool.call("crash", Map.of(), 10));
+        Object restartedPid = pool.call("query", Map.of("query", "c"), 10).get("pid");
+        assertNotEquals(firstPid, restartedPid, "崩溃的 worker 应被替换");
+
+        long start = System.nanoTime();
+        assertThrows(IllegalStateException.class, () -> pool.call("sleep", Map.of("seconds", 30), 1));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "请求应按超时返回");
+        Object afterTimeoutPid = pool.call("query", Map.of("query", "d"), 10).get("pid");
+        assertNotEquals(restartedPid, afterTimeoutPid, "超时的 worker 应被结束并替换");
+
+        assertThrows(IllegalStateException.class, () -> pool.call("garbage", Map.of(), 10));
+        Object afterGarbagePid = pool.call("query", Map.of("query", "d2"), 10).get("pid");
+        assertNotEquals(afterTimeoutPid, afterGarbagePid, "输出无法解析的 worker 应被结束并替换");
+
+        IllegalStateException failed = assertThrows(IllegalStateException.class, () -> pool.call("fail", Map.of(), 10));
+        assertTrue(failed.getMessage().contains("PYTHON_SCRIPT_QUERY_FAILED"), "业务失败应带回脚本错误码");
+        assertEquals(afterGarbagePid, pool.call("query", Map.of("query", "e"), 10).get("pid"), "业务失败不应重启 worker");
+    }
+
+    private boolean pythonAvailable() {
+        try {
+            Process process = new ProcessBuilder("python3", "--version").redirectErrorStream(true).start();
+            return process.waitFor(5, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
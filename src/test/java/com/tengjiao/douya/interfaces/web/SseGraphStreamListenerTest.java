@@ -0,0 +1,89 @@
+package com.tengjiao.douya.interfaces.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * SSE 进度事件：按图回调顺序写出 route → tool → token → done，客户端断开后停止推送
+ */
+class SseGraphStreamListenerTest {
+
+    @Test
+    void writesEventsInCallbackOrder() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseGraphStreamListener listener = new SseGraphStreamListener(emitter);
+
+        listener.onRoute(Map.of("step", 1, "decision", "recipe_agent"));
+        listener.onToolCall("recipe_agent", "publicDocumentSearch");
+        listener.onToken("recipe_agent", "红烧");
+        listener.onToken("recipe_agent", "肉");
+        listener.done("红烧肉");
+
+        assertEquals(List.of("route", "tool", "token", "token", "done"), emitter.events);
+        assertEquals(Map.of("step", 1, "decision", "recipe_agent"), emitter.data.get(0));
+        assertEquals(Map.of("agent", "recipe_agent", "tool", "publicDocumentSearch"), emitter.data.get(1));
+        assertEquals(Map.of("agent", "recipe_agent", "content", "肉"), emitter.data.get(3));
+        assertEquals(Map.of("content", "红烧肉"), emitter.data.get(4));
+    }
+
+    @Test
+    void errorEventCarriesMessageAndNullReplyIsEmpty() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseGraphStreamListener listener = new SseGraphStreamListener(emitter);
+
+        listener.onToken("recipe_agent", "红");
+        listener.error("模型调用超时");
+        listener.done(null);
+
+        assertEquals(List.of("token", "error", "done"), emitter.events);
+        assertEquals(Map.of("error", "模型调用超时"), emitter.data.get(1));
+        assertEquals(Map.of("content", ""), emitter.data.get(2));
+    }
+
+    @Test
+    void stopsSendingAfterClientDisconnects() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseGraphStreamListener listener = new SseGraphStreamListener(emitter);
+
+        listener.onRoute(Map.of("decision", "recipe_agent"));
+        emitter.disconnected = true;
+        listener.onToken("recipe_agent", "红");
+        emitter.disconnected = false;
+        listener.onToken("recipe_agent", "烧");
+        listener.done("红烧");
+
+        assertEquals(List.of("route"), emitter.events);
+        assertEquals(2, emitter.attempts, "断开后不应再尝试写出");
+    }
+
+    /**
+     * 记录写出的事件名与数据；disconnected 时模拟客户端断开
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new ArrayList<>();
+        private final List<Object> data = new ArrayList<>();
+        private boolean disconnected;
+        private int attempts;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            attempts++;
+            if (disconnected) {
+                throw new IOException("Broken pipe");
+            }
+            // 构建结果依次为 "event:<name>\ndata:" 文本与数据对象
+            List<DataWithMediaType> parts = new ArrayList<>(builder.build());
+            String head = (String) parts.get(0).getData();
+            events.add(head.substring("event:".length(), head.indexOf('\n')));
+            data.add(parts.get(1).getData());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.tengjiao.douya.service.impl;
+
+import com.tengjiao.douya.domain.eating.model.PdfImageInfo;
+import com.tengjiao.douya.domain.eating.service.PdfImageUploader;
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
+import com.tengjiao.douya.infrastructure.oss.OssService;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 图片按内容寻址：JPEG 原样上传，跨文档相同图片只上传一次，已知对象不再请求 OSS
+ */
+class PdfImageUploaderTest {
+
+    private final RecordingOssService oss = new RecordingOssService();
+    private final DocumentIngestProperties properties = new DocumentIngestProperties();
+
+    @Test
+    void identicalImagesAcrossDocumentsUploadOnce() throws Exception {
+        byte[] jpeg = jpegBytes();
+        BufferedImage logo = image(Color.ORANGE);
+        PdfImageUploader uploader = new PdfImageUploader(oss, properties, Runnable::run, Runnable::run);
+
+        List<PdfImageInfo> first;
+        try (PDDocument document = documentWith(jpeg, logo)) {
+            PdfImageUploader.Session session = uploader.newSession();
+            first = session.extract(document, 1, 2);
+            assertEquals(2, session.uploaded());
+        }
+        assertEquals(3, first.size(), "每页引用的图片都应返回，第 2 页复用同一 logo");
+        assertTrue(first.stream().allMatch(info -> info.getOssUrl().contains("/images/")));
+
+        PdfImageInfo jpegInfo = first.stream().filter(info -> "jpg".equals(info.getFormat())).findFirst().orElseThrow();
+        assertArrayEquals(jpeg, oss.objects.get("images/" + jpegInfo.getFileName()), "JPEG 应原样上传不重编码");
+        assertTrue(first.stream().anyMatch(info -> "png".equals(info.getFormat())));
+
+        int existChecks = oss.existChecks.get();
+        try (PDDocument other = documentWith(jpeg, logo)) {
+            PdfImageUploader.Session session = uploader.newSession();
+            List<PdfImageInfo> second = session.extract(other, 1, 2);
+            assertEquals(0, session.uploaded());
+            assertEquals(2, session.cacheHits());
+            assertEquals(first.stream().map(PdfImageInfo::getOssUrl).toList(),
+                    second.stream().map(PdfImageInfo::getOssUrl).toList());
+        }
+        assertEquals(existChecks, oss.existChecks.get(), "已知对象不应再检查 OSS");
+
+        // 新进程（空缓存）通过一次存在性检查复用，不解码也不上传
+        try (PDDocument other = documentWith(jpeg, logo)) {
+            PdfImageUploader.Session session = new PdfImageUploader(oss, properties, Runnable::run, Runnable::run).newSession();
+            session.extract(other, 1, 2);
+            assertEquals(0, session.uploaded());
+            assertEquals(2, session.reused());
+        }
+        assertEquals(2, oss.uploads.get());
+    }
+
+    @Test
+    void decodedImagesInFlightAreBounded() throws Exception {
+        properties.setImageMaxDecodedInFlight(2);
+        AtomicInteger queued = new AtomicInteger();
+        AtomicInteger maxQueued = new AtomicInteger();
+        ExecutorService encodePool = Executors.newSingleThreadExecutor();
+        ExecutorService uploadPool = Executors.newVirtualThreadPerTaskExecutor();
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                for (int i = 0; i < 10; i++) {
+                    PDImageXObject image = LosslessFactory.createFromImage(document, image(new Color(i * 20, 80, 160)));
+                    content.drawImage(image, 10 + i * 50, 600, 40, 40);
+                }
+            }
+            // 编码任务故意放慢：入队数（已解码未编码的位图）不应超过许可数，外加一个正在归还许可的任务
+            PdfImageUploader uploader = new PdfImageUploader(oss, properties, task -> {
+                maxQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+                encodePool.execute(() -> {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    task.run();
+                    queued.decrementAndGet();
+                });
+            }, uploadPool);
+            PdfImageUploader.Session session = uploader.newSession();
+            List<PdfImageInfo> images = session.extract(document, 1, 1);
+
+            assertEquals(10, images.size());
+            assertEquals(10, session.uploaded());
+            assertTrue(maxQueued.get() <= 3, "已解码未编码的图片数应受许可限制，实际 " + maxQueued.get());
+            assertTrue(session.timings().get("imageDecodeWait") > 0, "许可耗尽时提取线程应等待");
+        } finally {
+            encodePool.shutdownNow();
+            uploadPool.shutdownNow();
+        }
+    }
+
+    private PDDocument documentWith(byte[] jpeg, BufferedImage logo) throws IOException {
+        PDDocument document = new PDDocument();
+        PDImageXObject photo = JPEGFactory.createFromByteArray(document, jpeg);
+        PDImageXObject mark = LosslessFactory.createFromImage(document, logo);
+        for (int p = 0; p < 2; p++) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                if (p == 0) {
+                    content.drawImage(photo, 50, 400, 200, 200);
+                }
+                content.drawImage(mark, 50, 700, 40, 40);
+            }
+        }
+        return document;
+    }
+
+    private byte[] jpegBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image(Color.GREEN), "jpg", out);
+        return out.toByteArray();
+    }
+
+    private BufferedImage image(Color color) {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 64, 64);
+        graphics.setColor(Color.BLACK);
+        graphics.drawLine(0, 0, 63, 63);
+        graphics.dispose();
+        return image;
+    }
+
+    private static class RecordingOssService implements OssService {
+
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final AtomicInteger existChecks = new AtomicInteger();
+        private final AtomicInteger uploads = new AtomicInteger();
+
+        @Override
+        public String uploadFile(String objectName, InputStream inputStream) {
+            try {
+                objects.put(objectName, inputStream.readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            uploads.incrementAndGet();
+            return getFileUrl(objectName);
+        }
+
+        @Override
+        public String uploadFile(String objectName, String filePath) {
+            return getFileUrl(objectName);
+        }
+
+        @Override
+        public boolean doesObjectExist(String objectName) {
+            existChecks.incrementAndGet();
+            return objects.containsKey(objectName);
+        }
+
+        @Override
+        public void deleteObject(String objectName) {
+            objects.remove(objectName);
+        }
+
+        @Override
+        public List<String> listObjects(String prefix) {
+            return objects.keySet().stream().filter(key -> key.startsWith(prefix)).toList();
+        }
+
+        @Override
+        public void copyObject(String sourceKey, String destinationKey) {
+        }
+
+        @Override
+        public String getBucketName() {
+            return "test";
+        }
+
+        @Override
+        public String getFileUrl(String objectName) {
+            return "https://oss.example.com/" + objectName;
+        }
+    }
+}
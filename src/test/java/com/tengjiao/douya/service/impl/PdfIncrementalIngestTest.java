@@ -0,0 +1,299 @@
+package com.tengjiao.douya.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.domain.eating.model.DocumentSplitStrategy;
+import com.tengjiao.douya.domain.eating.model.PdfProcessResult;
+import com.tengjiao.douya.domain.eating.model.PdfSplitOptions;
+import com.tengjiao.douya.domain.eating.service.PdfDocumentServiceImpl;
+import com.tengjiao.douya.domain.eating.service.PdfImageUploader;
+import com.tengjiao.douya.domain.eating.service.PdfTextExtractor;
+import com.tengjiao.douya.infrastructure.config.ChromaProperties;
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
+import com.tengjiao.douya.infrastructure.config.DocumentSplitProperties;
+import com.tengjiao.douya.infrastructure.config.EmbeddingWriteProperties;
+import com.tengjiao.douya.infrastructure.config.PublicSearchCacheProperties;
+import com.tengjiao.douya.infrastructure.config.VectorCollectionProperties;
+import com.tengjiao.douya.infrastructure.oss.OssService;
+import com.tengjiao.douya.infrastructure.vectorstore.ChunkManifestStore;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingBatchWriter;
+import com.tengjiao.douya.infrastructure.vectorstore.ParentBlockStore;
+import com.tengjiao.douya.infrastructure.vectorstore.PublicSearchCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 增量入库：同一文档重复上传不产生 Embedding，修订后只处理差异分片
+ */
+class PdfIncrementalIngestTest {
+
+    private static final int PAGES = 8;
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, Document> stored = new ConcurrentHashMap<>();
+    private final Map<String, float[]> vectors = new ConcurrentHashMap<>();
+    private final Map<String, String> parents = new ConcurrentHashMap<>();
+    private final AtomicInteger parentWrites = new AtomicInteger();
+    private final CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+
+    @Test
+    void reingestionOnlyEmbedsChangedChunks() throws Exception {
+        PdfDocumentServiceImpl service = newService();
+
+        PdfProcessResult first = ingest(service, writePdf("v1.pdf", -1));
+        assertEquals("SUCCESS", first.getStatus());
+        int chunks = first.getChunkCount();
+        assertTrue(chunks > PAGES);
+        assertEquals(chunks, first.getEmbeddedChunkCount());
+        assertEquals(chunks, stored.size());
+        assertTrue(parents.size() < chunks, "同一父块下的子块应共享一份父文本");
+        assertTrue(stored.values().stream().noneMatch(doc -> doc.getMetadata().containsKey("parent_text")));
+        assertTrue(stored.values().stream().allMatch(doc -> parents.containsKey(
+                (String) doc.getMetadata().get(ParentBlockStore.PARENT_ID_KEY))));
+
+        int embeddedBefore = embeddingModel.embedded.get();
+        PdfProcessResult same = ingest(service, writePdf("v1-again.pdf", -1));
+        assertEquals(0, same.getEmbeddedChunkCount());
+        assertEquals(0, same.getRelabeledChunkCount());
+        assertEquals(0, same.getDeletedChunkCount());
+        assertEquals(chunks, same.getUnchangedChunkCount());
+        assertEquals(embeddedBefore, embeddingModel.embedded.get(), "未变化的文档不应调用 Embedding");
+        assertEquals(parents.size(), parentWrites.get(), "未变化的父块不应重复写入");
+
+        PdfProcessResult revised = ingest(service, writePdf("v2.pdf", 5));
+        assertEquals("SUCCESS", revised.getStatus());
+        assertTrue(revised.getEmbeddedChunkCount() > 0);
+        assertTrue(revised.getEmbeddedChunkCount() < revised.getChunkCount() / 2,
+                "只修改一页时重新 Embedding 的分片应远少于全量");
+        assertTrue(revised.getDeletedChunkCount() > 0, "被修改页的旧分片应被删除");
+        assertEquals(revised.getChunkCount(), stored.size());
+        assertEquals(embeddedBefore + revised.getEmbeddedChunkCount(), embeddingModel.embedded.get());
+        Set<String> referenced = new HashSet<>();
+        stored.values().forEach(doc -> referenced.add((String) doc.getMetadata().get(ParentBlockStore.PARENT_ID_KEY)));
+        assertEquals(referenced, parents.keySet(), "不再被引用的父块应被删除");
+    }
+
+    private PdfProcessResult ingest(PdfDocumentServiceImpl service, Path pdf) throws Exception {
+        try (InputStream in = Files.newInputStream(pdf)) {
+            return service.processPdfDocument(in, "menu.pdf",
+                    PdfSplitOptions.builder().strategy(DocumentSplitStrategy.JAVA).build());
+        }
+    }
+
+    private Path writePdf(String fileName, int revisedPage) throws Exception {
+        Path file = tempDir.resolve(fileName);
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 1; p <= PAGES; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 11);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 700);
+                    String verb = p == revisedPage ? "whisk" : "stir";
+                    for (int line = 0; line < 20; line++) {
+                        content.showText("Recipe " + p + " step " + line + ": " + verb
+                                + " the sauce slowly until it thickens and turns glossy.");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+
+    private PdfDocumentServiceImpl newService() {
+        DocumentIngestProperties ingestProperties = new DocumentIngestProperties();
+        ingestProperties.setWindowPages(3);
+        EmbeddingWriteProperties writeProperties = new EmbeddingWriteProperties();
+        writeProperties.setRequestsPerSecond(0);
+        writeProperties.setTokensPerSecond(0);
+        ChromaProperties chromaProperties = new ChromaProperties();
+        chromaProperties.setCollectionName("douya");
+        return new PdfDocumentServiceImpl(
+                new InMemoryBatchWriter(embeddingModel, writeProperties),
+                chromaProperties,
+                new DocumentSplitProperties(),
+                new ObjectMapper(),
+                new PublicSearchCache(new PublicSearchCacheProperties(), new SimpleMeterRegistry()),
+                ingestProperties,
+                new PdfTextExtractor(ingestProperties),
+                new InMemoryManifestStore(),
+                new InMemoryParentStore(),
+                new PdfImageUploader(new NoopOssService(), ingestProperties, Runnable::run, Runnable::run));
+    }
+
+    private class InMemoryBatchWriter extends EmbeddingBatchWriter {
+
+        InMemoryBatchWriter(EmbeddingModel embeddingModel, EmbeddingWriteProperties properties) {
+            super(embeddingModel, null, properties, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public ChunkSink chromaSink(String collectionName) {
+            return (documents, embeddings) -> {
+                for (int i = 0; i < documents.size(); i++) {
+                    stored.put(documents.get(i).getId(), documents.get(i));
+                    vectors.put(documents.get(i).getId(), embeddings.get(i));
+                }
+            };
+        }
+    }
+
+    private class InMemoryManifestStore extends ChunkManifestStore {
+
+        InMemoryManifestStore() {
+            super(null);
+        }
+
+        @Override
+        public Map<String, String> load(String collectionName, String documentName) {
+            Map<String, String> manifest = new LinkedHashMap<>();
+            stored.forEach((id, document) -> {
+                if (documentName.equals(document.getMetadata().get("documentName"))) {
+                    manifest.put(id, String.valueOf(document.getMetadata().get(METADATA_HASH_KEY)));
+                }
+            });
+            return manifest;
+        }
+
+        @Override
+        public Map<String, float[]> fetchEmbeddings(String collectionName, List<String> ids) {
+            Map<String, float[]> result = new HashMap<>();
+            ids.forEach(id -> {
+                if (vectors.containsKey(id)) {
+                    result.put(id, vectors.get(id));
+                }
+            });
+            return result;
+        }
+
+        @Override
+        public int delete(String collectionName, Collection<String> ids) {
+            ids.forEach(id -> {
+                stored.remove(id);
+                vectors.remove(id);
+            });
+            return ids.size();
+        }
+    }
+
+    private class InMemoryParentStore extends ParentBlockStore {
+
+        InMemoryParentStore() {
+            super(null, new VectorCollectionProperties());
+        }
+
+        @Override
+        public void upsert(String documentName, Map<String, String> blocks) {
+            parents.putAll(blocks);
+            parentWrites.addAndGet(blocks.size());
+        }
+
+        @Override
+        public Set<String> idsOf(String documentName) {
+            return new HashSet<>(parents.keySet());
+        }
+
+        @Override
+        public int delete(Collection<String> parentIds) {
+            parentIds.forEach(parents::remove);
+            return parentIds.size();
+        }
+    }
+
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final AtomicInteger embedded = new AtomicInteger();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<String> texts = request.getInstructions();
+            embedded.addAndGet(texts.size());
+            List<Embedding> embeddings = new ArrayList<>(texts.size());
+            for (int i = 0; i < texts.size(); i++) {
+                embeddings.add(new Embedding(new float[]{texts.get(i).length(), texts.get(i).hashCode()}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return new float[]{document.getText().length(), document.getText().hashCode()};
+        }
+    }
+
+    private static class NoopOssService implements OssService {
+
+        @Override
+        public String uploadFile(String objectName, InputStream inputStream) {
+            return "https://oss.example.com/" + objectName;
+        }
+
+        @Override
+        public String uploadFile(String objectName, String filePath) {
+            return "https://oss.example.com/" + objectName;
+        }
+
+        @Override
+        public boolean doesObjectExist(String objectName) {
+            return false;
+        }
+
+        @Override
+        public void deleteObject(String objectName) {
+        }
+
+        @Override
+        public List<String> listObjects(String prefix) {
+            return List.of();
+        }
+
+        @Override
+        public void copyObject(String sourceKey, String destinationKey) {
+        }
+
+        @Override
+        public String getBucketName() {
+            return "stub";
+        }
+
+        @Override
+        public String getFileUrl(String objectName) {
+            return "https://oss.example.com/" + objectName;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.tengjiao.douya.service.impl;
+
+import com.tengjiao.douya.domain.eating.model.PdfIngestJob;
+import com.tengjiao.douya.domain.eating.model.PdfIngestProgress;
+import com.tengjiao.douya.domain.eating.model.PdfProcessResult;
+import com.tengjiao.douya.domain.eating.model.PdfSplitOptions;
+import com.tengjiao.douya.domain.eating.service.PdfDocumentService;
+import com.tengjiao.douya.domain.eating.service.PdfIngestJobService;
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 异步入库任务：进度回传、队列满拒绝与临时文件清理
+ */
+class PdfIngestJobServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile Path lastFile;
+    private ThreadPoolTaskExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void reportsProgressAndRejectsWhenQueueIsFull() throws Exception {
+        DocumentIngestProperties properties = new DocumentIngestProperties();
+        properties.setJobQueueCapacity(0);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+        PdfIngestJobService service = new PdfIngestJobService(new BlockingPdfDocumentService(), executor, properties);
+
+        PdfIngestJob running = service.submit(pdf(), "menu.pdf", PdfSplitOptions.defaults());
+        PdfIngestJob rejected = service.submit(pdf(), "menu-2.pdf", PdfSplitOptions.defaults());
+
+        assertEquals(PdfIngestJob.REJECTED, rejected.getStatus());
+        assertEquals(1L, ((Map<?, ?>) service.overview().get("executor")).get("rejectedCount"));
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!running.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(PdfIngestJob.SUCCESS, running.getStatus());
+        assertEquals(3, running.snapshot().get("pagesProcessed"));
+        assertEquals(12, running.snapshot().get("chunksStored"));
+        assertFalse(Files.exists(lastFile), "任务结束后应删除落盘文件");
+        assertTrue(service.getJob(running.getJobId()).isPresent());
+    }
+
+    private InputStream pdf() {
+        return new ByteArrayInputStream("%PDF-1.7 stub".getBytes());
+    }
+
+    private class BlockingPdfDocumentService implements PdfDocumentService {
+
+        @Override
+        public PdfProcessResult processPdfDocument(Path pdfFile, String documentName, PdfSplitOptions options,
+                                                   PdfIngestProgress progress) {
+            lastFile = pdfFile;
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            progress.onStarted(3);
+            progress.onPagesProcessed(3);
+            progress.onChunksStored(12);
+            return PdfProcessResult.builder().documentName(documentName).status("SUCCESS").chunkCount(12).build();
+        }
+
+        @Override
+        public CompletableFuture<PdfProcessResult> processPdfDocumentAsync(InputStream pdfInputStream, String documentName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<PdfProcessResult> processPdfDocumentAsync(InputStream pdfInputStream, String documentName,
+                                                                           PdfSplitOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PdfProcessResult processPdfDocument(InputStream pdfInputStream, String documentName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PdfProcessResult processPdfDocument(InputStream pdfInputStream, String documentName,
+                                                   PdfSplitOptions options) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.tengjiao.douya.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tengjiao.douya.domain.eating.model.DocumentSplitStrategy;
+import com.tengjiao.douya.domain.eating.model.PdfProcessResult;
+import com.tengjiao.douya.domain.eating.model.PdfSplitOptions;
+import com.tengjiao.douya.domain.eating.service.PdfDocumentServiceImpl;
+import com.tengjiao.douya.domain.eating.service.PdfImageUploader;
+import com.tengjiao.douya.domain.eating.service.PdfTextExtractor;
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
+import com.tengjiao.douya.infrastructure.config.ChromaProperties;
+import com.tengjiao.douya.infrastructure.config.DocumentSplitProperties;
+import com.tengjiao.douya.infrastructure.config.EmbeddingWriteProperties;
+import com.tengjiao.douya.infrastructure.config.PublicSearchCacheProperties;
+import com.tengjiao.douya.infrastructure.config.VectorCollectionProperties;
+import com.tengjiao.douya.infrastructure.oss.OssService;
+import com.tengjiao.douya.infrastructure.vectorstore.ChunkManifestStore;
+import com.tengjiao.douya.infrastructure.vectorstore.EmbeddingBatchWriter;
+import com.tengjiao.douya.infrastructure.vectorstore.ParentBlockStore;
+import com.tengjiao.douya.infrastructure.vectorstore.PublicSearchCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PDF 入库峰值堆内存对比：整本缓冲（窗口 = 全部页）与按窗口流式处理。
+ * 使用程序生成的多页图文 PDF，OSS 与向量库均为桩实现，只测量解析/切分阶段的堆占用。
+ */
+@Slf4j
+class PdfIngestPeakHeapBenchmarkTest {
+
+    private static final int PAGES = 120;
+    private static final int IMAGE_SIZE = 800;
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path pdfFile;
+
+    @BeforeAll
+    static void generatePdf() throws Exception {
+        pdfFile = tempDir.resolve("large-menu.pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 1; p <= PAGES; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+                for (int y = 0; y < IMAGE_SIZE; y += 4) {
+                    for (int x = 0; x < IMAGE_SIZE; x += 4) {
+                        image.setRGB(x, y, (x * 31 + y * 17 + p * 7919) & 0xFFFFFF);
+                    }
+                }
+                PDImageXObject xObject = LosslessFactory.createFromImage(document, image);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(xObject, 50, 400, 200, 200);
+                    content.beginText();
+                    content.setFont(font, 11);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 380);
+                    for (int line = 0; line < 20; line++) {
+                        content.showText("Page " + p + " step " + line + ": stir the sauce slowly until it thickens and turns glossy.");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(pdfFile.toFile());
+        }
+    }
+
+    @Test
+    void windowedIngestionLowersPeakHeap() throws Exception {
+        Run whole = ingest(Integer.MAX_VALUE);
+        Run windowed = ingest(8);
+
+        log.info("[Benchmark] {} 页 PDF 峰值堆：整本缓冲 {} MB / {} ms，8 页窗口 {} MB / {} ms",
+                PAGES, whole.peakHeapBytes() / 1024 / 1024, whole.millis(),
+                windowed.peakHeapBytes() / 1024 / 1024, windowed.millis());
+        assertEquals("SUCCESS", whole.result().getStatus());
+        assertEquals("SUCCESS", windowed.result().getStatus());
+        assertEquals(PAGES, windowed.result().getImageCount());
+        assertTrue(windowed.result().getChunkCount() > 0);
+        assertTrue(windowed.result().getStageMillis().keySet().containsAll(List.of("images", "imageEncode", "splitStore")));
+        log.info("[Benchmark] 8 页窗口各阶段耗时(ms): {}", windowed.result().getStageMillis());
+    }
+
+    private Run ingest(int windowPages) throws Exception {
+        DocumentIngestProperties ingestProperties = new DocumentIngestProperties();
+        ingestProperties.setWindowPages(windowPages);
+        PdfDocumentServiceImpl service = new PdfDocumentServiceImpl(
+                new CountingBatchWriter(),
+                new ChromaProperties(),
+                new DocumentSplitProperties(),
+                new ObjectMapper(),
+                new PublicSearchCache(new PublicSearchCacheProperties(), new SimpleMeterRegistry()),
+                ingestProperties,
+                new PdfTextExtractor(ingestProperties),
+                new EmptyManifestStore(),
+                new NoopParentStore(),
+                new PdfImageUploader(new StubOssService(), ingestProperties, Runnable::run, Runnable::run));
+
+        System.gc();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong peak = new AtomicLong(memory.getHeapMemoryUsage().getUsed());
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        PdfProcessResult result;
+        try (InputStream in = Files.newInputStream(pdfFile)) {
+            result = service.processPdfDocument(in, "large-menu.pdf",
+                    PdfSplitOptions.builder().strategy(DocumentSplitStrategy.JAVA).build());
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+        return new Run(result, peak.get(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private record Run(PdfProcessResult result, long peakHeapBytes, long millis) {
+    }
+
+    private static class StubOssService implements OssService {
+
+        @Override
+        public String uploadFile(String objectName, InputStream inputStream) {
+            return "https://oss.example.com/" + objectName;
+        }
+
+        @Override
+        public String uploadFile(String objectName, String filePath) {
+            return "https://oss.example.com/" + objectName;
+        }
+
+        @Override
+        public boolean doesObjectExist(String objectName) {
+            return false;
+        }
+
+        @Override
+        public void deleteObject(String objectName) {
+        }
+
+        @Override
+        public List<String> listObjects(String prefix) {
+            return List.of();
+        }
+
+        @Override
+        public void copyObject(String sourceKey, String destinationKey) {
+        }
+
+        @Override
+        public String getBucketName() {
+            return "stub";
+        }
+
+        @Override
+        public String getFileUrl(String objectName) {
+            return "https://oss.example.com/" + objectName;
+        }
+    }
+
+    private static class CountingBatchWriter extends EmbeddingBatchWriter {
+
+        private final AtomicInteger stored = new AtomicInteger();
+
+        CountingBatchWriter() {
+            super(new StubEmbeddingModel(), null, unlimited(), new SimpleMeterRegistry());
+        }
+
+        private static EmbeddingWriteProperties unlimited() {
+            EmbeddingWriteProperties properties = new EmbeddingWriteProperties();
+            properties.setRequestsPerSecond(0);
+            properties.setTokensPerSecond(0);
+            return properties;
+        }
+
+        @Override
+        public ChunkSink chromaSink(String collectionName) {
+            return (documents, embeddings) -> stored.addAndGet(documents.size());
+        }
+    }
+
+    private static class EmptyManifestStore extends ChunkManifestStore {
+
+        EmptyManifestStore() {
+            super(null);
+        }
+
+        @Override
+        public Map<String, String> load(String collectionName, String documentName) {
+            return new LinkedHashMap<>();
+        }
+    }
+
+    private static class NoopParentStore extends ParentBlockStore {
+
+        NoopParentStore() {
+            super(null, new VectorCollectionProperties());
+        }
+
+        @Override
+        public void upsert(String documentName, Map<String, String> blocks) {
+        }
+
+        @Override
+        public Set<String> idsOf(String documentName) {
+            return new HashSet<>();
+        }
+
+        @Override
+        public int delete(Collection<String> parentIds) {
+            return 0;
+        }
+    }
+
+    private static class StubEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<String> texts = request.getInstructions();
+            List<Embedding> embeddings = new ArrayList<>(texts.size());
+            for (int i = 0; i < texts.size(); i++) {
+                embeddings.add(new Embedding(embed(texts.get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(String text) {
+            return new float[]{text.length(), 1f};
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.tengjiao.douya.service.impl;
+
+import com.tengjiao.douya.domain.eating.service.PdfTextCleaner;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 文本去噪/重组/清洗流水线：单次扫描实现与原正则实现的逐字节一致性，以及吞吐对比。
+ * 原实现原样保留在本类中作为参照。
+ */
+@Slf4j
+class PdfTextCleanerBenchmarkTest {
+
+    private static final int BENCH_PAGES = 2000;
+    private static final int ROUNDS = 3;
+
+    /**
+     * 覆盖各条规则边界的样例行
+     */
+    private static final List<String> EDGE_LINES = List.of(
+            "", "   ", "\t", "第 3 页", "第3页 共10页", "第 3 页\u2028尾", "第x页", "- 12 -", "-12-", "- 12 - x",
+            "12", " 12 ", "12/30", "12 / 30", "1/", "Recipe", "Our Menu", "Recipe 12", "A long line that mentions Recipe inline",
+            "配料", "主食谱：红烧肉", "1. 将五花肉切块", "a. step", "a step", "- 切葱", "• 盐", "* 糖", "12 slices of bread",
+            "Chapter One .......... 12", "Chapter One\u2028 12", "Chapter\r 12", "Contents\t\t7",
+            "This sentence is long enough to be merged with the next", "It ends properly.", "句子结束。", "真的吗？",
+            "ctrl\u0001chars\u001f here", "tabs\tand  double  spaces", "mixed \t blanks", "x\u000Bvt\u000Cff",
+            "\u0085nel inside", "ends with cr\r", "\r", "lone\rcr in middle of a fairly long line", "\u2029para"
+    );
+
+    private static final String[] TOKENS = {
+            "stir", "the", "sauce", "slowly", "12", "3", "第", "页", "-", "/", ".", "。", "！", "?", "•", "*",
+            "Recipe", "配料", "红烧肉", "a.", "B.", " ", "  ", "\t", "\r", "\u0001", "\u000B", "\u2028", "\u0085",
+            "\n", "\n", "\n\n", "\n\n\n", "\r\n", "...", "Contents", "糖", "盐"
+    };
+
+    @Test
+    void singlePassPipelineMatchesRegexImplementation() {
+        List<String> pages = new ArrayList<>();
+        pages.add("");
+        pages.add("\n");
+        pages.add("\r\n\r\n");
+        pages.add(String.join("\n", EDGE_LINES));
+        pages.add(String.join("\r\n", EDGE_LINES) + "\r\n\r\n");
+        pages.add("\n\n" + String.join("\n\n", EDGE_LINES) + "\n\n\n");
+        Random random = new Random(20261017L);
+        for (int i = 0; i < 400; i++) {
+            pages.add(randomPage(random));
+        }
+        // 页眉：出现在大部分页面
+        for (int i = 0; i < pages.size(); i += 2) {
+            pages.set(i, "Douya Kitchen Handbook\n" + pages.get(i) + "\n第 " + i + " 页");
+        }
+
+        Set<String> expectedNoise = LegacyCleaner.detectNoiseLines(pages);
+        assertEquals(expectedNoise, PdfTextCleaner.detectNoiseLines(pages));
+        assertTrue(expectedNoise.contains("Douya Kitchen Handbook"));
+
+        for (String page : pages) {
+            String filtered = LegacyCleaner.filterNoise(page, expectedNoise);
+            assertEquals(filtered, PdfTextCleaner.filterNoise(page, expectedNoise));
+            assertEquals(LegacyCleaner.mergeParagraphs(filtered), PdfTextCleaner.mergeParagraphs(filtered));
+            assertEquals(LegacyCleaner.mergeParagraphs(page), PdfTextCleaner.mergeParagraphs(page));
+            assertEquals(LegacyCleaner.deepClean(page), PdfTextCleaner.deepClean(page));
+            assertEquals(LegacyCleaner.deepClean(filtered), PdfTextCleaner.deepClean(filtered));
+        }
+        for (String line : EDGE_LINES) {
+            assertEquals(LegacyCleaner.deepClean(line), PdfTextCleaner.deepClean(line));
+            assertEquals(LegacyCleaner.mergeParagraphs(line + "\n" + line), PdfTextCleaner.mergeParagraphs(line + "\n" + line));
+        }
+    }
+
+    @Test
+    void singlePassPipelineThroughput() {
+        Random random = new Random(42L);
+        List<String> pages = new ArrayList<>(BENCH_PAGES);
+        for (int i = 0; i < BENCH_PAGES; i++) {
+            pages.add(recipePage(random, i));
+        }
+
+        long legacyNanos = 0;
+        long currentNanos = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            int legacyChars = runLegacy(pages);
+            long legacy = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int currentChars = runCurrent(pages);
+            long current = System.nanoTime() - start;
+
+            assertEquals(legacyChars, currentChars);
+            // 第 0 轮为预热
+            if (round > 0) {
+                legacyNanos += legacy;
+                currentNanos += current;
+            }
+        }
+        double legacyPagesPerSec = BENCH_PAGES * ROUNDS / (legacyNanos / 1e9);
+        double currentPagesPerSec = BENCH_PAGES * ROUNDS / (currentNanos / 1e9);
+        log.info("[Benchmark] 文本流水线 正则逐行: {} pages/s, 单次扫描: {} pages/s",
+                String.format("%.0f", legacyPagesPerSec), String.format("%.0f", currentPagesPerSec));
+    }
+
+    private int runLegacy(List<String> pages) {
+        Set<String> noise = LegacyCleaner.detectNoiseLines(pages);
+        int chars = 0;
+        for (String page : pages) {
+            chars += LegacyCleaner.deepClean(LegacyCleaner.mergeParagraphs(LegacyCleaner.filterNoise(page, noise))).length();
+        }
+        return chars;
+    }
+
+    private int runCurrent(List<String> pages) {
+        Set<String> noise = PdfTextCleaner.detectNoiseLines(pages);
+        int chars = 0;
+        for (String page : pages) {
+            chars += PdfTextCleaner.deepClean(PdfTextCleaner.mergeParagraphs(PdfTextCleaner.filterNoise(page, noise))).length();
+        }
+        return chars;
+    }
+
+    private String randomPage(Random random) {
+        StringBuilder page = new StringBuilder();
+        int tokens = 20 + random.nextInt(200);
+        for (int i = 0; i < tokens; i++) {
+            page.append(TOKENS[random.nextInt(TOKENS.length)]);
+            if (random.nextInt(4) == 0) {
+                page.append(' ');
+            }
+        }
+        return page.toString();
+    }
+
+    private String recipePage(Random random, int pageNo) {
+        StringBuilder page = new StringBuilder("Douya Kitchen Handbook\n");
+        for (int line = 0; line < 45; line++) {
+            switch (random.nextInt(5)) {
+                case 0 -> page.append(line + 1).append(". 将食材切成小块，  加入   适量的盐和糖");
+                case 1 -> page.append("Chapter ").append(line).append(" ........ ").append(pageNo);
+                case 2 -> page.append("Simmer the broth over low heat while skimming the foam");
+                case 3 -> page.append("配料");
+                default -> page.append("慢慢翻炒直到酱汁变得浓稠。");
+            }
+            page.append('\n');
+        }
+        page.append("- ").append(pageNo).append(" -\n");
+        return page.toString();
+    }
+
+    /**
+     * 重写前的正则实现
+     */
+    private static final class LegacyCleaner {
+
+        private static final Set<String> EXPLICIT_NOISE = Set.of("Our Menu", "Recipe", "Ingredients", "Method", "主食谱", "配料", "做法");
+
+        static Set<String> detectNoiseLines(List<String> pages) {
+            Map<String, Integer> lineCounts = new HashMap<>();
+            for (String text : pages) {
+                for (String line : text.split("\\r?\\n")) {
+                    String trimmed = line.trim();
+                    if (trimmed.length() > 3) {
+                        lineCounts.merge(trimmed, 1, Integer::sum);
+                    }
+                }
+            }
+            return lineCounts.entrySet().stream()
+                    .filter(e -> e.getValue() > pages.size() * 0.2)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+        }
+
+        static String filterNoise(String text, Set<String> noiseLines) {
+            StringBuilder cleanedText = new StringBuilder();
+            for (String line : text.split("\\r?\\n")) {
+                String trimmed = line.trim();
+                if (noiseLines.contains(trimmed)) {
+                    continue;
+                }
+                if (EXPLICIT_NOISE.contains(trimmed)
+                        || (trimmed.length() < 20 && EXPLICIT_NOISE.stream().anyMatch(trimmed::contains))) {
+                    continue;
+                }
+                if (trimmed.matches("^\\s*第\\s*\\d+\\s*页.*$") ||
+                        trimmed.matches("^\\s*-\\s*\\d+\\s*-\\s*$") ||
+                        trimmed.matches("^\\s*\\d+\\s*/\\s*\\d+\\s*$") ||
+                        trimmed.matches("^\\s*\\d+\\s*$")) {
+                    continue;
+                }
+                cleanedText.append(line).append("\n");
+            }
+            return cleanedText.toString();
+        }
+
+        static String mergeParagraphs(String text) {
+            String[] lines = text.split("\\n");
+            StringBuilder mergedText = new StringBuilder();
+            for (int i = 0; i < lines.length; i++) {
+                String line = lines[i].trim();
+                if (line.isEmpty()) {
+                    if (mergedText.length() > 0 && mergedText.charAt(mergedText.length() - 1) != '\n') {
+                        mergedText.append("\n\n");
+                    }
+                    continue;
+                }
+                mergedText.append(line);
+                String nextLine = (i + 1 < lines.length) ? lines[i + 1].trim() : "";
+                if (shouldMerge(line, nextLine)) {
+                    mergedText.append(" ");
+                } else {
+                    mergedText.append("\n");
+                }
+            }
+            if (mergedText.length() > 0 && mergedText.charAt(mergedText.length() - 1) != '\n') {
+                mergedText.append("\n");
+            }
+            return mergedText.toString();
+        }
+
+        static String deepClean(String text) {
+            if (text == null)
+                return "";
+            text = text.replaceAll("[\\x00-\\x08\\x0B\\x0C\\x0E-\\x1F]", "");
+            text = text.replaceAll("[^\\S\\r\\n]{2,}", " ");
+            text = text.replaceAll("\\n{3,}", "\n\n");
+            return text.trim();
+        }
+
+        private static boolean shouldMerge(String line, String nextLine) {
+            if (isSentenceEnd(line))
+                return false;
+            if (line.matches(".*\\s+\\d+$"))
+                return false;
+            if (line.length() < 20)
+                return false;
+            return !nextLine.matches("^(\\d+\\.|[a-zA-Z]\\.|-|•|\\*|\\d+).*");
+        }
+
+        private static boolean isSentenceEnd(String line) {
+            if (line.isEmpty())
+                return false;
+            char lastChar = line.charAt(line.length() - 1);
+            return lastChar == '。' || lastChar == '！' || lastChar == '？' ||
+                    lastChar == '.' || lastChar == '!' || lastChar == '?';
+        }
+    }
+}
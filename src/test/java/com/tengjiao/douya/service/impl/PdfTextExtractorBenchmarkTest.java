@@ -0,0 +1,100 @@
+package com.tengjiao.douya.service.impl;
+
+import com.tengjiao.douya.domain.eating.service.PdfTextExtractor;
+import com.tengjiao.douya.infrastructure.config.DocumentIngestProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 按页文本提取吞吐对比：串行逐页 vs 多 worker 并行（各自持有 PDDocument）。
+ * 同时校验两种方式输出逐页一致。
+ */
+@Slf4j
+class PdfTextExtractorBenchmarkTest {
+
+    private static final int PAGES = 200;
+    private static final int ROUNDS = 3;
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path pdfFile;
+
+    @BeforeAll
+    static void generatePdf() throws Exception {
+        pdfFile = tempDir.resolve("long-text.pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 1; p <= PAGES; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    // 两栏排版，让 sortByPosition 真正参与排序
+                    for (int column = 0; column < 2; column++) {
+                        content.beginText();
+                        content.setFont(font, 9);
+                        content.setLeading(11);
+                        content.newLineAtOffset(40 + column * 280, 750);
+                        for (int line = 0; line < 60; line++) {
+                            content.showText("p" + p + " c" + column + " l" + line + " braise the pork belly gently");
+                            content.newLine();
+                        }
+                        content.endText();
+                    }
+                }
+            }
+            document.save(pdfFile.toFile());
+        }
+    }
+
+    @Test
+    void parallelExtractionMatchesSerialOutput() throws Exception {
+        PdfTextExtractor serial = extractor(1);
+        PdfTextExtractor parallel = extractor(4);
+        try (PDDocument document = Loader.loadPDF(pdfFile.toFile())) {
+            List<String> expected = serial.extractPages(document, pdfFile);
+            List<String> actual = parallel.extractPages(document, pdfFile);
+            assertEquals(PAGES, actual.size());
+            assertEquals(expected, actual);
+
+            long serialNanos = 0;
+            long parallelNanos = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                serial.extractPages(document, pdfFile);
+                serialNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                parallel.extractPages(document, pdfFile);
+                parallelNanos += System.nanoTime() - start;
+            }
+            double serialPagesPerSec = PAGES * ROUNDS / (serialNanos / 1e9);
+            double parallelPagesPerSec = PAGES * ROUNDS / (parallelNanos / 1e9);
+            log.info("[Benchmark] 文本提取吞吐: 串行 {} pages/s, 4 worker 并行 {} pages/s",
+                    String.format("%.1f", serialPagesPerSec), String.format("%.1f", parallelPagesPerSec));
+        } finally {
+            serial.destroy();
+            parallel.destroy();
+        }
+    }
+
+    private PdfTextExtractor extractor(int parallelism) {
+        DocumentIngestProperties properties = new DocumentIngestProperties();
+        properties.setTextExtractParallelism(parallelism);
+        properties.setParallelTextMinPages(1);
+        return new PdfTextExtractor(properties);
+    }
+}
@@ -0,0 +1,111 @@
+package com.tengjiao.douya.service.impl;
+
+import com.tengjiao.douya.domain.eating.service.RecursiveTextSplitter;
+import com.tengjiao.douya.domain.eating.service.RecursiveTextSplitter.Span;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 递归切分器：区间连续覆盖全文、长度受限，重复文本下偏移依然准确
+ */
+@Slf4j
+class RecursiveTextSplitterTest {
+
+    private static final int LIMIT = 300;
+    private static final int OVERLAP = 50;
+
+    @Test
+    void spansCoverTextContiguouslyWithinLimit() {
+        Random random = new Random(17L);
+        String[] pieces = {"翻炒至金黄。", "Simmer gently. ", "加盐！", "真的吗？", "\n", "\n\n", "\n\n\n", " ", "a", "浓稠的酱汁"};
+        for (int round = 0; round < 200; round++) {
+            StringBuilder text = new StringBuilder();
+            int count = 50 + random.nextInt(800);
+            for (int i = 0; i < count; i++) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            if (random.nextInt(5) == 0) {
+                // 没有任何分隔符的超长段，触发强制按长度切分
+                text.append("x".repeat(LIMIT * 3));
+            }
+            assertWellFormed(text.toString(), RecursiveTextSplitter.split(text.toString(), LIMIT, OVERLAP));
+        }
+    }
+
+    @Test
+    void repetitiveTextKeepsExactOffsets() {
+        // 每段内容完全相同，旧实现用 indexOf 回查时会命中更早的重复段
+        String paragraph = "Stir the sauce slowly until it thickens and turns glossy. ".repeat(4).trim();
+        StringBuilder text = new StringBuilder();
+        for (int page = 0; page < 40; page++) {
+            text.append(paragraph).append("\n\n");
+        }
+        List<Span> spans = RecursiveTextSplitter.split(text.toString(), LIMIT, OVERLAP);
+        assertWellFormed(text.toString(), spans);
+        // 段落长度 < LIMIT，每段恰好在 "\n\n" 后切开，第 k 个子块从第 k 段开始并带上一段的重叠尾部
+        int paragraphLength = paragraph.length() + 2;
+        for (int k = 1; k < spans.size(); k++) {
+            assertEquals(spans.get(k - 1).end() - OVERLAP, spans.get(k).start());
+            assertEquals(0, spans.get(k - 1).end() % paragraphLength);
+        }
+        assertTrue(spans.get(spans.size() - 1).start() > text.length() - LIMIT - OVERLAP, "末尾子块应定位在文末");
+    }
+
+    @Test
+    void finerSeparatorDoesNotEmitOverlapOnlySpans() {
+        // 超长段落退到更细分隔符切分后，紧跟一段长度在 (limit - overlap, limit] 的段落
+        String text = "x".repeat(400) + "\n\n" + "y".repeat(280) + "\n\n" + "z".repeat(100);
+        List<Span> spans = RecursiveTextSplitter.split(text, LIMIT, OVERLAP);
+        assertWellFormed(text, spans);
+        int previousEnd = 0;
+        for (Span span : spans) {
+            String fresh = text.substring(Math.max(previousEnd, span.start()), span.end());
+            assertFalse(fresh.isBlank(), "子块的新内容不能只有分隔符: " + span);
+            previousEnd = span.end();
+        }
+    }
+
+    @Test
+    void emptyOrBlankTextYieldsNoSpans() {
+        assertTrue(RecursiveTextSplitter.split("", LIMIT, OVERLAP).isEmpty());
+        assertTrue(RecursiveTextSplitter.split(" \n\n ", LIMIT, OVERLAP).isEmpty());
+        assertEquals(List.of(new Span(0, 5)), RecursiveTextSplitter.split("short", LIMIT, OVERLAP));
+    }
+
+    @Test
+    void splitThroughput() {
+        String text = "将五花肉切成小块，冷水下锅焯水。\n加入冰糖小火炒出糖色！\nStir until glossy. ".repeat(20_000);
+        long start = System.nanoTime();
+        List<Span> spans = RecursiveTextSplitter.split(text, LIMIT, OVERLAP);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertWellFormed(text, spans);
+        log.info("[Benchmark] 切分 {} 字符 -> {} 个子块, {} ms", text.length(), spans.size(), millis);
+    }
+
+    private void assertWellFormed(String text, List<Span> spans) {
+        assertTrue(!spans.isEmpty());
+        assertEquals(0, spans.get(0).start());
+        assertEquals(text.length(), spans.get(spans.size() - 1).end());
+        int coveredUntil = 0;
+        int previousStart = -1;
+        int previousEnd = 0;
+        for (Span span : spans) {
+            assertTrue(span.start() < span.end());
+            assertTrue(span.start() > previousStart, "子块起点应严格递增");
+            assertTrue(span.start() <= coveredUntil, "相邻子块之间不能有空洞");
+            assertTrue(span.start() >= previousEnd - OVERLAP, "重叠不应超过 overlap");
+            assertTrue(span.length() <= LIMIT + OVERLAP, "子块长度超出 limit + overlap: " + span.length());
+            assertTrue(span.end() > coveredUntil, "子块不能完全落在已覆盖的范围内: " + span);
+            coveredUntil = Math.max(coveredUntil, span.end());
+            previousStart = span.start();
+            previousEnd = span.end();
+        }
+    }
+}